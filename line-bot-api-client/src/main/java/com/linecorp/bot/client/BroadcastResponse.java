@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.util.List;
+import java.util.Set;
+
+import com.linecorp.bot.model.Multicast;
+
+import lombok.Value;
+
+/**
+ * Aggregated result of {@link LineMessagingClient#broadcast(java.util.Iterator, List, int)}.
+ *
+ * <p>A broadcast never fails as a whole because of a single chunk.
+ * Failed chunks are reported in {@link #getFailures()} so that the caller can resend them.
+ */
+@Value
+public class BroadcastResponse {
+    /**
+     * Number of {@link Multicast} requests sent.
+     */
+    private final int chunks;
+
+    /**
+     * Number of recipients in chunks which are accepted by the server.
+     */
+    private final long succeededRecipients;
+
+    /**
+     * Chunks which are rejected by the server or failed in transport.
+     */
+    private final List<ChunkFailure> failures;
+
+    /**
+     * Returns true if all chunks are accepted.
+     */
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * A {@link Multicast} chunk which could not be sent.
+     */
+    @Value
+    public static class ChunkFailure {
+        /**
+         * Recipients of the failed chunk.
+         */
+        private final Set<String> to;
+
+        /**
+         * Cause of the failure, typically a {@link com.linecorp.bot.client.exception.LineMessagingException}.
+         */
+        private final Throwable cause;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import com.linecorp.bot.client.BroadcastResponse.ChunkFailure;
+import com.linecorp.bot.client.exception.GeneralLineMessagingException;
+import com.linecorp.bot.model.Multicast;
+import com.linecorp.bot.model.response.BotApiResponse;
+
+/**
+ * Splits recipients into {@link Multicast}-sized chunks and sends them with a bounded number of
+ * requests in flight.
+ *
+ * <p>Next chunk is pulled from the recipient iterator when a previous request completes,
+ * so that neither recipients nor requests are materialized all at once and no thread is blocked.
+ * Recipients are de-duplicated within a chunk only.
+ */
+class Broadcaster {
+    /**
+     * Max number of recipients in one {@link Multicast} request.
+     */
+    static final int MAX_RECIPIENTS_PER_MULTICAST = 150;
+
+    private final Iterator<String> recipients;
+    private final Function<Set<String>, CompletableFuture<BotApiResponse>> sender;
+    private final int chunkSize;
+    private final int maxInFlight;
+
+    private final CompletableFuture<BroadcastResponse> result = new CompletableFuture<>();
+    private final ConcurrentLinkedQueue<ChunkFailure> failures = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger drainRequests = new AtomicInteger();
+    private final AtomicLong succeededRecipients = new AtomicLong();
+
+    // Only accessed in drain loop.
+    private int chunks;
+    private boolean exhausted;
+    private RuntimeException recipientsFailure;
+
+    Broadcaster(final Iterator<String> recipients,
+                final Function<Set<String>, CompletableFuture<BotApiResponse>> sender,
+                final int chunkSize, final int maxInFlight) {
+        if (chunkSize < 1 || chunkSize > MAX_RECIPIENTS_PER_MULTICAST) {
+            throw new IllegalArgumentException("chunkSize should be in [1, "
+                                               + MAX_RECIPIENTS_PER_MULTICAST + "]. But " + chunkSize);
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight should be positive. But " + maxInFlight);
+        }
+        this.recipients = recipients;
+        this.sender = sender;
+        this.chunkSize = chunkSize;
+        this.maxInFlight = maxInFlight;
+    }
+
+    CompletableFuture<BroadcastResponse> start() {
+        drain();
+        return result;
+    }
+
+    /**
+     * Fills the in-flight window and detects completion.
+     *
+     * <p>Only one thread runs the loop at a time. Callers arriving while the loop is running just request
+     * another round, so that synchronously completed requests never recurse into this method.
+     */
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            return;
+        }
+
+        do {
+            while (!exhausted && inFlight.get() < maxInFlight) {
+                final Set<String> chunk = nextChunk();
+                if (chunk != null) {
+                    send(chunk);
+                }
+            }
+
+            if (exhausted && inFlight.get() == 0) {
+                finish();
+            }
+        } while (drainRequests.decrementAndGet() != 0);
+    }
+
+    private void send(final Set<String> chunk) {
+        ++chunks;
+        inFlight.incrementAndGet();
+
+        CompletableFuture<BotApiResponse> future;
+        try {
+            future = sender.apply(chunk);
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+
+        future.whenComplete((response, throwable) -> {
+            if (throwable == null) {
+                succeededRecipients.addAndGet(chunk.size());
+            } else {
+                failures.add(new ChunkFailure(chunk, throwable));
+            }
+            inFlight.decrementAndGet();
+            drain();
+        });
+    }
+
+    private Set<String> nextChunk() {
+        final Set<String> chunk = new LinkedHashSet<>();
+        try {
+            while (chunk.size() < chunkSize && recipients.hasNext()) {
+                final String to = recipients.next();
+                if (to != null) {
+                    chunk.add(to);
+                }
+            }
+            exhausted = !recipients.hasNext();
+        } catch (RuntimeException e) {
+            exhausted = true;
+            recipientsFailure = e;
+        }
+
+        return chunk.isEmpty() ? null : chunk;
+    }
+
+    private void finish() {
+        if (recipientsFailure != null) {
+            result.completeExceptionally(
+                    new GeneralLineMessagingException("Can't read recipients: " + recipientsFailure.getMessage(),
+                                                      null, recipientsFailure));
+            return;
+        }
+
+        final List<ChunkFailure> failureList = new ArrayList<>(failures);
+        result.complete(new BroadcastResponse(chunks, succeededRecipients.get(), failureList));
+    }
+}
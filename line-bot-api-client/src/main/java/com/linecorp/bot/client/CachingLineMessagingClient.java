@@ -0,0 +1,545 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import com.linecorp.bot.model.Multicast;
+import com.linecorp.bot.model.PreparedMessages;
+import com.linecorp.bot.model.PushMessage;
+import com.linecorp.bot.model.ReplyMessage;
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.LeaveEvent;
+import com.linecorp.bot.model.event.UnfollowEvent;
+import com.linecorp.bot.model.event.source.GroupSource;
+import com.linecorp.bot.model.event.source.RoomSource;
+import com.linecorp.bot.model.event.source.Source;
+import com.linecorp.bot.model.event.source.UserSource;
+import com.linecorp.bot.model.message.Message;
+import com.linecorp.bot.model.profile.MembersIdsResponse;
+import com.linecorp.bot.model.profile.UserProfileResponse;
+import com.linecorp.bot.model.response.BotApiResponse;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * {@link LineMessagingClient} decorator which caches user profiles.
+ *
+ * <p>{@link #getProfile(String)}, {@link #getGroupMemberProfile(String, String)} and
+ * {@link #getRoomMemberProfile(String, String)} are served from the cache. Concurrent misses of the same
+ * profile share one request. Entries are refreshed in background when they are read after
+ * {@code refreshAfter}, and evicted after {@code expireAfter} or by least recently used order
+ * when the cache is full. Failures are not cached.
+ *
+ * <p>Pass webhook events to {@link #invalidate(Event)} to drop profiles of users who blocked the bot
+ * and of groups or rooms the bot left. The Spring Boot handler does it for webhook events when the client is
+ * a bean. Otherwise, call it yourself.
+ *
+ * <pre>{@code
+ * CachingLineMessagingClient client = CachingLineMessagingClient.builder(new LineMessagingClientImpl(service))
+ *                                                               .maximumSize(10_000)
+ *                                                               .build();
+ * }</pre>
+ */
+public final class CachingLineMessagingClient implements LineMessagingClient {
+    public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+    public static final long DEFAULT_EXPIRE_AFTER = TimeUnit.HOURS.toMillis(1);
+    public static final long DEFAULT_REFRESH_AFTER = TimeUnit.MINUTES.toMillis(10);
+    public static final int DEFAULT_MAX_CONCURRENT_LOADS = 8;
+
+    private static final String ORG_TYPE_GROUP = "group";
+    private static final String ORG_TYPE_ROOM = "room";
+
+    private final LineMessagingClient delegate;
+    private final int maximumSize;
+    private final long expireAfterNanos;
+    private final long refreshAfterNanos;
+    private final int maxConcurrentLoads;
+    private final LongSupplier nanoClock;
+
+    /**
+     * Access ordered map. Guarded by itself.
+     */
+    private final LinkedHashMap<ProfileKey, CacheEntry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private CachingLineMessagingClient(final Builder builder) {
+        if (builder.maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize should be positive. But " + builder.maximumSize);
+        }
+        if (builder.maxConcurrentLoads < 1) {
+            throw new IllegalArgumentException(
+                    "maxConcurrentLoads should be positive. But " + builder.maxConcurrentLoads);
+        }
+        this.delegate = builder.delegate;
+        this.maximumSize = builder.maximumSize;
+        this.expireAfterNanos = TimeUnit.MILLISECONDS.toNanos(builder.expireAfter);
+        this.refreshAfterNanos = TimeUnit.MILLISECONDS.toNanos(builder.refreshAfter);
+        this.maxConcurrentLoads = builder.maxConcurrentLoads;
+        this.nanoClock = builder.nanoClock;
+        this.entries = new LinkedHashMap<ProfileKey, CacheEntry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Entry<ProfileKey, CacheEntry> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    public static Builder builder(@NonNull final LineMessagingClient delegate) {
+        return new Builder(delegate);
+    }
+
+    @Override
+    public CompletableFuture<UserProfileResponse> getProfile(final String userId) {
+        return get(new ProfileKey(null, null, userId), () -> delegate.getProfile(userId));
+    }
+
+    @Override
+    public CompletableFuture<UserProfileResponse> getGroupMemberProfile(
+            final String groupId, final String userId) {
+        return get(new ProfileKey(ORG_TYPE_GROUP, groupId, userId),
+                   () -> delegate.getGroupMemberProfile(groupId, userId));
+    }
+
+    @Override
+    public CompletableFuture<UserProfileResponse> getRoomMemberProfile(
+            final String roomId, final String userId) {
+        return get(new ProfileKey(ORG_TYPE_ROOM, roomId, userId),
+                   () -> delegate.getRoomMemberProfile(roomId, userId));
+    }
+
+    /**
+     * Get profiles of users.
+     *
+     * <p>Duplicated IDs are removed. Cached profiles are served immediately and the rest are fetched
+     * with at most {@code maxConcurrentLoads} requests in flight.
+     *
+     * @return Profiles keyed by user ID in the order of {@code userIds}.
+     *         Users whose profile couldn't be fetched (e.g. blocked the bot) are absent.
+     */
+    public CompletableFuture<Map<String, UserProfileResponse>> getProfiles(final Collection<String> userIds) {
+        final Set<String> distinct = new LinkedHashSet<>(userIds);
+        final CompletableFuture<Map<String, UserProfileResponse>> result = new CompletableFuture<>();
+        if (distinct.isEmpty()) {
+            result.complete(new LinkedHashMap<>());
+            return result;
+        }
+
+        final Map<String, UserProfileResponse> profiles = new ConcurrentHashMap<>();
+        final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>(distinct);
+        final AtomicInteger remaining = new AtomicInteger(distinct.size());
+        final Runnable onLoaded = () -> {
+            if (remaining.decrementAndGet() == 0) {
+                result.complete(ordered(distinct, profiles));
+            }
+        };
+
+        // Cache hits complete synchronously, so only misses occupy the loaders.
+        for (int i = 0; i < maxConcurrentLoads && !pending.isEmpty(); ++i) {
+            loadNext(pending, profiles, onLoaded);
+        }
+        return result;
+    }
+
+    /**
+     * Invalidate cached profiles related to the event.
+     *
+     * <ul>
+     *     <li>{@link UnfollowEvent}: profile of the user, including its group and room member profiles.</li>
+     *     <li>{@link LeaveEvent}: all member profiles of the group or room.</li>
+     * </ul>
+     * Other events are ignored.
+     */
+    public void invalidate(final Event event) {
+        final Source source = event.getSource();
+        if (event instanceof UnfollowEvent && source instanceof UserSource) {
+            invalidateUser(source.getUserId());
+        } else if (event instanceof LeaveEvent && source instanceof GroupSource) {
+            invalidateOrganization(ORG_TYPE_GROUP, ((GroupSource) source).getGroupId());
+        } else if (event instanceof LeaveEvent && source instanceof RoomSource) {
+            invalidateOrganization(ORG_TYPE_ROOM, ((RoomSource) source).getRoomId());
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Number of profile lookups served from the cache, including lookups joined to an in-flight request.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Number of profile lookups which sent a request.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Number of cached profiles including in-flight ones.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private CompletableFuture<UserProfileResponse> get(
+            final ProfileKey key, final Supplier<CompletableFuture<UserProfileResponse>> loader) {
+        final long now = nanoClock.getAsLong();
+        final CacheEntry entry;
+        final boolean hit;
+        final boolean refresh;
+        synchronized (entries) {
+            final CacheEntry existing = entries.get(key);
+            hit = existing != null && !existing.isExpired(now, expireAfterNanos);
+            if (hit) {
+                entry = existing;
+                refresh = entry.shouldRefresh(now, refreshAfterNanos);
+                if (refresh) {
+                    entry.refreshing = true;
+                }
+            } else {
+                entry = new CacheEntry(new CompletableFuture<>());
+                refresh = false;
+                entries.put(key, entry);
+            }
+        }
+
+        if (hit) {
+            hits.increment();
+            if (refresh) {
+                refresh(key, entry, loader);
+            }
+        } else {
+            misses.increment();
+            load(key, entry, loader);
+        }
+        // Callers get their own future, so that completing or cancelling it doesn't affect the entry.
+        return entry.future.thenApply(Function.identity());
+    }
+
+    private void load(final ProfileKey key, final CacheEntry entry,
+                      final Supplier<CompletableFuture<UserProfileResponse>> loader) {
+        invokeLoader(loader).whenComplete((profile, throwable) -> {
+            synchronized (entries) {
+                if (throwable == null && !entry.future.isDone()) {
+                    entry.markLoaded(nanoClock.getAsLong());
+                } else {
+                    entries.remove(key, entry);
+                }
+            }
+            if (throwable == null) {
+                entry.future.complete(profile);
+            } else {
+                entry.future.completeExceptionally(throwable);
+            }
+        });
+    }
+
+    private void refresh(final ProfileKey key, final CacheEntry entry,
+                         final Supplier<CompletableFuture<UserProfileResponse>> loader) {
+        invokeLoader(loader).whenComplete((profile, throwable) -> {
+            synchronized (entries) {
+                entry.refreshing = false;
+                if (throwable == null && entries.get(key) == entry) {
+                    final CacheEntry refreshed = new CacheEntry(CompletableFuture.completedFuture(profile));
+                    refreshed.markLoaded(nanoClock.getAsLong());
+                    entries.put(key, refreshed);
+                }
+            }
+        });
+    }
+
+    private static CompletableFuture<UserProfileResponse> invokeLoader(
+            final Supplier<CompletableFuture<UserProfileResponse>> loader) {
+        try {
+            return loader.get();
+        } catch (RuntimeException e) {
+            final CompletableFuture<UserProfileResponse> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private void loadNext(final ConcurrentLinkedQueue<String> pending,
+                          final Map<String, UserProfileResponse> profiles,
+                          final Runnable onLoaded) {
+        String userId;
+        while ((userId = pending.poll()) != null) {
+            final String id = userId;
+            final CompletableFuture<UserProfileResponse> future = getProfile(id);
+            if (!future.isDone()) {
+                future.whenComplete((profile, throwable) -> {
+                    if (profile != null) {
+                        profiles.put(id, profile);
+                    }
+                    onLoaded.run();
+                    loadNext(pending, profiles, onLoaded);
+                });
+                return;
+            }
+            // Completed synchronously. Loop instead of recursion.
+            final UserProfileResponse profile = future.handle((value, ignored) -> value).join();
+            if (profile != null) {
+                profiles.put(id, profile);
+            }
+            onLoaded.run();
+        }
+    }
+
+    private void invalidateUser(final String userId) {
+        synchronized (entries) {
+            entries.keySet().removeIf(key -> userId.equals(key.getUserId()));
+        }
+    }
+
+    private void invalidateOrganization(final String orgType, final String orgId) {
+        synchronized (entries) {
+            entries.keySet().removeIf(key -> orgType.equals(key.getOrgType()) && orgId.equals(key.getOrgId()));
+        }
+    }
+
+    private static Map<String, UserProfileResponse> ordered(
+            final Set<String> userIds, final Map<String, UserProfileResponse> profiles) {
+        final Map<String, UserProfileResponse> result = new LinkedHashMap<>();
+        for (String userId : userIds) {
+            final UserProfileResponse profile = profiles.get(userId);
+            if (profile != null) {
+                result.put(userId, profile);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<BotApiResponse> replyMessage(final ReplyMessage replyMessage) {
+        return delegate.replyMessage(replyMessage);
+    }
+
+    @Override
+    public CompletableFuture<BotApiResponse> replyMessage(final String replyToken,
+                                                          final PreparedMessages messages) {
+        return delegate.replyMessage(replyToken, messages);
+    }
+
+    @Override
+    public CompletableFuture<BotApiResponse> pushMessage(final PushMessage pushMessage) {
+        return delegate.pushMessage(pushMessage);
+    }
+
+    @Override
+    public CompletableFuture<BotApiResponse> pushMessage(final String to, final PreparedMessages messages) {
+        return delegate.pushMessage(to, messages);
+    }
+
+    @Override
+    public CompletableFuture<BotApiResponse> multicast(final Multicast multicast) {
+        return delegate.multicast(multicast);
+    }
+
+    @Override
+    public CompletableFuture<BotApiResponse> multicast(final Set<String> to, final PreparedMessages messages) {
+        return delegate.multicast(to, messages);
+    }
+
+    @Override
+    public CompletableFuture<BroadcastResponse> broadcast(final Collection<String> to,
+                                                          final List<Message> messages) {
+        return delegate.broadcast(to, messages);
+    }
+
+    @Override
+    public CompletableFuture<BroadcastResponse> broadcast(final Iterator<String> to,
+                                                          final List<Message> messages,
+                                                          final int maxInFlight) {
+        return delegate.broadcast(to, messages, maxInFlight);
+    }
+
+    @Override
+    public CompletableFuture<BroadcastResponse> broadcast(final Iterator<String> to,
+                                                          final PreparedMessages messages,
+                                                          final int maxInFlight) {
+        return delegate.broadcast(to, messages, maxInFlight);
+    }
+
+    @Override
+    public CompletableFuture<MessageContentResponse> getMessageContent(final String messageId) {
+        return delegate.getMessageContent(messageId);
+    }
+
+    @Override
+    public CompletableFuture<ContentDownloadResponse> getMessageContentTo(final String messageId,
+                                                                          final Path path) {
+        return delegate.getMessageContentTo(messageId, path);
+    }
+
+    @Override
+    public CompletableFuture<ContentDownloadResponse> getMessageContentTo(final String messageId,
+                                                                          final WritableByteChannel channel) {
+        return delegate.getMessageContentTo(messageId, channel);
+    }
+
+    @Override
+    public CompletableFuture<MembersIdsResponse> getGroupMembersIds(final String groupId, final String start) {
+        return delegate.getGroupMembersIds(groupId, start);
+    }
+
+    @Override
+    public CompletableFuture<MembersIdsResponse> getRoomMembersIds(final String roomId, final String start) {
+        return delegate.getRoomMembersIds(roomId, start);
+    }
+
+    @Override
+    public CompletableFuture<BotApiResponse> leaveGroup(final String groupId) {
+        invalidateOrganization(ORG_TYPE_GROUP, groupId);
+        return delegate.leaveGroup(groupId);
+    }
+
+    @Override
+    public CompletableFuture<BotApiResponse> leaveRoom(final String roomId) {
+        invalidateOrganization(ORG_TYPE_ROOM, roomId);
+        return delegate.leaveRoom(roomId);
+    }
+
+    /**
+     * Cache key. {@code orgType} and {@code orgId} are null for {@link #getProfile(String)}.
+     */
+    @Value
+    private static class ProfileKey {
+        String orgType;
+        String orgId;
+        String userId;
+    }
+
+    /**
+     * Mutable fields are guarded by the entries map of the enclosing client.
+     */
+    private static final class CacheEntry {
+        final CompletableFuture<UserProfileResponse> future;
+        /**
+         * False while loading.
+         */
+        boolean loaded;
+        /**
+         * Value of the nano clock when loaded. Only meaningful as the origin of a subtraction.
+         */
+        long loadedAt;
+        boolean refreshing;
+
+        CacheEntry(final CompletableFuture<UserProfileResponse> future) {
+            this.future = future;
+        }
+
+        void markLoaded(final long now) {
+            loaded = true;
+            loadedAt = now;
+        }
+
+        boolean isExpired(final long now, final long expireAfterNanos) {
+            return loaded && now - loadedAt >= expireAfterNanos;
+        }
+
+        boolean shouldRefresh(final long now, final long refreshAfterNanos) {
+            return loaded && !refreshing && now - loadedAt >= refreshAfterNanos;
+        }
+    }
+
+    public static final class Builder {
+        private final LineMessagingClient delegate;
+        private int maximumSize = DEFAULT_MAXIMUM_SIZE;
+        private long expireAfter = DEFAULT_EXPIRE_AFTER;
+        private long refreshAfter = DEFAULT_REFRESH_AFTER;
+        private int maxConcurrentLoads = DEFAULT_MAX_CONCURRENT_LOADS;
+        private LongSupplier nanoClock = System::nanoTime;
+
+        private Builder(final LineMessagingClient delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * Set max number of cached profiles.
+         */
+        public Builder maximumSize(final int maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Set time to live of cached profiles in milliseconds.
+         */
+        public Builder expireAfter(final long expireAfter) {
+            this.expireAfter = expireAfter;
+            return this;
+        }
+
+        /**
+         * Set age in milliseconds after which a read triggers background refresh.
+         * Should be shorter than expire after.
+         */
+        public Builder refreshAfter(final long refreshAfter) {
+            this.refreshAfter = refreshAfter;
+            return this;
+        }
+
+        /**
+         * Set max number of requests sent concurrently by {@link #getProfiles(Collection)}.
+         */
+        public Builder maxConcurrentLoads(final int maxConcurrentLoads) {
+            this.maxConcurrentLoads = maxConcurrentLoads;
+            return this;
+        }
+
+        Builder nanoClock(final LongSupplier nanoClock) {
+            this.nanoClock = nanoClock;
+            return this;
+        }
+
+        public CachingLineMessagingClient build() {
+            return new CachingLineMessagingClient(this);
+        }
+    }
+}
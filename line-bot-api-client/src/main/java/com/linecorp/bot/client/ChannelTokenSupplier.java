@@ -26,4 +26,16 @@ import java.util.function.Supplier;
  */
 @FunctionalInterface
 public interface ChannelTokenSupplier extends Supplier<String> {
+    /**
+     * Called when the server rejected a token with 401 Unauthorized.
+     *
+     * <p>Implementations which can refresh tokens should return a new token,
+     * then the request is sent again once with it.
+     *
+     * @param rejectedToken The token rejected by the server.
+     * @return A new token to retry with, or null not to retry. Default: null.
+     */
+    default String onUnauthorized(String rejectedToken) {
+        return null;
+    }
 }
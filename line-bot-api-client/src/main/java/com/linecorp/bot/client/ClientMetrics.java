@@ -0,0 +1,383 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.bot.client;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.SocketFactory;
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+
+import okhttp3.Dns;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Dependency-free metrics of a LINE Messaging API client.
+ *
+ * <ul>
+ *     <li>Per {@link EndpointFamily}: latency histogram, in-flight requests, counts by status code and
+ *     by exception type of transport failures.</li>
+ *     <li>Connection phases: DNS lookup, TCP connect, TLS handshake, pre-network wait and time to first byte.
+ *     Pre-network wait is the time from entering the client until the request reaches the network, which
+ *     includes other interceptors such as the rate limiter and channel token lookup, and acquiring a pooled
+ *     or new connection.</li>
+ * </ul>
+ *
+ * <p>Install it by {@link LineMessagingServiceBuilder#metrics(ClientMetrics)}. All counters are
+ * {@link LongAdder}s, so that it's cheap enough to be enabled at full traffic.
+ * Export values by reading getters periodically, e.g. from a gauge of your metrics library, or bind them to
+ * Micrometer by {@link ClientMetricsBinder}.
+ *
+ * <p>The TLS handshake is only timed if the client uses OkHttp's default {@link SSLSocketFactory}, i.e.
+ * {@link LineMessagingServiceBuilder#okHttpClientBuilder(okhttp3.OkHttpClient.Builder, boolean)} is not used.
+ * It's recorded when the JDK notifies that the handshake completed, which may be slightly later.
+ */
+public final class ClientMetrics {
+    private final Map<EndpointFamily, EndpointMetrics> endpoints;
+    private final LatencyHistogram dns = new LatencyHistogram();
+    private final LatencyHistogram connect = new LatencyHistogram();
+    private final LatencyHistogram tls = new LatencyHistogram();
+    private final LatencyHistogram preNetworkWait = new LatencyHistogram();
+    private final LatencyHistogram timeToFirstByte = new LatencyHistogram();
+
+    /**
+     * Start time of the request which is being processed by the current thread, until it reaches
+     * the network interceptor. OkHttp runs all interceptors of a call on the same thread.
+     */
+    private final ThreadLocal<Long> applicationStart = new ThreadLocal<>();
+
+    public ClientMetrics() {
+        final Map<EndpointFamily, EndpointMetrics> endpoints = new EnumMap<>(EndpointFamily.class);
+        for (EndpointFamily family : EndpointFamily.values()) {
+            endpoints.put(family, new EndpointMetrics());
+        }
+        this.endpoints = Collections.unmodifiableMap(endpoints);
+    }
+
+    public EndpointMetrics getEndpoint(final EndpointFamily endpointFamily) {
+        return endpoints.get(endpointFamily);
+    }
+
+    public LatencyHistogram getDns() {
+        return dns;
+    }
+
+    public LatencyHistogram getConnect() {
+        return connect;
+    }
+
+    /**
+     * TLS handshake time of new connections. See the class description.
+     */
+    public LatencyHistogram getTls() {
+        return tls;
+    }
+
+    /**
+     * Time from entering the client until the request reaches the network. See the class description.
+     */
+    public LatencyHistogram getPreNetworkWait() {
+        return preNetworkWait;
+    }
+
+    public LatencyHistogram getTimeToFirstByte() {
+        return timeToFirstByte;
+    }
+
+    /**
+     * Metrics of an {@link EndpointFamily}.
+     */
+    public static final class EndpointMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final Map<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> exceptions = new ConcurrentHashMap<>();
+
+        EndpointMetrics() {
+        }
+
+        /**
+         * Latency from sending a request until response headers are received.
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        /**
+         * Returns response counts by status code.
+         */
+        public Map<Integer, Long> getStatusCodeCounts() {
+            return snapshot(statusCodes);
+        }
+
+        /**
+         * Returns counts of transport failures by exception class name.
+         */
+        public Map<String, Long> getExceptionCounts() {
+            return snapshot(exceptions);
+        }
+
+        private static <K> Map<K, Long> snapshot(final Map<K, LongAdder> counters) {
+            final Map<K, Long> result = new TreeMap<>();
+            counters.forEach((key, counter) -> result.put(key, counter.sum()));
+            return result;
+        }
+    }
+
+    /**
+     * Application interceptor which records per endpoint metrics.
+     */
+    Interceptor interceptor() {
+        return chain -> {
+            final Request request = chain.request();
+            final EndpointMetrics metrics = endpoints.get(EndpointFamily.of(request));
+            metrics.inFlight.incrementAndGet();
+            final long start = System.nanoTime();
+            applicationStart.set(start);
+            try {
+                final Response response = chain.proceed(request);
+                metrics.statusCodes.computeIfAbsent(response.code(), key -> new LongAdder()).increment();
+                return response;
+            } catch (IOException | RuntimeException e) {
+                metrics.exceptions.computeIfAbsent(e.getClass().getName(), key -> new LongAdder()).increment();
+                throw e;
+            } finally {
+                metrics.latency.record(System.nanoTime() - start);
+                metrics.inFlight.decrementAndGet();
+                applicationStart.remove();
+            }
+        };
+    }
+
+    /**
+     * Network interceptor which records pre-network wait and time to first byte.
+     */
+    Interceptor networkInterceptor() {
+        return chain -> {
+            final long start = System.nanoTime();
+            final Long applicationStart = this.applicationStart.get();
+            if (applicationStart != null) {
+                // Only the first attempt. Redirects and retries reuse the connection or open it by themselves.
+                this.applicationStart.remove();
+                preNetworkWait.record(start - applicationStart);
+            }
+            final Response response = chain.proceed(chain.request());
+            timeToFirstByte.record(System.nanoTime() - start);
+            return response;
+        };
+    }
+
+    /**
+     * Wraps {@link Dns} to record lookup time.
+     */
+    Dns dns(final Dns delegate) {
+        return new Dns() {
+            @Override
+            public List<InetAddress> lookup(final String hostname) throws UnknownHostException {
+                final long start = System.nanoTime();
+                try {
+                    return delegate.lookup(hostname);
+                } finally {
+                    dns.record(System.nanoTime() - start);
+                }
+            }
+        };
+    }
+
+    /**
+     * Wraps {@link SocketFactory} to record TCP connect time.
+     */
+    SocketFactory socketFactory(final SocketFactory delegate) {
+        return new TimingSocketFactory(delegate);
+    }
+
+    private final class TimingSocketFactory extends SocketFactory {
+        private final SocketFactory delegate;
+
+        TimingSocketFactory(final SocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            // Custom factories may return special sockets, which can't be wrapped. Only plain sockets are timed.
+            return delegate == SocketFactory.getDefault() ? new TimingSocket() : delegate.createSocket();
+        }
+
+        // OkHttp only uses createSocket() and connects by itself. Others are delegated as is.
+
+        @Override
+        public Socket createSocket(final String host, final int port) throws IOException {
+            return delegate.createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(final String host, final int port, final InetAddress localHost,
+                                   final int localPort) throws IOException {
+            return delegate.createSocket(host, port, localHost, localPort);
+        }
+
+        @Override
+        public Socket createSocket(final InetAddress host, final int port) throws IOException {
+            return delegate.createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(final InetAddress address, final int port, final InetAddress localAddress,
+                                   final int localPort) throws IOException {
+            return delegate.createSocket(address, port, localAddress, localPort);
+        }
+    }
+
+    private final class TimingSocket extends Socket {
+        @Override
+        public void connect(final SocketAddress endpoint, final int timeout) throws IOException {
+            final long start = System.nanoTime();
+            try {
+                super.connect(endpoint, timeout);
+            } finally {
+                connect.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Wraps {@link SSLSocketFactory} to record TLS handshake time.
+     */
+    SSLSocketFactory sslSocketFactory(final SSLSocketFactory delegate) {
+        return new TimingSslSocketFactory(delegate);
+    }
+
+    /**
+     * Returns the trust manager which OkHttp uses by default.
+     */
+    static X509TrustManager systemDefaultTrustManager() {
+        try {
+            final TrustManagerFactory trustManagerFactory =
+                    TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            trustManagerFactory.init((KeyStore) null);
+            for (TrustManager trustManager : trustManagerFactory.getTrustManagers()) {
+                if (trustManager instanceof X509TrustManager) {
+                    return (X509TrustManager) trustManager;
+                }
+            }
+            throw new IllegalStateException("No default X509TrustManager.");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the {@link SSLSocketFactory} which OkHttp uses by default.
+     */
+    static SSLSocketFactory systemDefaultSslSocketFactory(final X509TrustManager trustManager) {
+        try {
+            final SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, new TrustManager[] { trustManager }, null);
+            return sslContext.getSocketFactory();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private final class TimingSslSocketFactory extends SSLSocketFactory {
+        private final SSLSocketFactory delegate;
+
+        TimingSslSocketFactory(final SSLSocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket(final Socket socket, final String host, final int port,
+                                   final boolean autoClose) throws IOException {
+            // OkHttp layers TLS on the connected socket and starts the handshake right away.
+            final long start = System.nanoTime();
+            final Socket sslSocket = delegate.createSocket(socket, host, port, autoClose);
+            if (sslSocket instanceof SSLSocket) {
+                // The socket isn't wrapped, since platforms configure ALPN on their own socket classes.
+                ((SSLSocket) sslSocket).addHandshakeCompletedListener(new HandshakeCompletedListener() {
+                    @Override
+                    public void handshakeCompleted(final HandshakeCompletedEvent event) {
+                        // Only the first handshake. Not renegotiations.
+                        event.getSocket().removeHandshakeCompletedListener(this);
+                        tls.record(System.nanoTime() - start);
+                    }
+                });
+            }
+            return sslSocket;
+        }
+
+        // Others are not used by OkHttp. Delegated as is.
+
+        @Override
+        public Socket createSocket(final String host, final int port) throws IOException {
+            return delegate.createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(final String host, final int port, final InetAddress localHost,
+                                   final int localPort) throws IOException {
+            return delegate.createSocket(host, port, localHost, localPort);
+        }
+
+        @Override
+        public Socket createSocket(final InetAddress host, final int port) throws IOException {
+            return delegate.createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(final InetAddress address, final int port, final InetAddress localAddress,
+                                   final int localPort) throws IOException {
+            return delegate.createSocket(address, port, localAddress, localPort);
+        }
+    }
+}
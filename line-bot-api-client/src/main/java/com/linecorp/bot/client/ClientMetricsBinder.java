@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.bot.client;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+import com.linecorp.bot.client.ClientMetrics.EndpointMetrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.NonNull;
+
+/**
+ * Micrometer binder of {@link ClientMetrics}.
+ *
+ * <p>Meters read the counters of {@link ClientMetrics} when they are published, so that nothing is added
+ * to requests. Micrometer is an optional dependency, add {@code io.micrometer:micrometer-core} to use it.
+ *
+ * <ul>
+ *     <li>{@code line.bot.client.requests}: function timer, tagged by {@code endpoint}.</li>
+ *     <li>{@code line.bot.client.requests.in.flight}: gauge, tagged by {@code endpoint}.</li>
+ *     <li>{@code line.bot.client.responses}: function counter, tagged by {@code endpoint} and
+ *     {@code status} of {@code 2xx}, {@code 3xx}, {@code 4xx} or {@code 5xx}.</li>
+ *     <li>{@code line.bot.client.errors}: function counter of transport failures, tagged by
+ *     {@code endpoint}.</li>
+ *     <li>{@code line.bot.client.connection}: function timer, tagged by {@code phase} of {@code dns},
+ *     {@code connect}, {@code tls}, {@code pre_network_wait} or {@code time_to_first_byte}.</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * new ClientMetricsBinder(clientMetrics).bindTo(meterRegistry);
+ * }</pre>
+ */
+public final class ClientMetricsBinder implements MeterBinder {
+    private static final String PREFIX = "line.bot.client.";
+
+    private final ClientMetrics metrics;
+
+    public ClientMetricsBinder(@NonNull final ClientMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        for (EndpointFamily family : EndpointFamily.values()) {
+            final EndpointMetrics endpoint = metrics.getEndpoint(family);
+            final String tag = family.name().toLowerCase(Locale.ROOT);
+            FunctionTimer.builder(PREFIX + "requests", endpoint.getLatency(),
+                                  LatencyHistogram::getCount, LatencyHistogram::getSum, TimeUnit.MILLISECONDS)
+                         .tag("endpoint", tag)
+                         .register(registry);
+            Gauge.builder(PREFIX + "requests.in.flight", endpoint, EndpointMetrics::getInFlight)
+                 .tag("endpoint", tag)
+                 .register(registry);
+            for (int statusClass = 2; statusClass <= 5; ++statusClass) {
+                final int status = statusClass;
+                FunctionCounter.builder(PREFIX + "responses", endpoint,
+                                        e -> sum(e.getStatusCodeCounts(), code -> code / 100 == status))
+                               .tag("endpoint", tag)
+                               .tag("status", status + "xx")
+                               .register(registry);
+            }
+            FunctionCounter.builder(PREFIX + "errors", endpoint, e -> sum(e.getExceptionCounts()))
+                           .tag("endpoint", tag)
+                           .register(registry);
+        }
+
+        bindPhase(registry, "dns", metrics.getDns());
+        bindPhase(registry, "connect", metrics.getConnect());
+        bindPhase(registry, "tls", metrics.getTls());
+        bindPhase(registry, "pre_network_wait", metrics.getPreNetworkWait());
+        bindPhase(registry, "time_to_first_byte", metrics.getTimeToFirstByte());
+    }
+
+    private static void bindPhase(final MeterRegistry registry, final String phase,
+                                  final LatencyHistogram histogram) {
+        FunctionTimer.builder(PREFIX + "connection", histogram,
+                              LatencyHistogram::getCount, LatencyHistogram::getSum, TimeUnit.MILLISECONDS)
+                     .tag("phase", phase)
+                     .register(registry);
+    }
+
+    private static long sum(final Map<Integer, Long> counts, final IntPredicate filter) {
+        long sum = 0;
+        for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+            if (filter.test(entry.getKey())) {
+                sum += entry.getValue();
+            }
+        }
+        return sum;
+    }
+
+    private static long sum(final Map<String, Long> counts) {
+        long sum = 0;
+        for (long count : counts.values()) {
+            sum += count;
+        }
+        return sum;
+    }
+}
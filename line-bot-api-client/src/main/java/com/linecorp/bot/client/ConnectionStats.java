@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import lombok.NonNull;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+
+/**
+ * Live request and connection counts of an OkHttp client. Each getter reads the current value.
+ *
+ * <p>If {@link #getQueuedCalls()} stays positive, requests are waiting for
+ * {@link LineMessagingServiceBuilder#maxRequests(int)} or {@link LineMessagingServiceBuilder#maxRequestsPerHost(int)}.
+ *
+ * @see LineMessagingServiceBuilder#connectionStats()
+ * @see LineMessagingServiceBuilder#contentConnectionStats()
+ */
+public final class ConnectionStats {
+    private final Dispatcher dispatcher;
+    private final ConnectionPool connectionPool;
+
+    public ConnectionStats(@NonNull final Dispatcher dispatcher, @NonNull final ConnectionPool connectionPool) {
+        this.dispatcher = dispatcher;
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * Number of requests waiting for the dispatcher.
+     */
+    public int getQueuedCalls() {
+        return dispatcher.queuedCallsCount();
+    }
+
+    /**
+     * Number of requests in flight.
+     */
+    public int getRunningCalls() {
+        return dispatcher.runningCallsCount();
+    }
+
+    /**
+     * Ratio of requests in flight to {@link #getMaxRequests()}. New requests are queued at 1.0.
+     */
+    public double getSaturation() {
+        return (double) getRunningCalls() / getMaxRequests();
+    }
+
+    public int getMaxRequests() {
+        return dispatcher.getMaxRequests();
+    }
+
+    public int getMaxRequestsPerHost() {
+        return dispatcher.getMaxRequestsPerHost();
+    }
+
+    /**
+     * Number of open connections including idle ones.
+     */
+    public int getConnections() {
+        return connectionPool.connectionCount();
+    }
+
+    public int getIdleConnections() {
+        return connectionPool.idleConnectionCount();
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionStats(queuedCalls=" + getQueuedCalls()
+               + ", runningCalls=" + getRunningCalls()
+               + ", maxRequests=" + getMaxRequests()
+               + ", connections=" + getConnections()
+               + ", idleConnections=" + getIdleConnections() + ')';
+    }
+}
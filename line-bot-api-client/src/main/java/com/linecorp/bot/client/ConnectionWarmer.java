@@ -0,0 +1,223 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Opens pooled connections to the API endpoint ahead of the first request,
+ * so that a reply doesn't pay DNS, TCP and TLS handshake latency.
+ *
+ * <p>Connections are opened by concurrent {@code HEAD} requests to the endpoint root without any
+ * interceptor, so that no channel token is sent. With HTTP/2 a single connection is shared by all requests,
+ * so that one connection counts as warm regardless of the configured number. Likewise, if a warm-up succeeds
+ * without adding connections, e.g. because a proxy multiplexes them, the current number is taken as the target,
+ * so that re-warming doesn't send requests forever.
+ *
+ * @see LineMessagingServiceBuilder#warmUpConnections(int)
+ */
+@Slf4j
+public final class ConnectionWarmer implements AutoCloseable {
+    private final OkHttpClient okHttpClient;
+    private final HttpUrl endpoint;
+    private final long timeoutMillis;
+
+    /**
+     * Number of connections to keep. Lowered from the configured number if connections are shared.
+     */
+    private volatile int targetConnections;
+    private volatile WarmUpResult lastResult;
+    private CompletableFuture<WarmUpResult> running;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> rewarming;
+
+    /**
+     * Result of a warm-up.
+     */
+    @Value
+    public static class WarmUpResult {
+        /**
+         * Number of connections missing when the warm-up started.
+         */
+        int requested;
+
+        int succeeded;
+
+        /**
+         * Latency of each successful warm-up request in milliseconds, which includes DNS lookup,
+         * TCP and TLS handshake of a new connection.
+         */
+        List<Long> latencies;
+    }
+
+    ConnectionWarmer(final OkHttpClient okHttpClient, final HttpUrl endpoint, final int connections) {
+        // Share connection pool and dispatcher, but skip authentication, logging and rate limiting.
+        final OkHttpClient.Builder builder = okHttpClient.newBuilder();
+        builder.interceptors().clear();
+        builder.networkInterceptors().clear();
+        this.okHttpClient = builder.build();
+        this.endpoint = endpoint;
+        this.targetConnections = connections;
+        this.timeoutMillis = (long) okHttpClient.connectTimeoutMillis() + okHttpClient.readTimeoutMillis();
+    }
+
+    /**
+     * Open connections until the pool has the configured number of connections.
+     * Blocks until all warm-up requests complete or time out. Failures are logged, not thrown.
+     *
+     * @return null if timed out or interrupted.
+     */
+    public WarmUpResult warmUp() {
+        try {
+            return warmUpAsync().get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Connection warm-up to {} timed out", endpoint);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("Connection warm-up to {} failed", endpoint, e.getCause());
+        }
+        return null;
+    }
+
+    /**
+     * Open connections until the pool has the configured number of connections, without blocking.
+     * If a warm-up is running, its result is returned. The result is never completed exceptionally;
+     * failures are logged.
+     */
+    public synchronized CompletableFuture<WarmUpResult> warmUpAsync() {
+        if (running != null && !running.isDone()) {
+            return running;
+        }
+        final int before = okHttpClient.connectionPool().connectionCount();
+        final int missing = targetConnections - before;
+        if (missing <= 0) {
+            return CompletableFuture.completedFuture(new WarmUpResult(0, 0, Collections.emptyList()));
+        }
+
+        final CompletableFuture<WarmUpResult> future = new CompletableFuture<>();
+        final AtomicInteger remaining = new AtomicInteger(missing);
+        final AtomicBoolean multiplexed = new AtomicBoolean();
+        final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        final Runnable onFinished = () -> {
+            if (remaining.decrementAndGet() == 0) {
+                future.complete(finish(before, missing, latencies, multiplexed.get()));
+            }
+        };
+        final Request request = new Request.Builder().head().url(endpoint).build();
+        for (int i = 0; i < missing; ++i) {
+            final long start = System.nanoTime();
+            okHttpClient.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onResponse(final Call call, final Response response) {
+                    response.close();
+                    if (response.protocol() == Protocol.HTTP_2) {
+                        multiplexed.set(true);
+                    }
+                    latencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    onFinished.run();
+                }
+
+                @Override
+                public void onFailure(final Call call, final IOException e) {
+                    log.warn("Connection warm-up to {} failed: {}", endpoint, e.toString());
+                    onFinished.run();
+                }
+            });
+        }
+        running = future;
+        return future;
+    }
+
+    private WarmUpResult finish(final int before, final int missing, final List<Long> latencies,
+                                final boolean multiplexed) {
+        final List<Long> result;
+        synchronized (latencies) {
+            result = new ArrayList<>(latencies);
+        }
+        final int after = okHttpClient.connectionPool().connectionCount();
+        if (multiplexed) {
+            targetConnections = 1;
+        } else if (!result.isEmpty() && after <= before) {
+            log.info("Warm-up to {} added no connection. Keep {} connections instead of {}",
+                     endpoint, after, targetConnections);
+            targetConnections = Math.max(1, after);
+        }
+        lastResult = new WarmUpResult(missing, result.size(), Collections.unmodifiableList(result));
+        log.info("Warmed up connections to {}: {}", endpoint, lastResult);
+        return lastResult;
+    }
+
+    /**
+     * Result of the last warm-up which opened connections. Null if there's none.
+     */
+    public WarmUpResult getLastResult() {
+        return lastResult;
+    }
+
+    /**
+     * Periodically re-open connections evicted by the connection pool after idle.
+     */
+    public synchronized void startRewarming(final long intervalMillis) {
+        if (rewarming != null) {
+            return;
+        }
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "line-bot-connection-warmer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        rewarming = scheduler.scheduleWithFixedDelay(this::warmUpAsync, intervalMillis, intervalMillis,
+                                                     TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop re-warming.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            rewarming = null;
+        }
+    }
+}
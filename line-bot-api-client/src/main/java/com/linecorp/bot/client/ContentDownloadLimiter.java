@@ -0,0 +1,235 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.NonNull;
+
+/**
+ * Caps number of concurrent content downloads and total bytes being downloaded.
+ *
+ * <p>A download takes a slot before the request is sent, and reserves its {@code Content-Length}
+ * before the body is read. Downloads over the limit wait in FIFO order without blocking any thread;
+ * they are resumed on {@code executor} when a previous download finishes, not on the thread finishing it.
+ * So a resumed download neither blocks the OkHttp thread of the previous one nor nests in its stack.
+ *
+ * <p>A download larger than {@code maxInFlightBytes}, or without {@code Content-Length},
+ * reserves whole {@code maxInFlightBytes} so that it runs alone.
+ *
+ * <p>An instance is shared by all clients which don't specify one, see {@link #getDefault()}.
+ */
+public final class ContentDownloadLimiter {
+    public static final int DEFAULT_MAX_CONCURRENT_DOWNLOADS = 16;
+    public static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 64L * 1024 * 1024;
+
+    private static final ContentDownloadLimiter DEFAULT = builder().build();
+
+    private final int maxConcurrentDownloads;
+    private final long maxInFlightBytes;
+    private final Executor executor;
+
+    // Guarded by this.
+    private int activeDownloads;
+    private long inFlightBytes;
+    private final Deque<CompletableFuture<Void>> slotWaiters = new ArrayDeque<>();
+    private final Deque<BytesWaiter> bytesWaiters = new ArrayDeque<>();
+
+    private ContentDownloadLimiter(final Builder builder) {
+        if (builder.maxConcurrentDownloads < 1) {
+            throw new IllegalArgumentException(
+                    "maxConcurrentDownloads should be positive. But " + builder.maxConcurrentDownloads);
+        }
+        if (builder.maxInFlightBytes < 1) {
+            throw new IllegalArgumentException(
+                    "maxInFlightBytes should be positive. But " + builder.maxInFlightBytes);
+        }
+        this.maxConcurrentDownloads = builder.maxConcurrentDownloads;
+        this.maxInFlightBytes = builder.maxInFlightBytes;
+        this.executor = builder.executor != null ? builder.executor : DefaultExecutor.INSTANCE;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Limiter shared by all {@link LineMessagingClientImpl}s created without a limiter.
+     */
+    public static ContentDownloadLimiter getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Number of downloads holding a slot, including ones waiting for bytes.
+     */
+    public synchronized int getActiveDownloads() {
+        return activeDownloads;
+    }
+
+    /**
+     * Bytes reserved by downloads reading their bodies.
+     */
+    public synchronized long getInFlightBytes() {
+        return inFlightBytes;
+    }
+
+    /**
+     * Number of downloads waiting for a slot or bytes.
+     */
+    public synchronized int getQueueDepth() {
+        return slotWaiters.size() + bytesWaiters.size();
+    }
+
+    /**
+     * Take a download slot. The future is completed when the slot is available.
+     */
+    CompletableFuture<Void> acquireSlot() {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (this) {
+            if (activeDownloads >= maxConcurrentDownloads) {
+                slotWaiters.add(future);
+                return future;
+            }
+            ++activeDownloads;
+        }
+        future.complete(null);
+        return future;
+    }
+
+    /**
+     * Number of bytes to reserve for a body of given {@code Content-Length}. -1 means unknown.
+     */
+    long reservationOf(final long contentLength) {
+        return contentLength < 0 || contentLength > maxInFlightBytes ? maxInFlightBytes : contentLength;
+    }
+
+    /**
+     * Reserve bytes returned by {@link #reservationOf(long)}. The future is completed when reserved.
+     */
+    CompletableFuture<Void> reserveBytes(final long bytes) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (this) {
+            if (!bytesWaiters.isEmpty() || inFlightBytes + bytes > maxInFlightBytes) {
+                bytesWaiters.add(new BytesWaiter(bytes, future));
+                return future;
+            }
+            inFlightBytes += bytes;
+        }
+        future.complete(null);
+        return future;
+    }
+
+    /**
+     * Release the slot and reserved bytes of a finished download.
+     */
+    void release(final long reservedBytes) {
+        final List<CompletableFuture<Void>> resumed = new ArrayList<>();
+        synchronized (this) {
+            inFlightBytes -= reservedBytes;
+            while (!bytesWaiters.isEmpty()
+                   && inFlightBytes + bytesWaiters.peek().bytes <= maxInFlightBytes) {
+                final BytesWaiter waiter = bytesWaiters.poll();
+                inFlightBytes += waiter.bytes;
+                resumed.add(waiter.future);
+            }
+
+            final CompletableFuture<Void> slotWaiter = slotWaiters.poll();
+            if (slotWaiter != null) {
+                resumed.add(slotWaiter);
+            } else {
+                --activeDownloads;
+            }
+        }
+        resumed.forEach(this::resume);
+    }
+
+    private void resume(final CompletableFuture<Void> future) {
+        try {
+            executor.execute(() -> future.complete(null));
+        } catch (RejectedExecutionException e) {
+            future.complete(null);
+        }
+    }
+
+    private static final class BytesWaiter {
+        final long bytes;
+        final CompletableFuture<Void> future;
+
+        BytesWaiter(final long bytes, final CompletableFuture<Void> future) {
+            this.bytes = bytes;
+            this.future = future;
+        }
+    }
+
+    private static final class DefaultExecutor {
+        private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+        static final ExecutorService INSTANCE = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable,
+                                             "line-bot-content-download-" + THREAD_NUMBER.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static final class Builder {
+        private int maxConcurrentDownloads = DEFAULT_MAX_CONCURRENT_DOWNLOADS;
+        private long maxInFlightBytes = DEFAULT_MAX_IN_FLIGHT_BYTES;
+        private Executor executor;
+
+        private Builder() {
+        }
+
+        /**
+         * Set max number of downloads sent at once.
+         */
+        public Builder maxConcurrentDownloads(final int maxConcurrentDownloads) {
+            this.maxConcurrentDownloads = maxConcurrentDownloads;
+            return this;
+        }
+
+        /**
+         * Set max total bytes of bodies being read at once.
+         */
+        public Builder maxInFlightBytes(final long maxInFlightBytes) {
+            this.maxInFlightBytes = maxInFlightBytes;
+            return this;
+        }
+
+        /**
+         * Set executor resuming waiting downloads. Resumed downloads read their bodies on it.
+         * By default, a shared pool of daemon threads is used.
+         */
+        public Builder executor(@NonNull final Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public ContentDownloadLimiter build() {
+            return new ContentDownloadLimiter(this);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import com.linecorp.bot.client.LineMessagingClientImpl.ChannelSink;
+import com.linecorp.bot.client.exception.GeneralLineMessagingException;
+
+import lombok.Value;
+import okio.BufferedSource;
+import okio.HashingSink;
+import okio.Okio;
+
+/**
+ * Result of {@link LineMessagingClient#getMessageContentTo(String, WritableByteChannel)}.
+ * Completed after all bytes are written to the destination.
+ */
+@Value
+public class ContentDownloadResponse {
+    /**
+     * Number of bytes written.
+     */
+    private final long length;
+
+    /**
+     * File contents type represented by MIME.
+     */
+    private final String mimeType;
+
+    /**
+     * Lower case hex SHA-256 digest of written bytes.
+     */
+    private final String sha256;
+
+    /**
+     * All HTTP headers of API response.
+     *
+     * @see MessageContentResponse#getAllHeaders()
+     */
+    private final Map<String, List<String>> allHeaders;
+
+    /**
+     * Writes the content to the channel on the current thread and closes the content.
+     * Used by default methods of {@link LineMessagingClient}.
+     *
+     * @throws CompletionException with {@link GeneralLineMessagingException} if the transfer failed.
+     */
+    static ContentDownloadResponse transfer(final MessageContentResponse content,
+                                            final WritableByteChannel channel) {
+        try (BufferedSource source = Okio.buffer(Okio.source(content.getStream()))) {
+            final HashingSink sink = HashingSink.sha256(new ChannelSink(channel));
+            final long length = source.readAll(sink);
+            return new ContentDownloadResponse(length, content.getMimeType(), sink.hash().hex(),
+                                               content.getAllHeaders());
+        } catch (IOException e) {
+            throw new CompletionException(new GeneralLineMessagingException(e.getMessage(), null, e));
+        }
+    }
+}
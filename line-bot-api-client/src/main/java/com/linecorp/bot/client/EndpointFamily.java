@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import okhttp3.Request;
+
+/**
+ * Group of API endpoints which share the same characteristics, such as rate limits.
+ */
+public enum EndpointFamily {
+    /**
+     * {@link LineMessagingService#replyMessage}
+     */
+    REPLY,
+
+    /**
+     * {@link LineMessagingService#pushMessage}
+     */
+    PUSH,
+
+    /**
+     * {@link LineMessagingService#multicast}
+     */
+    MULTICAST,
+
+    /**
+     * {@link LineMessagingService#getProfile}, {@link LineMessagingService#getMemberProfile}
+     * and {@link LineMessagingService#getMembersIds}
+     */
+    PROFILE,
+
+    /**
+     * {@link LineMessagingService#getMessageContent}
+     */
+    CONTENT,
+
+    /**
+     * Other endpoints.
+     */
+    OTHER;
+
+    /**
+     * Classify request by its URL path. API end point can have a path prefix.
+     */
+    public static EndpointFamily of(final Request request) {
+        final String path = request.url().encodedPath();
+        if (path.endsWith("/message/reply")) {
+            return REPLY;
+        }
+        if (path.endsWith("/message/push")) {
+            return PUSH;
+        }
+        if (path.endsWith("/message/multicast")) {
+            return MULTICAST;
+        }
+        if (path.endsWith("/content") && path.contains("/message/")) {
+            return CONTENT;
+        }
+        if (path.contains("/profile/") || path.contains("/member/") || path.endsWith("/members/ids")) {
+            return PROFILE;
+        }
+        return OTHER;
+    }
+}
@@ -40,13 +40,15 @@ class ExceptionConverter implements Function<Response<?>, LineMessagingException
     @Override
     public LineMessagingException apply(Response<?> response) {
         try {
-            return applyInternal(response.code(), response.errorBody());
+            return applyInternal(response.code(), response.errorBody(),
+                                 response.headers().get(RateLimiter.REJECTED_HEADER) != null);
         } catch (Exception e) {
             return new GeneralLineMessagingException(e.getMessage(), null, e);
         }
     }
 
-    private static LineMessagingException applyInternal(final int code, final ResponseBody responseBody)
+    private static LineMessagingException applyInternal(final int code, final ResponseBody responseBody,
+                                                        final boolean rejectedByClient)
             throws IOException {
         final ErrorResponse errorResponse = OBJECT_READER.readValue(responseBody.byteStream());
 
@@ -62,10 +64,13 @@ class ExceptionConverter implements Function<Response<?>, LineMessagingException
                         errorResponse.getMessage(), errorResponse);
             case 429:
                 return new TooManyRequestsException(
-                        errorResponse.getMessage(), errorResponse);
-            case 500:
-                return new LineServerException(
-                        errorResponse.getMessage(), errorResponse);
+                        errorResponse.getMessage(), errorResponse, rejectedByClient);
+        }
+
+        if (code >= 500 && code < 600) {
+            // 500 Internal Server Error, 502 Bad Gateway, 503 Service Unavailable and so on.
+            return new LineServerException(
+                    errorResponse.getMessage(), errorResponse);
         }
 
         return new GeneralLineMessagingException(errorResponse.getMessage(), errorResponse, null);
@@ -17,6 +17,8 @@
 package com.linecorp.bot.client;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
 
 import lombok.AllArgsConstructor;
 import okhttp3.Interceptor;
@@ -31,12 +33,42 @@ class HeaderInterceptor implements Interceptor {
 
     @Override
     public Response intercept(Chain chain) throws IOException {
-        final String channelToken = channelTokenSupplier.get();
-        Request request = chain.request().newBuilder()
-                               .addHeader("Authorization", "Bearer " + channelToken)
-                               .addHeader("User-Agent", USER_AGENT)
-                               .build();
-        return chain.proceed(request);
+        final String channelToken = getChannelToken(channelTokenSupplier);
+        final Response response = chain.proceed(withHeaders(chain.request(), channelToken));
+        if (response.code() != 401) {
+            return response;
+        }
+
+        final String refreshedToken;
+        try {
+            refreshedToken = getChannelToken(() -> channelTokenSupplier.onUnauthorized(channelToken));
+        } catch (IOException | RuntimeException e) {
+            response.close();
+            throw e;
+        }
+        if (refreshedToken == null || refreshedToken.equals(channelToken)) {
+            return response;
+        }
+        response.close();
+        return chain.proceed(withHeaders(chain.request(), refreshedToken));
+    }
+
+    private static Request withHeaders(final Request request, final String channelToken) {
+        return request.newBuilder()
+                      .addHeader("Authorization", "Bearer " + channelToken)
+                      .addHeader("User-Agent", USER_AGENT)
+                      .build();
+    }
+
+    /**
+     * Unwrap {@link UncheckedIOException}, so that OkHttp reports a failure to the callback.
+     */
+    private static String getChannelToken(final Supplier<String> supplier) throws IOException {
+        try {
+            return supplier.get();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.bot.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with fixed exponential buckets in milliseconds.
+ *
+ * <p>Recording is a couple of {@link LongAdder} increments, so that it's cheap enough for every request.
+ */
+public final class LatencyHistogram {
+    /**
+     * Inclusive upper bounds of buckets in milliseconds. The last bucket has no upper bound.
+     */
+    private static final long[] BUCKET_BOUNDS = {
+            1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000, 5_000, 10_000, 30_000
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; ++i) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Returns inclusive upper bounds of buckets in milliseconds, except the last unbounded bucket.
+     */
+    public static long[] getBucketBounds() {
+        return BUCKET_BOUNDS.clone();
+    }
+
+    /**
+     * Record a latency in nanoseconds.
+     */
+    public void record(final long nanos) {
+        final long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int index = 0;
+        while (index < BUCKET_BOUNDS.length && millis > BUCKET_BOUNDS[index]) {
+            ++index;
+        }
+        buckets[index].increment();
+        count.increment();
+        sumMicros.add(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Total recorded time in milliseconds.
+     */
+    public double getSum() {
+        return sumMicros.sum() / 1000.0;
+    }
+
+    /**
+     * Returns count of each bucket. Its length is {@code getBucketBounds().length + 1}.
+     */
+    public long[] getBucketCounts() {
+        final long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; ++i) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * Estimates a percentile as the upper bound of the bucket which contains it.
+     *
+     * @param percentile in (0, 1]. e.g. 0.99
+     * @return Upper bound in milliseconds. {@link Long#MAX_VALUE} if it's in the last bucket, 0 if empty.
+     */
+    public long getPercentile(final double percentile) {
+        final long[] counts = getBucketCounts();
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        final long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS.length; ++i) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return BUCKET_BOUNDS[i];
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -16,18 +16,47 @@
 
 package com.linecorp.bot.client;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+import com.linecorp.bot.client.exception.GeneralLineMessagingException;
 import com.linecorp.bot.model.Multicast;
+import com.linecorp.bot.model.PreparedMessages;
 import com.linecorp.bot.model.PushMessage;
 import com.linecorp.bot.model.ReplyMessage;
 import com.linecorp.bot.model.event.source.GroupSource;
 import com.linecorp.bot.model.event.source.RoomSource;
+import com.linecorp.bot.model.message.Message;
 import com.linecorp.bot.model.profile.MembersIdsResponse;
 import com.linecorp.bot.model.profile.UserProfileResponse;
 import com.linecorp.bot.model.response.BotApiResponse;
 
+/**
+ * Client of the LINE Messaging API.
+ *
+ * <p>Request bodies are serialized when the request is sent, which may be after the method returns.
+ * Lists and sets passed to the methods are copied, but {@link Message}s should not be modified afterwards.
+ *
+ * <p>Default methods are implemented by other methods, e.g. methods taking {@link PreparedMessages} send
+ * {@link PreparedMessages#getMessages()}, which are serialized again. {@link LineMessagingClientImpl}
+ * overrides them with more efficient ones.
+ */
 public interface LineMessagingClient {
+    /**
+     * Default number of multicast requests sent concurrently by {@link #broadcast(Collection, List)}.
+     */
+    int DEFAULT_BROADCAST_MAX_IN_FLIGHT = 4;
+
     /**
      * Reply to messages from users.
      *
@@ -41,6 +70,15 @@ public interface LineMessagingClient {
      */
     CompletableFuture<BotApiResponse> replyMessage(ReplyMessage replyMessage);
 
+    /**
+     * Same as {@link #replyMessage(ReplyMessage)} but serialized messages are reused.
+     *
+     * @see PreparedMessages
+     */
+    default CompletableFuture<BotApiResponse> replyMessage(String replyToken, PreparedMessages messages) {
+        return replyMessage(new ReplyMessage(replyToken, messages.getMessages()));
+    }
+
     /**
      * Send messages to users when you want to.
      *
@@ -51,6 +89,15 @@ public interface LineMessagingClient {
      */
     CompletableFuture<BotApiResponse> pushMessage(PushMessage pushMessage);
 
+    /**
+     * Same as {@link #pushMessage(PushMessage)} but serialized messages are reused.
+     *
+     * @see PreparedMessages
+     */
+    default CompletableFuture<BotApiResponse> pushMessage(String to, PreparedMessages messages) {
+        return pushMessage(new PushMessage(to, messages.getMessages()));
+    }
+
     /**
      * Send messages to multiple users at any time. <strong>IDs of groups or rooms cannot be used.</strong>
      *
@@ -62,6 +109,62 @@ public interface LineMessagingClient {
      */
     CompletableFuture<BotApiResponse> multicast(Multicast multicast);
 
+    /**
+     * Same as {@link #multicast(Multicast)} but serialized messages are reused.
+     *
+     * @see PreparedMessages
+     */
+    default CompletableFuture<BotApiResponse> multicast(Set<String> to, PreparedMessages messages) {
+        return multicast(new Multicast(to, messages.getMessages()));
+    }
+
+    /**
+     * Send messages to any number of users by splitting them into {@link Multicast} requests.
+     *
+     * <p>Duplicated recipients are removed. Same as
+     * {@code broadcast(new LinkedHashSet<>(to).iterator(), messages, DEFAULT_BROADCAST_MAX_IN_FLIGHT)}.
+     *
+     * @see #broadcast(Iterator, List, int)
+     */
+    default CompletableFuture<BroadcastResponse> broadcast(Collection<String> to, List<Message> messages) {
+        return broadcast(new LinkedHashSet<>(to).iterator(), messages, DEFAULT_BROADCAST_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Send messages to users provided by an iterator by splitting them into {@link Multicast} requests.
+     *
+     * <p>Messages are serialized only once and shared by all chunks. Recipients are pulled from
+     * the iterator lazily, and at most {@code maxInFlight} requests are sent concurrently.
+     * The iterator is consumed from OkHttp's callback threads, so it should not block for long.
+     *
+     * <p>Returned future is completed when all chunks are completed. Failed chunks don't fail the future
+     * but they are reported by {@link BroadcastResponse#getFailures()}.
+     *
+     * <p>The default implementation sends chunks by {@link #multicast(Multicast)}.
+     *
+     * @param to User IDs of the receivers. Duplicated IDs are removed only in the same chunk.
+     * @param messages List of Message objects. Max: 5
+     * @param maxInFlight Max number of multicast requests sent concurrently.
+     *
+     * @see #multicast(Multicast)
+     */
+    default CompletableFuture<BroadcastResponse> broadcast(Iterator<String> to, List<Message> messages,
+                                                           int maxInFlight) {
+        return new Broadcaster(to, chunk -> multicast(new Multicast(chunk, messages)),
+                               Broadcaster.MAX_RECIPIENTS_PER_MULTICAST, maxInFlight).start();
+    }
+
+    /**
+     * Same as {@link #broadcast(Iterator, List, int)} but serialized messages are reused.
+     *
+     * @see PreparedMessages
+     */
+    default CompletableFuture<BroadcastResponse> broadcast(Iterator<String> to, PreparedMessages messages,
+                                                           int maxInFlight) {
+        return new Broadcaster(to, chunk -> multicast(chunk, messages),
+                               Broadcaster.MAX_RECIPIENTS_PER_MULTICAST, maxInFlight).start();
+    }
+
     /**
      * Download image, video, and audio data sent from users.
      *
@@ -69,6 +172,39 @@ public interface LineMessagingClient {
      */
     CompletableFuture<MessageContentResponse> getMessageContent(String messageId);
 
+    /**
+     * Download image, video, and audio data sent from users to a file.
+     *
+     * <p>The file is created or truncated. The body is written on an OkHttp thread without
+     * an {@link java.io.InputStream}, and the future is completed after all bytes are written.
+     * Downloads are limited by {@link ContentDownloadLimiter}.
+     *
+     * <p>The default implementation downloads by {@link #getMessageContent(String)} and writes the stream
+     * on the thread which completes it.
+     */
+    default CompletableFuture<ContentDownloadResponse> getMessageContentTo(String messageId, Path path) {
+        return getMessageContent(messageId).thenApply(content -> {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                return ContentDownloadResponse.transfer(content, channel);
+            } catch (IOException e) {
+                throw new CompletionException(new GeneralLineMessagingException(e.getMessage(), null, e));
+            }
+        });
+    }
+
+    /**
+     * Download image, video, and audio data sent from users to a channel.
+     *
+     * <p>Same as {@link #getMessageContentTo(String, Path)} but the channel is neither closed nor retried
+     * since bytes may have been written already.
+     */
+    default CompletableFuture<ContentDownloadResponse> getMessageContentTo(String messageId,
+                                                                           WritableByteChannel channel) {
+        return getMessageContent(messageId).thenApply(
+                content -> ContentDownloadResponse.transfer(content, channel));
+    }
+
     /**
      * Get user profile information.
      *
@@ -16,18 +16,37 @@
 
 package com.linecorp.bot.client;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import com.linecorp.bot.client.exception.GeneralLineMessagingException;
 import com.linecorp.bot.model.Multicast;
+import com.linecorp.bot.model.PreparedMessages;
 import com.linecorp.bot.model.PushMessage;
 import com.linecorp.bot.model.ReplyMessage;
+import com.linecorp.bot.model.message.Message;
 import com.linecorp.bot.model.profile.MembersIdsResponse;
 import com.linecorp.bot.model.profile.UserProfileResponse;
 import com.linecorp.bot.model.response.BotApiResponse;
 
-import lombok.AllArgsConstructor;
+import okhttp3.MediaType;
 import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.HashingSink;
+import okio.Sink;
+import okio.Timeout;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -35,7 +54,6 @@ import retrofit2.Response;
 /**
  * Proxy implementation of {@link LineMessagingClient} to hind internal implementation.
  */
-@AllArgsConstructor
 public class LineMessagingClientImpl implements LineMessagingClient {
     private static final ExceptionConverter EXCEPTION_CONVERTER = new ExceptionConverter();
     private static final String ORG_TYPE_GROUP = "group"; // TODO Enum
@@ -43,63 +61,191 @@ public class LineMessagingClientImpl implements LineMessagingClient {
 
     private final LineMessagingService retrofitImpl;
 
+    /**
+     * Nullable. Requests are not retried if null.
+     */
+    private final RetryPolicy retryPolicy;
+
+    private final ContentDownloadLimiter contentDownloadLimiter;
+
+    public LineMessagingClientImpl(final LineMessagingService retrofitImpl) {
+        this(retrofitImpl, null);
+    }
+
+    /**
+     * Create a client which retries failed requests by given {@link RetryPolicy}.
+     */
+    public LineMessagingClientImpl(final LineMessagingService retrofitImpl, final RetryPolicy retryPolicy) {
+        this(retrofitImpl, retryPolicy, ContentDownloadLimiter.getDefault());
+    }
+
+    /**
+     * Create a client which limits {@code getMessageContentTo} downloads by given {@link ContentDownloadLimiter}
+     * instead of the shared one.
+     */
+    public LineMessagingClientImpl(final LineMessagingService retrofitImpl, final RetryPolicy retryPolicy,
+                                   final ContentDownloadLimiter contentDownloadLimiter) {
+        this.retrofitImpl = retrofitImpl;
+        this.retryPolicy = retryPolicy;
+        this.contentDownloadLimiter = contentDownloadLimiter;
+    }
+
     @Override
     public CompletableFuture<BotApiResponse> replyMessage(final ReplyMessage replyMessage) {
-        return toFuture(retrofitImpl.replyMessage(replyMessage));
+        return withRetry(retrofitImpl.replyMessage(replyMessage), LineMessagingClientImpl::toFuture);
+    }
+
+    @Override
+    public CompletableFuture<BotApiResponse> replyMessage(final String replyToken,
+                                                          final PreparedMessages messages) {
+        return withRetry(retrofitImpl.replyMessagePrepared(
+                PreparedMessagesRequestBody.reply(replyToken, messages)), LineMessagingClientImpl::toFuture);
     }
 
     @Override
     public CompletableFuture<BotApiResponse> pushMessage(final PushMessage pushMessage) {
-        return toFuture(retrofitImpl.pushMessage(pushMessage));
+        if (retryPolicy == null) {
+            return toFuture(retrofitImpl.pushMessage(pushMessage));
+        }
+        return withRetry(retrofitImpl.pushMessage(newRetryKey(), pushMessage),
+                         LineMessagingClientImpl::toFuture);
+    }
+
+    @Override
+    public CompletableFuture<BotApiResponse> pushMessage(final String to, final PreparedMessages messages) {
+        final String retryKey = retryPolicy == null ? null : newRetryKey();
+        return withRetry(retrofitImpl.pushMessagePrepared(
+                retryKey, PreparedMessagesRequestBody.push(to, messages)), LineMessagingClientImpl::toFuture);
     }
 
     @Override
     public CompletableFuture<BotApiResponse> multicast(final Multicast multicast) {
-        return toFuture(retrofitImpl.multicast(multicast));
+        if (retryPolicy == null) {
+            return toFuture(retrofitImpl.multicast(multicast));
+        }
+        return withRetry(retrofitImpl.multicast(newRetryKey(), multicast),
+                         LineMessagingClientImpl::toFuture);
+    }
+
+    @Override
+    public CompletableFuture<BotApiResponse> multicast(final Set<String> to, final PreparedMessages messages) {
+        final String retryKey = retryPolicy == null ? null : newRetryKey();
+        return withRetry(retrofitImpl.multicastPrepared(
+                retryKey, PreparedMessagesRequestBody.multicast(to, messages)), LineMessagingClientImpl::toFuture);
+    }
+
+    @Override
+    public CompletableFuture<BroadcastResponse> broadcast(
+            final Collection<String> to, final List<Message> messages) {
+        return broadcast(new LinkedHashSet<>(to).iterator(), messages, DEFAULT_BROADCAST_MAX_IN_FLIGHT);
+    }
+
+    @Override
+    public CompletableFuture<BroadcastResponse> broadcast(
+            final Iterator<String> to, final List<Message> messages, final int maxInFlight) {
+        final PreparedMessages preparedMessages;
+        try {
+            preparedMessages = PreparedMessages.of(messages);
+        } catch (IllegalArgumentException e) {
+            final CompletableFuture<BroadcastResponse> future = new CompletableFuture<>();
+            future.completeExceptionally(new GeneralLineMessagingException(e.getMessage(), null, e));
+            return future;
+        }
+        return broadcast(to, preparedMessages, maxInFlight);
+    }
+
+    @Override
+    public CompletableFuture<BroadcastResponse> broadcast(
+            final Iterator<String> to, final PreparedMessages messages, final int maxInFlight) {
+        return new Broadcaster(
+                to,
+                chunk -> multicast(chunk, messages),
+                Broadcaster.MAX_RECIPIENTS_PER_MULTICAST,
+                maxInFlight).start();
     }
 
     @Override
     public CompletableFuture<MessageContentResponse> getMessageContent(final String messageId) {
-        return toMessageContentResponseFuture(retrofitImpl.getMessageContent(messageId));
+        return withRetry(retrofitImpl.getMessageContent(messageId),
+                         LineMessagingClientImpl::toMessageContentResponseFuture);
+    }
+
+    @Override
+    public CompletableFuture<ContentDownloadResponse> getMessageContentTo(final String messageId,
+                                                                          final Path path) {
+        return withRetry(retrofitImpl.getMessageContent(messageId),
+                         call -> toContentDownloadFuture(call, () -> FileChannel.open(
+                                 path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                 StandardOpenOption.TRUNCATE_EXISTING), true));
+    }
+
+    @Override
+    public CompletableFuture<ContentDownloadResponse> getMessageContentTo(final String messageId,
+                                                                          final WritableByteChannel channel) {
+        return toContentDownloadFuture(retrofitImpl.getMessageContent(messageId), () -> channel, false);
     }
 
     @Override
     public CompletableFuture<UserProfileResponse> getProfile(final String userId) {
-        return toFuture(retrofitImpl.getProfile(userId));
+        return withRetry(retrofitImpl.getProfile(userId), LineMessagingClientImpl::toFuture);
     }
 
     @Override
     public CompletableFuture<UserProfileResponse> getGroupMemberProfile(
             final String groupId, final String userId) {
-        return toFuture(retrofitImpl.getMemberProfile(ORG_TYPE_GROUP, groupId, userId));
+        return withRetry(retrofitImpl.getMemberProfile(ORG_TYPE_GROUP, groupId, userId),
+                         LineMessagingClientImpl::toFuture);
     }
 
     @Override
     public CompletableFuture<UserProfileResponse> getRoomMemberProfile(
             final String roomId, final String userId) {
-        return toFuture(retrofitImpl.getMemberProfile(ORG_TYPE_ROOM, roomId, userId));
+        return withRetry(retrofitImpl.getMemberProfile(ORG_TYPE_ROOM, roomId, userId),
+                         LineMessagingClientImpl::toFuture);
     }
 
     @Override
     public CompletableFuture<MembersIdsResponse> getGroupMembersIds(
             final String groupId, final String start) {
-        return toFuture(retrofitImpl.getMembersIds(ORG_TYPE_GROUP, groupId, start));
+        return withRetry(retrofitImpl.getMembersIds(ORG_TYPE_GROUP, groupId, start),
+                         LineMessagingClientImpl::toFuture);
     }
 
     @Override
     public CompletableFuture<MembersIdsResponse> getRoomMembersIds(
             final String roomId, final String start) {
-        return toFuture(retrofitImpl.getMembersIds(ORG_TYPE_ROOM, roomId, start));
+        return withRetry(retrofitImpl.getMembersIds(ORG_TYPE_ROOM, roomId, start),
+                         LineMessagingClientImpl::toFuture);
     }
 
     @Override
     public CompletableFuture<BotApiResponse> leaveGroup(final String groupId) {
-        return toFuture(retrofitImpl.leaveGroup(groupId));
+        return withRetry(retrofitImpl.leaveGroup(groupId), LineMessagingClientImpl::toFuture);
     }
 
     @Override
     public CompletableFuture<BotApiResponse> leaveRoom(final String roomId) {
-        return toFuture(retrofitImpl.leaveRoom(roomId));
+        return withRetry(retrofitImpl.leaveRoom(roomId), LineMessagingClientImpl::toFuture);
+    }
+
+    /**
+     * Send a call. Retries by cloning the call if {@link #retryPolicy} is set.
+     */
+    private <T, R> CompletableFuture<R> withRetry(final Call<T> call,
+                                                  final Function<Call<T>, CompletableFuture<R>> adaptor) {
+        if (retryPolicy == null) {
+            return adaptor.apply(call);
+        }
+        return retryPolicy.execute(attempt -> adaptor.apply(attempt == 1 ? call : call.clone()));
+    }
+
+    private static String newRetryKey() {
+        return UUID.randomUUID().toString();
+    }
+
+    private static String mimeTypeOf(final ResponseBody body) {
+        final MediaType contentType = body.contentType();
+        return contentType != null ? contentType.toString() : null;
     }
 
     private static <T> CompletableFuture<T> toFuture(Call<T> callToWrap) {
@@ -115,6 +261,20 @@ public class LineMessagingClientImpl implements LineMessagingClient {
         return future;
     }
 
+    private CompletableFuture<ContentDownloadResponse> toContentDownloadFuture(
+            final Call<ResponseBody> callToWrap, final ChannelOpener opener, final boolean closeChannel) {
+        final ContentDownloadCallback future =
+                new ContentDownloadCallback(contentDownloadLimiter, opener, closeChannel);
+        contentDownloadLimiter.acquireSlot().thenRun(() -> {
+            try {
+                callToWrap.enqueue(future);
+            } catch (RuntimeException e) {
+                future.onFailure(callToWrap, e);
+            }
+        });
+        return future;
+    }
+
     static class CallbackAdaptor<T> extends CompletableFuture<T> implements Callback<T> {
         @Override
         public void onResponse(final Call<T> call, final Response<T> response) {
@@ -163,9 +323,120 @@ public class LineMessagingClientImpl implements LineMessagingClient {
                     .builder()
                     .length(response.body().contentLength())
                     .allHeaders(response.headers().toMultimap())
-                    .mimeType(response.body().contentType().toString())
+                    .mimeType(mimeTypeOf(response.body()))
                     .stream(response.body().byteStream())
                     .build();
         }
     }
+
+    @FunctionalInterface
+    interface ChannelOpener {
+        WritableByteChannel open() throws IOException;
+    }
+
+    /**
+     * Writes the body to a channel on the OkHttp thread which received the response, or on the executor
+     * of {@link ContentDownloadLimiter} if the download waited for bytes.
+     * Holds a {@link ContentDownloadLimiter} slot until the download completes.
+     */
+    static class ContentDownloadCallback
+            extends CompletableFuture<ContentDownloadResponse>
+            implements Callback<ResponseBody> {
+        private final ContentDownloadLimiter limiter;
+        private final ChannelOpener opener;
+        private final boolean closeChannel;
+
+        ContentDownloadCallback(final ContentDownloadLimiter limiter, final ChannelOpener opener,
+                                final boolean closeChannel) {
+            this.limiter = limiter;
+            this.opener = opener;
+            this.closeChannel = closeChannel;
+        }
+
+        @Override
+        public void onResponse(final Call<ResponseBody> call, final Response<ResponseBody> response) {
+            if (!response.isSuccessful()) {
+                limiter.release(0);
+                completeExceptionally(EXCEPTION_CONVERTER.apply(response));
+                return;
+            }
+
+            final long reservation = limiter.reservationOf(response.body().contentLength());
+            limiter.reserveBytes(reservation).thenRun(() -> {
+                try {
+                    complete(transfer(response));
+                } catch (IOException | RuntimeException e) {
+                    completeExceptionally(new GeneralLineMessagingException(e.getMessage(), null, e));
+                } finally {
+                    limiter.release(reservation);
+                }
+            });
+        }
+
+        @Override
+        public void onFailure(final Call<ResponseBody> call, final Throwable t) {
+            limiter.release(0);
+            completeExceptionally(
+                    new GeneralLineMessagingException(t.getMessage(), null, t));
+        }
+
+        private ContentDownloadResponse transfer(final Response<ResponseBody> response) throws IOException {
+            try (ResponseBody body = response.body()) {
+                final WritableByteChannel channel = opener.open();
+                try {
+                    final HashingSink sink = HashingSink.sha256(new ChannelSink(channel));
+                    final long length = body.source().readAll(sink);
+                    return new ContentDownloadResponse(length,
+                                                       mimeTypeOf(body),
+                                                       sink.hash().hex(),
+                                                       response.headers().toMultimap());
+                } finally {
+                    if (closeChannel) {
+                        channel.close();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * {@link Sink} which writes segments of Okio buffers to a channel through one reused array.
+     *
+     * <p>Okio 1.x doesn't expose its segments as {@link ByteBuffer}, so one copy per segment remains.
+     */
+    static class ChannelSink implements Sink {
+        private final WritableByteChannel channel;
+        private final byte[] array = new byte[8192];
+        private final ByteBuffer byteBuffer = ByteBuffer.wrap(array);
+
+        ChannelSink(final WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(final Buffer source, final long byteCount) throws IOException {
+            long remaining = byteCount;
+            while (remaining > 0) {
+                final int read = source.read(array, 0, (int) Math.min(remaining, array.length));
+                byteBuffer.clear().limit(read);
+                while (byteBuffer.hasRemaining()) {
+                    channel.write(byteBuffer);
+                }
+                remaining -= read;
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
 }
@@ -23,16 +23,23 @@ import com.linecorp.bot.model.profile.MembersIdsResponse;
 import com.linecorp.bot.model.profile.UserProfileResponse;
 import com.linecorp.bot.model.response.BotApiResponse;
 
+import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.POST;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
 import retrofit2.http.Streaming;
 
 public interface LineMessagingService {
+    /**
+     * Header to prevent duplicated delivery of retried requests.
+     */
+    String RETRY_KEY_HEADER = "X-Line-Retry-Key";
+
     /**
      * Reply to messages from users.
      *
@@ -47,6 +54,15 @@ public interface LineMessagingService {
     @POST("v2/bot/message/reply")
     Call<BotApiResponse> replyMessage(@Body ReplyMessage replyMessage);
 
+    /**
+     * Same as {@link #replyMessage(ReplyMessage)} but messages are serialized in advance.
+     *
+     * <p>Internal use only. Used by
+     * {@link LineMessagingClient#replyMessage(String, com.linecorp.bot.model.PreparedMessages)}.
+     */
+    @POST("v2/bot/message/reply")
+    Call<BotApiResponse> replyMessagePrepared(@Body RequestBody replyMessage);
+
     /**
      * Send messages to users when you want to.
      *
@@ -58,6 +74,30 @@ public interface LineMessagingService {
     @POST("v2/bot/message/push")
     Call<BotApiResponse> pushMessage(@Body PushMessage pushMessage);
 
+    /**
+     * Same as {@link #pushMessage(PushMessage)} with {@code X-Line-Retry-Key} header.
+     *
+     * <p>Requests with the same retry key are accepted only once by the server,
+     * so that retried requests are not delivered twice.
+     *
+     * @param retryKey Random UUID which is shared by all attempts of the same request.
+     */
+    @POST("v2/bot/message/push")
+    Call<BotApiResponse> pushMessage(@Header(RETRY_KEY_HEADER) String retryKey,
+                                     @Body PushMessage pushMessage);
+
+    /**
+     * Same as {@link #pushMessage(PushMessage)} but messages are serialized in advance.
+     *
+     * <p>Internal use only. Used by
+     * {@link LineMessagingClient#pushMessage(String, com.linecorp.bot.model.PreparedMessages)}.
+     *
+     * @param retryKey Nullable. Random UUID which is shared by all attempts of the same request.
+     */
+    @POST("v2/bot/message/push")
+    Call<BotApiResponse> pushMessagePrepared(@Header(RETRY_KEY_HEADER) String retryKey,
+                                             @Body RequestBody pushMessage);
+
     /**
      * Send messages to multiple users at any time. <strong>IDs of groups or rooms cannot be used.</strong>
      *
@@ -70,6 +110,30 @@ public interface LineMessagingService {
     @POST("v2/bot/message/multicast")
     Call<BotApiResponse> multicast(@Body Multicast multicast);
 
+    /**
+     * Same as {@link #multicast(Multicast)} with {@code X-Line-Retry-Key} header.
+     *
+     * @param retryKey Random UUID which is shared by all attempts of the same request.
+     *
+     * @see #pushMessage(String, PushMessage)
+     */
+    @POST("v2/bot/message/multicast")
+    Call<BotApiResponse> multicast(@Header(RETRY_KEY_HEADER) String retryKey,
+                                   @Body Multicast multicast);
+
+    /**
+     * Same as {@link #multicast(Multicast)} but messages are serialized in advance.
+     *
+     * <p>Internal use only. Used by
+     * {@link LineMessagingClient#multicast(java.util.Set, com.linecorp.bot.model.PreparedMessages)}
+     * and broadcast.
+     *
+     * @param retryKey Nullable. Random UUID which is shared by all attempts of the same request.
+     */
+    @POST("v2/bot/message/multicast")
+    Call<BotApiResponse> multicastPrepared(@Header(RETRY_KEY_HEADER) String retryKey,
+                                           @Body RequestBody multicast);
+
     /**
      * Download image, video, and audio data sent from users.
      *
@@ -19,19 +19,24 @@ package com.linecorp.bot.client;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import javax.net.ssl.X509TrustManager;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
+import com.linecorp.bot.model.MessageSerializerModule;
+
 import lombok.NonNull;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
-import okhttp3.logging.HttpLoggingInterceptor;
+import okhttp3.Protocol;
 import retrofit2.Retrofit;
 import retrofit2.converter.jackson.JacksonConverterFactory;
 
@@ -40,15 +45,50 @@ public final class LineMessagingServiceBuilder {
     public static final long DEFAULT_CONNECT_TIMEOUT = 10_000;
     public static final long DEFAULT_READ_TIMEOUT = 10_000;
     public static final long DEFAULT_WRITE_TIMEOUT = 10_000;
+    public static final int DEFAULT_MAX_REQUESTS = 64;
+    /**
+     * All requests go to the same host, so that per host limit is same as the total limit by default.
+     * OkHttp's default is 5.
+     */
+    public static final int DEFAULT_MAX_REQUESTS_PER_HOST = 64;
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+    public static final long DEFAULT_KEEP_ALIVE_DURATION = 300_000;
+    public static final int DEFAULT_CONTENT_MAX_REQUESTS = 8;
+    public static final long DEFAULT_CONTENT_READ_TIMEOUT = 60_000;
+    public static final int DEFAULT_CONTENT_MAX_IDLE_CONNECTIONS = 2;
 
     private String apiEndPoint = DEFAULT_API_END_POINT;
     private long connectTimeout = DEFAULT_CONNECT_TIMEOUT;
     private long readTimeout = DEFAULT_READ_TIMEOUT;
     private long writeTimeout = DEFAULT_WRITE_TIMEOUT;
+    private int maxRequests = DEFAULT_MAX_REQUESTS;
+    private int maxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST;
+    private int maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+    private long keepAliveDuration = DEFAULT_KEEP_ALIVE_DURATION;
+    private ExecutorService dispatcherExecutor;
+    private Dispatcher dispatcher;
+    private ConnectionPool connectionPool;
+    private List<Protocol> protocols;
+    private int warmUpConnections;
+    private ClientMetrics metrics;
+    private boolean separateContentLane = true;
+    private int contentMaxRequests = DEFAULT_CONTENT_MAX_REQUESTS;
+    private long contentReadTimeout = DEFAULT_CONTENT_READ_TIMEOUT;
+    private int contentMaxIdleConnections = DEFAULT_CONTENT_MAX_IDLE_CONNECTIONS;
+    private ExecutorService contentDispatcherExecutor;
+    private Dispatcher contentDispatcher;
+    private ConnectionPool contentConnectionPool;
     private List<Interceptor> interceptors = new ArrayList<>();
+    // Whether the dispatcher or connection pool settings are given, so that they override the ones
+    // of a caller supplied OkHttpClient.Builder.
+    private boolean dispatcherConfigured;
+    private boolean connectionPoolConfigured;
 
     private OkHttpClient.Builder okHttpClientBuilder;
     private Retrofit.Builder retrofitBuilder;
+    private ConnectionStats connectionStats;
+    private ConnectionStats contentConnectionStats;
+    private ConnectionWarmer connectionWarmer;
 
     /**
      * Create a new {@link LineMessagingServiceBuilder} with specified given fixed channelToken.
@@ -100,6 +140,169 @@ public final class LineMessagingServiceBuilder {
         return this;
     }
 
+    /**
+     * Set max number of requests executed concurrently. Other requests are queued in the dispatcher.
+     */
+    public LineMessagingServiceBuilder maxRequests(int maxRequests) {
+        this.maxRequests = maxRequests;
+        dispatcherConfigured = true;
+        return this;
+    }
+
+    /**
+     * Set max number of requests executed concurrently for each host.
+     */
+    public LineMessagingServiceBuilder maxRequestsPerHost(int maxRequestsPerHost) {
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        dispatcherConfigured = true;
+        return this;
+    }
+
+    /**
+     * Set executor which runs requests and callbacks. Ignored if {@link #dispatcher(Dispatcher)} is set.
+     * Not used by the content lane, see {@link #contentDispatcherExecutor(ExecutorService)}.
+     *
+     * <p>Default: OkHttp's cached thread pool.
+     */
+    public LineMessagingServiceBuilder dispatcherExecutor(@NonNull ExecutorService dispatcherExecutor) {
+        this.dispatcherExecutor = dispatcherExecutor;
+        dispatcherConfigured = true;
+        return this;
+    }
+
+    /**
+     * Use given dispatcher, e.g. to share it with other clients.
+     * {@link #maxRequests(int)} and {@link #maxRequestsPerHost(int)} are applied to it.
+     */
+    public LineMessagingServiceBuilder dispatcher(@NonNull Dispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+        dispatcherConfigured = true;
+        return this;
+    }
+
+    /**
+     * Set max number of idle connections kept in the connection pool.
+     * Ignored if {@link #connectionPool(ConnectionPool)} is set.
+     */
+    public LineMessagingServiceBuilder maxIdleConnections(int maxIdleConnections) {
+        this.maxIdleConnections = maxIdleConnections;
+        connectionPoolConfigured = true;
+        return this;
+    }
+
+    /**
+     * Set keep alive duration of idle connections in milliseconds.
+     * Ignored if {@link #connectionPool(ConnectionPool)} is set.
+     */
+    public LineMessagingServiceBuilder keepAliveDuration(long keepAliveDuration) {
+        this.keepAliveDuration = keepAliveDuration;
+        connectionPoolConfigured = true;
+        return this;
+    }
+
+    /**
+     * Use given connection pool, e.g. to share it with other clients.
+     */
+    public LineMessagingServiceBuilder connectionPool(@NonNull ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+        connectionPoolConfigured = true;
+        return this;
+    }
+
+    /**
+     * Set protocols to negotiate. e.g. {@code Collections.singletonList(Protocol.HTTP_1_1)} disables HTTP/2.
+     *
+     * <p>Default: OkHttp's default, HTTP/2 and HTTP/1.1.
+     */
+    public LineMessagingServiceBuilder protocols(@NonNull List<Protocol> protocols) {
+        this.protocols = new ArrayList<>(protocols);
+        return this;
+    }
+
+    /**
+     * Open given number of connections to the API endpoint in {@link #build()}, and re-open them
+     * after they are evicted by idle. Default: 0, which disables warm-up.
+     *
+     * <p>Connections are opened in background; {@link #build()} doesn't wait for them.
+     * Use {@link ConnectionWarmer#warmUpAsync()} of {@link #connectionWarmer()} to wait.
+     * The number should not exceed {@link #maxIdleConnections(int)}, otherwise extra connections are evicted.
+     *
+     * @see ConnectionWarmer
+     */
+    public LineMessagingServiceBuilder warmUpConnections(int warmUpConnections) {
+        this.warmUpConnections = warmUpConnections;
+        return this;
+    }
+
+    /**
+     * Send {@link LineMessagingService#getMessageContent(String)} through a separate OkHttp client
+     * which has its own dispatcher, executor, connection pool and read timeout, so that large media downloads
+     * never delay API calls such as reply. The content lane shares interceptors and other settings with
+     * the API lane. Default: true.
+     *
+     * @see #contentConnectionStats()
+     */
+    public LineMessagingServiceBuilder separateContentLane(boolean separateContentLane) {
+        this.separateContentLane = separateContentLane;
+        return this;
+    }
+
+    /**
+     * Set max number of content downloads executed concurrently in the content lane.
+     * Also used as the per host limit.
+     */
+    public LineMessagingServiceBuilder contentMaxRequests(int contentMaxRequests) {
+        this.contentMaxRequests = contentMaxRequests;
+        return this;
+    }
+
+    /**
+     * Set readTimeout of the content lane in milliseconds.
+     */
+    public LineMessagingServiceBuilder contentReadTimeout(long contentReadTimeout) {
+        this.contentReadTimeout = contentReadTimeout;
+        return this;
+    }
+
+    /**
+     * Set max number of idle connections kept in the connection pool of the content lane.
+     * Ignored if {@link #contentConnectionPool(ConnectionPool)} is set.
+     */
+    public LineMessagingServiceBuilder contentMaxIdleConnections(int contentMaxIdleConnections) {
+        this.contentMaxIdleConnections = contentMaxIdleConnections;
+        return this;
+    }
+
+    /**
+     * Set executor which runs content downloads and their callbacks in the content lane.
+     * Ignored if {@link #contentDispatcher(Dispatcher)} is set. It should not be the executor of the API lane,
+     * otherwise slow downloads take threads from API calls.
+     *
+     * <p>Default: OkHttp's cached thread pool, separate from the one of the API lane.
+     */
+    public LineMessagingServiceBuilder contentDispatcherExecutor(
+            @NonNull ExecutorService contentDispatcherExecutor) {
+        this.contentDispatcherExecutor = contentDispatcherExecutor;
+        return this;
+    }
+
+    /**
+     * Use given dispatcher in the content lane. {@link #contentMaxRequests(int)} is applied to it.
+     * It must not be the dispatcher of the API lane.
+     */
+    public LineMessagingServiceBuilder contentDispatcher(@NonNull Dispatcher contentDispatcher) {
+        this.contentDispatcher = contentDispatcher;
+        return this;
+    }
+
+    /**
+     * Use given connection pool in the content lane.
+     */
+    public LineMessagingServiceBuilder contentConnectionPool(@NonNull ConnectionPool contentConnectionPool) {
+        this.contentConnectionPool = contentConnectionPool;
+        return this;
+    }
+
     /**
      * Add interceptor
      */
@@ -116,6 +319,46 @@ public final class LineMessagingServiceBuilder {
         return this;
     }
 
+    /**
+     * Limit request rate on client side.
+     *
+     * <p>The rate limiter is added as the first interceptor, so that rejected requests
+     * never reach other interceptors.
+     *
+     * @see RateLimiter
+     */
+    public LineMessagingServiceBuilder rateLimiter(@NonNull RateLimiter rateLimiter) {
+        return addInterceptorFirst(rateLimiter);
+    }
+
+    /**
+     * Replace the default wire logging, which logs request lines and response statuses.
+     *
+     * @see WireLoggingInterceptor
+     */
+    public LineMessagingServiceBuilder wireLogging(@NonNull WireLoggingInterceptor wireLogging) {
+        if (interceptors.stream().anyMatch(WireLoggingInterceptor.class::isInstance)) {
+            interceptors.replaceAll(interceptor -> interceptor instanceof WireLoggingInterceptor
+                                                   ? wireLogging : interceptor);
+        } else {
+            interceptors.add(wireLogging);
+        }
+        return this;
+    }
+
+    /**
+     * Record per endpoint latency, status codes and connection phases into given {@link ClientMetrics}.
+     *
+     * <p>DNS and socket factory of the OkHttp client, including the ones of
+     * {@link #okHttpClientBuilder(OkHttpClient.Builder, boolean)}, are wrapped by timing ones.
+     * The TLS handshake is only timed without {@link #okHttpClientBuilder(OkHttpClient.Builder, boolean)},
+     * since OkHttp doesn't expose the trust manager of the given builder.
+     */
+    public LineMessagingServiceBuilder metrics(@NonNull ClientMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
     /**
      * Remove all interceptors
      */
@@ -138,6 +381,9 @@ public final class LineMessagingServiceBuilder {
     /**
      * <p>If you want to use your own setting, specify {@link OkHttpClient.Builder} instance.</p>
      *
+     * <p>Dispatcher and connection pool of the given builder are kept, unless they are configured
+     * on this builder, e.g. by {@link #maxRequests(int)} or {@link #connectionPool(ConnectionPool)}.</p>
+     *
      * @param resetDefaultInterceptors If true, all default okhttp interceptors ignored.
      * You should insert authentication headers yourself.
      */
@@ -165,37 +411,132 @@ public final class LineMessagingServiceBuilder {
      * Creates a new {@link LineMessagingService}.
      */
     public LineMessagingService build() {
-        if (okHttpClientBuilder == null) {
+        final boolean customOkHttpClientBuilder = okHttpClientBuilder != null;
+        if (!customOkHttpClientBuilder) {
             okHttpClientBuilder = new OkHttpClient.Builder();
         }
 
+        if (!customOkHttpClientBuilder || dispatcherConfigured) {
+            if (dispatcher == null) {
+                dispatcher = dispatcherExecutor != null ? new Dispatcher(dispatcherExecutor) : new Dispatcher();
+            }
+            dispatcher.setMaxRequests(maxRequests);
+            dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+            okHttpClientBuilder.dispatcher(dispatcher);
+        }
+        if (!customOkHttpClientBuilder || connectionPoolConfigured) {
+            if (connectionPool == null) {
+                connectionPool = new ConnectionPool(maxIdleConnections, keepAliveDuration,
+                                                    TimeUnit.MILLISECONDS);
+            }
+            okHttpClientBuilder.connectionPool(connectionPool);
+        }
+
+        if (metrics != null) {
+            // First, so that the latency includes time spent in other interceptors, e.g. rate limiter.
+            okHttpClientBuilder.addInterceptor(metrics.interceptor());
+            okHttpClientBuilder.addNetworkInterceptor(metrics.networkInterceptor());
+            // OkHttpClient.Builder has no getters. Build once to take the configured ones.
+            final OkHttpClient configured = okHttpClientBuilder.build();
+            okHttpClientBuilder.dns(metrics.dns(configured.dns()));
+            okHttpClientBuilder.socketFactory(metrics.socketFactory(configured.socketFactory()));
+            if (!customOkHttpClientBuilder) {
+                final X509TrustManager trustManager = ClientMetrics.systemDefaultTrustManager();
+                okHttpClientBuilder.sslSocketFactory(
+                        metrics.sslSocketFactory(ClientMetrics.systemDefaultSslSocketFactory(trustManager)),
+                        trustManager);
+            }
+        }
         interceptors.forEach(okHttpClientBuilder::addInterceptor);
         okHttpClientBuilder
                 .connectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
                 .readTimeout(readTimeout, TimeUnit.MILLISECONDS)
                 .writeTimeout(writeTimeout, TimeUnit.MILLISECONDS);
+        if (protocols != null) {
+            okHttpClientBuilder.protocols(protocols);
+        }
 
         final OkHttpClient okHttpClient = okHttpClientBuilder.build();
+        connectionStats = new ConnectionStats(okHttpClient.dispatcher(), okHttpClient.connectionPool());
+        final OkHttpClient contentClient = separateContentLane ? buildContentClient(okHttpClient) : okHttpClient;
+        contentConnectionStats = new ConnectionStats(contentClient.dispatcher(), contentClient.connectionPool());
+
+        if (warmUpConnections > 0) {
+            connectionWarmer = new ConnectionWarmer(okHttpClient, HttpUrl.parse(apiEndPoint), warmUpConnections);
+            connectionWarmer.warmUpAsync();
+            connectionWarmer.startRewarming(Math.max(1, keepAliveDuration / 2));
+        }
 
         if (retrofitBuilder == null) {
             retrofitBuilder = createDefaultRetrofitBuilder();
         }
-        retrofitBuilder.client(okHttpClient);
+        retrofitBuilder.callFactory(request -> EndpointFamily.of(request) == EndpointFamily.CONTENT
+                                               ? contentClient.newCall(request)
+                                               : okHttpClient.newCall(request));
         retrofitBuilder.baseUrl(apiEndPoint);
         final Retrofit retrofit = retrofitBuilder.build();
 
         return retrofit.create(LineMessagingService.class);
     }
 
-    private static List<Interceptor> defaultInterceptors(final ChannelTokenSupplier channelTokenSupplier) {
-        final Logger slf4jLogger = LoggerFactory.getLogger("com.linecorp.bot.client.wire");
-        final HttpLoggingInterceptor httpLoggingInterceptor =
-                new HttpLoggingInterceptor(message -> slf4jLogger.info("{}", message));
-        httpLoggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
+    /**
+     * Returns live request and connection counts of the client created by the last {@link #build()}.
+     *
+     * @throws IllegalStateException if {@link #build()} is not called yet.
+     */
+    public ConnectionStats connectionStats() {
+        if (connectionStats == null) {
+            throw new IllegalStateException("LineMessagingService is not built yet.");
+        }
+        return connectionStats;
+    }
 
+    /**
+     * Returns live request and connection counts of the content lane created by the last {@link #build()}.
+     * Same as {@link #connectionStats()} if {@link #separateContentLane(boolean)} is false.
+     *
+     * @throws IllegalStateException if {@link #build()} is not called yet.
+     */
+    public ConnectionStats contentConnectionStats() {
+        if (contentConnectionStats == null) {
+            throw new IllegalStateException("LineMessagingService is not built yet.");
+        }
+        return contentConnectionStats;
+    }
+
+    /**
+     * Returns the connection warmer created by the last {@link #build()}.
+     *
+     * @return null if {@link #warmUpConnections(int)} is not set.
+     */
+    public ConnectionWarmer connectionWarmer() {
+        return connectionWarmer;
+    }
+
+    private OkHttpClient buildContentClient(final OkHttpClient apiClient) {
+        if (contentDispatcher == null) {
+            contentDispatcher = contentDispatcherExecutor != null ? new Dispatcher(contentDispatcherExecutor)
+                                                                  : new Dispatcher();
+        }
+        contentDispatcher.setMaxRequests(contentMaxRequests);
+        contentDispatcher.setMaxRequestsPerHost(contentMaxRequests);
+        if (contentConnectionPool == null) {
+            contentConnectionPool = new ConnectionPool(contentMaxIdleConnections, keepAliveDuration,
+                                                       TimeUnit.MILLISECONDS);
+        }
+
+        // Inherits interceptors, DNS, socket factory and other timeouts.
+        return apiClient.newBuilder()
+                        .readTimeout(contentReadTimeout, TimeUnit.MILLISECONDS)
+                        .dispatcher(contentDispatcher)
+                        .connectionPool(contentConnectionPool)
+                        .build();
+    }
+
+    private static List<Interceptor> defaultInterceptors(final ChannelTokenSupplier channelTokenSupplier) {
         return Arrays.asList(
                 HeaderInterceptor.forChannelTokenSupplier(channelTokenSupplier),
-                httpLoggingInterceptor
+                WireLoggingInterceptor.builder().build()
         );
     }
 
@@ -207,7 +548,11 @@ public final class LineMessagingServiceBuilder {
         objectMapper.registerModule(new JavaTimeModule())
                     .configure(DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS, false);
 
+        // Write outbound messages by streaming writers instead of bean serializers.
+        objectMapper.registerModule(new MessageSerializerModule());
+
         return new Retrofit.Builder()
+                .addConverterFactory(StreamingJsonConverterFactory.create(objectMapper))
                 .addConverterFactory(JacksonConverterFactory.create(objectMapper));
     }
 }
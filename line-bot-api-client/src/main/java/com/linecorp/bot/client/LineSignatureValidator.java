@@ -30,16 +30,22 @@ import lombok.ToString;
 /*
  * This class validates value of the `X-LINE-Signature` header.
  */
-@ToString
+@ToString(exclude = "prototype")
 public class LineSignatureValidator {
     private static final String HASH_ALGORITHM = "HmacSHA256";
     private final SecretKeySpec secretKeySpec;
 
+    /**
+     * Mac initialized by the channel secret. Never updated, only cloned.
+     */
+    private final Mac prototype;
+
     /**
      * Create new instance with channel secret.
      */
     public LineSignatureValidator(byte[] channelSecret) {
         this.secretKeySpec = new SecretKeySpec(channelSecret, HASH_ALGORITHM);
+        this.prototype = initMac();
     }
 
     /**
@@ -55,6 +61,19 @@ public class LineSignatureValidator {
         return MessageDigest.isEqual(decodeHeaderSignature, signature);
     }
 
+    /**
+     * Validate signature computed by a {@link Mac} from {@link #createMac()}.
+     *
+     * @param mac Mac which has been updated by whole body of the http request.
+     * @param headerSignature Signature value from `X-LINE-Signature` HTTP header
+     * @return True if headerSignature matches signature of the content. False otherwise.
+     */
+    public boolean validateSignature(@NonNull Mac mac, @NonNull String headerSignature) {
+        final byte[] signature = mac.doFinal();
+        final byte[] decodeHeaderSignature = Base64.getDecoder().decode(headerSignature);
+        return MessageDigest.isEqual(decodeHeaderSignature, signature);
+    }
+
     /**
      * Generate signature value.
      *
@@ -62,10 +81,27 @@ public class LineSignatureValidator {
      * @return generated signature value.
      */
     public byte[] generateSignature(@NonNull byte[] content) {
+        return createMac().doFinal(content);
+    }
+
+    /**
+     * Create a {@link Mac} initialized by the channel secret, to compute a signature while the body is read.
+     *
+     * <p>The Mac is cloned from a pre-initialized one, so that the key schedule is not computed per request.
+     */
+    public Mac createMac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            return initMac();
+        }
+    }
+
+    private Mac initMac() {
         try {
             Mac mac = Mac.getInstance(HASH_ALGORITHM);
             mac.init(secretKeySpec);
-            return mac.doFinal(content);
+            return mac;
         } catch (NoSuchAlgorithmException | InvalidKeyException e) {
             // "HmacSHA256" is always supported in Java 8 platform.
             //   (see https://docs.oracle.com/javase/8/docs/api/javax/crypto/Mac.html)
@@ -74,6 +110,4 @@ public class LineSignatureValidator {
             throw new IllegalStateException(e);
         }
     }
-
 }
-
@@ -0,0 +1,721 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import com.linecorp.bot.client.LineMessagingClientImpl.ChannelOpener;
+import com.linecorp.bot.client.exception.GeneralLineMessagingException;
+import com.linecorp.bot.model.Multicast;
+import com.linecorp.bot.model.PreparedMessages;
+import com.linecorp.bot.model.PushMessage;
+import com.linecorp.bot.model.ReplyMessage;
+import com.linecorp.bot.model.message.Message;
+import com.linecorp.bot.model.profile.MembersIdsResponse;
+import com.linecorp.bot.model.profile.UserProfileResponse;
+import com.linecorp.bot.model.response.BotApiResponse;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link LineMessagingClient} decorator which caches message contents on disk.
+ *
+ * <p>{@link #getMessageContent(String)} and {@code getMessageContentTo} are served from the cache.
+ * Contents are stored by their SHA-256 digest, so that identical contents of different messages,
+ * e.g. forwarded images, are stored once. Cached contents are read through memory mapped files, or streamed
+ * from files if they are larger than 2 GB, which is the limit of a mapped buffer.
+ * Concurrent misses of the same message share one download. Messages are evicted by least recently used
+ * order when total size of stored contents exceeds {@code maximumBytes}. Failures are not cached.
+ *
+ * <p>The cache survives restarts. Directory layout:
+ * <ul>
+ *     <li>{@code blobs/<sha256>}: contents</li>
+ *     <li>{@code index/<messageId>}: digest and MIME type of the message. Last modified time is the last access
+ *     time, which is tracked in memory and written at most once a minute per message.</li>
+ *     <li>{@code tmp/}: downloads in progress. Cleared on start.</li>
+ * </ul>
+ *
+ * <p>{@link MessageContentResponse#getAllHeaders()} of cached contents is empty.
+ *
+ * <pre>{@code
+ * MediaCachingLineMessagingClient client =
+ *         MediaCachingLineMessagingClient.builder(new LineMessagingClientImpl(service), Paths.get("media-cache"))
+ *                                        .maximumBytes(10L * 1024 * 1024 * 1024)
+ *                                        .build();
+ * }</pre>
+ */
+@Slf4j
+public final class MediaCachingLineMessagingClient implements LineMessagingClient {
+    public static final long DEFAULT_MAXIMUM_BYTES = 1024L * 1024 * 1024;
+
+    /**
+     * Message IDs which are safe as file names. Others bypass the cache.
+     */
+    private static final Pattern CACHEABLE_MESSAGE_ID = Pattern.compile("[0-9A-Za-z_-]{1,128}");
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+    private static final long ACCESS_TIME_RESOLUTION = TimeUnit.MINUTES.toMillis(1);
+
+    private final LineMessagingClient delegate;
+    private final long maximumBytes;
+    private final Path blobDirectory;
+    private final Path indexDirectory;
+    private final Path tempDirectory;
+    private final long maxMappedBytes;
+
+    /**
+     * Serializes changes of files, so that a blob is never deleted while another thread stores the same
+     * content. Acquired before this, and never by cache hits.
+     */
+    private final Object fileLock = new Object();
+
+    /**
+     * Access ordered map from message ID. This and following fields are guarded by this.
+     * Only in-memory state is updated while holding this.
+     */
+    private final LinkedHashMap<String, IndexEntry> index = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Blob> blobs = new HashMap<>();
+    private final Map<String, CompletableFuture<CachedContent>> loading = new HashMap<>();
+    private long sizeInBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private MediaCachingLineMessagingClient(final Builder builder) {
+        if (builder.maximumBytes < 1) {
+            throw new IllegalArgumentException("maximumBytes should be positive. But " + builder.maximumBytes);
+        }
+        this.delegate = builder.delegate;
+        this.maximumBytes = builder.maximumBytes;
+        this.blobDirectory = builder.directory.resolve("blobs");
+        this.indexDirectory = builder.directory.resolve("index");
+        this.tempDirectory = builder.directory.resolve("tmp");
+        this.maxMappedBytes = builder.maxMappedBytes;
+        try {
+            restore();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't open media cache in " + builder.directory, e);
+        }
+    }
+
+    public static Builder builder(@NonNull final LineMessagingClient delegate, @NonNull final Path directory) {
+        return new Builder(delegate, directory);
+    }
+
+    @Override
+    public CompletableFuture<MessageContentResponse> getMessageContent(final String messageId) {
+        if (!CACHEABLE_MESSAGE_ID.matcher(messageId).matches()) {
+            return delegate.getMessageContent(messageId);
+        }
+        return lookup(messageId).thenCompose(CachedContent::toResponse);
+    }
+
+    @Override
+    public CompletableFuture<ContentDownloadResponse> getMessageContentTo(final String messageId,
+                                                                          final Path path) {
+        if (!CACHEABLE_MESSAGE_ID.matcher(messageId).matches()) {
+            return delegate.getMessageContentTo(messageId, path);
+        }
+        return lookup(messageId).thenCompose(content -> content.writeTo(() -> FileChannel.open(
+                path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING), true));
+    }
+
+    @Override
+    public CompletableFuture<ContentDownloadResponse> getMessageContentTo(final String messageId,
+                                                                          final WritableByteChannel channel) {
+        if (!CACHEABLE_MESSAGE_ID.matcher(messageId).matches()) {
+            return delegate.getMessageContentTo(messageId, channel);
+        }
+        return lookup(messageId).thenCompose(content -> content.writeTo(() -> channel, false));
+    }
+
+    /**
+     * Number of content lookups served from the cache, including lookups joined to an in-flight download.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Number of content lookups which sent a request.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Total size of stored contents. Identical contents are counted once.
+     */
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * Number of cached messages.
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    private CompletableFuture<CachedContent> lookup(final String messageId) {
+        final long now = System.currentTimeMillis();
+        final IndexEntry entry;
+        final boolean persistAccessTime;
+        final CompletableFuture<CachedContent> inFlight;
+        final CompletableFuture<CachedContent> loader = new CompletableFuture<>();
+        synchronized (this) {
+            entry = index.get(messageId);
+            persistAccessTime = entry != null && entry.touch(now);
+            inFlight = entry != null ? null : loading.putIfAbsent(messageId, loader);
+        }
+
+        if (entry != null) {
+            final CachedContent cached;
+            try {
+                cached = open(entry);
+            } catch (IOException e) {
+                if (drop(messageId, entry)) {
+                    log.warn("Cached content of message {} is not readable. Drop it.", messageId, e);
+                }
+                // Otherwise evicted concurrently.
+                return lookup(messageId);
+            }
+            hits.increment();
+            if (persistAccessTime) {
+                persistAccessTime(messageId, now);
+            }
+            return CompletableFuture.completedFuture(cached);
+        }
+        if (inFlight != null) {
+            hits.increment();
+            return inFlight;
+        }
+        misses.increment();
+        download(messageId, loader);
+        return loader;
+    }
+
+    private void download(final String messageId, final CompletableFuture<CachedContent> future) {
+        final Path temp;
+        try {
+            temp = Files.createTempFile(tempDirectory, messageId, ".tmp");
+        } catch (IOException e) {
+            fail(messageId, future, new GeneralLineMessagingException(e.getMessage(), null, e));
+            return;
+        }
+
+        CompletableFuture<ContentDownloadResponse> downloaded;
+        try {
+            downloaded = delegate.getMessageContentTo(messageId, temp);
+        } catch (RuntimeException e) {
+            downloaded = new CompletableFuture<>();
+            downloaded.completeExceptionally(e);
+        }
+
+        downloaded.whenComplete((response, throwable) -> {
+            if (throwable != null) {
+                deleteQuietly(temp);
+                fail(messageId, future, throwable);
+                return;
+            }
+            try {
+                future.complete(store(messageId, temp, response));
+            } catch (IOException e) {
+                deleteQuietly(temp);
+                fail(messageId, future, new GeneralLineMessagingException(e.getMessage(), null, e));
+            }
+        });
+    }
+
+    private void fail(final String messageId, final CompletableFuture<CachedContent> future,
+                      final Throwable throwable) {
+        synchronized (this) {
+            loading.remove(messageId, future);
+        }
+        future.completeExceptionally(throwable);
+    }
+
+    /**
+     * Move downloaded content into the blob directory unless identical content is stored already.
+     */
+    private CachedContent store(final String messageId, final Path temp,
+                                final ContentDownloadResponse response) throws IOException {
+        final String sha256 = response.getSha256();
+        final IndexEntry entry = new IndexEntry(sha256, response.getMimeType(), System.currentTimeMillis());
+        final List<Path> garbage = new ArrayList<>();
+        synchronized (fileLock) {
+            final boolean stored;
+            synchronized (this) {
+                stored = blobs.containsKey(sha256);
+            }
+            if (stored) {
+                Files.delete(temp);
+            } else {
+                Files.move(temp, blobDirectory.resolve(sha256), StandardCopyOption.ATOMIC_MOVE);
+            }
+            Files.write(indexDirectory.resolve(messageId), Arrays.asList(entry.sha256, entry.mimeType), UTF_8);
+
+            synchronized (this) {
+                loading.remove(messageId);
+                reference(sha256, response.getLength());
+                index.put(messageId, entry);
+                evict(garbage);
+            }
+
+            try {
+                // Open before deleting evicted files, so that a content larger than the cache is still
+                // served once.
+                return open(entry);
+            } finally {
+                garbage.forEach(MediaCachingLineMessagingClient::deleteQuietly);
+            }
+        }
+    }
+
+    /**
+     * Remove the entry unless it is replaced or evicted already.
+     *
+     * @return true if removed.
+     */
+    private boolean drop(final String messageId, final IndexEntry entry) {
+        final List<Path> garbage = new ArrayList<>();
+        synchronized (fileLock) {
+            synchronized (this) {
+                if (!index.remove(messageId, entry)) {
+                    return false;
+                }
+                unreference(messageId, entry, garbage);
+            }
+            garbage.forEach(MediaCachingLineMessagingClient::deleteQuietly);
+        }
+        return true;
+    }
+
+    private CachedContent open(final IndexEntry entry) throws IOException {
+        final Path file = blobDirectory.resolve(entry.sha256);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > maxMappedBytes) {
+                return new CachedContent(entry, file, size, null);
+            }
+            return new CachedContent(entry, file, size, channel.map(MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    private void persistAccessTime(final String messageId, final long now) {
+        try {
+            Files.setLastModifiedTime(indexDirectory.resolve(messageId), FileTime.fromMillis(now));
+        } catch (IOException e) {
+            log.debug("Can't update access time of message {}", messageId, e);
+        }
+    }
+
+    private void reference(final String sha256, final long length) {
+        Blob blob = blobs.get(sha256);
+        if (blob == null) {
+            blob = new Blob(length);
+            blobs.put(sha256, blob);
+            sizeInBytes += length;
+        }
+        ++blob.references;
+    }
+
+    /**
+     * Evict least recently used messages. Files to delete are added to {@code garbage}.
+     */
+    private void evict(final List<Path> garbage) {
+        final Iterator<Entry<String, IndexEntry>> eldest = index.entrySet().iterator();
+        while (sizeInBytes > maximumBytes && eldest.hasNext()) {
+            final Entry<String, IndexEntry> entry = eldest.next();
+            eldest.remove();
+            unreference(entry.getKey(), entry.getValue(), garbage);
+        }
+    }
+
+    private void unreference(final String messageId, final IndexEntry entry, final List<Path> garbage) {
+        garbage.add(indexDirectory.resolve(messageId));
+        final Blob blob = blobs.get(entry.sha256);
+        if (blob != null && --blob.references == 0) {
+            blobs.remove(entry.sha256);
+            sizeInBytes -= blob.length;
+            // Mapped buffers and opened files in use stay readable on POSIX file systems.
+            garbage.add(blobDirectory.resolve(entry.sha256));
+        }
+    }
+
+    /**
+     * Load index written by previous instances in access order, and delete orphans.
+     */
+    private synchronized void restore() throws IOException {
+        Files.createDirectories(blobDirectory);
+        Files.createDirectories(indexDirectory);
+        Files.createDirectories(tempDirectory);
+        for (Path temp : list(tempDirectory)) {
+            deleteQuietly(temp);
+        }
+
+        final List<Path> indexFiles = list(indexDirectory);
+        final Map<Path, FileTime> accessTimes = new HashMap<>();
+        for (Path indexFile : indexFiles) {
+            accessTimes.put(indexFile, Files.getLastModifiedTime(indexFile));
+        }
+        indexFiles.sort((a, b) -> accessTimes.get(a).compareTo(accessTimes.get(b)));
+
+        for (Path indexFile : indexFiles) {
+            final String messageId = indexFile.getFileName().toString();
+            final List<String> lines = Files.readAllLines(indexFile, UTF_8);
+            final Path blobFile = lines.isEmpty() ? null : blobDirectory.resolve(lines.get(0));
+            if (lines.size() < 2 || !CACHEABLE_MESSAGE_ID.matcher(messageId).matches()
+                || !SHA256_HEX.matcher(lines.get(0)).matches() || !Files.isRegularFile(blobFile)) {
+                deleteQuietly(indexFile);
+                continue;
+            }
+            final IndexEntry entry = new IndexEntry(lines.get(0), lines.get(1),
+                                                    accessTimes.get(indexFile).toMillis());
+            index.put(messageId, entry);
+            reference(entry.sha256, Files.size(blobFile));
+        }
+
+        for (Path blobFile : list(blobDirectory)) {
+            if (!blobs.containsKey(blobFile.getFileName().toString())) {
+                deleteQuietly(blobFile);
+            }
+        }
+        final List<Path> garbage = new ArrayList<>();
+        evict(garbage);
+        garbage.forEach(MediaCachingLineMessagingClient::deleteQuietly);
+    }
+
+    private static List<Path> list(final Path directory) throws IOException {
+        final List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            stream.forEach(paths::add);
+        }
+        return paths;
+    }
+
+    private static void deleteQuietly(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Can't delete {}", path, e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<BotApiResponse> replyMessage(final ReplyMessage replyMessage) {
+        return delegate.replyMessage(replyMessage);
+    }
+
+    @Override
+    public CompletableFuture<BotApiResponse> replyMessage(final String replyToken,
+                                                          final PreparedMessages messages) {
+        return delegate.replyMessage(replyToken, messages);
+    }
+
+    @Override
+    public CompletableFuture<BotApiResponse> pushMessage(final PushMessage pushMessage) {
+        return delegate.pushMessage(pushMessage);
+    }
+
+    @Override
+    public CompletableFuture<BotApiResponse> pushMessage(final String to, final PreparedMessages messages) {
+        return delegate.pushMessage(to, messages);
+    }
+
+    @Override
+    public CompletableFuture<BotApiResponse> multicast(final Multicast multicast) {
+        return delegate.multicast(multicast);
+    }
+
+    @Override
+    public CompletableFuture<BotApiResponse> multicast(final Set<String> to, final PreparedMessages messages) {
+        return delegate.multicast(to, messages);
+    }
+
+    @Override
+    public CompletableFuture<BroadcastResponse> broadcast(final Collection<String> to,
+                                                          final List<Message> messages) {
+        return delegate.broadcast(to, messages);
+    }
+
+    @Override
+    public CompletableFuture<BroadcastResponse> broadcast(final Iterator<String> to,
+                                                          final List<Message> messages,
+                                                          final int maxInFlight) {
+        return delegate.broadcast(to, messages, maxInFlight);
+    }
+
+    @Override
+    public CompletableFuture<BroadcastResponse> broadcast(final Iterator<String> to,
+                                                          final PreparedMessages messages,
+                                                          final int maxInFlight) {
+        return delegate.broadcast(to, messages, maxInFlight);
+    }
+
+    @Override
+    public CompletableFuture<UserProfileResponse> getProfile(final String userId) {
+        return delegate.getProfile(userId);
+    }
+
+    @Override
+    public CompletableFuture<UserProfileResponse> getGroupMemberProfile(
+            final String groupId, final String userId) {
+        return delegate.getGroupMemberProfile(groupId, userId);
+    }
+
+    @Override
+    public CompletableFuture<UserProfileResponse> getRoomMemberProfile(
+            final String roomId, final String userId) {
+        return delegate.getRoomMemberProfile(roomId, userId);
+    }
+
+    @Override
+    public CompletableFuture<MembersIdsResponse> getGroupMembersIds(final String groupId, final String start) {
+        return delegate.getGroupMembersIds(groupId, start);
+    }
+
+    @Override
+    public CompletableFuture<MembersIdsResponse> getRoomMembersIds(final String roomId, final String start) {
+        return delegate.getRoomMembersIds(roomId, start);
+    }
+
+    @Override
+    public CompletableFuture<BotApiResponse> leaveGroup(final String groupId) {
+        return delegate.leaveGroup(groupId);
+    }
+
+    @Override
+    public CompletableFuture<BotApiResponse> leaveRoom(final String roomId) {
+        return delegate.leaveRoom(roomId);
+    }
+
+    /**
+     * Mutable field is guarded by the enclosing client.
+     */
+    private static final class IndexEntry {
+        final String sha256;
+        final String mimeType;
+        long accessTimePersistedAt;
+
+        IndexEntry(final String sha256, final String mimeType, final long accessTimePersistedAt) {
+            this.sha256 = sha256;
+            this.mimeType = mimeType;
+            this.accessTimePersistedAt = accessTimePersistedAt;
+        }
+
+        /**
+         * Returns true if the access time should be written to the index file.
+         */
+        boolean touch(final long now) {
+            if (now - accessTimePersistedAt < ACCESS_TIME_RESOLUTION) {
+                return false;
+            }
+            accessTimePersistedAt = now;
+            return true;
+        }
+    }
+
+    private static final class Blob {
+        final long length;
+        int references;
+
+        Blob(final long length) {
+            this.length = length;
+        }
+    }
+
+    /**
+     * Cached content shared by all waiters. Each of them reads its own duplicate of the mapped buffer,
+     * or its own stream of the file if the content is too large to map.
+     */
+    private static final class CachedContent {
+        final IndexEntry entry;
+        final Path file;
+        final long length;
+        /**
+         * Null if the content is too large to map.
+         */
+        final MappedByteBuffer buffer;
+
+        CachedContent(final IndexEntry entry, final Path file, final long length, final MappedByteBuffer buffer) {
+            this.entry = entry;
+            this.file = file;
+            this.length = length;
+            this.buffer = buffer;
+        }
+
+        CompletableFuture<MessageContentResponse> toResponse() {
+            final CompletableFuture<MessageContentResponse> future = new CompletableFuture<>();
+            try {
+                final InputStream stream = buffer != null ? new ByteBufferInputStream(buffer.duplicate())
+                                                          : Files.newInputStream(file);
+                future.complete(MessageContentResponse.builder()
+                                                      .length(length)
+                                                      .mimeType(entry.mimeType)
+                                                      .stream(stream)
+                                                      .allHeaders(Collections.emptyMap())
+                                                      .build());
+            } catch (IOException e) {
+                future.completeExceptionally(new GeneralLineMessagingException(e.getMessage(), null, e));
+            }
+            return future;
+        }
+
+        CompletableFuture<ContentDownloadResponse> writeTo(final ChannelOpener opener,
+                                                           final boolean closeChannel) {
+            final CompletableFuture<ContentDownloadResponse> future = new CompletableFuture<>();
+            try {
+                final WritableByteChannel channel = opener.open();
+                try {
+                    if (buffer != null) {
+                        final ByteBuffer source = buffer.duplicate();
+                        while (source.hasRemaining()) {
+                            channel.write(source);
+                        }
+                    } else {
+                        transfer(channel);
+                    }
+                } finally {
+                    if (closeChannel) {
+                        channel.close();
+                    }
+                }
+                future.complete(new ContentDownloadResponse(length, entry.mimeType, entry.sha256,
+                                                            Collections.emptyMap()));
+            } catch (IOException e) {
+                future.completeExceptionally(new GeneralLineMessagingException(e.getMessage(), null, e));
+            }
+            return future;
+        }
+
+        private void transfer(final WritableByteChannel target) throws IOException {
+            try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+                long position = 0;
+                while (position < length) {
+                    position += source.transferTo(position, length - position, target);
+                }
+            }
+        }
+    }
+
+    static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            final int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+
+        @Override
+        public long skip(final long n) {
+            final int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    public static final class Builder {
+        private final LineMessagingClient delegate;
+        private final Path directory;
+        private long maximumBytes = DEFAULT_MAXIMUM_BYTES;
+        private long maxMappedBytes = Integer.MAX_VALUE;
+
+        private Builder(final LineMessagingClient delegate, final Path directory) {
+            this.delegate = delegate;
+            this.directory = directory;
+        }
+
+        /**
+         * Set max total size of stored contents in bytes.
+         */
+        public Builder maximumBytes(final long maximumBytes) {
+            this.maximumBytes = maximumBytes;
+            return this;
+        }
+
+        /**
+         * Set max size of contents read through memory mapped files. Larger ones are streamed.
+         */
+        Builder maxMappedBytes(final long maxMappedBytes) {
+            this.maxMappedBytes = maxMappedBytes;
+            return this;
+        }
+
+        /**
+         * Creates a new {@link MediaCachingLineMessagingClient}. The directory is created if missing.
+         *
+         * @throws UncheckedIOException if the directory can't be opened.
+         */
+        public MediaCachingLineMessagingClient build() {
+            return new MediaCachingLineMessagingClient(this);
+        }
+    }
+}
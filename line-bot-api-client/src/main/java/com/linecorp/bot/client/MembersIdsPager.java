@@ -0,0 +1,311 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.linecorp.bot.model.profile.MembersIdsResponse;
+
+import lombok.NonNull;
+
+/**
+ * Pages through all member IDs of a group or room.
+ *
+ * <p>The next page is requested while the consumer is still processing the current one. At most
+ * {@code bufferedPages} pages are held in addition to the page being consumed, so that memory stays bounded
+ * even if the consumer is slow. A pager can be consumed only once, by one of {@link #iterator()},
+ * {@link #stream()} or {@link #forEachPage(Consumer)}. {@link #close()} stops paging.
+ *
+ * <pre>{@code
+ * try (Stream<String> memberIds = MembersIdsPager.ofGroup(client, groupId).stream()) {
+ *     memberIds.forEach(...);
+ * }
+ * }</pre>
+ */
+public final class MembersIdsPager implements AutoCloseable {
+    public static final int DEFAULT_BUFFERED_PAGES = 2;
+
+    private final Function<String, CompletableFuture<MembersIdsResponse>> fetcher;
+    private final int bufferedPages;
+    private final AtomicBoolean consumed = new AtomicBoolean();
+
+    // Guarded by this.
+    private final Queue<List<String>> pages = new ArrayDeque<>();
+    private String nextToken;
+    private boolean fetching;
+    private boolean exhausted;
+    private boolean closed;
+    private Throwable failure;
+
+    // Used by forEachPage only.
+    private volatile Consumer<List<String>> pageConsumer;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private final AtomicInteger drainRequests = new AtomicInteger();
+
+    MembersIdsPager(final Function<String, CompletableFuture<MembersIdsResponse>> fetcher,
+                    final int bufferedPages) {
+        if (bufferedPages < 1) {
+            throw new IllegalArgumentException("bufferedPages should be positive. But " + bufferedPages);
+        }
+        this.fetcher = fetcher;
+        this.bufferedPages = bufferedPages;
+    }
+
+    public static MembersIdsPager ofGroup(final LineMessagingClient client, final String groupId) {
+        return ofGroup(client, groupId, DEFAULT_BUFFERED_PAGES);
+    }
+
+    /**
+     * Create a pager of {@link LineMessagingClient#getGroupMembersIds(String, String)}.
+     *
+     * @param bufferedPages Max number of pages fetched ahead of the consumer.
+     */
+    public static MembersIdsPager ofGroup(@NonNull final LineMessagingClient client, final String groupId,
+                                          final int bufferedPages) {
+        return new MembersIdsPager(start -> client.getGroupMembersIds(groupId, start), bufferedPages);
+    }
+
+    public static MembersIdsPager ofRoom(final LineMessagingClient client, final String roomId) {
+        return ofRoom(client, roomId, DEFAULT_BUFFERED_PAGES);
+    }
+
+    /**
+     * Create a pager of {@link LineMessagingClient#getRoomMembersIds(String, String)}.
+     *
+     * @param bufferedPages Max number of pages fetched ahead of the consumer.
+     */
+    public static MembersIdsPager ofRoom(@NonNull final LineMessagingClient client, final String roomId,
+                                         final int bufferedPages) {
+        return new MembersIdsPager(start -> client.getRoomMembersIds(roomId, start), bufferedPages);
+    }
+
+    /**
+     * Returns a blocking iterator of member IDs.
+     *
+     * <p>{@link Iterator#hasNext()} waits for the next page and throws {@link CompletionException}
+     * if a request fails.
+     */
+    public Iterator<String> iterator() {
+        markConsumed();
+        fetchIfNeeded();
+        return new MemberIdIterator();
+    }
+
+    /**
+     * Returns a sequential stream of member IDs. Closing the stream closes this pager.
+     *
+     * @see #iterator()
+     */
+    public Stream<String> stream() {
+        final Spliterator<String> spliterator = Spliterators.spliteratorUnknownSize(
+                iterator(), Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(this::close);
+    }
+
+    /**
+     * Pass pages to the consumer one by one without blocking.
+     *
+     * <p>The consumer is called on OkHttp's callback threads, but never concurrently.
+     * If the consumer throws, paging stops and the returned future fails with the exception.
+     *
+     * @return Future completed when all pages are consumed or this pager is closed.
+     */
+    public CompletableFuture<Void> forEachPage(@NonNull final Consumer<List<String>> consumer) {
+        markConsumed();
+        pageConsumer = consumer;
+        fetchIfNeeded();
+        drain();
+        return completion;
+    }
+
+    /**
+     * Stop paging. Buffered pages are discarded and an in-flight request is ignored.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            pages.clear();
+            notifyAll();
+        }
+        if (pageConsumer != null) {
+            drain();
+        }
+    }
+
+    private void markConsumed() {
+        if (!consumed.compareAndSet(false, true)) {
+            throw new IllegalStateException("MembersIdsPager can be consumed only once.");
+        }
+    }
+
+    private void fetchIfNeeded() {
+        final String token;
+        synchronized (this) {
+            if (fetching || exhausted || closed || failure != null || pages.size() >= bufferedPages) {
+                return;
+            }
+            fetching = true;
+            token = nextToken;
+        }
+
+        CompletableFuture<MembersIdsResponse> future;
+        try {
+            future = fetcher.apply(token);
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        future.whenComplete(this::onFetched);
+    }
+
+    private void onFetched(final MembersIdsResponse response, final Throwable throwable) {
+        synchronized (this) {
+            fetching = false;
+            if (closed) {
+                return;
+            }
+            if (throwable != null) {
+                failure = throwable instanceof CompletionException && throwable.getCause() != null
+                          ? throwable.getCause() : throwable;
+            } else {
+                if (!response.getMemberIds().isEmpty()) {
+                    pages.add(response.getMemberIds());
+                }
+                nextToken = response.getNext().orElse(null);
+                exhausted = nextToken == null;
+            }
+            notifyAll();
+        }
+
+        fetchIfNeeded();
+        if (pageConsumer != null) {
+            drain();
+        }
+    }
+
+    /**
+     * Blocks until a page is available.
+     *
+     * @return null if there's no more page.
+     */
+    private List<String> take() throws InterruptedException {
+        final List<String> page;
+        synchronized (this) {
+            while (pages.isEmpty()) {
+                if (failure != null) {
+                    throw new CompletionException(failure);
+                }
+                if (exhausted || closed) {
+                    return null;
+                }
+                wait();
+            }
+            page = pages.poll();
+        }
+        fetchIfNeeded();
+        return page;
+    }
+
+    /**
+     * Deliver buffered pages to {@link #pageConsumer}.
+     *
+     * <p>Only one thread runs the loop at a time, so that the consumer is never called concurrently and
+     * synchronously completed requests never recurse into this method.
+     */
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            return;
+        }
+
+        do {
+            while (!completion.isDone()) {
+                final List<String> page;
+                synchronized (this) {
+                    page = pages.poll();
+                    if (page == null) {
+                        if (failure != null) {
+                            completion.completeExceptionally(failure);
+                        } else if (exhausted || closed) {
+                            completion.complete(null);
+                        }
+                        break;
+                    }
+                }
+
+                // Request the next page while the consumer is processing this one.
+                fetchIfNeeded();
+                try {
+                    pageConsumer.accept(page);
+                } catch (RuntimeException e) {
+                    synchronized (this) {
+                        closed = true;
+                        pages.clear();
+                    }
+                    completion.completeExceptionally(e);
+                    break;
+                }
+            }
+        } while (drainRequests.decrementAndGet() != 0);
+    }
+
+    private class MemberIdIterator implements Iterator<String> {
+        private Iterator<String> current = Collections.emptyIterator();
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                final List<String> page;
+                try {
+                    page = take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    close();
+                    throw new CompletionException(e);
+                }
+                if (page == null) {
+                    return false;
+                }
+                current = page.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+}
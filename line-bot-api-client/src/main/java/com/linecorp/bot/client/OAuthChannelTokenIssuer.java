@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.bot.client;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import lombok.NonNull;
+import lombok.ToString;
+import okhttp3.FormBody;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Issues short-lived channel access tokens by the OAuth client credentials grant.
+ *
+ * @see <a href="https://devdocs.line.me/#issue-channel-access-token"
+ * >//devdocs.line.me/#issue-channel-access-token</a>
+ */
+@ToString(of = "endpoint")
+public final class OAuthChannelTokenIssuer implements ChannelTokenIssuer {
+    private static final ObjectReader TOKEN_READER = new ObjectMapper().readerFor(TokenResponse.class);
+
+    private final OkHttpClient okHttpClient;
+    private final HttpUrl endpoint;
+    private final String channelId;
+    private final String channelSecret;
+
+    /**
+     * Create an issuer which requests {@link LineMessagingServiceBuilder#DEFAULT_API_END_POINT}.
+     */
+    public OAuthChannelTokenIssuer(final String channelId, final String channelSecret) {
+        this(channelId, channelSecret, LineMessagingServiceBuilder.DEFAULT_API_END_POINT);
+    }
+
+    /**
+     * Create an issuer which requests {@code v2/oauth/accessToken} under given API end point.
+     */
+    public OAuthChannelTokenIssuer(@NonNull final String channelId, @NonNull final String channelSecret,
+                                   @NonNull final String apiEndPoint) {
+        // Dedicated client without wire logging, since the request contains the channel secret.
+        this.okHttpClient = new OkHttpClient.Builder()
+                .connectTimeout(LineMessagingServiceBuilder.DEFAULT_CONNECT_TIMEOUT, TimeUnit.MILLISECONDS)
+                .readTimeout(LineMessagingServiceBuilder.DEFAULT_READ_TIMEOUT, TimeUnit.MILLISECONDS)
+                .writeTimeout(LineMessagingServiceBuilder.DEFAULT_WRITE_TIMEOUT, TimeUnit.MILLISECONDS)
+                .build();
+        this.endpoint = HttpUrl.parse(apiEndPoint).resolve("v2/oauth/accessToken");
+        this.channelId = channelId;
+        this.channelSecret = channelSecret;
+    }
+
+    @Override
+    public IssuedChannelToken issue() throws IOException {
+        final Request request = new Request.Builder()
+                .url(endpoint)
+                .post(new FormBody.Builder()
+                              .add("grant_type", "client_credentials")
+                              .add("client_id", channelId)
+                              .add("client_secret", channelSecret)
+                              .build())
+                .build();
+
+        try (Response response = okHttpClient.newCall(request).execute()) {
+            final ResponseBody body = response.body();
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to issue channel access token. status = " + response.code()
+                                      + ", body = " + (body != null ? body.string() : null));
+            }
+            if (body == null) {
+                throw new IOException("Failed to issue channel access token. Empty response.");
+            }
+            final TokenResponse token = TOKEN_READER.readValue(body.byteStream());
+            return new IssuedChannelToken(token.accessToken, token.expiresIn);
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static final class TokenResponse {
+        final String accessToken;
+        final long expiresIn;
+
+        @JsonCreator
+        TokenResponse(@JsonProperty("access_token") final String accessToken,
+                      @JsonProperty("expires_in") final long expiresIn) {
+            this.accessToken = accessToken;
+            this.expiresIn = expiresIn;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import com.linecorp.bot.model.PreparedMessages;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * Request body of reply, push or multicast whose messages are {@link PreparedMessages}.
+ *
+ * <p>Only the recipient part is encoded per request. Serialized messages are written as is.
+ */
+final class PreparedMessagesRequestBody extends RequestBody {
+    private static final MediaType JSON = MediaType.parse("application/json; charset=UTF-8");
+    private static final byte[] MESSAGES_FIELD = ",\"messages\":".getBytes(UTF_8);
+
+    /**
+     * Opening brace and the recipient field.
+     */
+    private final byte[] head;
+    private final PreparedMessages messages;
+
+    private PreparedMessagesRequestBody(final String head, final PreparedMessages messages) {
+        this.head = head.getBytes(UTF_8);
+        this.messages = messages;
+    }
+
+    /**
+     * Body of {@link com.linecorp.bot.model.ReplyMessage}.
+     */
+    static PreparedMessagesRequestBody reply(final String replyToken, final PreparedMessages messages) {
+        return new PreparedMessagesRequestBody(
+                appendString(new StringBuilder("{\"replyToken\":"), replyToken).toString(), messages);
+    }
+
+    /**
+     * Body of {@link com.linecorp.bot.model.PushMessage}.
+     */
+    static PreparedMessagesRequestBody push(final String to, final PreparedMessages messages) {
+        return new PreparedMessagesRequestBody(
+                appendString(new StringBuilder("{\"to\":"), to).toString(), messages);
+    }
+
+    /**
+     * Body of {@link com.linecorp.bot.model.Multicast}.
+     */
+    static PreparedMessagesRequestBody multicast(final Collection<String> to, final PreparedMessages messages) {
+        final StringBuilder head = new StringBuilder(16 + to.size() * 36).append("{\"to\":[");
+        boolean first = true;
+        for (String recipient : to) {
+            if (!first) {
+                head.append(',');
+            }
+            appendString(head, recipient);
+            first = false;
+        }
+        return new PreparedMessagesRequestBody(head.append(']').toString(), messages);
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JSON;
+    }
+
+    @Override
+    public long contentLength() {
+        return head.length + MESSAGES_FIELD.length + messages.getSizeInBytes() + 1;
+    }
+
+    @Override
+    public void writeTo(final BufferedSink sink) throws IOException {
+        sink.write(head);
+        sink.write(MESSAGES_FIELD);
+        messages.writeTo(sink.outputStream());
+        sink.writeByte('}');
+    }
+
+    private static StringBuilder appendString(final StringBuilder builder, final String value) {
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"');
+    }
+}
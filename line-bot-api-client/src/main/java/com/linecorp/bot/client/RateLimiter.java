@@ -0,0 +1,337 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import com.linecorp.bot.client.exception.TooManyRequestsException;
+
+import lombok.NonNull;
+import lombok.Value;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Client side rate limiter which has a token bucket per {@link EndpointFamily}.
+ *
+ * <p>When the server responds 429 Too Many Requests, the rate of the endpoint family is decreased
+ * and no request is sent until {@code Retry-After} passes. The rate recovers gradually on successful responses.
+ *
+ * <p>Requests over the limit are handled by {@link OverflowPolicy}. Rejected requests are completed with
+ * {@link TooManyRequestsException} as if the server throttled them, without sending anything to the server.
+ * {@link TooManyRequestsException#isRejectedByClient()} is true for them, and {@link RetryPolicy} doesn't
+ * retry them.
+ *
+ * <p>With {@link OverflowPolicy#QUEUE}, waiting requests sleep in this interceptor. Each of them holds
+ * a thread and a slot of the OkHttp dispatcher ({@code maxRequests} and {@code maxRequestsPerHost})
+ * while waiting, so requests of other endpoint families can't start when the dispatcher is full of
+ * waiting requests. Keep {@code maxWait} and {@code maxQueueDepth} small compared with the dispatcher,
+ * or use {@link OverflowPolicy#FAIL_FAST}.
+ *
+ * <pre>{@code
+ * RateLimiter rateLimiter = RateLimiter.builder()
+ *                                      .limit(EndpointFamily.PUSH, 100, 100)
+ *                                      .limit(EndpointFamily.MULTICAST, 10, 10)
+ *                                      .build();
+ * LineMessagingService service = LineMessagingServiceBuilder.create("TOKEN")
+ *                                                           .rateLimiter(rateLimiter)
+ *                                                           .build();
+ * }</pre>
+ */
+public final class RateLimiter implements Interceptor {
+    public static final long DEFAULT_MAX_WAIT = 1_000;
+    public static final int DEFAULT_MAX_QUEUE_DEPTH = 1_000;
+
+    static final String REJECTED_BODY = "{\"message\":\"Exceeded the client side rate limit\"}";
+    /**
+     * Header of the response made for a rejected request.
+     */
+    static final String REJECTED_HEADER = "X-Line-Bot-Client-Rejected";
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    private final Map<EndpointFamily, Limit> limits;
+    private final OverflowPolicy overflowPolicy;
+    private final long maxWaitNanos;
+    private final int maxQueueDepth;
+
+    /**
+     * How to handle requests when no permit is available.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait for a permit up to max wait on the calling thread (typically an OkHttp dispatcher thread),
+         * then reject. Requests exceeding max queue depth are rejected immediately.
+         *
+         * <p>The thread sleeps while waiting, and the request keeps its slot of the OkHttp dispatcher.
+         * Waiting requests count against {@code maxRequests} and {@code maxRequestsPerHost}.
+         */
+        QUEUE,
+
+        /**
+         * Reject immediately.
+         */
+        FAIL_FAST,
+    }
+
+    /**
+     * Point-in-time state of a rate limit of an {@link EndpointFamily}.
+     */
+    @Value
+    public static class Snapshot {
+        EndpointFamily endpointFamily;
+
+        /**
+         * Configured rate in permits per second.
+         */
+        double configuredPermitsPerSecond;
+
+        /**
+         * Current rate in permits per second, decreased by throttling.
+         */
+        double permitsPerSecond;
+
+        /**
+         * Permits available now. Negative or zero when there's no permit.
+         */
+        double availablePermits;
+
+        /**
+         * Number of requests waiting for a permit.
+         */
+        int queueDepth;
+
+        /**
+         * Number of 429 responses received from the server.
+         */
+        long throttledCount;
+
+        /**
+         * Number of requests rejected on client side.
+         */
+        long rejectedCount;
+    }
+
+    private RateLimiter(final Builder builder) {
+        final Map<EndpointFamily, Limit> limits = new EnumMap<>(EndpointFamily.class);
+        builder.limits.forEach((family, limit) -> limits.put(
+                family, new Limit(new TokenBucket(limit.permitsPerSecond, limit.burst, builder.nanoClock))));
+        this.limits = Collections.unmodifiableMap(limits);
+        this.overflowPolicy = builder.overflowPolicy;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(builder.maxWait);
+        this.maxQueueDepth = builder.maxQueueDepth;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Response intercept(final Chain chain) throws IOException {
+        final Request request = chain.request();
+        final Limit limit = limits.get(EndpointFamily.of(request));
+        if (limit == null) {
+            return chain.proceed(request);
+        }
+
+        if (!acquire(limit)) {
+            limit.rejected.increment();
+            return rejectedResponse(request);
+        }
+
+        final Response response = chain.proceed(request);
+        if (response.code() == 429) {
+            limit.throttled.increment();
+            limit.bucket.onThrottled(parseRetryAfter(response.header("Retry-After")));
+        } else if (response.isSuccessful()) {
+            limit.bucket.onSuccess();
+        }
+        return response;
+    }
+
+    /**
+     * Returns current state of all configured limits.
+     */
+    public Map<EndpointFamily, Snapshot> snapshot() {
+        final Map<EndpointFamily, Snapshot> result = new EnumMap<>(EndpointFamily.class);
+        limits.forEach((family, limit) -> result.put(family, new Snapshot(
+                family,
+                limit.bucket.getConfiguredRate(),
+                limit.bucket.getRate(),
+                limit.bucket.getAvailablePermits(),
+                limit.queueDepth.get(),
+                limit.throttled.sum(),
+                limit.rejected.sum())));
+        return result;
+    }
+
+    private boolean acquire(final Limit limit) throws InterruptedIOException {
+        long waitNanos = limit.bucket.tryAcquire();
+        if (waitNanos == 0) {
+            return true;
+        }
+        if (overflowPolicy == OverflowPolicy.FAIL_FAST || waitNanos > maxWaitNanos) {
+            return false;
+        }
+
+        if (limit.queueDepth.incrementAndGet() > maxQueueDepth) {
+            limit.queueDepth.decrementAndGet();
+            return false;
+        }
+        try {
+            final long deadline = System.nanoTime() + maxWaitNanos;
+            do {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+                waitNanos = limit.bucket.tryAcquire();
+                if (waitNanos == 0) {
+                    return true;
+                }
+            } while (System.nanoTime() + waitNanos - deadline <= 0);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for rate limit");
+        } finally {
+            limit.queueDepth.decrementAndGet();
+        }
+    }
+
+    private static Response rejectedResponse(final Request request) {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(429)
+                .message("Too Many Requests")
+                .header(REJECTED_HEADER, "true")
+                .body(ResponseBody.create(JSON, REJECTED_BODY))
+                .build();
+    }
+
+    /**
+     * Parse {@code Retry-After} header which is delay-seconds or HTTP-date.
+     *
+     * @return Delay in nanoseconds. 0 if the header is missing or malformed.
+     */
+    static long parseRetryAfter(final String retryAfter) {
+        if (retryAfter == null || retryAfter.isEmpty()) {
+            return 0;
+        }
+        try {
+            return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException ignored) {
+            // Not a delay-seconds. Try HTTP-date.
+        }
+        try {
+            final ZonedDateTime date = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(date.getZone()), date).toNanos());
+        } catch (DateTimeParseException | ArithmeticException ignored) {
+            return 0;
+        }
+    }
+
+    private static final class Limit {
+        final TokenBucket bucket;
+        final AtomicInteger queueDepth = new AtomicInteger();
+        final LongAdder throttled = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+
+        Limit(final TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    /**
+     * Builder of {@link RateLimiter}. Endpoint families without limit are not limited.
+     */
+    public static final class Builder {
+        private final Map<EndpointFamily, LimitSetting> limits = new EnumMap<>(EndpointFamily.class);
+        private OverflowPolicy overflowPolicy = OverflowPolicy.QUEUE;
+        private long maxWait = DEFAULT_MAX_WAIT;
+        private int maxQueueDepth = DEFAULT_MAX_QUEUE_DEPTH;
+        private LongSupplier nanoClock = System::nanoTime;
+
+        private Builder() {
+        }
+
+        /**
+         * Set a limit of the endpoint family.
+         *
+         * @param permitsPerSecond Number of requests allowed per second in steady state.
+         * @param burst Max number of requests sent at once after idle.
+         */
+        public Builder limit(@NonNull final EndpointFamily endpointFamily,
+                             final double permitsPerSecond, final int burst) {
+            limits.put(endpointFamily, new LimitSetting(permitsPerSecond, burst));
+            return this;
+        }
+
+        /**
+         * Set how to handle requests over the limit. Default: {@link OverflowPolicy#QUEUE}.
+         */
+        public Builder overflowPolicy(@NonNull final OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * Set max wait for a permit in milliseconds. Used by {@link OverflowPolicy#QUEUE}.
+         */
+        public Builder maxWait(final long maxWait) {
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        /**
+         * Set max number of requests waiting for permits per endpoint family.
+         * Used by {@link OverflowPolicy#QUEUE}.
+         */
+        public Builder maxQueueDepth(final int maxQueueDepth) {
+            this.maxQueueDepth = maxQueueDepth;
+            return this;
+        }
+
+        Builder nanoClock(final LongSupplier nanoClock) {
+            this.nanoClock = nanoClock;
+            return this;
+        }
+
+        public RateLimiter build() {
+            return new RateLimiter(this);
+        }
+    }
+
+    @Value
+    private static class LimitSetting {
+        double permitsPerSecond;
+        int burst;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.bot.client;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link ChannelTokenSupplier} which caches a short-lived token issued by {@link ChannelTokenIssuer}
+ * and refreshes it in background before expiry.
+ *
+ * <p>Only the first {@link #get()} blocks to issue a token. A refresh is scheduled at
+ * {@code 1 - refreshMargin} of the lifetime minus random jitter, so that multiple servers don't refresh
+ * at once. Failed refreshes are retried after {@code retryDelay} while the current token is served.
+ *
+ * <p>When the server rejects a token with 401, {@link #onUnauthorized(String)} issues a new token once,
+ * and concurrent callers with the same rejected token wait for it instead of issuing their own.
+ */
+@Slf4j
+public final class RefreshingChannelTokenSupplier implements ChannelTokenSupplier, AutoCloseable {
+    public static final double DEFAULT_REFRESH_MARGIN = 0.2;
+    public static final double DEFAULT_JITTER = 0.1;
+    public static final long DEFAULT_RETRY_DELAY = 10_000;
+
+    private final ChannelTokenIssuer issuer;
+    private final double refreshMargin;
+    private final double jitter;
+    private final long retryDelay;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile String token;
+    // Guarded by this.
+    private ScheduledFuture<?> scheduledRefresh;
+
+    private RefreshingChannelTokenSupplier(final Builder builder) {
+        this.issuer = builder.issuer;
+        this.refreshMargin = builder.refreshMargin;
+        this.jitter = builder.jitter;
+        this.retryDelay = builder.retryDelay;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "line-bot-channel-token-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static Builder builder(@NonNull final ChannelTokenIssuer issuer) {
+        return new Builder(issuer);
+    }
+
+    /**
+     * Returns the cached token. Blocks only until the first token is issued.
+     *
+     * @throws UncheckedIOException if the first token can't be issued.
+     */
+    @Override
+    public String get() {
+        final String current = token;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (token == null) {
+                refresh();
+            }
+            return token;
+        }
+    }
+
+    /**
+     * Issue a new token if {@code rejectedToken} is still the current one.
+     *
+     * @return The token to retry with.
+     */
+    @Override
+    public String onUnauthorized(final String rejectedToken) {
+        synchronized (this) {
+            if (Objects.equals(token, rejectedToken)) {
+                log.info("Channel access token is rejected. Issuing a new one.");
+                refresh();
+            }
+            return token;
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Issue a token and schedule the next refresh, replacing the pending one. Called while holding the lock.
+     */
+    private void refresh() {
+        final IssuedChannelToken issued;
+        try {
+            issued = issuer.issue();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        token = issued.getAccessToken();
+        scheduleRefresh(refreshDelay(issued.getExpiresIn()));
+    }
+
+    long refreshDelay(final long expiresInSeconds) {
+        final long lifetime = TimeUnit.SECONDS.toMillis(expiresInSeconds);
+        final long jitterMillis = (long) (lifetime * jitter * ThreadLocalRandom.current().nextDouble());
+        return Math.max(0, (long) (lifetime * (1 - refreshMargin)) - jitterMillis);
+    }
+
+    /**
+     * Schedule the next refresh and cancel the pending one, so that only one refresh is scheduled.
+     * Called while holding the lock.
+     */
+    private void scheduleRefresh(final long delayMillis) {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        scheduledRefresh = scheduler.schedule(() -> {
+            synchronized (this) {
+                try {
+                    refresh();
+                } catch (RuntimeException e) {
+                    log.warn("Failed to refresh channel access token. Retrying in {}ms.", retryDelay, e);
+                    scheduleRefresh(retryDelay);
+                }
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static final class Builder {
+        private final ChannelTokenIssuer issuer;
+        private double refreshMargin = DEFAULT_REFRESH_MARGIN;
+        private double jitter = DEFAULT_JITTER;
+        private long retryDelay = DEFAULT_RETRY_DELAY;
+
+        private Builder(final ChannelTokenIssuer issuer) {
+            this.issuer = issuer;
+        }
+
+        /**
+         * Set fraction of the lifetime remaining when the token is refreshed.
+         */
+        public Builder refreshMargin(final double refreshMargin) {
+            this.refreshMargin = refreshMargin;
+            return this;
+        }
+
+        /**
+         * Set max fraction of the lifetime by which the refresh is randomly advanced.
+         */
+        public Builder jitter(final double jitter) {
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * Set delay in milliseconds before retrying a failed refresh.
+         */
+        public Builder retryDelay(final long retryDelay) {
+            this.retryDelay = retryDelay;
+            return this;
+        }
+
+        public RefreshingChannelTokenSupplier build() {
+            return new RefreshingChannelTokenSupplier(this);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+import com.linecorp.bot.client.exception.GeneralLineMessagingException;
+import com.linecorp.bot.client.exception.LineServerException;
+import com.linecorp.bot.client.exception.TooManyRequestsException;
+
+import lombok.NonNull;
+
+/**
+ * Retry policy of {@link LineMessagingClientImpl}.
+ *
+ * <p>Failed requests are retried with exponential backoff and full jitter. Retries are scheduled on
+ * a {@link ScheduledExecutorService} and re-enqueued to OkHttp, so that no thread is blocked while waiting.
+ *
+ * <p>Retries are limited by a retry budget. Every request deposits {@code budgetRatio} token and
+ * every retry withdraws one token, so that retries are capped to the fraction of traffic
+ * even while the server is down. Tokens are capped at {@code maxBudget}.
+ *
+ * <p>By default, following failures are retried.
+ * <ul>
+ *     <li>{@link LineServerException} (5xx)</li>
+ *     <li>{@link TooManyRequestsException} (429) from the server. Requests rejected by {@link RateLimiter}
+ *     are not retried, because they would be rejected again.</li>
+ *     <li>{@link GeneralLineMessagingException} caused by {@link IOException} (network failure)</li>
+ * </ul>
+ *
+ * <p>Push and multicast requests have the same {@code X-Line-Retry-Key} header in all attempts,
+ * so that retried requests are not delivered twice.
+ */
+public final class RetryPolicy {
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_INITIAL_BACKOFF = 200;
+    public static final long DEFAULT_MAX_BACKOFF = 5_000;
+    public static final double DEFAULT_BUDGET_RATIO = 0.1;
+    public static final int DEFAULT_MAX_BUDGET = 10;
+
+    private static final long TOKEN_SCALE = 1_000;
+
+    private final int maxAttempts;
+    private final long initialBackoff;
+    private final long maxBackoff;
+    private final long depositPerRequest;
+    private final long maxTokens;
+    private final Predicate<Throwable> retryable;
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong tokens;
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+
+    private RetryPolicy(final Builder builder) {
+        if (builder.maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts should be positive. But " + builder.maxAttempts);
+        }
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoff = builder.initialBackoff;
+        this.maxBackoff = builder.maxBackoff;
+        this.depositPerRequest = (long) (builder.budgetRatio * TOKEN_SCALE);
+        this.maxTokens = builder.maxBudget * TOKEN_SCALE;
+        this.retryable = builder.retryable;
+        this.scheduler = builder.scheduler != null ? builder.scheduler : DefaultScheduler.INSTANCE;
+        this.tokens = new AtomicLong(maxTokens);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Default classification of retryable failures.
+     */
+    public static boolean isRetryableByDefault(final Throwable throwable) {
+        if (throwable instanceof LineServerException) {
+            return true;
+        }
+        if (throwable instanceof TooManyRequestsException) {
+            return !((TooManyRequestsException) throwable).isRejectedByClient();
+        }
+        return throwable instanceof GeneralLineMessagingException
+               && throwable.getCause() instanceof IOException;
+    }
+
+    /**
+     * Number of retries performed.
+     */
+    public long getRetryCount() {
+        return retried.sum();
+    }
+
+    /**
+     * Number of retryable failures which are not retried because the retry budget is exhausted.
+     */
+    public long getBudgetExhaustedCount() {
+        return budgetExhausted.sum();
+    }
+
+    /**
+     * Run attempts until one succeeds or the failure is not retried.
+     *
+     * @param attempt Function which sends the request. The argument is 1-origin attempt number.
+     */
+    <T> CompletableFuture<T> execute(final IntFunction<CompletableFuture<T>> attempt) {
+        deposit();
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        run(attempt, 1, result);
+        return result;
+    }
+
+    private <T> void run(final IntFunction<CompletableFuture<T>> attempt, final int attemptNumber,
+                         final CompletableFuture<T> result) {
+        attempt.apply(attemptNumber).whenComplete((value, throwable) -> {
+            if (throwable == null) {
+                result.complete(value);
+                return;
+            }
+
+            final Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                                    ? throwable.getCause() : throwable;
+            if (attemptNumber >= maxAttempts || !retryable.test(cause)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            if (!withdraw()) {
+                budgetExhausted.increment();
+                result.completeExceptionally(cause);
+                return;
+            }
+
+            retried.increment();
+            scheduler.schedule(() -> run(attempt, attemptNumber + 1, result),
+                               backoff(attemptNumber), TimeUnit.MILLISECONDS);
+        });
+    }
+
+    /**
+     * Full jitter backoff. Random delay in [0, min(maxBackoff, initialBackoff * 2^(attemptNumber - 1))].
+     */
+    long backoff(final int attemptNumber) {
+        final long ceiling = Math.min(maxBackoff, initialBackoff << Math.min(attemptNumber - 1, 30));
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private void deposit() {
+        tokens.getAndUpdate(current -> Math.min(maxTokens, current + depositPerRequest));
+    }
+
+    private boolean withdraw() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < TOKEN_SCALE) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - TOKEN_SCALE));
+        return true;
+    }
+
+    private static final class DefaultScheduler {
+        static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "line-bot-retry-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static final class Builder {
+        private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+        private long initialBackoff = DEFAULT_INITIAL_BACKOFF;
+        private long maxBackoff = DEFAULT_MAX_BACKOFF;
+        private double budgetRatio = DEFAULT_BUDGET_RATIO;
+        private int maxBudget = DEFAULT_MAX_BUDGET;
+        private Predicate<Throwable> retryable = RetryPolicy::isRetryableByDefault;
+        private ScheduledExecutorService scheduler;
+
+        private Builder() {
+        }
+
+        /**
+         * Set max number of attempts including the first one.
+         */
+        public Builder maxAttempts(final int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Set upper bound of the first backoff in milliseconds. Doubled on every retry.
+         */
+        public Builder initialBackoff(final long initialBackoff) {
+            this.initialBackoff = initialBackoff;
+            return this;
+        }
+
+        /**
+         * Set upper bound of backoff in milliseconds.
+         */
+        public Builder maxBackoff(final long maxBackoff) {
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        /**
+         * Set ratio of retries to requests allowed in steady state.
+         */
+        public Builder budgetRatio(final double budgetRatio) {
+            this.budgetRatio = budgetRatio;
+            return this;
+        }
+
+        /**
+         * Set max number of retries which can be accumulated in the retry budget.
+         */
+        public Builder maxBudget(final int maxBudget) {
+            this.maxBudget = maxBudget;
+            return this;
+        }
+
+        /**
+         * Set classifier of retryable failures.
+         *
+         * @see RetryPolicy#isRetryableByDefault(Throwable)
+         */
+        public Builder retryable(@NonNull final Predicate<Throwable> retryable) {
+            this.retryable = retryable;
+            return this;
+        }
+
+        /**
+         * Set scheduler of retries. By default, a shared daemon thread is used.
+         */
+        public Builder scheduler(@NonNull final ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import com.linecorp.bot.model.Multicast;
+import com.linecorp.bot.model.PushMessage;
+import com.linecorp.bot.model.ReplyMessage;
+
+import lombok.NonNull;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Retrofit converter factory which serializes request bodies straight into OkHttp's sink.
+ *
+ * <p>Jackson's converter writes a request body to a {@code byte[]} when the request is created,
+ * so that a large multicast or carousel is held twice while the call is in flight. Bodies created by this factory
+ * keep the object and serialize it when OkHttp writes the request, through Jackson's recycled buffer into
+ * pooled Okio segments. The length of the JSON is not known in advance, so the body is sent chunked.
+ *
+ * <p>Lists of messages and recipients of {@link PushMessage}, {@link ReplyMessage} and {@link Multicast} are
+ * copied when the request is created, so that the caller may reuse them after the call. Messages themselves
+ * are serialized later, and should not be modified after they are passed to the client.
+ *
+ * <p>Only request bodies are converted. Add a converter factory for responses after this one.
+ *
+ * <pre>{@code
+ * new Retrofit.Builder()
+ *         .addConverterFactory(StreamingJsonConverterFactory.create(objectMapper))
+ *         .addConverterFactory(JacksonConverterFactory.create(objectMapper));
+ * }</pre>
+ */
+public final class StreamingJsonConverterFactory extends Converter.Factory {
+    private static final MediaType JSON = MediaType.parse("application/json; charset=UTF-8");
+
+    private final ObjectMapper objectMapper;
+
+    private StreamingJsonConverterFactory(final ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public static StreamingJsonConverterFactory create(@NonNull final ObjectMapper objectMapper) {
+        return new StreamingJsonConverterFactory(objectMapper);
+    }
+
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(final Type type,
+                                                          final Annotation[] parameterAnnotations,
+                                                          final Annotation[] methodAnnotations,
+                                                          final Retrofit retrofit) {
+        // Closing the stream would close OkHttp's sink.
+        final ObjectWriter writer =
+                objectMapper.writerFor(objectMapper.getTypeFactory().constructType(type))
+                            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return value -> new StreamingJsonRequestBody(writer, snapshot(value));
+    }
+
+    /**
+     * Copy collections of the request, which belong to the caller.
+     */
+    static Object snapshot(final Object value) {
+        if (value instanceof PushMessage) {
+            final PushMessage pushMessage = (PushMessage) value;
+            return new PushMessage(pushMessage.getTo(), copyOf(pushMessage.getMessages()));
+        }
+        if (value instanceof ReplyMessage) {
+            final ReplyMessage replyMessage = (ReplyMessage) value;
+            return new ReplyMessage(replyMessage.getReplyToken(), copyOf(replyMessage.getMessages()));
+        }
+        if (value instanceof Multicast) {
+            final Multicast multicast = (Multicast) value;
+            final Set<String> to = multicast.getTo() != null ? new LinkedHashSet<>(multicast.getTo()) : null;
+            return new Multicast(to, copyOf(multicast.getMessages()));
+        }
+        return value;
+    }
+
+    private static <T> List<T> copyOf(final List<T> list) {
+        return list != null ? new ArrayList<>(list) : null;
+    }
+
+    /**
+     * Request body which serializes the value on every write, e.g. for retries and wire logging.
+     */
+    static final class StreamingJsonRequestBody extends RequestBody {
+        private final ObjectWriter writer;
+        private final Object value;
+
+        StreamingJsonRequestBody(final ObjectWriter writer, final Object value) {
+            this.writer = writer;
+            this.value = value;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return JSON;
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+
+        @Override
+        public void writeTo(final BufferedSink sink) throws IOException {
+            writer.writeValue(sink.outputStream(), value);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket whose refill rate adapts to throttling by the server.
+ *
+ * <p>The rate is halved on every throttled response (down to 5% of the configured rate),
+ * and recovers by 1% of the configured rate on every successful response.
+ */
+class TokenBucket {
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final double MIN_RATE_FACTOR = 0.05;
+    private static final double RECOVERY_STEP = 0.01;
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double configuredRate;
+    private final double capacity;
+    private final LongSupplier nanoClock;
+
+    // Guarded by this.
+    private double rate;
+    private double permits;
+    private long lastRefillNanos;
+    private long blockedUntilNanos;
+
+    TokenBucket(final double permitsPerSecond, final int burst, final LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond should be positive. But " + permitsPerSecond);
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst should be positive. But " + burst);
+        }
+        this.configuredRate = permitsPerSecond;
+        this.capacity = burst;
+        this.nanoClock = nanoClock;
+        this.rate = permitsPerSecond;
+        this.permits = burst;
+        this.lastRefillNanos = nanoClock.getAsLong();
+        this.blockedUntilNanos = lastRefillNanos;
+    }
+
+    /**
+     * Try to take one permit.
+     *
+     * @return 0 if a permit is taken. Otherwise estimated nanoseconds until a permit becomes available.
+     */
+    synchronized long tryAcquire() {
+        final long now = nanoClock.getAsLong();
+        if (now - blockedUntilNanos < 0) {
+            return blockedUntilNanos - now;
+        }
+
+        refill(now);
+        if (permits >= 1) {
+            permits -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - permits) / rate * NANOS_PER_SECOND));
+    }
+
+    /**
+     * Slow down because the server throttled a request.
+     *
+     * @param retryAfterNanos Duration to stop sending requests. 0 if not specified by the server.
+     */
+    synchronized void onThrottled(final long retryAfterNanos) {
+        final long now = nanoClock.getAsLong();
+        refill(now);
+        rate = Math.max(configuredRate * MIN_RATE_FACTOR, rate * DECREASE_FACTOR);
+        permits = Math.min(permits, 0);
+        if (retryAfterNanos > 0 && now + retryAfterNanos - blockedUntilNanos > 0) {
+            blockedUntilNanos = now + retryAfterNanos;
+        }
+    }
+
+    /**
+     * Recover the rate step by step because a request is accepted.
+     */
+    synchronized void onSuccess() {
+        if (rate < configuredRate) {
+            refill(nanoClock.getAsLong());
+            rate = Math.min(configuredRate, rate + configuredRate * RECOVERY_STEP);
+        }
+    }
+
+    synchronized double getRate() {
+        return rate;
+    }
+
+    double getConfiguredRate() {
+        return configuredRate;
+    }
+
+    synchronized double getAvailablePermits() {
+        refill(nanoClock.getAsLong());
+        return permits;
+    }
+
+    private void refill(final long now) {
+        final long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            permits = Math.min(capacity, permits + elapsed * rate / NANOS_PER_SECOND);
+            lastRefillNanos = now;
+        }
+    }
+}
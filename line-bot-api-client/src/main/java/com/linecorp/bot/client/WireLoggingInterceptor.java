@@ -0,0 +1,298 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.NonNull;
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+
+/**
+ * Logs HTTP exchanges to {@code com.linecorp.bot.client.wire} logger at INFO level.
+ *
+ * <ul>
+ *     <li>Log level can be set per {@link EndpointFamily}.</li>
+ *     <li>Bodies are truncated to {@code maxBodyBytes}. Only textual bodies (JSON, text, form) are logged.
+ *     Bodies of {@link EndpointFamily#CONTENT} are never read, so that streamed media isn't buffered.</li>
+ *     <li>Values of {@code Authorization} and other configured headers are redacted.</li>
+ *     <li>With {@code sampleRate} N, only 1 in N exchanges is logged. Exchanges of endpoints at
+ *     {@link Level#NONE} are counted too.</li>
+ * </ul>
+ *
+ * <p>When all levels are {@link Level#NONE}, the logger is disabled or the exchange is not sampled,
+ * requests are passed through without any allocation.
+ */
+public final class WireLoggingInterceptor implements Interceptor {
+    public static final String LOGGER_NAME = "com.linecorp.bot.client.wire";
+    public static final int DEFAULT_MAX_BODY_BYTES = 4096;
+
+    private static final Charset UTF_8 = StandardCharsets.UTF_8;
+    private static final String REDACTED = "<redacted>";
+
+    private final Logger logger;
+    private final Level defaultLevel;
+    private final Map<EndpointFamily, Level> levels;
+    /**
+     * False if no endpoint is logged.
+     */
+    private final boolean enabled;
+    private final int maxBodyBytes;
+    private final int sampleRate;
+    private final Set<String> redactedHeaders;
+    private final AtomicLong exchanges = new AtomicLong();
+
+    /**
+     * Amount of logged information. Each level includes the previous one.
+     */
+    public enum Level {
+        /**
+         * No logs.
+         */
+        NONE,
+
+        /**
+         * Request line, response status and latency.
+         */
+        BASIC,
+
+        /**
+         * Request and response headers.
+         */
+        HEADERS,
+
+        /**
+         * Request and response bodies up to max body bytes.
+         */
+        BODY,
+    }
+
+    private WireLoggingInterceptor(final Builder builder) {
+        if (builder.sampleRate < 1) {
+            throw new IllegalArgumentException("sampleRate should be positive. But " + builder.sampleRate);
+        }
+        this.logger = builder.logger;
+        this.defaultLevel = builder.level;
+        this.levels = Collections.unmodifiableMap(new EnumMap<>(builder.levels));
+        this.enabled = defaultLevel != Level.NONE || levels.values().stream().anyMatch(level -> level != Level.NONE);
+        this.maxBodyBytes = builder.maxBodyBytes;
+        this.sampleRate = builder.sampleRate;
+        this.redactedHeaders = Collections.unmodifiableSet(new HashSet<>(builder.redactedHeaders));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Response intercept(final Chain chain) throws IOException {
+        final Request request = chain.request();
+        if (!enabled || !logger.isInfoEnabled() || !sampled()) {
+            return chain.proceed(request);
+        }
+        // Resolved after the checks above, since it allocates.
+        final EndpointFamily family = EndpointFamily.of(request);
+        final Level level = levels.getOrDefault(family, defaultLevel);
+        if (level == Level.NONE) {
+            return chain.proceed(request);
+        }
+
+        logRequest(request, level);
+
+        final long start = System.nanoTime();
+        final Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            logger.info("<-- HTTP FAILED: {} {}: {}", request.method(), request.url(), e.toString());
+            throw e;
+        }
+        final long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        logResponse(response, level, family != EndpointFamily.CONTENT, tookMs);
+        return response;
+    }
+
+    private boolean sampled() {
+        return sampleRate == 1 || exchanges.getAndIncrement() % sampleRate == 0;
+    }
+
+    private void logRequest(final Request request, final Level level) throws IOException {
+        final StringBuilder message = new StringBuilder();
+        message.append("--> ").append(request.method()).append(' ').append(request.url());
+        if (level.compareTo(Level.HEADERS) >= 0) {
+            appendHeaders(message, request.headers());
+        }
+
+        final RequestBody body = request.body();
+        if (level == Level.BODY && body != null) {
+            message.append('\n');
+            if (isText(body.contentType())) {
+                final Buffer buffer = new Buffer();
+                body.writeTo(buffer);
+                appendBody(message, buffer, buffer.size(), charset(body.contentType()));
+            } else {
+                appendOmitted(message, body.contentLength());
+            }
+        }
+        logger.info("{}", message);
+    }
+
+    private void logResponse(final Response response, final Level level, final boolean readable,
+                             final long tookMs) throws IOException {
+        final StringBuilder message = new StringBuilder();
+        message.append("<-- ").append(response.code()).append(' ').append(response.message())
+               .append(' ').append(response.request().url())
+               .append(" (").append(tookMs).append("ms)");
+        if (level.compareTo(Level.HEADERS) >= 0) {
+            appendHeaders(message, response.headers());
+        }
+
+        final ResponseBody body = response.body();
+        if (level == Level.BODY && body != null) {
+            message.append('\n');
+            if (readable && isText(body.contentType())) {
+                // peekBody() reads at most maxBodyBytes and leaves the body for the caller.
+                final ResponseBody peeked = response.peekBody(maxBodyBytes);
+                final Buffer buffer = new Buffer().write(peeked.bytes());
+                final long total = body.contentLength() >= 0 ? body.contentLength() : buffer.size();
+                appendBody(message, buffer, total, charset(body.contentType()));
+            } else {
+                appendOmitted(message, body.contentLength());
+            }
+        }
+        logger.info("{}", message);
+    }
+
+    private void appendHeaders(final StringBuilder message, final Headers headers) {
+        for (int i = 0; i < headers.size(); ++i) {
+            final String name = headers.name(i);
+            message.append('\n').append(name).append(": ")
+                   .append(redactedHeaders.contains(name.toLowerCase(Locale.ROOT)) ? REDACTED : headers.value(i));
+        }
+    }
+
+    private void appendBody(final StringBuilder message, final Buffer buffer, final long total,
+                            final Charset charset) throws IOException {
+        final long logged = Math.min(buffer.size(), maxBodyBytes);
+        message.append(buffer.readString(logged, charset));
+        if (total > logged) {
+            message.append("... (truncated, ").append(total).append("-byte body)");
+        }
+    }
+
+    private static void appendOmitted(final StringBuilder message, final long contentLength) {
+        message.append("(binary ")
+               .append(contentLength >= 0 ? contentLength + "-byte" : "unknown-length")
+               .append(" body omitted)");
+    }
+
+    private static boolean isText(final MediaType mediaType) {
+        if (mediaType == null) {
+            return false;
+        }
+        final String subtype = mediaType.subtype();
+        return "text".equals(mediaType.type())
+               || subtype.contains("json")
+               || subtype.contains("xml")
+               || "x-www-form-urlencoded".equals(subtype);
+    }
+
+    private static Charset charset(final MediaType mediaType) {
+        return mediaType != null ? mediaType.charset(UTF_8) : UTF_8;
+    }
+
+    public static final class Builder {
+        private Logger logger = LoggerFactory.getLogger(LOGGER_NAME);
+        private Level level = Level.BASIC;
+        private final Map<EndpointFamily, Level> levels = new EnumMap<>(EndpointFamily.class);
+        private int maxBodyBytes = DEFAULT_MAX_BODY_BYTES;
+        private int sampleRate = 1;
+        private final Set<String> redactedHeaders = new HashSet<>(Collections.singleton("authorization"));
+
+        private Builder() {
+        }
+
+        /**
+         * Set log level of endpoint families without specific level. Default: {@link Level#BASIC}.
+         */
+        public Builder level(@NonNull final Level level) {
+            this.level = level;
+            return this;
+        }
+
+        /**
+         * Set log level of the endpoint family.
+         */
+        public Builder level(@NonNull final EndpointFamily endpointFamily, @NonNull final Level level) {
+            levels.put(endpointFamily, level);
+            return this;
+        }
+
+        /**
+         * Set max number of logged bytes of each body.
+         */
+        public Builder maxBodyBytes(final int maxBodyBytes) {
+            this.maxBodyBytes = maxBodyBytes;
+            return this;
+        }
+
+        /**
+         * Log only 1 in {@code sampleRate} exchanges. Default: 1, all exchanges.
+         */
+        public Builder sampleRate(final int sampleRate) {
+            this.sampleRate = sampleRate;
+            return this;
+        }
+
+        /**
+         * Add a header whose value is redacted. {@code Authorization} is always redacted.
+         */
+        public Builder redactHeader(@NonNull final String name) {
+            redactedHeaders.add(name.toLowerCase(Locale.ROOT));
+            return this;
+        }
+
+        Builder logger(final Logger logger) {
+            this.logger = logger;
+            return this;
+        }
+
+        public WireLoggingInterceptor build() {
+            return new WireLoggingInterceptor(this);
+        }
+    }
+}
@@ -18,12 +18,28 @@ package com.linecorp.bot.client.exception;
 
 import com.linecorp.bot.model.error.ErrorResponse;
 
+import lombok.Getter;
+
+@Getter
 public class TooManyRequestsException extends LineMessagingException {
     private static final long serialVersionUID = SERIAL_VERSION_UID;
 
+    /**
+     * True if the request was rejected by the client side rate limiter without being sent to the server.
+     */
+    private final boolean rejectedByClient;
+
     public TooManyRequestsException(
             final String message,
             final ErrorResponse errorResponse) {
+        this(message, errorResponse, false);
+    }
+
+    public TooManyRequestsException(
+            final String message,
+            final ErrorResponse errorResponse,
+            final boolean rejectedByClient) {
         super(message, errorResponse, null);
+        this.rejectedByClient = rejectedByClient;
     }
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import com.linecorp.bot.client.exception.GeneralLineMessagingException;
+import com.linecorp.bot.client.exception.LineServerException;
+import com.linecorp.bot.model.response.BotApiResponse;
+
+public class BroadcasterTest {
+    private static final BotApiResponse SUCCESS = new BotApiResponse("success", emptyList());
+
+    @Rule
+    public final Timeout timeoutRule = Timeout.seconds(1);
+
+    private final List<CompletableFuture<BotApiResponse>> pending = new ArrayList<>();
+
+    @Test
+    public void inFlightWindowIsBoundedTest() throws Exception {
+        final Iterator<String> to = IntStream.range(0, 10).mapToObj(String::valueOf).iterator();
+        final Broadcaster target = new Broadcaster(to, this::pendingSender, 2, 2);
+
+        // Do
+        final CompletableFuture<BroadcastResponse> result = target.start();
+
+        // Verify
+        assertThat(pending).hasSize(2);
+
+        // Do: complete one request.
+        pending.get(0).complete(SUCCESS);
+
+        // Verify: next chunk is sent.
+        assertThat(pending).hasSize(3);
+        assertThat(result).isNotDone();
+
+        // Do: complete all.
+        for (int i = 1; i < 5; ++i) {
+            pending.get(i).complete(SUCCESS);
+        }
+
+        // Verify
+        assertThat(pending).hasSize(5);
+        assertThat(result).isCompleted();
+        assertThat(result.get().getChunks()).isEqualTo(5);
+        assertThat(result.get().getSucceededRecipients()).isEqualTo(10);
+    }
+
+    @Test
+    public void failedChunkIsReportedTest() throws Exception {
+        final Iterator<String> to = Arrays.asList("A", "B", "C").iterator();
+        final LineServerException exception = new LineServerException("ERROR", null);
+        final Broadcaster target = new Broadcaster(to, chunk -> {
+            final CompletableFuture<BotApiResponse> future = new CompletableFuture<>();
+            if (chunk.contains("B")) {
+                future.completeExceptionally(exception);
+            } else {
+                future.complete(SUCCESS);
+            }
+            return future;
+        }, 1, 1);
+
+        // Do
+        final BroadcastResponse result = target.start().get();
+
+        // Verify
+        assertThat(result.isSuccessful()).isFalse();
+        assertThat(result.getSucceededRecipients()).isEqualTo(2);
+        assertThat(result.getFailures())
+                .hasOnlyOneElementSatisfying(failure -> {
+                    assertThat(failure.getTo()).containsExactly("B");
+                    assertThat(failure.getCause()).isSameAs(exception);
+                });
+    }
+
+    @Test
+    public void synchronousCompletionDoesNotOverflowStackTest() throws Exception {
+        final Iterator<String> to = IntStream.range(0, 100_000).mapToObj(String::valueOf).iterator();
+        final Broadcaster target =
+                new Broadcaster(to, chunk -> CompletableFuture.completedFuture(SUCCESS), 1, 1);
+
+        // Do
+        final BroadcastResponse result = target.start().get();
+
+        // Verify
+        assertThat(result.getChunks()).isEqualTo(100_000);
+    }
+
+    @Test
+    public void emptyRecipientsTest() throws Exception {
+        final Broadcaster target = new Broadcaster(Collections.<String>emptyList().iterator(), this::pendingSender, 150, 4);
+
+        // Do
+        final BroadcastResponse result = target.start().get();
+
+        // Verify
+        assertThat(pending).isEmpty();
+        assertThat(result.getChunks()).isZero();
+    }
+
+    @Test
+    public void recipientsFailureTest() throws Exception {
+        final Iterator<String> to = new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public String next() {
+                throw new IllegalStateException("Broken");
+            }
+        };
+        final Broadcaster target = new Broadcaster(to, this::pendingSender, 150, 4);
+
+        // Do
+        final CompletableFuture<BroadcastResponse> result = target.start();
+
+        // Verify
+        assertThat(result).isCompletedExceptionally();
+        assertThat(result.handle((ignored, e) -> e).get())
+                .isInstanceOf(GeneralLineMessagingException.class)
+                .hasMessageContaining("Broken");
+    }
+
+    private CompletableFuture<BotApiResponse> pendingSender(final Set<String> chunk) {
+        final CompletableFuture<BotApiResponse> future = new CompletableFuture<>();
+        pending.add(future);
+        return future;
+    }
+}
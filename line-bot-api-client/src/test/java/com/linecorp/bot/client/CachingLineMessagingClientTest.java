@@ -0,0 +1,203 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import com.linecorp.bot.model.event.LeaveEvent;
+import com.linecorp.bot.model.event.UnfollowEvent;
+import com.linecorp.bot.model.event.source.GroupSource;
+import com.linecorp.bot.model.event.source.UserSource;
+import com.linecorp.bot.model.profile.UserProfileResponse;
+
+public class CachingLineMessagingClientTest {
+    @Rule
+    public final MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private LineMessagingClient delegate;
+
+    private long now = 0;
+
+    private final List<CompletableFuture<UserProfileResponse>> inFlight = new ArrayList<>();
+
+    private CachingLineMessagingClient target;
+
+    @Before
+    public void setUp() {
+        when(delegate.getProfile(anyString())).thenAnswer(invocation -> {
+            final CompletableFuture<UserProfileResponse> future = new CompletableFuture<>();
+            inFlight.add(future);
+            return future;
+        });
+        target = CachingLineMessagingClient.builder(delegate)
+                                           .maximumSize(2)
+                                           .refreshAfter(TimeUnit.MINUTES.toMillis(1))
+                                           .expireAfter(TimeUnit.MINUTES.toMillis(10))
+                                           .maxConcurrentLoads(2)
+                                           .nanoClock(() -> now)
+                                           .build();
+    }
+
+    @Test
+    public void singleFlightTest() {
+        // Do
+        final CompletableFuture<UserProfileResponse> first = target.getProfile("USER_ID");
+        final CompletableFuture<UserProfileResponse> second = target.getProfile("USER_ID");
+        inFlight.get(0).complete(profile("USER_ID"));
+
+        // Verify
+        verify(delegate, times(1)).getProfile("USER_ID");
+        assertThat(first.join()).isSameAs(second.join());
+        assertThat(target.getProfile("USER_ID").join()).isEqualTo(profile("USER_ID"));
+        assertThat(target.getHitCount()).isEqualTo(2);
+        assertThat(target.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void failureNotCachedTest() {
+        // Do
+        final CompletableFuture<UserProfileResponse> first = target.getProfile("USER_ID");
+        inFlight.get(0).completeExceptionally(new RuntimeException());
+        target.getProfile("USER_ID");
+
+        // Verify
+        assertThat(first).isCompletedExceptionally();
+        verify(delegate, times(2)).getProfile("USER_ID");
+    }
+
+    @Test
+    public void callerCancelTest() {
+        final CompletableFuture<UserProfileResponse> first = target.getProfile("USER_ID");
+        final CompletableFuture<UserProfileResponse> second = target.getProfile("USER_ID");
+
+        // Do
+        first.cancel(false);
+        inFlight.get(0).complete(profile("USER_ID"));
+
+        // Verify
+        assertThat(first).isCancelled();
+        assertThat(second.join()).isEqualTo(profile("USER_ID"));
+        assertThat(target.getProfile("USER_ID").join()).isEqualTo(profile("USER_ID"));
+        verify(delegate, times(1)).getProfile("USER_ID");
+    }
+
+    @Test
+    public void refreshAheadAndExpireTest() {
+        target.getProfile("USER_ID");
+        inFlight.get(0).complete(profile("OLD"));
+
+        // Do: stale entry is served while refreshing.
+        now += TimeUnit.MINUTES.toNanos(2);
+        final UserProfileResponse stale = target.getProfile("USER_ID").join();
+        inFlight.get(1).complete(profile("NEW"));
+
+        // Verify
+        assertThat(stale).isEqualTo(profile("OLD"));
+        assertThat(target.getProfile("USER_ID").join()).isEqualTo(profile("NEW"));
+
+        // Do: expired entry is loaded again.
+        now += TimeUnit.MINUTES.toNanos(20);
+        final CompletableFuture<UserProfileResponse> expired = target.getProfile("USER_ID");
+
+        // Verify
+        assertThat(expired).isNotDone();
+        verify(delegate, times(3)).getProfile("USER_ID");
+    }
+
+    @Test
+    public void invalidateTest() {
+        when(delegate.getGroupMemberProfile("GROUP_ID", "USER_ID"))
+                .thenReturn(CompletableFuture.completedFuture(profile("USER_ID")));
+        target.getProfile("USER_ID");
+        inFlight.get(0).complete(profile("USER_ID"));
+        target.getGroupMemberProfile("GROUP_ID", "USER_ID");
+        assertThat(target.size()).isEqualTo(2);
+
+        // Do
+        target.invalidate(new UnfollowEvent(new UserSource("USER_ID"), Instant.EPOCH));
+
+        // Verify: member profiles of the user are dropped as well.
+        assertThat(target.size()).isZero();
+
+        // Do
+        target.getGroupMemberProfile("GROUP_ID", "USER_ID");
+        target.invalidate(new LeaveEvent(new GroupSource("GROUP_ID", null), Instant.EPOCH));
+
+        // Verify
+        assertThat(target.size()).isZero();
+    }
+
+    @Test
+    public void negativeNanoClockTest() {
+        now = Long.MAX_VALUE - TimeUnit.MINUTES.toNanos(1);
+        target.getProfile("USER_ID");
+        inFlight.get(0).complete(profile("USER_ID"));
+
+        // Do: the clock overflows to negative.
+        now += TimeUnit.MINUTES.toNanos(20);
+        final CompletableFuture<UserProfileResponse> expired = target.getProfile("USER_ID");
+
+        // Verify
+        assertThat(now).isNegative();
+        assertThat(expired).isNotDone();
+        verify(delegate, times(2)).getProfile("USER_ID");
+    }
+
+    @Test
+    public void getProfilesTest() {
+        target.getProfile("CACHED");
+        inFlight.get(0).complete(profile("CACHED"));
+
+        // Do
+        final CompletableFuture<Map<String, UserProfileResponse>> result =
+                target.getProfiles(asList("A", "CACHED", "B", "A", "C"));
+
+        // Verify: cache hit is served, and misses are loaded 2 at a time.
+        assertThat(inFlight).hasSize(3);
+        inFlight.get(1).complete(profile("A"));
+        assertThat(inFlight).hasSize(4);
+        inFlight.get(2).completeExceptionally(new RuntimeException());
+        inFlight.get(3).complete(profile("C"));
+
+        assertThat(result.join()).containsOnlyKeys("A", "CACHED", "C");
+        assertThat(result.join().keySet()).containsExactly("A", "CACHED", "C");
+    }
+
+    private static UserProfileResponse profile(final String userId) {
+        return new UserProfileResponse("name", userId, null, null);
+    }
+}
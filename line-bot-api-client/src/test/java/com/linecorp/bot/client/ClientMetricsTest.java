@@ -0,0 +1,204 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.bot.client;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.linecorp.bot.client.ClientMetrics.EndpointMetrics;
+import com.linecorp.bot.model.PushMessage;
+import com.linecorp.bot.model.message.TextMessage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.Dns;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.internal.tls.HeldCertificate;
+import okhttp3.internal.tls.SslClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+public class ClientMetricsTest extends AbstractWiremockTest {
+    private final ClientMetrics metrics = new ClientMetrics();
+
+    @Test(timeout = ASYNC_TEST_TIMEOUT)
+    public void endpointMetricsTest() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(500).setBody("{}"));
+
+        // Do
+        push();
+        push();
+
+        // Verify
+        final EndpointMetrics push = metrics.getEndpoint(EndpointFamily.PUSH);
+        assertThat(push.getLatency().getCount()).isEqualTo(2);
+        assertThat(push.getStatusCodeCounts()).containsOnly(entry(200, 1L), entry(500, 1L));
+        assertThat(push.getExceptionCounts()).isEmpty();
+        assertThat(push.getInFlight()).isZero();
+        assertThat(metrics.getEndpoint(EndpointFamily.REPLY).getLatency().getCount()).isZero();
+    }
+
+    @Test(timeout = ASYNC_TEST_TIMEOUT)
+    public void connectionPhasesTest() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+        // Do
+        push();
+        push();
+
+        // Verify: the second request reuses the connection.
+        assertThat(metrics.getDns().getCount()).isEqualTo(1);
+        assertThat(metrics.getConnect().getCount()).isEqualTo(1);
+        assertThat(metrics.getPreNetworkWait().getCount()).isEqualTo(2);
+        assertThat(metrics.getTimeToFirstByte().getCount()).isEqualTo(2);
+    }
+
+    @Test(timeout = ASYNC_TEST_TIMEOUT)
+    public void customDnsIsWrappedTest() throws Exception {
+        final AtomicInteger lookups = new AtomicInteger();
+        final Dns dns = hostname -> {
+            lookups.incrementAndGet();
+            return Dns.SYSTEM.lookup(hostname);
+        };
+        final LineMessagingService service =
+                LineMessagingServiceBuilder.create("token")
+                                           .apiEndPoint("http://localhost:" + mockWebServer.getPort())
+                                           .okHttpClientBuilder(new OkHttpClient.Builder().dns(dns), false)
+                                           .metrics(metrics)
+                                           .build();
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+        // Do
+        service.leaveGroup("GROUP_ID").execute();
+
+        // Verify
+        assertThat(lookups).hasValue(1);
+        assertThat(metrics.getDns().getCount()).isEqualTo(1);
+    }
+
+    @Test(timeout = ASYNC_TEST_TIMEOUT)
+    public void exceptionCountTest() throws Exception {
+        mockWebServer.shutdown();
+
+        // Do
+        lineMessagingClient.pushMessage(new PushMessage("USER_ID", singletonList(new TextMessage("text"))))
+                           .handle((ignored, e) -> e)
+                           .get();
+
+        // Verify
+        assertThat(metrics.getEndpoint(EndpointFamily.PUSH).getExceptionCounts())
+                .containsOnlyKeys("java.net.ConnectException");
+    }
+
+    // Generating keys takes a while.
+    @Test(timeout = 10_000)
+    public void tlsTest() throws Exception {
+        final HeldCertificate root = new HeldCertificate.Builder().ca(1).commonName("root").build();
+        final HeldCertificate localhost = new HeldCertificate.Builder().issuedBy(root)
+                                                                       .commonName("localhost")
+                                                                       .subjectAlternativeName("localhost")
+                                                                       .build();
+        final SslClient serverSsl = new SslClient.Builder().certificateChain(localhost, root).build();
+        final SslClient clientSsl = new SslClient.Builder().addTrustedCertificate(root.certificate).build();
+        final MockWebServer httpsServer = new MockWebServer();
+        httpsServer.useHttps(serverSsl.socketFactory, false);
+        httpsServer.enqueue(new MockResponse());
+        httpsServer.enqueue(new MockResponse());
+        final OkHttpClient client =
+                new OkHttpClient.Builder()
+                        .sslSocketFactory(metrics.sslSocketFactory(clientSsl.socketFactory),
+                                          clientSsl.trustManager)
+                        .build();
+
+        // Do
+        for (int i = 0; i < 2; ++i) {
+            try (Response response = client.newCall(new Request.Builder().url(httpsServer.url("/")).build())
+                                           .execute()) {
+                assertThat(response.isSuccessful()).isTrue();
+            }
+        }
+
+        // Verify: the listener is notified by another thread. The second request reuses the connection.
+        while (metrics.getTls().getCount() == 0) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertThat(metrics.getTls().getCount()).isEqualTo(1);
+        httpsServer.shutdown();
+    }
+
+    @Test(timeout = ASYNC_TEST_TIMEOUT)
+    public void binderTest() throws Exception {
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new ClientMetricsBinder(metrics).bindTo(registry);
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(500).setBody("{}"));
+
+        // Do
+        push();
+        push();
+
+        // Verify
+        assertThat(registry.get("line.bot.client.requests").tag("endpoint", "push").functionTimer().count())
+                .isEqualTo(2);
+        assertThat(registry.get("line.bot.client.responses").tags("endpoint", "push", "status", "5xx")
+                           .functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("line.bot.client.connection").tag("phase", "connect").functionTimer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void histogramTest() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        // Do
+        for (int i = 1; i <= 100; ++i) {
+            histogram.record(i * 1_000_000L);
+        }
+
+        // Verify
+        assertThat(histogram.getCount()).isEqualTo(100);
+        assertThat(histogram.getSum()).isEqualTo(5050.0);
+        assertThat(histogram.getPercentile(0.5)).isEqualTo(50);
+        assertThat(histogram.getPercentile(0.99)).isEqualTo(100);
+        assertThat(histogram.getBucketCounts()).hasSize(LatencyHistogram.getBucketBounds().length + 1);
+    }
+
+    private void push() throws Exception {
+        lineMessagingClient.pushMessage(new PushMessage("USER_ID", singletonList(new TextMessage("text"))))
+                           .handle((ignored, e) -> null)
+                           .get();
+    }
+
+    @Override
+    protected LineMessagingClientImpl createLineMessagingClient(final MockWebServer mockWebServer) {
+        final LineMessagingService lineMessagingService =
+                LineMessagingServiceBuilder.create("token")
+                                           .apiEndPoint("http://localhost:" + mockWebServer.getPort())
+                                           .metrics(metrics)
+                                           .build();
+        return new LineMessagingClientImpl(lineMessagingService);
+    }
+}
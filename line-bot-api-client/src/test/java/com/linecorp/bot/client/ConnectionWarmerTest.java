@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.linecorp.bot.client.ConnectionWarmer.WarmUpResult;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+public class ConnectionWarmerTest {
+    private MockWebServer mockWebServer;
+    private LineMessagingServiceBuilder builder;
+
+    @Before
+    public void setUp() {
+        mockWebServer = new MockWebServer();
+        builder = LineMessagingServiceBuilder
+                .create("SECRET")
+                .apiEndPoint("http://" + mockWebServer.getHostName() + ':' + mockWebServer.getPort() + '/')
+                .warmUpConnections(2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (builder.connectionWarmer() != null) {
+            builder.connectionWarmer().close();
+        }
+        mockWebServer.shutdown();
+    }
+
+    @Test(timeout = 5_000)
+    public void warmUpTest() throws Exception {
+        mockWebServer.enqueue(new MockResponse());
+        mockWebServer.enqueue(new MockResponse());
+
+        // Do
+        builder.build();
+        builder.connectionWarmer().warmUpAsync().get();
+
+        // Verify
+        final WarmUpResult result = builder.connectionWarmer().getLastResult();
+        assertThat(result.getRequested()).isEqualTo(2);
+        assertThat(result.getSucceeded()).isEqualTo(2);
+        assertThat(result.getLatencies()).hasSize(2);
+        assertThat(builder.connectionStats().getConnections()).isEqualTo(2);
+
+        final RecordedRequest request = mockWebServer.takeRequest();
+        assertThat(request.getMethod()).isEqualTo("HEAD");
+        assertThat(request.getHeader("Authorization")).isNull();
+    }
+
+    @Test(timeout = 5_000)
+    public void warmUpOnlyMissingConnectionsTest() throws Exception {
+        mockWebServer.enqueue(new MockResponse());
+        mockWebServer.enqueue(new MockResponse());
+        builder.build();
+        builder.connectionWarmer().warmUpAsync().get();
+
+        // Do
+        final WarmUpResult result = builder.connectionWarmer().warmUp();
+
+        // Verify
+        assertThat(result.getRequested()).isZero();
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test(timeout = 5_000)
+    public void stopWhenNoConnectionIsAddedTest() throws Exception {
+        for (int i = 0; i < 3; ++i) {
+            mockWebServer.enqueue(new MockResponse());
+        }
+        // Warm-up requests are serialized, so that they share one connection.
+        builder.maxRequestsPerHost(1).build();
+        builder.connectionWarmer().warmUpAsync().get();
+
+        // Do
+        final WarmUpResult shared = builder.connectionWarmer().warmUp();
+        final WarmUpResult next = builder.connectionWarmer().warmUp();
+
+        // Verify
+        assertThat(shared.getSucceeded()).isEqualTo(1);
+        assertThat(next.getRequested()).isZero();
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(3);
+        assertThat(builder.connectionStats().getConnections()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ContentDownloadLimiterTest {
+    private final ContentDownloadLimiter target = ContentDownloadLimiter.builder()
+                                                                        .maxConcurrentDownloads(2)
+                                                                        .maxInFlightBytes(100)
+                                                                        .executor(Runnable::run)
+                                                                        .build();
+
+    @Test
+    public void slotTest() {
+        // Do
+        final CompletableFuture<Void> first = target.acquireSlot();
+        final CompletableFuture<Void> second = target.acquireSlot();
+        final CompletableFuture<Void> third = target.acquireSlot();
+
+        // Verify
+        assertThat(first).isDone();
+        assertThat(second).isDone();
+        assertThat(third).isNotDone();
+        assertThat(target.getQueueDepth()).isEqualTo(1);
+
+        // Do
+        target.release(0);
+
+        // Verify
+        assertThat(third).isDone();
+        assertThat(target.getActiveDownloads()).isEqualTo(2);
+        assertThat(target.getQueueDepth()).isZero();
+    }
+
+    @Test
+    public void bytesTest() {
+        target.acquireSlot();
+        target.acquireSlot();
+
+        // Do
+        final CompletableFuture<Void> first = target.reserveBytes(target.reservationOf(60));
+        final CompletableFuture<Void> second = target.reserveBytes(target.reservationOf(60));
+
+        // Verify
+        assertThat(first).isDone();
+        assertThat(second).isNotDone();
+        assertThat(target.getInFlightBytes()).isEqualTo(60);
+
+        // Do
+        target.release(60);
+
+        // Verify
+        assertThat(second).isDone();
+        assertThat(target.getInFlightBytes()).isEqualTo(60);
+        assertThat(target.getActiveDownloads()).isEqualTo(1);
+    }
+
+    @Test
+    public void resumeOnExecutorTest() throws Exception {
+        final ContentDownloadLimiter limiter = ContentDownloadLimiter.builder()
+                                                                     .maxConcurrentDownloads(1)
+                                                                     .build();
+        limiter.acquireSlot();
+        final CompletableFuture<String> resumedThread =
+                limiter.acquireSlot().thenApply(ignored -> Thread.currentThread().getName());
+
+        // Do
+        limiter.release(0);
+
+        // Verify
+        assertThat(resumedThread.get(5, TimeUnit.SECONDS))
+                .isNotEqualTo(Thread.currentThread().getName())
+                .startsWith("line-bot-content-download-");
+    }
+
+    @Test
+    public void reservationTest() {
+        assertThat(target.reservationOf(10)).isEqualTo(10);
+        assertThat(target.reservationOf(1_000)).isEqualTo(100);
+        assertThat(target.reservationOf(-1)).isEqualTo(100);
+    }
+}
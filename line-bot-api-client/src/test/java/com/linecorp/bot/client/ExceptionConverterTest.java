@@ -24,6 +24,7 @@ import org.junit.Test;
 
 import com.linecorp.bot.client.exception.GeneralLineMessagingException;
 import com.linecorp.bot.client.exception.LineMessagingException;
+import com.linecorp.bot.client.exception.LineServerException;
 import com.linecorp.bot.client.exception.UnauthorizedException;
 
 import okhttp3.MediaType;
@@ -45,6 +46,18 @@ public class ExceptionConverterTest {
                 .isInstanceOf(UnauthorizedException.class);
     }
 
+    @Test
+    public void convertServerErrorTest() {
+        final ResponseBody responseBody =
+                ResponseBody.create(MediaType.parse("application/json"),
+                                    "{}");
+        final LineMessagingException result =
+                target.apply(Response.error(500, responseBody));
+
+        assertThat(result)
+                .isInstanceOf(LineServerException.class);
+    }
+
     @Test
     public void convertUnknownExceptionTest() {
         final ResponseBody responseBody =
@@ -18,23 +18,34 @@ package com.linecorp.bot.client;
 
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.only;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.Timeout;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.mockito.stubbing.OngoingStubbing;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import com.linecorp.bot.model.Multicast;
 import com.linecorp.bot.model.PushMessage;
 import com.linecorp.bot.model.ReplyMessage;
@@ -45,7 +56,9 @@ import com.linecorp.bot.model.response.BotApiResponse;
 
 import okhttp3.MediaType;
 import okhttp3.Request;
+import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
+import okio.Buffer;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -111,6 +124,39 @@ public class LineMessagingClientImplTest {
         assertThat(botApiResponse).isEqualTo(BOT_API_SUCCESS_RESPONSE);
     }
 
+    @Test
+    public void broadcastTest() throws Exception {
+        whenCall(retrofitMock.multicastPrepared(any(), any()),
+                 BOT_API_SUCCESS_RESPONSE);
+        final List<String> to = IntStream.range(0, 400)
+                                         .mapToObj(i -> "TO" + i % 350)
+                                         .collect(Collectors.toList());
+
+        // Do
+        final BroadcastResponse broadcastResponse =
+                target.broadcast(to, singletonList(new TextMessage("text"))).get();
+
+        // Verify
+        final ArgumentCaptor<RequestBody> captor = ArgumentCaptor.forClass(RequestBody.class);
+        verify(retrofitMock, times(3)).multicastPrepared(isNull(String.class), captor.capture());
+        final List<JsonNode> bodies = new ArrayList<>();
+        for (RequestBody body : captor.getAllValues()) {
+            final Buffer buffer = new Buffer();
+            body.writeTo(buffer);
+            assertThat(buffer.size()).isEqualTo(body.contentLength());
+            bodies.add(new ObjectMapper().readTree(buffer.readUtf8()));
+        }
+        assertThat(bodies)
+                .extracting(body -> body.get("to").size())
+                .containsExactly(150, 150, 50);
+        assertThat(bodies)
+                .extracting(body -> body.get("messages").toString())
+                .containsOnly("[{\"type\":\"text\",\"text\":\"text\"}]");
+        assertThat(broadcastResponse.getChunks()).isEqualTo(3);
+        assertThat(broadcastResponse.getSucceededRecipients()).isEqualTo(350);
+        assertThat(broadcastResponse.isSuccessful()).isTrue();
+    }
+
     @Test
     public void getMessageContentTest() throws Exception {
         whenCall(retrofitMock.getMessageContent(any()),
@@ -125,6 +171,18 @@ public class LineMessagingClientImplTest {
         assertThat(contentResponse.getMimeType()).isEqualTo("image/jpeg");
     }
 
+    @Test
+    public void getMessageContentWithoutContentTypeTest() throws Exception {
+        whenCall(retrofitMock.getMessageContent(any()),
+                 ResponseBody.create(null, ZERO_BYTES));
+
+        // Do
+        final MessageContentResponse contentResponse = target.getMessageContent("ID").get();
+
+        // Verify
+        assertThat(contentResponse.getMimeType()).isNull();
+    }
+
     @Test
     public void getProfileTest() throws Exception {
         final UserProfileResponse mockUserProfileResponse =
@@ -16,9 +16,14 @@
 
 package com.linecorp.bot.client;
 
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.hamcrest.CoreMatchers.isA;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.concurrent.ExecutionException;
 
 import org.hamcrest.CustomTypeSafeMatcher;
@@ -27,6 +32,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.slf4j.bridge.SLF4JBridgeHandler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -38,16 +44,24 @@ import com.linecorp.bot.client.exception.LineMessagingException;
 import com.linecorp.bot.client.exception.LineServerException;
 import com.linecorp.bot.client.exception.TooManyRequestsException;
 import com.linecorp.bot.client.exception.UnauthorizedException;
+import com.linecorp.bot.model.PreparedMessages;
 import com.linecorp.bot.model.error.ErrorResponse;
+import com.linecorp.bot.model.message.TextMessage;
 
 import lombok.SneakyThrows;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.ByteString;
 
 public class LineMessagingClientImplWiremockTest extends AbstractWiremockTest {
     @Rule
     public final ExpectedException expectedException = ExpectedException.none();
 
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test(timeout = ASYNC_TEST_TIMEOUT)
     public void status400BadRequestTest() throws Exception {
         final ErrorResponse errorResponse =
@@ -133,6 +147,83 @@ public class LineMessagingClientImplWiremockTest extends AbstractWiremockTest {
         lineMessagingClient.getMessageContent("TOKEN").get();
     }
 
+    @Test(timeout = ASYNC_TEST_TIMEOUT)
+    public void broadcastRequestBodyTest() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+        // Do
+        final BroadcastResponse response =
+                lineMessagingClient.broadcast(singletonList("USER_ID"),
+                                              singletonList(new TextMessage("text"))).get();
+
+        // Verify
+        final RecordedRequest request = mockWebServer.takeRequest();
+        assertThat(request.getPath()).isEqualTo("/v2/bot/message/multicast");
+        assertThat(request.getBody().readUtf8())
+                .isEqualTo("{\"to\":[\"USER_ID\"],\"messages\":[{\"type\":\"text\",\"text\":\"text\"}]}");
+        assertThat(response.isSuccessful()).isTrue();
+    }
+
+    @Test(timeout = ASYNC_TEST_TIMEOUT)
+    public void preparedMessagesTest() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+        final PreparedMessages messages = PreparedMessages.of(new TextMessage("text"));
+
+        // Do
+        lineMessagingClient.replyMessage("REPLY_TOKEN", messages).get();
+        lineMessagingClient.pushMessage("USER\"ID", messages).get();
+
+        // Verify
+        final RecordedRequest reply = mockWebServer.takeRequest();
+        assertThat(reply.getPath()).isEqualTo("/v2/bot/message/reply");
+        assertThat(reply.getHeader("Content-Type")).isEqualTo("application/json; charset=UTF-8");
+        assertThat(reply.getBody().readUtf8())
+                .isEqualTo("{\"replyToken\":\"REPLY_TOKEN\",\"messages\":[{\"type\":\"text\",\"text\":\"text\"}]}");
+        final RecordedRequest push = mockWebServer.takeRequest();
+        assertThat(push.getPath()).isEqualTo("/v2/bot/message/push");
+        assertThat(push.getBody().readUtf8())
+                .isEqualTo("{\"to\":\"USER\\\"ID\",\"messages\":[{\"type\":\"text\",\"text\":\"text\"}]}");
+    }
+
+    @Test(timeout = ASYNC_TEST_TIMEOUT)
+    public void getMessageContentToPathTest() throws Exception {
+        final byte[] content = new byte[100_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        mockWebServer.enqueue(new MockResponse().setHeader("Content-Type", "image/jpeg")
+                                                .setBody(new Buffer().write(content)));
+        final Path path = temporaryFolder.newFile().toPath();
+        Files.write(path, new byte[200_000]);
+
+        // Do
+        final ContentDownloadResponse response =
+                lineMessagingClient.getMessageContentTo("MESSAGE_ID", path).get();
+
+        // Verify
+        assertThat(mockWebServer.takeRequest().getPath()).isEqualTo("/v2/bot/message/MESSAGE_ID/content");
+        assertThat(Files.readAllBytes(path)).isEqualTo(content);
+        assertThat(response.getLength()).isEqualTo(content.length);
+        assertThat(response.getMimeType()).isEqualTo("image/jpeg");
+        assertThat(response.getSha256()).isEqualTo(ByteString.of(content).sha256().hex());
+        assertThat(ContentDownloadLimiter.getDefault().getActiveDownloads()).isZero();
+        assertThat(ContentDownloadLimiter.getDefault().getInFlightBytes()).isZero();
+    }
+
+    @Test(timeout = ASYNC_TEST_TIMEOUT)
+    public void getMessageContentToChannelErrorTest() throws Exception {
+        mocking(403, new ErrorResponse("Not authorized to use the API.", null));
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // Expect
+        expectedException.expect(ExecutionException.class);
+        expectedException.expectCause(isA(ForbiddenException.class));
+
+        // Do
+        lineMessagingClient.getMessageContentTo("MESSAGE_ID", Channels.newChannel(outputStream)).get();
+    }
+
     private CustomTypeSafeMatcher<LineMessagingException> errorResponseIs(final ErrorResponse errorResponse) {
         return new CustomTypeSafeMatcher<LineMessagingException>("Error Response") {
             @Override
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+import com.linecorp.bot.model.Multicast;
+import com.linecorp.bot.model.PreparedMessages;
+import com.linecorp.bot.model.PushMessage;
+import com.linecorp.bot.model.message.TextMessage;
+import com.linecorp.bot.model.response.BotApiResponse;
+
+/**
+ * Default methods of {@link LineMessagingClient}, for implementations which only implement abstract ones.
+ */
+public class LineMessagingClientTest {
+    private final LineMessagingClient target = mock(AbstractClient.class, CALLS_REAL_METHODS);
+
+    @Test
+    public void broadcastTest() throws Exception {
+        when(target.multicast(any(Multicast.class)))
+                .thenReturn(CompletableFuture.completedFuture(new BotApiResponse("success", emptyList())));
+        final List<String> to = new ArrayList<>();
+        for (int i = 0; i < 200; ++i) {
+            to.add("USER_ID" + i);
+        }
+        to.add("USER_ID0");
+
+        // Do
+        final BroadcastResponse response = target.broadcast(to, singletonList(new TextMessage("text"))).get();
+
+        // Verify
+        verify(target, times(2)).multicast(any(Multicast.class));
+        assertThat(response.getSucceededRecipients()).isEqualTo(200);
+    }
+
+    @Test
+    public void preparedMessagesTest() throws Exception {
+        final PreparedMessages messages = PreparedMessages.of(new TextMessage("text"));
+
+        // Do
+        target.pushMessage("USER_ID", messages);
+
+        // Verify
+        verify(target).pushMessage(new PushMessage("USER_ID", new TextMessage("text")));
+    }
+
+    @Test
+    public void getMessageContentToTest() throws Exception {
+        when(target.getMessageContent("MESSAGE_ID"))
+                .thenReturn(CompletableFuture.completedFuture(
+                        MessageContentResponse.builder()
+                                              .length(3)
+                                              .stream(new ByteArrayInputStream("abc".getBytes(UTF_8)))
+                                              .mimeType("text/plain")
+                                              .allHeaders(emptyMap())
+                                              .build()));
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Do
+        final ContentDownloadResponse response =
+                target.getMessageContentTo("MESSAGE_ID", Channels.newChannel(output)).get();
+
+        // Verify
+        assertThat(output.toString("UTF-8")).isEqualTo("abc");
+        assertThat(response.getLength()).isEqualTo(3);
+        assertThat(response.getMimeType()).isEqualTo("text/plain");
+        assertThat(response.getSha256())
+                .isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+    }
+
+    /**
+     * Inherits default methods, so that the mock can call them.
+     */
+    abstract static class AbstractClient implements LineMessagingClient {
+    }
+}
@@ -18,6 +18,11 @@ package com.linecorp.bot.client;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -27,9 +32,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.linecorp.bot.model.profile.UserProfileResponse;
 
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
 
 public class LineMessagingServiceTest {
     static {
@@ -79,4 +89,150 @@ public class LineMessagingServiceTest {
                 .isEqualTo("/CanContainsRelative/v2/bot/profile/USER_TOKEN");
         assertThat(actualResponse).isEqualTo(profileResponseMock);
     }
+
+    @Test
+    public void connectionStatsTest() throws Exception {
+        final LineMessagingServiceBuilder builder =
+                LineMessagingServiceBuilder
+                        .create("SECRET")
+                        .apiEndPoint("http://" + mockWebServer.getHostName() + ':' + mockWebServer.getPort())
+                        .maxRequests(10)
+                        .maxRequestsPerHost(3);
+        final LineMessagingService service = builder.build();
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+        // Do
+        service.leaveGroup("GROUP_ID").execute();
+
+        // Verify
+        final ConnectionStats connectionStats = builder.connectionStats();
+        assertThat(connectionStats.getMaxRequests()).isEqualTo(10);
+        assertThat(connectionStats.getMaxRequestsPerHost()).isEqualTo(3);
+        assertThat(connectionStats.getRunningCalls()).isZero();
+        assertThat(connectionStats.getQueuedCalls()).isZero();
+        assertThat(connectionStats.getConnections()).isEqualTo(1);
+    }
+
+    @Test
+    public void contentLaneTest() throws Exception {
+        final LineMessagingServiceBuilder builder =
+                LineMessagingServiceBuilder
+                        .create("SECRET")
+                        .apiEndPoint("http://" + mockWebServer.getHostName() + ':' + mockWebServer.getPort())
+                        .contentMaxRequests(2);
+        final LineMessagingService service = builder.build();
+        mockWebServer.enqueue(new MockResponse().setBody("CONTENT"));
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+        // Do
+        service.getMessageContent("MESSAGE_ID").execute().body().close();
+        service.leaveGroup("GROUP_ID").execute();
+
+        // Verify
+        assertThat(mockWebServer.takeRequest().getHeader("Authorization")).isEqualTo("Bearer SECRET");
+        final ConnectionStats contentConnectionStats = builder.contentConnectionStats();
+        assertThat(contentConnectionStats.getMaxRequests()).isEqualTo(2);
+        assertThat(contentConnectionStats.getConnections()).isEqualTo(1);
+        assertThat(contentConnectionStats.getSaturation()).isZero();
+        assertThat(builder.connectionStats().getConnections()).isEqualTo(1);
+    }
+
+    @Test
+    public void contentDispatcherExecutorTest() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final ExecutorService contentExecutor = Executors.newSingleThreadExecutor();
+        try {
+            final LineMessagingService service =
+                    LineMessagingServiceBuilder
+                            .create("SECRET")
+                            .apiEndPoint("http://" + mockWebServer.getHostName() + ':' + mockWebServer.getPort())
+                            .dispatcherExecutor(executor)
+                            .contentDispatcherExecutor(contentExecutor)
+                            .build();
+            mockWebServer.enqueue(new MockResponse().setBody("CONTENT"));
+            mockWebServer.enqueue(new MockResponse().setBody("{}"));
+            final CompletableFuture<Thread> contentThread = new CompletableFuture<>();
+            final CompletableFuture<Thread> apiThread = new CompletableFuture<>();
+
+            // Do
+            service.getMessageContent("MESSAGE_ID").enqueue(threadRecorder(contentThread));
+            contentThread.get(5, TimeUnit.SECONDS);
+            service.leaveGroup("GROUP_ID").enqueue(threadRecorder(apiThread));
+
+            // Verify
+            assertThat(contentThread.get(5, TimeUnit.SECONDS))
+                    .isNotSameAs(apiThread.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+            contentExecutor.shutdown();
+        }
+    }
+
+    private static <T> Callback<T> threadRecorder(final CompletableFuture<Thread> thread) {
+        return new Callback<T>() {
+            @Override
+            public void onResponse(final Call<T> call, final Response<T> response) {
+                thread.complete(Thread.currentThread());
+            }
+
+            @Override
+            public void onFailure(final Call<T> call, final Throwable t) {
+                thread.completeExceptionally(t);
+            }
+        };
+    }
+
+    @Test
+    public void sharedContentLaneTest() throws Exception {
+        final LineMessagingServiceBuilder builder =
+                LineMessagingServiceBuilder
+                        .create("SECRET")
+                        .apiEndPoint("http://" + mockWebServer.getHostName() + ':' + mockWebServer.getPort())
+                        .separateContentLane(false);
+        final LineMessagingService service = builder.build();
+        mockWebServer.enqueue(new MockResponse().setBody("CONTENT"));
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+        // Do
+        service.getMessageContent("MESSAGE_ID").execute().body().close();
+        service.leaveGroup("GROUP_ID").execute();
+
+        // Verify
+        assertThat(builder.contentConnectionStats().getMaxRequests())
+                .isEqualTo(LineMessagingServiceBuilder.DEFAULT_MAX_REQUESTS);
+        assertThat(builder.connectionStats().getConnections()).isEqualTo(1);
+    }
+
+    @Test
+    public void customOkHttpClientBuilderTest() throws Exception {
+        final Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(7);
+        final LineMessagingServiceBuilder builder =
+                LineMessagingServiceBuilder
+                        .create("SECRET")
+                        .apiEndPoint("http://" + mockWebServer.getHostName() + ':' + mockWebServer.getPort())
+                        .okHttpClientBuilder(new OkHttpClient.Builder().dispatcher(dispatcher), false);
+
+        // Do
+        builder.build();
+
+        // Verify
+        assertThat(builder.connectionStats().getMaxRequests()).isEqualTo(7);
+    }
+
+    @Test
+    public void customOkHttpClientBuilderOverriddenTest() throws Exception {
+        final LineMessagingServiceBuilder builder =
+                LineMessagingServiceBuilder
+                        .create("SECRET")
+                        .apiEndPoint("http://" + mockWebServer.getHostName() + ':' + mockWebServer.getPort())
+                        .okHttpClientBuilder(new OkHttpClient.Builder(), false)
+                        .maxRequests(5);
+
+        // Do
+        builder.build();
+
+        // Verify
+        assertThat(builder.connectionStats().getMaxRequests()).isEqualTo(5);
+    }
 }
@@ -20,6 +20,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import java.nio.charset.StandardCharsets;
 
+import javax.crypto.Mac;
+
 import org.junit.Test;
 import org.springframework.util.Base64Utils;
 
@@ -55,4 +57,20 @@ public class LineSignatureValidatorTest {
                 .isEqualTo("3q8QXTAGaey18yL8FWTqdVlbMr6hcuNvM4tefa0o9nA=");
     }
 
+    @Test
+    public void validateSignatureByMac() throws Exception {
+        LineSignatureValidator lineSignatureValidator = new LineSignatureValidator(
+                channelSecret.getBytes(StandardCharsets.UTF_8));
+
+        Mac first = lineSignatureValidator.createMac();
+        first.update((byte) '{');
+        first.update((byte) '}');
+        Mac second = lineSignatureValidator.createMac();
+        second.update("{".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(lineSignatureValidator.validateSignature(first, "3q8QXTAGaey18yL8FWTqdVlbMr6hcuNvM4tefa0o9nA="))
+                .isTrue();
+        assertThat(lineSignatureValidator.validateSignature(second, "3q8QXTAGaey18yL8FWTqdVlbMr6hcuNvM4tefa0o9nA="))
+                .isFalse();
+    }
 }
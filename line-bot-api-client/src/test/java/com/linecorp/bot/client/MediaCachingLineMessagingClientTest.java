@@ -0,0 +1,237 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import com.linecorp.bot.client.exception.GeneralLineMessagingException;
+
+import okio.ByteString;
+
+public class MediaCachingLineMessagingClientTest {
+    @Rule
+    public final MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private LineMessagingClient delegate;
+
+    private final Map<String, String> contents = new HashMap<>();
+    private final List<Runnable> inFlight = new ArrayList<>();
+
+    private Path directory;
+    private MediaCachingLineMessagingClient target;
+
+    @Before
+    public void setUp() throws Exception {
+        when(delegate.getMessageContentTo(anyString(), any(Path.class))).thenAnswer(invocation -> {
+            final String messageId = invocation.getArgumentAt(0, String.class);
+            final Path path = invocation.getArgumentAt(1, Path.class);
+            final CompletableFuture<ContentDownloadResponse> future = new CompletableFuture<>();
+            inFlight.add(() -> {
+                final ByteString content = ByteString.encodeUtf8(contents.get(messageId));
+                try {
+                    Files.write(path, content.toByteArray());
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+                future.complete(new ContentDownloadResponse(content.size(), "image/jpeg",
+                                                            content.sha256().hex(), Collections.emptyMap()));
+            });
+            return future;
+        });
+        directory = temporaryFolder.newFolder().toPath();
+        target = MediaCachingLineMessagingClient.builder(delegate, directory)
+                                                .maximumBytes(10)
+                                                .build();
+    }
+
+    @Test
+    public void singleFlightTest() throws Exception {
+        contents.put("1", "IMAGE");
+
+        // Do
+        final CompletableFuture<MessageContentResponse> first = target.getMessageContent("1");
+        final CompletableFuture<MessageContentResponse> second = target.getMessageContent("1");
+        inFlight.get(0).run();
+
+        // Verify
+        verify(delegate, times(1)).getMessageContentTo(anyString(), any(Path.class));
+        assertThat(read(first.join())).isEqualTo("IMAGE");
+        assertThat(read(second.join())).isEqualTo("IMAGE");
+        assertThat(read(target.getMessageContent("1").join())).isEqualTo("IMAGE");
+        assertThat(first.join().getMimeType()).isEqualTo("image/jpeg");
+        assertThat(target.getHitCount()).isEqualTo(2);
+        assertThat(target.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void contentAddressingTest() throws Exception {
+        contents.put("1", "IMAGE");
+        contents.put("2", "IMAGE");
+
+        // Do
+        final CompletableFuture<MessageContentResponse> first = target.getMessageContent("1");
+        final CompletableFuture<MessageContentResponse> second = target.getMessageContent("2");
+        inFlight.forEach(Runnable::run);
+
+        // Verify
+        assertThat(read(first.join())).isEqualTo("IMAGE");
+        assertThat(read(second.join())).isEqualTo("IMAGE");
+        assertThat(target.size()).isEqualTo(2);
+        assertThat(target.getSizeInBytes()).isEqualTo(5);
+        assertThat(directory.resolve("blobs").toFile().list()).hasSize(1);
+    }
+
+    @Test
+    public void evictionTest() throws Exception {
+        contents.put("1", "FIRST");
+        contents.put("2", "SECOND");
+
+        // Do
+        target.getMessageContent("1");
+        inFlight.get(0).run();
+        final CompletableFuture<MessageContentResponse> second = target.getMessageContent("2");
+        inFlight.get(1).run();
+
+        // Verify
+        assertThat(read(second.join())).isEqualTo("SECOND");
+        assertThat(target.size()).isEqualTo(1);
+        assertThat(target.getSizeInBytes()).isEqualTo(6);
+        assertThat(directory.resolve("blobs").toFile().list()).hasSize(1);
+        assertThat(directory.resolve("index").toFile().list()).containsExactly("2");
+    }
+
+    @Test
+    public void getMessageContentToChannelTest() throws Exception {
+        contents.put("1", "IMAGE");
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // Do
+        final CompletableFuture<ContentDownloadResponse> future =
+                target.getMessageContentTo("1", Channels.newChannel(outputStream));
+        inFlight.get(0).run();
+
+        // Verify
+        assertThat(outputStream.toString("UTF-8")).isEqualTo("IMAGE");
+        assertThat(future.join().getSha256()).isEqualTo(ByteString.encodeUtf8("IMAGE").sha256().hex());
+    }
+
+    @Test
+    public void streamLargeContentTest() throws Exception {
+        contents.put("1", "IMAGE");
+        target = MediaCachingLineMessagingClient.builder(delegate, directory)
+                                                .maximumBytes(10)
+                                                .maxMappedBytes(3)
+                                                .build();
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        target.getMessageContent("1");
+        inFlight.get(0).run();
+
+        // Do
+        final MessageContentResponse response = target.getMessageContent("1").join();
+        target.getMessageContentTo("1", Channels.newChannel(outputStream)).join();
+
+        // Verify
+        assertThat(response.getLength()).isEqualTo(5);
+        assertThat(read(response)).isEqualTo("IMAGE");
+        assertThat(outputStream.toString("UTF-8")).isEqualTo("IMAGE");
+    }
+
+    @Test
+    public void restartTest() throws Exception {
+        contents.put("1", "IMAGE");
+        target.getMessageContent("1");
+        inFlight.get(0).run();
+
+        // Do
+        final MediaCachingLineMessagingClient restarted =
+                MediaCachingLineMessagingClient.builder(delegate, directory).build();
+
+        // Verify
+        assertThat(read(restarted.getMessageContent("1").join())).isEqualTo("IMAGE");
+        assertThat(restarted.getSizeInBytes()).isEqualTo(5);
+        verify(delegate, times(1)).getMessageContentTo(anyString(), any(Path.class));
+    }
+
+    @Test
+    public void failureIsNotCachedTest() throws Exception {
+        final CompletableFuture<ContentDownloadResponse> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new GeneralLineMessagingException("failed", null, null));
+        when(delegate.getMessageContentTo(anyString(), any(Path.class))).thenReturn(failed);
+
+        // Do
+        final CompletableFuture<MessageContentResponse> future = target.getMessageContent("1");
+
+        // Verify
+        assertThatThrownBy(future::join).hasCauseInstanceOf(GeneralLineMessagingException.class);
+        target.getMessageContent("1");
+        verify(delegate, times(2)).getMessageContentTo(anyString(), any(Path.class));
+        assertThat(directory.resolve("tmp").toFile().list()).isEmpty();
+    }
+
+    @Test
+    public void unsafeMessageIdBypassesCacheTest() {
+        // Do
+        target.getMessageContent("../1");
+
+        // Verify
+        verify(delegate).getMessageContent("../1");
+    }
+
+    private static String read(final MessageContentResponse response) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (InputStream stream = response.getStream()) {
+            final byte[] buffer = new byte[3];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+        }
+        return new String(outputStream.toByteArray(), UTF_8);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import com.linecorp.bot.model.profile.MembersIdsResponse;
+
+public class MembersIdsPagerTest {
+    private final List<String> requestedTokens = new ArrayList<>();
+    private final List<CompletableFuture<MembersIdsResponse>> inFlight = new ArrayList<>();
+
+    private final MembersIdsPager target = new MembersIdsPager(token -> {
+        requestedTokens.add(token);
+        final CompletableFuture<MembersIdsResponse> future = new CompletableFuture<>();
+        inFlight.add(future);
+        return future;
+    }, 1);
+
+    @Test
+    public void prefetchTest() {
+        final List<List<String>> consumed = new ArrayList<>();
+        final List<Integer> requestsOnConsume = new ArrayList<>();
+
+        // Do
+        final CompletableFuture<Void> completion = target.forEachPage(page -> {
+            consumed.add(page);
+            requestsOnConsume.add(inFlight.size());
+        });
+        inFlight.get(0).complete(new MembersIdsResponse(asList("A", "B"), "TOKEN1"));
+        inFlight.get(1).complete(new MembersIdsResponse(singletonList("C"), null));
+
+        // Verify
+        assertThat(completion).isCompleted();
+        assertThat(consumed).containsExactly(asList("A", "B"), singletonList("C"));
+        assertThat(requestedTokens).containsExactly(null, "TOKEN1");
+        // Next page was requested before the consumer got the first page.
+        assertThat(requestsOnConsume).containsExactly(2, 2);
+    }
+
+    @Test
+    public void bufferBoundTest() {
+        final Iterator<String> iterator = target.iterator();
+
+        // Do: nobody consumes the first page.
+        inFlight.get(0).complete(new MembersIdsResponse(singletonList("A"), "TOKEN1"));
+
+        // Verify: only one page is buffered.
+        assertThat(inFlight).hasSize(1);
+
+        // Do
+        assertThat(iterator.next()).isEqualTo("A");
+
+        // Verify
+        assertThat(inFlight).hasSize(2);
+    }
+
+    @Test
+    public void streamTest() {
+        final MembersIdsPager pager = new MembersIdsPager(token -> CompletableFuture.completedFuture(
+                token == null ? new MembersIdsResponse(asList("A", "B"), "TOKEN1")
+                              : new MembersIdsResponse(singletonList("C"), null)), 2);
+
+        // Do
+        final List<String> result;
+        try (Stream<String> stream = pager.stream()) {
+            result = stream.collect(toList());
+        }
+
+        // Verify
+        assertThat(result).containsExactly("A", "B", "C");
+    }
+
+    @Test
+    public void closeTest() {
+        final CompletableFuture<Void> completion = target.forEachPage(page -> target.close());
+
+        // Do
+        inFlight.get(0).complete(new MembersIdsResponse(singletonList("A"), "TOKEN1"));
+
+        // Verify: in-flight request of next page is ignored.
+        assertThat(completion).isCompleted();
+        inFlight.get(1).complete(new MembersIdsResponse(singletonList("B"), "TOKEN2"));
+        assertThat(inFlight).hasSize(2);
+    }
+
+    @Test
+    public void failureTest() {
+        final Iterator<String> iterator = target.iterator();
+
+        // Do
+        inFlight.get(0).completeExceptionally(new RuntimeException("failed"));
+
+        // Verify
+        assertThatThrownBy(iterator::hasNext)
+                .isInstanceOf(CompletionException.class)
+                .hasRootCauseExactlyInstanceOf(RuntimeException.class);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void consumedOnlyOnceTest() {
+        target.iterator();
+        target.iterator();
+    }
+}
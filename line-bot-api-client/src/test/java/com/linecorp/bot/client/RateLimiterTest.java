@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.linecorp.bot.client.RateLimiter.OverflowPolicy;
+import com.linecorp.bot.client.RateLimiter.Snapshot;
+import com.linecorp.bot.client.exception.TooManyRequestsException;
+import com.linecorp.bot.model.PushMessage;
+import com.linecorp.bot.model.message.TextMessage;
+import com.linecorp.bot.model.response.BotApiResponse;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+public class RateLimiterTest extends AbstractWiremockTest {
+    private long now = 0;
+
+    private final RateLimiter rateLimiter =
+            RateLimiter.builder()
+                       .limit(EndpointFamily.PUSH, 1, 1)
+                       .overflowPolicy(OverflowPolicy.FAIL_FAST)
+                       .nanoClock(() -> now)
+                       .build();
+
+    @Test(timeout = ASYNC_TEST_TIMEOUT)
+    public void failFastTest() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+        // Do
+        final BotApiResponse first = push().get();
+        final Throwable second = push().handle((ignored, e) -> e).get();
+
+        // Verify
+        assertThat(first).isNotNull();
+        assertThat(second)
+                .isInstanceOf(TooManyRequestsException.class)
+                .hasMessageContaining("client side");
+        assertThat(((TooManyRequestsException) second).isRejectedByClient()).isTrue();
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+
+        final Snapshot snapshot = rateLimiter.snapshot().get(EndpointFamily.PUSH);
+        assertThat(snapshot.getRejectedCount()).isEqualTo(1);
+        assertThat(snapshot.getThrottledCount()).isZero();
+    }
+
+    @Test(timeout = ASYNC_TEST_TIMEOUT)
+    public void unlimitedFamilyTest() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+        // Do
+        lineMessagingClient.leaveGroup("GROUP_ID").get();
+        lineMessagingClient.leaveGroup("GROUP_ID").get();
+
+        // Verify
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+        assertThat(rateLimiter.snapshot()).containsOnlyKeys(EndpointFamily.PUSH);
+    }
+
+    @Test(timeout = ASYNC_TEST_TIMEOUT)
+    public void adaptToServerThrottlingTest() throws Exception {
+        mockWebServer.enqueue(new MockResponse()
+                                      .setResponseCode(429)
+                                      .setHeader("Retry-After", "5")
+                                      .setBody("{\"message\":\"Exceeded the rate limit for API calls\"}"));
+
+        // Do
+        final Throwable throttled = push().handle((ignored, e) -> e).get();
+        now += TimeUnit.SECONDS.toNanos(4);
+        final Throwable blocked = push().handle((ignored, e) -> e).get();
+
+        // Verify
+        assertThat(throttled).hasMessage("Exceeded the rate limit for API calls");
+        assertThat(((TooManyRequestsException) throttled).isRejectedByClient()).isFalse();
+        assertThat(blocked).hasMessageContaining("client side");
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+
+        final Snapshot snapshot = rateLimiter.snapshot().get(EndpointFamily.PUSH);
+        assertThat(snapshot.getThrottledCount()).isEqualTo(1);
+        assertThat(snapshot.getPermitsPerSecond()).isEqualTo(0.5);
+    }
+
+    @Test(timeout = ASYNC_TEST_TIMEOUT)
+    public void queueTest() throws Exception {
+        final RateLimiter queueingRateLimiter = RateLimiter.builder()
+                                                           .limit(EndpointFamily.PUSH, 20, 1)
+                                                           .build();
+        final LineMessagingClient client = new LineMessagingClientImpl(
+                LineMessagingServiceBuilder.create("token")
+                                           .apiEndPoint("http://localhost:" + mockWebServer.getPort())
+                                           .rateLimiter(queueingRateLimiter)
+                                           .build());
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+        // Do
+        client.pushMessage(new PushMessage("TO", new TextMessage("1"))).get();
+        client.pushMessage(new PushMessage("TO", new TextMessage("2"))).get();
+
+        // Verify: 2nd request waited for a permit instead of rejected.
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+        assertThat(queueingRateLimiter.snapshot().get(EndpointFamily.PUSH).getRejectedCount()).isZero();
+    }
+
+    @Test
+    public void parseRetryAfterTest() {
+        assertThat(RateLimiter.parseRetryAfter(null)).isZero();
+        assertThat(RateLimiter.parseRetryAfter("3")).isEqualTo(TimeUnit.SECONDS.toNanos(3));
+        assertThat(RateLimiter.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT")).isZero();
+        assertThat(RateLimiter.parseRetryAfter("INVALID")).isZero();
+    }
+
+    private CompletableFuture<BotApiResponse> push() {
+        return lineMessagingClient.pushMessage(new PushMessage("TO", singletonList(new TextMessage("text"))));
+    }
+
+    @Override
+    protected LineMessagingClientImpl createLineMessagingClient(final MockWebServer mockWebServer) {
+        final LineMessagingService lineMessagingService =
+                LineMessagingServiceBuilder.create("token")
+                                           .apiEndPoint("http://localhost:" + mockWebServer.getPort())
+                                           .rateLimiter(rateLimiter)
+                                           .build();
+        return new LineMessagingClientImpl(lineMessagingService);
+    }
+}
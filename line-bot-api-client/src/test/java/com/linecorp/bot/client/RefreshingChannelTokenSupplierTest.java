@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.bot.client;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.linecorp.bot.model.PushMessage;
+import com.linecorp.bot.model.message.TextMessage;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+public class RefreshingChannelTokenSupplierTest {
+    private MockWebServer mockWebServer;
+    private RefreshingChannelTokenSupplier target;
+
+    @Before
+    public void setUp() {
+        mockWebServer = new MockWebServer();
+        final OAuthChannelTokenIssuer issuer = new OAuthChannelTokenIssuer(
+                "CHANNEL_ID", "CHANNEL_SECRET", "http://localhost:" + mockWebServer.getPort() + '/');
+        target = RefreshingChannelTokenSupplier.builder(issuer).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        target.close();
+        mockWebServer.shutdown();
+    }
+
+    @Test(timeout = 5_000)
+    public void issueOnceTest() throws Exception {
+        enqueueToken("TOKEN1");
+
+        // Do
+        final String first = target.get();
+        final String second = target.get();
+
+        // Verify
+        assertThat(first).isEqualTo("TOKEN1");
+        assertThat(second).isEqualTo("TOKEN1");
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+
+        final RecordedRequest request = mockWebServer.takeRequest();
+        assertThat(request.getPath()).isEqualTo("/v2/oauth/accessToken");
+        assertThat(request.getBody().readUtf8())
+                .isEqualTo("grant_type=client_credentials&client_id=CHANNEL_ID&client_secret=CHANNEL_SECRET");
+    }
+
+    @Test(timeout = 5_000)
+    public void firstIssueFailureTest() {
+        mockWebServer.enqueue(new MockResponse().setResponseCode(400).setBody("{\"error\":\"invalid_client\"}"));
+
+        // Do & Verify
+        assertThatThrownBy(target::get)
+                .isInstanceOf(UncheckedIOException.class)
+                .hasMessageContaining("invalid_client");
+    }
+
+    @Test(timeout = 5_000)
+    public void onUnauthorizedRefreshesOnceTest() throws Exception {
+        enqueueToken("TOKEN1");
+        enqueueToken("TOKEN2");
+        target.get();
+
+        // Do: second caller with the same rejected token doesn't issue again.
+        final String refreshed = target.onUnauthorized("TOKEN1");
+        final String again = target.onUnauthorized("TOKEN1");
+
+        // Verify
+        assertThat(refreshed).isEqualTo("TOKEN2");
+        assertThat(again).isEqualTo("TOKEN2");
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test(timeout = 5_000)
+    public void retryWithRefreshedTokenTest() throws Exception {
+        enqueueToken("TOKEN1");
+        mockWebServer.enqueue(new MockResponse().setResponseCode(401).setBody("{}"));
+        enqueueToken("TOKEN2");
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+        final LineMessagingClient client = new LineMessagingClientImpl(
+                LineMessagingServiceBuilder.create(target)
+                                           .apiEndPoint("http://localhost:" + mockWebServer.getPort())
+                                           .build());
+
+        // Do
+        client.pushMessage(new PushMessage("USER_ID", singletonList(new TextMessage("text")))).get();
+
+        // Verify
+        mockWebServer.takeRequest();
+        assertThat(mockWebServer.takeRequest().getHeader("Authorization")).isEqualTo("Bearer TOKEN1");
+        mockWebServer.takeRequest();
+        assertThat(mockWebServer.takeRequest().getHeader("Authorization")).isEqualTo("Bearer TOKEN2");
+    }
+
+    @Test(timeout = 5_000)
+    public void onUnauthorizedReplacesScheduledRefreshTest() throws Exception {
+        final AtomicInteger issued = new AtomicInteger();
+        final RefreshingChannelTokenSupplier supplier =
+                RefreshingChannelTokenSupplier.builder(
+                        () -> new IssuedChannelToken("TOKEN" + issued.incrementAndGet(), 1))
+                                              .refreshMargin(0.5)
+                                              .jitter(0)
+                                              .build();
+        supplier.get();
+
+        // Do: each refresh schedules the next one after 500ms.
+        supplier.onUnauthorized("TOKEN1");
+        supplier.onUnauthorized("TOKEN2");
+        Thread.sleep(800);
+
+        // Verify: only the latest schedule fires.
+        assertThat(issued.get()).isEqualTo(4);
+        supplier.close();
+    }
+
+    @Test
+    public void refreshDelayTest() {
+        final RefreshingChannelTokenSupplier supplier =
+                RefreshingChannelTokenSupplier.builder(() -> null)
+                                              .refreshMargin(0.2)
+                                              .jitter(0.1)
+                                              .build();
+
+        for (int i = 0; i < 100; ++i) {
+            // Lifetime 1000 seconds: refresh between 700 and 800 seconds.
+            assertThat(supplier.refreshDelay(1000)).isBetween(700_000L, 800_000L);
+        }
+        supplier.close();
+    }
+
+    private void enqueueToken(final String token) {
+        mockWebServer.enqueue(new MockResponse().setBody(
+                "{\"access_token\":\"" + token + "\",\"expires_in\":2592000,\"token_type\":\"Bearer\"}"));
+    }
+}
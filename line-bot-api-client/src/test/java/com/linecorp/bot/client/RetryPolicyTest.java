@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+import com.linecorp.bot.client.RateLimiter.OverflowPolicy;
+import com.linecorp.bot.client.exception.BadRequestException;
+import com.linecorp.bot.client.exception.LineServerException;
+import com.linecorp.bot.client.exception.TooManyRequestsException;
+import com.linecorp.bot.model.PushMessage;
+import com.linecorp.bot.model.message.TextMessage;
+import com.linecorp.bot.model.response.BotApiResponse;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+public class RetryPolicyTest extends AbstractWiremockTest {
+    private final RetryPolicy retryPolicy =
+            RetryPolicy.builder()
+                       .initialBackoff(1)
+                       .maxBudget(1)
+                       .build();
+
+    @Test(timeout = ASYNC_TEST_TIMEOUT)
+    public void retrySameKeyTest() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503).setBody("{}"));
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+        // Do
+        final BotApiResponse response = push().get();
+
+        // Verify
+        assertThat(response).isNotNull();
+        final RecordedRequest first = mockWebServer.takeRequest();
+        final RecordedRequest second = mockWebServer.takeRequest();
+        assertThat(first.getHeader(LineMessagingService.RETRY_KEY_HEADER))
+                .isNotEmpty()
+                .isEqualTo(second.getHeader(LineMessagingService.RETRY_KEY_HEADER));
+        assertThat(retryPolicy.getRetryCount()).isEqualTo(1);
+    }
+
+    @Test(timeout = ASYNC_TEST_TIMEOUT)
+    public void differentKeyPerRequestTest() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+        // Do
+        push().get();
+        push().get();
+
+        // Verify
+        assertThat(mockWebServer.takeRequest().getHeader(LineMessagingService.RETRY_KEY_HEADER))
+                .isNotEqualTo(mockWebServer.takeRequest().getHeader(LineMessagingService.RETRY_KEY_HEADER));
+    }
+
+    @Test(timeout = ASYNC_TEST_TIMEOUT)
+    public void fatalErrorNotRetriedTest() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setResponseCode(400).setBody("{}"));
+
+        // Do
+        final Throwable throwable = push().handle((ignored, e) -> e).get();
+
+        // Verify
+        assertThat(throwable).isInstanceOf(BadRequestException.class);
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+        assertThat(retryPolicy.getRetryCount()).isZero();
+    }
+
+    @Test(timeout = ASYNC_TEST_TIMEOUT)
+    public void budgetExhaustedTest() throws Exception {
+        for (int i = 0; i < 4; ++i) {
+            mockWebServer.enqueue(new MockResponse().setResponseCode(500).setBody("{}"));
+        }
+
+        // Do: budget allows only one retry. Both requests give up on the next retryable failure.
+        final Throwable first = push().handle((ignored, e) -> e).get();
+        final Throwable second = push().handle((ignored, e) -> e).get();
+
+        // Verify
+        assertThat(first).isInstanceOf(LineServerException.class);
+        assertThat(second).isInstanceOf(LineServerException.class);
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(3);
+        assertThat(retryPolicy.getRetryCount()).isEqualTo(1);
+        assertThat(retryPolicy.getBudgetExhaustedCount()).isEqualTo(2);
+    }
+
+    @Test(timeout = ASYNC_TEST_TIMEOUT)
+    public void clientSideRejectionNotRetriedTest() throws Exception {
+        final RateLimiter rateLimiter = RateLimiter.builder()
+                                                   .limit(EndpointFamily.PUSH, 1, 1)
+                                                   .overflowPolicy(OverflowPolicy.FAIL_FAST)
+                                                   .nanoClock(() -> 0)
+                                                   .build();
+        final LineMessagingClient client = new LineMessagingClientImpl(
+                LineMessagingServiceBuilder.create("token")
+                                           .apiEndPoint("http://localhost:" + mockWebServer.getPort())
+                                           .rateLimiter(rateLimiter)
+                                           .build(),
+                retryPolicy);
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+        // Do
+        client.pushMessage(new PushMessage("USER_ID", new TextMessage("1"))).get();
+        final Throwable throwable =
+                client.pushMessage(new PushMessage("USER_ID", new TextMessage("2"))).handle((ignored, e) -> e).get();
+
+        // Verify
+        assertThat(throwable).isInstanceOf(TooManyRequestsException.class);
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+        assertThat(retryPolicy.getRetryCount()).isZero();
+        assertThat(rateLimiter.snapshot().get(EndpointFamily.PUSH).getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void backoffTest() {
+        final RetryPolicy target = RetryPolicy.builder()
+                                              .initialBackoff(100)
+                                              .maxBackoff(300)
+                                              .build();
+
+        for (int i = 0; i < 100; ++i) {
+            assertThat(target.backoff(1)).isBetween(0L, 100L);
+            assertThat(target.backoff(2)).isBetween(0L, 200L);
+            assertThat(target.backoff(10)).isBetween(0L, 300L);
+        }
+    }
+
+    private CompletableFuture<BotApiResponse> push() {
+        return lineMessagingClient.pushMessage(new PushMessage("USER_ID", singletonList(new TextMessage("text"))));
+    }
+
+    @Override
+    protected LineMessagingClientImpl createLineMessagingClient(final MockWebServer mockWebServer) {
+        final LineMessagingService lineMessagingService =
+                LineMessagingServiceBuilder.create("token")
+                                           .apiEndPoint("http://localhost:" + mockWebServer.getPort())
+                                           .build();
+        return new LineMessagingClientImpl(lineMessagingService, retryPolicy);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.linecorp.bot.model.Multicast;
+import com.linecorp.bot.model.PushMessage;
+import com.linecorp.bot.model.message.Message;
+import com.linecorp.bot.model.message.TextMessage;
+
+import okhttp3.RequestBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.Okio;
+import retrofit2.Converter;
+
+public class StreamingJsonConverterFactoryTest extends AbstractWiremockTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void writeToTest() throws Exception {
+        final Multicast multicast = new Multicast(new HashSet<>(Arrays.asList("U1", "U2")),
+                                                  new TextMessage("こんにちは"));
+        final RequestBody body = convert(multicast);
+        final Buffer buffer = new Buffer();
+        final boolean[] closed = { false };
+        final BufferedSink sink = Okio.buffer(new ForwardingSink(buffer) {
+            @Override
+            public void close() throws IOException {
+                closed[0] = true;
+                super.close();
+            }
+        });
+
+        // Do
+        body.writeTo(sink);
+        body.writeTo(sink);
+        sink.flush();
+
+        // Verify
+        final String json = objectMapper.writeValueAsString(multicast);
+        assertThat(buffer.readUtf8()).isEqualTo(json + json);
+        assertThat(closed[0]).isFalse();
+        assertThat(body.contentLength()).isEqualTo(-1);
+        assertThat(body.contentType().toString()).isEqualTo("application/json; charset=UTF-8");
+    }
+
+    @Test
+    public void snapshotTest() throws Exception {
+        final List<Message> messages = new ArrayList<>();
+        messages.add(new TextMessage("text"));
+        final RequestBody body = convert(new PushMessage("USER_ID", messages));
+        final Buffer buffer = new Buffer();
+
+        // Do
+        messages.clear();
+        body.writeTo(buffer);
+
+        // Verify
+        assertThat(buffer.readUtf8())
+                .isEqualTo("{\"to\":\"USER_ID\",\"messages\":[{\"type\":\"text\",\"text\":\"text\"}]}");
+    }
+
+    @Test(timeout = ASYNC_TEST_TIMEOUT)
+    public void chunkedRequestTest() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+
+        // Do
+        lineMessagingClient.pushMessage(new PushMessage("USER_ID", new TextMessage("text"))).get();
+
+        // Verify
+        final RecordedRequest request = mockWebServer.takeRequest();
+        assertThat(request.getHeader("Transfer-Encoding")).isEqualTo("chunked");
+        assertThat(request.getBody().readUtf8())
+                .isEqualTo("{\"to\":\"USER_ID\",\"messages\":[{\"type\":\"text\",\"text\":\"text\"}]}");
+    }
+
+    @SuppressWarnings("unchecked")
+    private RequestBody convert(final Object value) throws IOException {
+        final Converter<Object, RequestBody> converter =
+                (Converter<Object, RequestBody>) StreamingJsonConverterFactory
+                        .create(objectMapper)
+                        .requestBodyConverter(value.getClass(), new Annotation[0],
+                                              new Annotation[0], null);
+        return converter.convert(value);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TokenBucketTest {
+    private long now = 0;
+
+    private final TokenBucket target = new TokenBucket(10, 2, () -> now);
+
+    @Test
+    public void burstAndRefillTest() {
+        // Do & Verify: burst is available at first.
+        assertThat(target.tryAcquire()).isZero();
+        assertThat(target.tryAcquire()).isZero();
+
+        // Verify: next permit is available after 100ms.
+        assertThat(target.tryAcquire()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+
+        // Do
+        now += TimeUnit.MILLISECONDS.toNanos(100);
+
+        // Verify
+        assertThat(target.tryAcquire()).isZero();
+    }
+
+    @Test
+    public void throttledTest() {
+        // Do
+        target.onThrottled(TimeUnit.SECONDS.toNanos(3));
+
+        // Verify
+        assertThat(target.getRate()).isEqualTo(5);
+        assertThat(target.tryAcquire()).isEqualTo(TimeUnit.SECONDS.toNanos(3));
+
+        // Do
+        now += TimeUnit.SECONDS.toNanos(3);
+
+        // Verify: permits refilled by decreased rate while blocked.
+        assertThat(target.tryAcquire()).isZero();
+    }
+
+    @Test
+    public void rateRecoversOnSuccessTest() {
+        // Do
+        target.onThrottled(0);
+        target.onThrottled(0);
+
+        // Verify
+        assertThat(target.getRate()).isEqualTo(2.5);
+
+        // Do
+        for (int i = 0; i < 100; ++i) {
+            target.onSuccess();
+        }
+
+        // Verify
+        assertThat(target.getRate()).isEqualTo(target.getConfiguredRate());
+    }
+
+    @Test
+    public void rateHasLowerBoundTest() {
+        // Do
+        for (int i = 0; i < 100; ++i) {
+            target.onThrottled(0);
+        }
+
+        // Verify
+        assertThat(target.getRate()).isEqualTo(0.5);
+    }
+}
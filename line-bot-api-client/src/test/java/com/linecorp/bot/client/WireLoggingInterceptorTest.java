@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.slf4j.Logger;
+
+import com.linecorp.bot.client.WireLoggingInterceptor.Level;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+public class WireLoggingInterceptorTest {
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    @Rule
+    public final MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private Logger logger;
+
+    private MockWebServer mockWebServer;
+
+    @Before
+    public void setUp() {
+        mockWebServer = new MockWebServer();
+        when(logger.isInfoEnabled()).thenReturn(true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    public void bodyTruncatedAndHeaderRedactedTest() throws Exception {
+        mockWebServer.enqueue(new MockResponse()
+                                      .setHeader("Content-Type", "application/json")
+                                      .setBody("{\"message\":\"0123456789\"}"));
+        final WireLoggingInterceptor target = WireLoggingInterceptor.builder()
+                                                                    .level(Level.BODY)
+                                                                    .maxBodyBytes(10)
+                                                                    .logger(logger)
+                                                                    .build();
+
+        // Do
+        final Response response = execute(target, new Request.Builder()
+                .url(mockWebServer.url("/v2/bot/message/push"))
+                .header("Authorization", "Bearer SECRET")
+                .post(RequestBody.create(JSON, "{\"to\":\"USER_ID\"}")));
+
+        // Verify
+        final List<String> messages = loggedMessages(2);
+        assertThat(messages.get(0))
+                .contains("--> POST")
+                .contains("Authorization: <redacted>")
+                .doesNotContain("SECRET")
+                .contains("{\"to\":\"USE... (truncated, 16-byte body)");
+        assertThat(messages.get(1))
+                .contains("<-- 200 OK")
+                .contains("{\"message\"... (truncated, 24-byte body)");
+        // Body is still readable by the caller.
+        assertThat(response.body().string()).isEqualTo("{\"message\":\"0123456789\"}");
+    }
+
+    @Test
+    public void contentBodyNotReadTest() throws Exception {
+        mockWebServer.enqueue(new MockResponse()
+                                      .setHeader("Content-Type", "text/plain")
+                                      .setBody("TEXT"));
+        final WireLoggingInterceptor target = WireLoggingInterceptor.builder()
+                                                                    .level(Level.BODY)
+                                                                    .logger(logger)
+                                                                    .build();
+
+        // Do
+        execute(target, new Request.Builder().url(mockWebServer.url("/v2/bot/message/MESSAGE_ID/content")));
+
+        // Verify
+        assertThat(loggedMessages(2).get(1))
+                .contains("(binary 4-byte body omitted)")
+                .doesNotContain("TEXT");
+    }
+
+    @Test
+    public void levelPerEndpointTest() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+        final WireLoggingInterceptor target = WireLoggingInterceptor.builder()
+                                                                    .level(EndpointFamily.PROFILE, Level.NONE)
+                                                                    .logger(logger)
+                                                                    .build();
+
+        // Do
+        execute(target, new Request.Builder().url(mockWebServer.url("/v2/bot/profile/USER_ID")));
+
+        // Verify
+        verify(logger, never()).info(anyString(), any(Object.class));
+    }
+
+    @Test
+    public void disabledTest() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setBody("{}"));
+        final WireLoggingInterceptor target = WireLoggingInterceptor.builder()
+                                                                    .level(Level.NONE)
+                                                                    .logger(logger)
+                                                                    .build();
+
+        // Do
+        execute(target, new Request.Builder().url(mockWebServer.url("/v2/bot/profile/USER_ID")));
+
+        // Verify
+        verify(logger, never()).isInfoEnabled();
+        verify(logger, never()).info(anyString(), any(Object.class));
+    }
+
+    @Test
+    public void samplingTest() throws Exception {
+        final WireLoggingInterceptor target = WireLoggingInterceptor.builder()
+                                                                    .sampleRate(3)
+                                                                    .logger(logger)
+                                                                    .build();
+
+        // Do
+        for (int i = 0; i < 6; ++i) {
+            mockWebServer.enqueue(new MockResponse().setBody("{}"));
+            execute(target, new Request.Builder().url(mockWebServer.url("/v2/bot/profile/USER_ID")));
+        }
+
+        // Verify: request and response lines of 2 exchanges.
+        verify(logger, times(4)).info(anyString(), any(Object.class));
+    }
+
+    private static Response execute(final WireLoggingInterceptor target, final Request.Builder request)
+            throws Exception {
+        final OkHttpClient client = new OkHttpClient.Builder().addInterceptor(target).build();
+        return client.newCall(request.build()).execute();
+    }
+
+    private List<String> loggedMessages(final int count) {
+        final ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(logger, times(count)).info(anyString(), captor.capture());
+        final List<String> messages = new ArrayList<>();
+        captor.getAllValues().forEach(message -> messages.add(message.toString()));
+        return messages;
+    }
+}
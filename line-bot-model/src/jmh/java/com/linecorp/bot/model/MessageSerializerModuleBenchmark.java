@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model;
+
+import static java.util.Collections.singletonList;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import com.linecorp.bot.model.action.MessageAction;
+import com.linecorp.bot.model.action.PostbackAction;
+import com.linecorp.bot.model.action.URIAction;
+import com.linecorp.bot.model.message.ImagemapMessage;
+import com.linecorp.bot.model.message.Message;
+import com.linecorp.bot.model.message.StickerMessage;
+import com.linecorp.bot.model.message.TemplateMessage;
+import com.linecorp.bot.model.message.TextMessage;
+import com.linecorp.bot.model.message.imagemap.ImagemapArea;
+import com.linecorp.bot.model.message.imagemap.ImagemapBaseSize;
+import com.linecorp.bot.model.message.imagemap.MessageImagemapAction;
+import com.linecorp.bot.model.message.imagemap.URIImagemapAction;
+import com.linecorp.bot.model.message.template.CarouselColumn;
+import com.linecorp.bot.model.message.template.CarouselTemplate;
+
+/**
+ * Serialization of a reply with {@link MessageSerializerModule} compared with Jackson's bean serializers.
+ */
+@State(Scope.Benchmark)
+public class MessageSerializerModuleBenchmark {
+    private static final TypeReference<List<Message>> MESSAGE_LIST = new TypeReference<List<Message>>() {};
+
+    private final List<Message> messages = Arrays.asList(
+            new TextMessage("Hello, world"),
+            new StickerMessage("1", "2"),
+            new ImagemapMessage(
+                    "https://example.com/imagemap", "altText", new ImagemapBaseSize(1040, 1040),
+                    Arrays.asList(new MessageImagemapAction("text", new ImagemapArea(0, 0, 520, 1040)),
+                                  new URIImagemapAction("https://example.com",
+                                                        new ImagemapArea(520, 0, 520, 1040)))),
+            new TemplateMessage("ALT", new CarouselTemplate(Arrays.asList(
+                    new CarouselColumn("https://example.com/1.jpg", "title", "text", Arrays.asList(
+                            new PostbackAction("postback", "data", "text"),
+                            new URIAction("uri", "https://example.com"))),
+                    new CarouselColumn("https://example.com/2.jpg", "title", "text", singletonList(
+                            new MessageAction("message", "text")))))));
+
+    private final ObjectWriter jackson = new ObjectMapper().writerFor(MESSAGE_LIST);
+    private final ObjectWriter module =
+            new ObjectMapper().registerModule(new MessageSerializerModule()).writerFor(MESSAGE_LIST);
+
+    @Benchmark
+    public byte[] jackson() throws JsonProcessingException {
+        return jackson.writeValueAsBytes(messages);
+    }
+
+    @Benchmark
+    public byte[] module() throws JsonProcessingException {
+        return module.writeValueAsBytes(messages);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model.event;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import com.linecorp.bot.model.event.CallbackRequestReader.EventFilter;
+import com.linecorp.bot.model.event.message.MessageContent;
+import com.linecorp.bot.model.event.message.TextMessageContent;
+
+/**
+ * Parsing of a webhook request body by {@link CallbackRequestReader} compared with {@link ObjectMapper}.
+ */
+@State(Scope.Benchmark)
+public class CallbackRequestReaderBenchmark {
+    private static final String[] EVENTS = {
+            "{\"replyToken\":\"nHuyWiB7yP5Zw52FIkcQobQuGDXCTA\",\"type\":\"message\","
+            + "\"timestamp\":1462629479859,"
+            + "\"source\":{\"type\":\"user\",\"userId\":\"u206d25c2ea6bd87c17655609a1c37cb8\"},"
+            + "\"message\":{\"id\":\"325708\",\"type\":\"text\",\"text\":\"Hello, world\"}}",
+            "{\"replyToken\":\"nHuyWiB7yP5Zw52FIkcQobQuGDXCTA\",\"type\":\"message\","
+            + "\"timestamp\":1462629479859,"
+            + "\"source\":{\"type\":\"group\",\"groupId\":\"cxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx\","
+            + "\"userId\":\"u206d25c2ea6bd87c17655609a1c37cb8\"},"
+            + "\"message\":{\"id\":\"325708\",\"type\":\"sticker\",\"packageId\":\"1\",\"stickerId\":\"1\"}}",
+            "{\"replyToken\":\"nHuyWiB7yP5Zw52FIkcQobQuGDXCTA\",\"type\":\"postback\","
+            + "\"timestamp\":1462629479859,"
+            + "\"source\":{\"type\":\"user\",\"userId\":\"u206d25c2ea6bd87c17655609a1c37cb8\"},"
+            + "\"postback\":{\"data\":\"action=buyItem&itemId=123123&color=red\",\"params\":{}}}",
+            "{\"replyToken\":\"nHuyWiB7yP5Zw52FIkcQobQuGDXCTA\",\"type\":\"follow\","
+            + "\"timestamp\":1462629479859,"
+            + "\"source\":{\"type\":\"user\",\"userId\":\"u206d25c2ea6bd87c17655609a1c37cb8\"}}",
+    };
+
+    private static final EventFilter TEXT_ONLY = new EventFilter() {
+        @Override
+        public boolean acceptsEvent(final Class<? extends Event> eventType) {
+            return eventType == MessageEvent.class;
+        }
+
+        @Override
+        public boolean acceptsMessageContent(final Class<? extends MessageContent> messageContentType) {
+            return messageContentType == TextMessageContent.class;
+        }
+    };
+
+    /**
+     * Number of events in the request body.
+     */
+    @Param({ "1", "16" })
+    public int eventCount;
+
+    private final ObjectReader objectReader = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS, false)
+            .readerFor(CallbackRequest.class);
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        final List<String> events = new ArrayList<>(eventCount);
+        for (int i = 0; i < eventCount; i++) {
+            events.add(EVENTS[i % EVENTS.length]);
+        }
+        body = ("{\"events\":[" + String.join(",", events) + "]}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public CallbackRequest objectMapper() throws IOException {
+        return objectReader.readValue(body);
+    }
+
+    @Benchmark
+    public CallbackRequest reader() throws IOException {
+        return CallbackRequestReader.read(body);
+    }
+
+    @Benchmark
+    public CallbackRequest readerWithFilter() throws IOException {
+        return CallbackRequestReader.read(body, 0, body.length, TEXT_ONLY);
+    }
+}
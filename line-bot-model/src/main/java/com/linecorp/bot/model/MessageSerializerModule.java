@@ -0,0 +1,406 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import com.linecorp.bot.model.action.Action;
+import com.linecorp.bot.model.action.DatetimePickerAction;
+import com.linecorp.bot.model.action.MessageAction;
+import com.linecorp.bot.model.action.PostbackAction;
+import com.linecorp.bot.model.action.URIAction;
+import com.linecorp.bot.model.message.AudioMessage;
+import com.linecorp.bot.model.message.ImageMessage;
+import com.linecorp.bot.model.message.ImagemapMessage;
+import com.linecorp.bot.model.message.LocationMessage;
+import com.linecorp.bot.model.message.Message;
+import com.linecorp.bot.model.message.StickerMessage;
+import com.linecorp.bot.model.message.TemplateMessage;
+import com.linecorp.bot.model.message.TextMessage;
+import com.linecorp.bot.model.message.VideoMessage;
+import com.linecorp.bot.model.message.imagemap.ImagemapAction;
+import com.linecorp.bot.model.message.imagemap.ImagemapArea;
+import com.linecorp.bot.model.message.imagemap.ImagemapBaseSize;
+import com.linecorp.bot.model.message.imagemap.MessageImagemapAction;
+import com.linecorp.bot.model.message.imagemap.URIImagemapAction;
+import com.linecorp.bot.model.message.template.ButtonsTemplate;
+import com.linecorp.bot.model.message.template.CarouselColumn;
+import com.linecorp.bot.model.message.template.CarouselTemplate;
+import com.linecorp.bot.model.message.template.ConfirmTemplate;
+import com.linecorp.bot.model.message.template.ImageCarouselColumn;
+import com.linecorp.bot.model.message.template.ImageCarouselTemplate;
+import com.linecorp.bot.model.message.template.Template;
+
+/**
+ * Jackson module which serializes outbound messages by hand-written streaming writers.
+ *
+ * <p>Bean serializers built by Jackson look up a serializer and a type serializer for every property,
+ * and introspect every class on its first use. Writers in this module write fields to
+ * {@link JsonGenerator} directly, dispatching nested templates and actions by {@code instanceof}.
+ *
+ * <p>Output is byte-for-byte equal to Jackson's default serialization of the model: {@code type} comes first,
+ * properties follow in declaration order and nulls are written except for classes annotated by
+ * {@code @JsonInclude(NON_NULL)}. Deserialization is not affected.
+ *
+ * <p>Instances of other implementations of {@link Message}, {@link Template}, {@link Action} and
+ * {@link ImagemapAction} are serialized by Jackson as before.
+ *
+ * <pre>{@code
+ * ObjectMapper objectMapper = new ObjectMapper().registerModule(new MessageSerializerModule());
+ * }</pre>
+ */
+public final class MessageSerializerModule extends SimpleModule {
+    private static final long serialVersionUID = 1L;
+
+    public MessageSerializerModule() {
+        super("LineBotMessageSerializerModule");
+
+        addWriter(TextMessage.class, MessageSerializerModule::writeMessage);
+        addWriter(ImageMessage.class, MessageSerializerModule::writeMessage);
+        addWriter(StickerMessage.class, MessageSerializerModule::writeMessage);
+        addWriter(LocationMessage.class, MessageSerializerModule::writeMessage);
+        addWriter(AudioMessage.class, MessageSerializerModule::writeMessage);
+        addWriter(VideoMessage.class, MessageSerializerModule::writeMessage);
+        addWriter(ImagemapMessage.class, MessageSerializerModule::writeMessage);
+        addWriter(TemplateMessage.class, MessageSerializerModule::writeMessage);
+
+        addWriter(ButtonsTemplate.class, MessageSerializerModule::writeTemplate);
+        addWriter(CarouselTemplate.class, MessageSerializerModule::writeTemplate);
+        addWriter(ConfirmTemplate.class, MessageSerializerModule::writeTemplate);
+        addWriter(ImageCarouselTemplate.class, MessageSerializerModule::writeTemplate);
+        addWriter(CarouselColumn.class, MessageSerializerModule::writeCarouselColumn);
+        addWriter(ImageCarouselColumn.class, MessageSerializerModule::writeImageCarouselColumn);
+
+        addWriter(PostbackAction.class, MessageSerializerModule::writeAction);
+        addWriter(URIAction.class, MessageSerializerModule::writeAction);
+        addWriter(MessageAction.class, MessageSerializerModule::writeAction);
+        addWriter(DatetimePickerAction.class, MessageSerializerModule::writeAction);
+
+        addWriter(MessageImagemapAction.class, MessageSerializerModule::writeImagemapAction);
+        addWriter(URIImagemapAction.class, MessageSerializerModule::writeImagemapAction);
+        addWriter(ImagemapArea.class, MessageSerializerModule::writeImagemapArea);
+        addWriter(ImagemapBaseSize.class, MessageSerializerModule::writeImagemapBaseSize);
+    }
+
+    private <T> void addWriter(final Class<T> type, final Writer<? super T> writer) {
+        addSerializer(type, new DirectSerializer<>(type, writer));
+    }
+
+    private static void writeMessage(final Message message, final JsonGenerator gen, final SerializerProvider provider)
+            throws IOException {
+        if (message instanceof TextMessage) {
+            final TextMessage text = (TextMessage) message;
+            gen.writeStartObject();
+            gen.writeStringField("type", "text");
+            gen.writeStringField("text", text.getText());
+            gen.writeEndObject();
+        } else if (message instanceof ImageMessage) {
+            final ImageMessage image = (ImageMessage) message;
+            gen.writeStartObject();
+            gen.writeStringField("type", "image");
+            gen.writeStringField("originalContentUrl", image.getOriginalContentUrl());
+            gen.writeStringField("previewImageUrl", image.getPreviewImageUrl());
+            gen.writeEndObject();
+        } else if (message instanceof StickerMessage) {
+            final StickerMessage sticker = (StickerMessage) message;
+            gen.writeStartObject();
+            gen.writeStringField("type", "sticker");
+            gen.writeStringField("packageId", sticker.getPackageId());
+            gen.writeStringField("stickerId", sticker.getStickerId());
+            gen.writeEndObject();
+        } else if (message instanceof LocationMessage) {
+            final LocationMessage location = (LocationMessage) message;
+            gen.writeStartObject();
+            gen.writeStringField("type", "location");
+            gen.writeStringField("title", location.getTitle());
+            gen.writeStringField("address", location.getAddress());
+            gen.writeNumberField("latitude", location.getLatitude());
+            gen.writeNumberField("longitude", location.getLongitude());
+            gen.writeEndObject();
+        } else if (message instanceof AudioMessage) {
+            final AudioMessage audio = (AudioMessage) message;
+            gen.writeStartObject();
+            gen.writeStringField("type", "audio");
+            gen.writeStringField("originalContentUrl", audio.getOriginalContentUrl());
+            gen.writeFieldName("duration");
+            if (audio.getDuration() == null) {
+                gen.writeNull();
+            } else {
+                gen.writeNumber(audio.getDuration());
+            }
+            gen.writeEndObject();
+        } else if (message instanceof VideoMessage) {
+            final VideoMessage video = (VideoMessage) message;
+            gen.writeStartObject();
+            gen.writeStringField("type", "video");
+            gen.writeStringField("originalContentUrl", video.getOriginalContentUrl());
+            gen.writeStringField("previewImageUrl", video.getPreviewImageUrl());
+            gen.writeEndObject();
+        } else if (message instanceof ImagemapMessage) {
+            final ImagemapMessage imagemap = (ImagemapMessage) message;
+            gen.writeStartObject();
+            gen.writeStringField("type", "imagemap");
+            gen.writeStringField("baseUrl", imagemap.getBaseUrl());
+            gen.writeStringField("altText", imagemap.getAltText());
+            gen.writeFieldName("baseSize");
+            writeImagemapBaseSize(imagemap.getBaseSize(), gen, provider);
+            gen.writeFieldName("actions");
+            writeList(imagemap.getActions(), MessageSerializerModule::writeImagemapAction, gen, provider);
+            gen.writeEndObject();
+        } else if (message instanceof TemplateMessage) {
+            final TemplateMessage template = (TemplateMessage) message;
+            gen.writeStartObject();
+            gen.writeStringField("type", "template");
+            gen.writeStringField("altText", template.getAltText());
+            gen.writeFieldName("template");
+            writeTemplate(template.getTemplate(), gen, provider);
+            gen.writeEndObject();
+        } else {
+            writeByJackson(message, gen, provider);
+        }
+    }
+
+    private static void writeTemplate(final Template template, final JsonGenerator gen,
+                                      final SerializerProvider provider) throws IOException {
+        if (template instanceof ButtonsTemplate) {
+            final ButtonsTemplate buttons = (ButtonsTemplate) template;
+            gen.writeStartObject();
+            gen.writeStringField("type", "buttons");
+            gen.writeStringField("thumbnailImageUrl", buttons.getThumbnailImageUrl());
+            gen.writeStringField("title", buttons.getTitle());
+            gen.writeStringField("text", buttons.getText());
+            gen.writeFieldName("actions");
+            writeList(buttons.getActions(), MessageSerializerModule::writeAction, gen, provider);
+            gen.writeEndObject();
+        } else if (template instanceof CarouselTemplate) {
+            final CarouselTemplate carousel = (CarouselTemplate) template;
+            gen.writeStartObject();
+            gen.writeStringField("type", "carousel");
+            gen.writeFieldName("columns");
+            writeList(carousel.getColumns(), MessageSerializerModule::writeCarouselColumn, gen, provider);
+            gen.writeEndObject();
+        } else if (template instanceof ConfirmTemplate) {
+            final ConfirmTemplate confirm = (ConfirmTemplate) template;
+            gen.writeStartObject();
+            gen.writeStringField("type", "confirm");
+            gen.writeStringField("text", confirm.getText());
+            gen.writeFieldName("actions");
+            writeList(confirm.getActions(), MessageSerializerModule::writeAction, gen, provider);
+            gen.writeEndObject();
+        } else if (template instanceof ImageCarouselTemplate) {
+            final ImageCarouselTemplate imageCarousel = (ImageCarouselTemplate) template;
+            gen.writeStartObject();
+            gen.writeStringField("type", "image_carousel");
+            gen.writeFieldName("columns");
+            writeList(imageCarousel.getColumns(), MessageSerializerModule::writeImageCarouselColumn,
+                      gen, provider);
+            gen.writeEndObject();
+        } else {
+            writeByJackson(template, gen, provider);
+        }
+    }
+
+    private static void writeCarouselColumn(final CarouselColumn column, final JsonGenerator gen,
+                                            final SerializerProvider provider) throws IOException {
+        if (column == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartObject();
+        gen.writeStringField("thumbnailImageUrl", column.getThumbnailImageUrl());
+        gen.writeStringField("title", column.getTitle());
+        gen.writeStringField("text", column.getText());
+        gen.writeFieldName("actions");
+        writeList(column.getActions(), MessageSerializerModule::writeAction, gen, provider);
+        gen.writeEndObject();
+    }
+
+    private static void writeImageCarouselColumn(final ImageCarouselColumn column, final JsonGenerator gen,
+                                                 final SerializerProvider provider) throws IOException {
+        if (column == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartObject();
+        gen.writeStringField("imageUrl", column.getImageUrl());
+        gen.writeFieldName("action");
+        writeAction(column.getAction(), gen, provider);
+        gen.writeEndObject();
+    }
+
+    private static void writeAction(final Action action, final JsonGenerator gen, final SerializerProvider provider)
+            throws IOException {
+        if (action instanceof PostbackAction) {
+            // @JsonInclude(NON_NULL)
+            final PostbackAction postback = (PostbackAction) action;
+            gen.writeStartObject();
+            gen.writeStringField("type", "postback");
+            writeStringFieldIfNotNull("label", postback.getLabel(), gen);
+            writeStringFieldIfNotNull("data", postback.getData(), gen);
+            writeStringFieldIfNotNull("text", postback.getText(), gen);
+            gen.writeEndObject();
+        } else if (action instanceof URIAction) {
+            final URIAction uri = (URIAction) action;
+            gen.writeStartObject();
+            gen.writeStringField("type", "uri");
+            gen.writeStringField("label", uri.getLabel());
+            gen.writeStringField("uri", uri.getUri());
+            gen.writeEndObject();
+        } else if (action instanceof MessageAction) {
+            final MessageAction message = (MessageAction) action;
+            gen.writeStartObject();
+            gen.writeStringField("type", "message");
+            gen.writeStringField("label", message.getLabel());
+            gen.writeStringField("text", message.getText());
+            gen.writeEndObject();
+        } else if (action instanceof DatetimePickerAction) {
+            // @JsonInclude(NON_NULL)
+            final DatetimePickerAction datetimePicker = (DatetimePickerAction) action;
+            gen.writeStartObject();
+            gen.writeStringField("type", "datetimepicker");
+            writeStringFieldIfNotNull("label", datetimePicker.getLabel(), gen);
+            writeStringFieldIfNotNull("data", datetimePicker.getData(), gen);
+            writeStringFieldIfNotNull("mode", datetimePicker.getMode(), gen);
+            writeStringFieldIfNotNull("initial", datetimePicker.getInitial(), gen);
+            writeStringFieldIfNotNull("max", datetimePicker.getMax(), gen);
+            writeStringFieldIfNotNull("min", datetimePicker.getMin(), gen);
+            gen.writeEndObject();
+        } else {
+            writeByJackson(action, gen, provider);
+        }
+    }
+
+    private static void writeImagemapAction(final ImagemapAction action, final JsonGenerator gen,
+                                            final SerializerProvider provider) throws IOException {
+        if (action instanceof MessageImagemapAction) {
+            final MessageImagemapAction message = (MessageImagemapAction) action;
+            gen.writeStartObject();
+            gen.writeStringField("type", "message");
+            gen.writeStringField("text", message.getText());
+            gen.writeFieldName("area");
+            writeImagemapArea(message.getArea(), gen, provider);
+            gen.writeEndObject();
+        } else if (action instanceof URIImagemapAction) {
+            final URIImagemapAction uri = (URIImagemapAction) action;
+            gen.writeStartObject();
+            gen.writeStringField("type", "uri");
+            gen.writeStringField("linkUri", uri.getLinkUri());
+            gen.writeFieldName("area");
+            writeImagemapArea(uri.getArea(), gen, provider);
+            gen.writeEndObject();
+        } else {
+            writeByJackson(action, gen, provider);
+        }
+    }
+
+    private static void writeImagemapArea(final ImagemapArea area, final JsonGenerator gen,
+                                          final SerializerProvider provider) throws IOException {
+        if (area == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartObject();
+        gen.writeNumberField("x", area.getX());
+        gen.writeNumberField("y", area.getY());
+        gen.writeNumberField("width", area.getWidth());
+        gen.writeNumberField("height", area.getHeight());
+        gen.writeEndObject();
+    }
+
+    private static void writeImagemapBaseSize(final ImagemapBaseSize baseSize, final JsonGenerator gen,
+                                              final SerializerProvider provider) throws IOException {
+        if (baseSize == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartObject();
+        gen.writeNumberField("height", baseSize.getHeight());
+        gen.writeNumberField("width", baseSize.getWidth());
+        gen.writeEndObject();
+    }
+
+    private static <T> void writeList(final List<? extends T> values, final Writer<? super T> writer,
+                                      final JsonGenerator gen, final SerializerProvider provider)
+            throws IOException {
+        if (values == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartArray();
+        for (T value : values) {
+            writer.write(value, gen, provider);
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeStringFieldIfNotNull(final String name, final String value,
+                                                  final JsonGenerator gen) throws IOException {
+        if (value != null) {
+            gen.writeStringField(name, value);
+        }
+    }
+
+    /**
+     * Fallback for null and unknown implementations. Type id is written by Jackson as before.
+     */
+    private static void writeByJackson(final Object value, final JsonGenerator gen,
+                                       final SerializerProvider provider) throws IOException {
+        if (value == null) {
+            gen.writeNull();
+            return;
+        }
+        provider.findTypedValueSerializer(value.getClass(), true, null).serialize(value, gen, provider);
+    }
+
+    @FunctionalInterface
+    private interface Writer<T> {
+        void write(T value, JsonGenerator gen, SerializerProvider provider) throws IOException;
+    }
+
+    /**
+     * Serializer calling a writer. Writers write the type id by themselves.
+     */
+    private static final class DirectSerializer<T> extends StdSerializer<T> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Writer<? super T> writer;
+
+        DirectSerializer(final Class<T> type, final Writer<? super T> writer) {
+            super(type);
+            this.writer = writer;
+        }
+
+        @Override
+        public void serialize(final T value, final JsonGenerator gen, final SerializerProvider provider)
+                throws IOException {
+            writer.write(value, gen, provider);
+        }
+
+        @Override
+        public void serializeWithType(final T value, final JsonGenerator gen, final SerializerProvider provider,
+                                      final TypeSerializer typeSer) throws IOException {
+            writer.write(value, gen, provider);
+        }
+    }
+}
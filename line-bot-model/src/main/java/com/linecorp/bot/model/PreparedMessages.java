@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import com.linecorp.bot.model.message.Message;
+
+import lombok.NonNull;
+
+/**
+ * Immutable list of messages which is serialized to JSON once.
+ *
+ * <p>Use it to send the same messages many times, e.g. a template message to every follower.
+ * Requests built from it write the serialized bytes as is, so that messages are not serialized again.
+ *
+ * <pre>{@code
+ * PreparedMessages messages = PreparedMessages.of(templateMessage);
+ * for (String userId : userIds) {
+ *     client.pushMessage(userId, messages);
+ * }
+ * }</pre>
+ */
+public final class PreparedMessages {
+    private static final ObjectWriter MESSAGES_WRITER =
+            new ObjectMapper().registerModule(new MessageSerializerModule())
+                              .writerFor(new TypeReference<List<Message>>() {});
+
+    /**
+     * UTF-8 JSON array of message objects.
+     */
+    private final byte[] json;
+    private final List<Message> messages;
+
+    private PreparedMessages(final byte[] json, final List<Message> messages) {
+        this.json = json;
+        this.messages = messages;
+    }
+
+    public static PreparedMessages of(@NonNull final Message message) {
+        return of(Collections.singletonList(message));
+    }
+
+    /**
+     * Serialize messages.
+     *
+     * @throws IllegalArgumentException if messages can't be serialized.
+     */
+    public static PreparedMessages of(@NonNull final List<Message> messages) {
+        try {
+            return new PreparedMessages(MESSAGES_WRITER.writeValueAsBytes(messages),
+                                        Collections.unmodifiableList(new ArrayList<>(messages)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Can't serialize messages: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Number of messages.
+     */
+    public int size() {
+        return messages.size();
+    }
+
+    /**
+     * Messages which were serialized. For clients which can't send the serialized JSON as is.
+     */
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    /**
+     * Length of serialized JSON in bytes.
+     */
+    public int getSizeInBytes() {
+        return json.length;
+    }
+
+    /**
+     * Write serialized JSON array to given stream.
+     */
+    public void writeTo(final OutputStream outputStream) throws IOException {
+        outputStream.write(json);
+    }
+
+    @Override
+    public String toString() {
+        return "PreparedMessages(" + new String(json, UTF_8) + ')';
+    }
+}
@@ -0,0 +1,622 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model.event;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+import com.linecorp.bot.model.event.beacon.BeaconContent;
+import com.linecorp.bot.model.event.message.AudioMessageContent;
+import com.linecorp.bot.model.event.message.FileMessageContent;
+import com.linecorp.bot.model.event.message.ImageMessageContent;
+import com.linecorp.bot.model.event.message.LocationMessageContent;
+import com.linecorp.bot.model.event.message.MessageContent;
+import com.linecorp.bot.model.event.message.StickerMessageContent;
+import com.linecorp.bot.model.event.message.TextMessageContent;
+import com.linecorp.bot.model.event.message.UnknownMessageContent;
+import com.linecorp.bot.model.event.message.VideoMessageContent;
+import com.linecorp.bot.model.event.postback.PostbackContent;
+import com.linecorp.bot.model.event.source.GroupSource;
+import com.linecorp.bot.model.event.source.RoomSource;
+import com.linecorp.bot.model.event.source.Source;
+import com.linecorp.bot.model.event.source.UnknownSource;
+import com.linecorp.bot.model.event.source.UserSource;
+
+import lombok.NonNull;
+
+/**
+ * Pull parser of webhook request body.
+ *
+ * <p>{@link Event}, {@link Source} and {@link MessageContent} are polymorphic by {@code type} property.
+ * When {@code type} is not the first property, {@code ObjectMapper} buffers the object into a token buffer
+ * and parses it twice. This parser reads every property of an object in one pass, then constructs the subtype
+ * by {@code type}.
+ *
+ * <p>Result is the same as {@code ObjectMapper} with {@code FAIL_ON_UNKNOWN_PROPERTIES} disabled and
+ * {@code JavaTimeModule} reading timestamps as milliseconds. Unknown properties are skipped, and unknown types are
+ * read as {@link UnknownEvent}, {@link UnknownSource} and {@link UnknownMessageContent}. The only difference is that
+ * {@code null} entries of {@code events} are skipped instead of being contained as {@code null}.
+ *
+ * <p>Events rejected by an {@link EventFilter} are not contained in the result. When {@code type} comes first,
+ * which is the case of LINE Platform, rest of a rejected event is skipped without materializing its properties.
+ */
+public final class CallbackRequestReader {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final Map<String, Class<? extends Event>> EVENT_TYPES = new HashMap<>();
+    private static final Map<String, Class<? extends MessageContent>> MESSAGE_CONTENT_TYPES = new HashMap<>();
+
+    static {
+        EVENT_TYPES.put("message", MessageEvent.class);
+        EVENT_TYPES.put("follow", FollowEvent.class);
+        EVENT_TYPES.put("unfollow", UnfollowEvent.class);
+        EVENT_TYPES.put("join", JoinEvent.class);
+        EVENT_TYPES.put("leave", LeaveEvent.class);
+        EVENT_TYPES.put("postback", PostbackEvent.class);
+        EVENT_TYPES.put("beacon", BeaconEvent.class);
+
+        MESSAGE_CONTENT_TYPES.put("text", TextMessageContent.class);
+        MESSAGE_CONTENT_TYPES.put("image", ImageMessageContent.class);
+        MESSAGE_CONTENT_TYPES.put("location", LocationMessageContent.class);
+        MESSAGE_CONTENT_TYPES.put("audio", AudioMessageContent.class);
+        MESSAGE_CONTENT_TYPES.put("video", VideoMessageContent.class);
+        MESSAGE_CONTENT_TYPES.put("sticker", StickerMessageContent.class);
+        MESSAGE_CONTENT_TYPES.put("file", FileMessageContent.class);
+    }
+
+    /**
+     * Placeholder of a message content rejected by the filter.
+     */
+    private static final MessageContent REJECTED_MESSAGE_CONTENT = new UnknownMessageContent(null);
+
+    /**
+     * Placeholder of an event rejected by the filter.
+     */
+    private static final Event REJECTED_EVENT = new UnknownEvent(null, null, null);
+
+    /**
+     * Selects events to read by their classes.
+     */
+    public interface EventFilter {
+        /**
+         * Filter which accepts every event.
+         */
+        EventFilter ACCEPT_ALL = new EventFilter() {
+            @Override
+            public boolean acceptsEvent(final Class<? extends Event> eventType) {
+                return true;
+            }
+
+            @Override
+            public boolean acceptsMessageContent(final Class<? extends MessageContent> messageContentType) {
+                return true;
+            }
+        };
+
+        /**
+         * Whether to read events of given class. Unknown event type is {@link UnknownEvent}.
+         */
+        boolean acceptsEvent(Class<? extends Event> eventType);
+
+        /**
+         * Whether to read {@link MessageEvent}s of given content class.
+         * Unknown message type is {@link UnknownMessageContent}.
+         */
+        boolean acceptsMessageContent(Class<? extends MessageContent> messageContentType);
+    }
+
+    private CallbackRequestReader() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Read webhook request body.
+     *
+     * @return Parsed result. {@code null} if the body is JSON {@code null}.
+     * @throws IOException if the body is not a valid webhook request body.
+     */
+    public static CallbackRequest read(final byte[] json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return read(parser, EventFilter.ACCEPT_ALL);
+        }
+    }
+
+    /**
+     * Read webhook request body in {@code json[offset, offset + length)}.
+     *
+     * @see #read(byte[])
+     */
+    public static CallbackRequest read(final byte[] json, final int offset, final int length) throws IOException {
+        return read(json, offset, length, EventFilter.ACCEPT_ALL);
+    }
+
+    /**
+     * Read events accepted by the filter from webhook request body in {@code json[offset, offset + length)}.
+     *
+     * @see #read(byte[])
+     */
+    public static CallbackRequest read(final byte[] json, final int offset, final int length,
+                                       @NonNull final EventFilter filter) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json, offset, length)) {
+            return read(parser, filter);
+        }
+    }
+
+    /**
+     * Read webhook request body. The stream is not closed.
+     *
+     * @see #read(byte[])
+     */
+    public static CallbackRequest read(final InputStream inputStream) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(inputStream)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            return read(parser, EventFilter.ACCEPT_ALL);
+        }
+    }
+
+    private static CallbackRequest read(final JsonParser p, final EventFilter filter) throws IOException {
+        final JsonToken token = p.nextToken();
+        if (token == null) {
+            throw JsonMappingException.from(p, "No content to map due to end-of-input");
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expectStartObject(p, CallbackRequest.class);
+
+        List<Event> events = null;
+        String field;
+        while ((field = p.nextFieldName()) != null) {
+            p.nextToken();
+            if ("events".equals(field)) {
+                events = readEvents(p, filter);
+            } else {
+                p.skipChildren();
+            }
+        }
+        return new CallbackRequest(events);
+    }
+
+    private static List<Event> readEvents(final JsonParser p, final EventFilter filter) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (p.getCurrentToken() != JsonToken.START_ARRAY) {
+            throw JsonMappingException.from(p, "Can not deserialize List<Event> out of " + p.getCurrentToken());
+        }
+        final List<Event> events = new ArrayList<>();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            final Event event = readEvent(p, filter);
+            if (event != null && event != REJECTED_EVENT) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    private static Event readEvent(final JsonParser p, final EventFilter filter) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expectStartObject(p, Event.class);
+
+        String type = null;
+        String replyToken = null;
+        Source source = null;
+        Instant timestamp = null;
+        MessageContent message = null;
+        PostbackContent postback = null;
+        BeaconContent beacon = null;
+        String field;
+        while ((field = p.nextFieldName()) != null) {
+            p.nextToken();
+            switch (field) {
+                case "type":
+                    type = readString(p);
+                    if (!filter.acceptsEvent(eventClassOf(type))) {
+                        skipRestOfObject(p);
+                        return REJECTED_EVENT;
+                    }
+                    break;
+                case "replyToken":
+                    replyToken = readString(p);
+                    break;
+                case "source":
+                    source = readSource(p);
+                    break;
+                case "timestamp":
+                    timestamp = readInstant(p);
+                    break;
+                case "message":
+                    message = readMessageContent(p, filter);
+                    if (message == REJECTED_MESSAGE_CONTENT && "message".equals(type)) {
+                        skipRestOfObject(p);
+                        return REJECTED_EVENT;
+                    }
+                    break;
+                case "postback":
+                    postback = readPostbackContent(p);
+                    break;
+                case "beacon":
+                    beacon = readBeaconContent(p);
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+
+        if (!filter.acceptsEvent(eventClassOf(type))) {
+            return REJECTED_EVENT;
+        }
+        switch (type == null ? "" : type) {
+            case "message":
+                if (message == REJECTED_MESSAGE_CONTENT
+                    || message != null && !filter.acceptsMessageContent(message.getClass())) {
+                    return REJECTED_EVENT;
+                }
+                return new MessageEvent<>(replyToken, source, message, timestamp);
+            case "follow":
+                return new FollowEvent(replyToken, source, timestamp);
+            case "unfollow":
+                return new UnfollowEvent(source, timestamp);
+            case "join":
+                return new JoinEvent(replyToken, source, timestamp);
+            case "leave":
+                return new LeaveEvent(source, timestamp);
+            case "postback":
+                return new PostbackEvent(replyToken, source, postback, timestamp);
+            case "beacon":
+                return new BeaconEvent(replyToken, source, timestamp, beacon);
+            default:
+                return new UnknownEvent(type, source, timestamp);
+        }
+    }
+
+    private static Source readSource(final JsonParser p) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expectStartObject(p, Source.class);
+
+        String type = null;
+        String userId = null;
+        String groupId = null;
+        String roomId = null;
+        String field;
+        while ((field = p.nextFieldName()) != null) {
+            p.nextToken();
+            switch (field) {
+                case "type":
+                    type = readString(p);
+                    break;
+                case "userId":
+                    userId = readString(p);
+                    break;
+                case "groupId":
+                    groupId = readString(p);
+                    break;
+                case "roomId":
+                    roomId = readString(p);
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+
+        switch (type == null ? "" : type) {
+            case "user":
+                return new UserSource(userId);
+            case "group":
+                return new GroupSource(groupId, userId);
+            case "room":
+                return new RoomSource(userId, roomId);
+            default:
+                return new UnknownSource();
+        }
+    }
+
+    private static MessageContent readMessageContent(final JsonParser p, final EventFilter filter) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expectStartObject(p, MessageContent.class);
+
+        String type = null;
+        String id = null;
+        String text = null;
+        String packageId = null;
+        String stickerId = null;
+        String title = null;
+        String address = null;
+        Double latitude = null;
+        Double longitude = null;
+        String url = null;
+        String fileName = null;
+        int fileSize = 0;
+        String field;
+        while ((field = p.nextFieldName()) != null) {
+            p.nextToken();
+            switch (field) {
+                case "type":
+                    type = readString(p);
+                    if (!filter.acceptsMessageContent(messageContentClassOf(type))) {
+                        skipRestOfObject(p);
+                        return REJECTED_MESSAGE_CONTENT;
+                    }
+                    break;
+                case "id":
+                    id = readString(p);
+                    break;
+                case "text":
+                    text = readString(p);
+                    break;
+                case "packageId":
+                    packageId = readString(p);
+                    break;
+                case "stickerId":
+                    stickerId = readString(p);
+                    break;
+                case "title":
+                    title = readString(p);
+                    break;
+                case "address":
+                    address = readString(p);
+                    break;
+                case "latitude":
+                    latitude = readDouble(p);
+                    break;
+                case "longitude":
+                    longitude = readDouble(p);
+                    break;
+                case "url":
+                    url = readString(p);
+                    break;
+                case "fileName":
+                    fileName = readString(p);
+                    break;
+                case "fileSize":
+                    fileSize = readInt(p);
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+
+        switch (type == null ? "" : type) {
+            case "text":
+                return new TextMessageContent(id, text);
+            case "image":
+                return new ImageMessageContent(id);
+            case "location":
+                if (latitude == null || longitude == null) {
+                    throw JsonMappingException.from(p, "Missing latitude or longitude of location message");
+                }
+                return new LocationMessageContent(id, title, address, latitude, longitude);
+            case "audio":
+                return new AudioMessageContent(id);
+            case "video":
+                return new VideoMessageContent(id, url);
+            case "sticker":
+                return new StickerMessageContent(id, packageId, stickerId);
+            case "file":
+                return new FileMessageContent(id, fileName, fileSize);
+            default:
+                return new UnknownMessageContent(id);
+        }
+    }
+
+    private static PostbackContent readPostbackContent(final JsonParser p) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expectStartObject(p, PostbackContent.class);
+
+        String data = null;
+        Map<String, String> params = null;
+        String field;
+        while ((field = p.nextFieldName()) != null) {
+            p.nextToken();
+            switch (field) {
+                case "data":
+                    data = readString(p);
+                    break;
+                case "params":
+                    params = readStringMap(p);
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return new PostbackContent(data, params);
+    }
+
+    private static BeaconContent readBeaconContent(final JsonParser p) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expectStartObject(p, BeaconContent.class);
+
+        String hwid = null;
+        String type = null;
+        String deviceMessage = null;
+        String field;
+        while ((field = p.nextFieldName()) != null) {
+            p.nextToken();
+            switch (field) {
+                case "hwid":
+                    hwid = readString(p);
+                    break;
+                case "type":
+                    type = readString(p);
+                    break;
+                case "dm":
+                    deviceMessage = readString(p);
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        try {
+            return new BeaconContent(hwid, type, deviceMessage);
+        } catch (IllegalArgumentException e) {
+            throw JsonMappingException.from(p, "Invalid beacon content: " + e.getMessage(), e);
+        }
+    }
+
+    private static Map<String, String> readStringMap(final JsonParser p) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expectStartObject(p, Map.class);
+
+        final Map<String, String> map = new LinkedHashMap<>();
+        String field;
+        while ((field = p.nextFieldName()) != null) {
+            p.nextToken();
+            map.put(field, readString(p));
+        }
+        return map;
+    }
+
+    private static String readString(final JsonParser p) throws IOException {
+        final JsonToken token = p.getCurrentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            throw JsonMappingException.from(p, "Can not deserialize String out of " + token);
+        }
+        return p.getValueAsString();
+    }
+
+    private static Double readDouble(final JsonParser p) throws IOException {
+        final JsonToken token = p.getCurrentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isNumeric()) {
+            return p.getDoubleValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            final String text = p.getText().trim();
+            if (text.isEmpty()) {
+                return null;
+            }
+            try {
+                return Double.valueOf(text);
+            } catch (NumberFormatException e) {
+                throw JsonMappingException.from(p, "Not a valid Double value: " + text, e);
+            }
+        }
+        throw JsonMappingException.from(p, "Can not deserialize Double out of " + token);
+    }
+
+    private static int readInt(final JsonParser p) throws IOException {
+        final JsonToken token = p.getCurrentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return 0;
+        }
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return p.getIntValue();
+        }
+        if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return (int) p.getDoubleValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            final String text = p.getText().trim();
+            if (text.isEmpty()) {
+                return 0;
+            }
+            try {
+                return Integer.parseInt(text);
+            } catch (NumberFormatException e) {
+                throw JsonMappingException.from(p, "Not a valid int value: " + text, e);
+            }
+        }
+        throw JsonMappingException.from(p, "Can not deserialize int out of " + token);
+    }
+
+    /**
+     * Integer is epoch milliseconds, decimal is epoch seconds and string is ISO-8601 instant.
+     */
+    private static Instant readInstant(final JsonParser p) throws IOException {
+        final JsonToken token = p.getCurrentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return Instant.ofEpochMilli(p.getLongValue());
+        }
+        if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+            final BigDecimal value = p.getDecimalValue();
+            final long seconds = value.longValue();
+            final int nanos = value.subtract(BigDecimal.valueOf(seconds)).movePointRight(9).intValue();
+            return Instant.ofEpochSecond(seconds, nanos);
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            final String text = p.getText().trim();
+            if (text.isEmpty()) {
+                return null;
+            }
+            try {
+                return Instant.parse(text);
+            } catch (DateTimeParseException e) {
+                throw JsonMappingException.from(p, "Not a valid Instant value: " + text, e);
+            }
+        }
+        throw JsonMappingException.from(p, "Can not deserialize Instant out of " + token);
+    }
+
+    private static Class<? extends Event> eventClassOf(final String type) {
+        return type == null ? UnknownEvent.class : EVENT_TYPES.getOrDefault(type, UnknownEvent.class);
+    }
+
+    private static Class<? extends MessageContent> messageContentClassOf(final String type) {
+        return type == null ? UnknownMessageContent.class
+                            : MESSAGE_CONTENT_TYPES.getOrDefault(type, UnknownMessageContent.class);
+    }
+
+    /**
+     * Skip properties up to the end of current object.
+     */
+    private static void skipRestOfObject(final JsonParser p) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            p.nextToken();
+            p.skipChildren();
+        }
+    }
+
+    private static void expectStartObject(final JsonParser p, final Class<?> type) throws IOException {
+        if (p.getCurrentToken() != JsonToken.START_OBJECT) {
+            throw JsonMappingException.from(
+                    p, "Can not deserialize " + type.getSimpleName() + " out of " + p.getCurrentToken());
+        }
+    }
+}
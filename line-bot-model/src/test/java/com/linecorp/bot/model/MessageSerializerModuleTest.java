@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import com.linecorp.bot.model.action.DatetimePickerAction;
+import com.linecorp.bot.model.action.MessageAction;
+import com.linecorp.bot.model.action.PostbackAction;
+import com.linecorp.bot.model.message.AudioMessage;
+import com.linecorp.bot.model.message.ImageMessage;
+import com.linecorp.bot.model.message.ImagemapMessage;
+import com.linecorp.bot.model.message.LocationMessage;
+import com.linecorp.bot.model.message.Message;
+import com.linecorp.bot.model.message.MessageFixtures;
+import com.linecorp.bot.model.message.TemplateMessage;
+import com.linecorp.bot.model.message.TextMessage;
+import com.linecorp.bot.model.message.imagemap.ImagemapArea;
+import com.linecorp.bot.model.message.imagemap.ImagemapBaseSize;
+import com.linecorp.bot.model.message.imagemap.MessageImagemapAction;
+import com.linecorp.bot.model.message.imagemap.URIImagemapAction;
+import com.linecorp.bot.model.message.template.ButtonsTemplate;
+import com.linecorp.bot.model.message.template.ImageCarouselColumn;
+import com.linecorp.bot.model.message.template.ImageCarouselTemplate;
+
+import lombok.Value;
+
+/**
+ * Output of {@link MessageSerializerModule} should be byte-for-byte equal to Jackson's bean serializers.
+ */
+public class MessageSerializerModuleTest {
+    private static final TypeReference<List<Message>> MESSAGE_LIST = new TypeReference<List<Message>>() {};
+
+    private final ObjectMapper jackson = new ObjectMapper();
+    private final ObjectMapper module = new ObjectMapper().registerModule(new MessageSerializerModule());
+
+    @Test
+    public void fixturesTest() throws Exception {
+        for (Message message : MessageFixtures.all()) {
+            assertSameBytes(message);
+        }
+    }
+
+    @Test
+    public void messageTest() throws Exception {
+        assertSameBytes(new TextMessage("TEST \"quoted\" こんにちは"));
+        assertSameBytes(new ImageMessage("https://example.com/original", "https://example.com/preview"));
+        assertSameBytes(new LocationMessage("title", "address", 35.65910807942215, 139.70372892916203));
+        assertSameBytes(new AudioMessage("originalUrl", null));
+        assertSameBytes(new TextMessage(null));
+    }
+
+    @Test
+    public void imagemapMessageTest() throws Exception {
+        assertSameBytes(new ImagemapMessage(
+                "baseUrl", "altText", new ImagemapBaseSize(1040, 700),
+                Arrays.asList(new MessageImagemapAction("text", new ImagemapArea(0, 0, 520, 350)),
+                              new URIImagemapAction("https://example.com", new ImagemapArea(520, 0, 520, 350)),
+                              new URIImagemapAction("https://example.com", null))));
+        assertSameBytes(new ImagemapMessage("baseUrl", "altText", null, null));
+    }
+
+    @Test
+    public void templateMessageTest() throws Exception {
+        assertSameBytes(new TemplateMessage("ALT", new ButtonsTemplate(
+                null, null, "text", Arrays.asList(new PostbackAction("label", "data", "text"),
+                                                  new PostbackAction(null, "data"),
+                                                  new MessageAction(null, null)))));
+        assertSameBytes(new TemplateMessage("ALT", new ImageCarouselTemplate(Arrays.asList(
+                new ImageCarouselColumn("https://example.com/1", new DatetimePickerAction(
+                        "label", "data", "datetime", "2017-06-18T06:15", "2100-12-31T23:59", null)),
+                new ImageCarouselColumn("https://example.com/2", null)))));
+        assertSameBytes(new TemplateMessage("ALT", null));
+    }
+
+    @Test
+    public void messageListTest() throws Exception {
+        final List<Message> messages = MessageFixtures.all();
+
+        // Do
+        final ObjectWriter jacksonWriter = jackson.writerFor(MESSAGE_LIST);
+        final ObjectWriter moduleWriter = module.writerFor(MESSAGE_LIST);
+
+        // Verify
+        assertThat(moduleWriter.writeValueAsBytes(messages))
+                .isEqualTo(jacksonWriter.writeValueAsBytes(messages));
+    }
+
+    @Test
+    public void unknownImplementationTest() throws Exception {
+        // Do
+        final String json = module.writerFor(MESSAGE_LIST)
+                                  .writeValueAsString(singletonList(new CustomMessage("value")));
+
+        // Verify
+        assertThat(json).isEqualTo("[{\"type\":\"custom\",\"value\":\"value\"}]");
+    }
+
+    private void assertSameBytes(final Message message) throws Exception {
+        assertThat(new String(module.writeValueAsBytes(message), "UTF-8"))
+                .isEqualTo(new String(jackson.writeValueAsBytes(message), "UTF-8"));
+        assertThat(module.writerFor(Message.class).writeValueAsBytes(message))
+                .isEqualTo(jackson.writerFor(Message.class).writeValueAsBytes(message));
+    }
+
+    @Value
+    @JsonTypeName("custom")
+    private static class CustomMessage implements Message {
+        String value;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.linecorp.bot.model.message.StickerMessage;
+import com.linecorp.bot.model.message.TextMessage;
+
+public class PreparedMessagesTest {
+    @Test
+    public void writeToTest() throws Exception {
+        final PreparedMessages target =
+                PreparedMessages.of(Arrays.asList(new TextMessage("こんにちは"),
+                                                  new StickerMessage("1", "2")));
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // Do
+        target.writeTo(outputStream);
+
+        // Verify
+        assertThat(outputStream.toString("UTF-8"))
+                .isEqualTo("[{\"type\":\"text\",\"text\":\"こんにちは\"},"
+                           + "{\"type\":\"sticker\",\"packageId\":\"1\",\"stickerId\":\"2\"}]");
+        assertThat(target.size()).isEqualTo(2);
+        assertThat(target.getMessages()).containsExactly(new TextMessage("こんにちは"), new StickerMessage("1", "2"));
+        assertThat(target.getSizeInBytes()).isEqualTo(outputStream.size());
+    }
+}
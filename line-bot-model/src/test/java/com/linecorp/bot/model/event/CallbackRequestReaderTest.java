@@ -0,0 +1,286 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model.event;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Parameter;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import org.junit.Test;
+import org.springframework.util.StreamUtils;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import com.linecorp.bot.model.event.CallbackRequestReader.EventFilter;
+import com.linecorp.bot.model.event.message.LocationMessageContent;
+import com.linecorp.bot.model.event.message.MessageContent;
+import com.linecorp.bot.model.event.message.TextMessageContent;
+import com.linecorp.bot.model.event.message.UnknownMessageContent;
+import com.linecorp.bot.model.event.source.GroupSource;
+import com.linecorp.bot.model.event.source.Source;
+import com.linecorp.bot.model.event.source.UnknownSource;
+import com.linecorp.bot.model.event.source.UserSource;
+
+/**
+ * {@link CallbackRequestReader} should read the same result as {@link ObjectMapper}.
+ */
+public class CallbackRequestReaderTest {
+    private static final String[] FIXTURES = {
+            "beacon.json", "beacon_with_dm.json", "file.json", "follow.json", "image.json", "join.json",
+            "leave.json", "location.json", "postback.json", "sticker.json", "text-group.json",
+            "text-user.json", "unfollow.json", "unknown.json"
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS, false);
+
+    @Test
+    public void fixturesTest() throws Exception {
+        for (String fixture : FIXTURES) {
+            final byte[] json = load("callback/" + fixture);
+
+            // Do
+            final CallbackRequest request = CallbackRequestReader.read(json);
+
+            // Verify
+            assertThat(request).as(fixture)
+                               .isEqualTo(objectMapper.readValue(json, CallbackRequest.class));
+        }
+    }
+
+    @Test
+    public void typeLastTest() throws Exception {
+        final String json = "{\"destination\":\"U1\",\"events\":[{"
+                            + "\"message\":{\"latitude\":35.5,\"longitude\":\"139.5\",\"title\":\"t\","
+                            + "\"extra\":[1,{\"a\":2}],\"id\":\"1\",\"type\":\"location\"},"
+                            + "\"timestamp\":1462629479859,"
+                            + "\"source\":{\"userId\":\"U2\",\"groupId\":\"G1\",\"type\":\"group\"},"
+                            + "\"replyToken\":\"token\",\"type\":\"message\"}]}";
+
+        // Do
+        final CallbackRequest request = CallbackRequestReader.read(json.getBytes(UTF_8));
+
+        // Verify
+        assertThat(request).isEqualTo(objectMapper.readValue(json, CallbackRequest.class));
+        final MessageEvent<?> event = (MessageEvent<?>) request.getEvents().get(0);
+        assertThat(event.getSource()).isEqualTo(new GroupSource("G1", "U2"));
+        assertThat(event.getMessage()).isEqualTo(new LocationMessageContent("1", "t", null, 35.5, 139.5));
+        assertThat(event.getTimestamp()).isEqualTo(Instant.ofEpochMilli(1462629479859L));
+    }
+
+    @Test
+    public void unknownTypeTest() throws Exception {
+        final String json = "{\"events\":[{\"type\":\"newEvent\",\"source\":{\"type\":\"newSource\"},"
+                            + "\"message\":{\"type\":\"newMessage\",\"id\":\"1\"}},"
+                            + "{\"message\":{\"type\":\"newMessage\",\"id\":\"2\"},\"type\":\"message\"},"
+                            + "{}]}";
+
+        // Do
+        final CallbackRequest request = CallbackRequestReader.read(json.getBytes(UTF_8));
+
+        // Verify
+        assertThat(request).isEqualTo(objectMapper.readValue(json, CallbackRequest.class));
+        assertThat(request.getEvents().get(0)).isEqualTo(new UnknownEvent("newEvent", new UnknownSource(), null));
+        assertThat(((MessageEvent<?>) request.getEvents().get(1)).getMessage())
+                .isEqualTo(new UnknownMessageContent("2"));
+    }
+
+    @Test
+    public void timestampTest() throws Exception {
+        final String json = "{\"events\":[{\"type\":\"follow\",\"timestamp\":1462629479.859},"
+                            + "{\"type\":\"follow\",\"timestamp\":\"2016-05-07T13:57:59.859Z\"}]}";
+
+        // Do
+        final CallbackRequest request = CallbackRequestReader.read(json.getBytes(UTF_8));
+
+        // Verify
+        assertThat(request).isEqualTo(objectMapper.readValue(json, CallbackRequest.class));
+        assertThat(request.getEvents().get(1).getTimestamp()).isEqualTo(Instant.ofEpochMilli(1462629479859L));
+    }
+
+    @Test
+    public void eventFilterTest() throws Exception {
+        final EventFilter filter = new EventFilter() {
+            @Override
+            public boolean acceptsEvent(final Class<? extends Event> eventType) {
+                return eventType != BeaconEvent.class;
+            }
+
+            @Override
+            public boolean acceptsMessageContent(final Class<? extends MessageContent> messageContentType) {
+                return messageContentType == TextMessageContent.class;
+            }
+        };
+        final String json = "{\"events\":["
+                            + "{\"type\":\"beacon\",\"beacon\":{\"dm\":\"invalid\"},\"source\":{}},"
+                            + "{\"beacon\":{\"hwid\":\"1\"},\"type\":\"beacon\"},"
+                            + "{\"type\":\"message\",\"message\":{\"type\":\"image\",\"id\":\"1\"}},"
+                            + "{\"message\":{\"id\":\"2\",\"type\":\"image\"},\"type\":\"message\"},"
+                            + "{\"type\":\"message\",\"message\":{\"type\":\"text\",\"id\":\"3\"}},"
+                            + "{\"type\":\"follow\",\"message\":{\"type\":\"image\",\"id\":\"4\"}}"
+                            + "]}";
+        final byte[] bytes = json.getBytes(UTF_8);
+
+        // Do
+        final CallbackRequest request = CallbackRequestReader.read(bytes, 0, bytes.length, filter);
+
+        // Verify
+        assertThat(request.getEvents()).containsExactly(
+                new MessageEvent<>(null, null, new TextMessageContent("3", null), null),
+                new FollowEvent(null, null, null));
+    }
+
+    @Test
+    public void nullAndMissingEventsTest() throws Exception {
+        assertThat(CallbackRequestReader.read("null".getBytes(UTF_8))).isNull();
+        assertThat(CallbackRequestReader.read("{}".getBytes(UTF_8)).getEvents()).isNull();
+    }
+
+    @Test
+    public void nullEventIsSkippedTest() throws Exception {
+        // Do
+        final CallbackRequest request =
+                CallbackRequestReader.read("{\"events\":[null,{\"type\":\"follow\"}]}".getBytes(UTF_8));
+
+        // Verify
+        assertThat(request.getEvents()).containsExactly(new FollowEvent(null, null, null));
+    }
+
+    /**
+     * Every {@code @JsonProperty} of creators of the models should be read. Fails when a property is added to
+     * a model but not to the reader.
+     */
+    @Test
+    public void allCreatorPropertiesTest() throws Exception {
+        final List<String> jsons = new ArrayList<>();
+        for (Class<?> eventType : subTypesOf(Event.class)) {
+            jsons.add("{\"events\":[" + sample(eventType) + "]}");
+        }
+        for (Class<?> sourceType : subTypesOf(Source.class)) {
+            jsons.add("{\"events\":[{\"type\":\"follow\",\"replyToken\":\"r\",\"timestamp\":1,"
+                      + "\"source\":" + sample(sourceType) + "}]}");
+        }
+        for (Class<?> messageContentType : subTypesOf(MessageContent.class)) {
+            jsons.add("{\"events\":[{\"type\":\"message\",\"replyToken\":\"r\",\"timestamp\":1,"
+                      + "\"source\":" + sample(UserSource.class) + ","
+                      + "\"message\":" + sample(messageContentType) + "}]}");
+        }
+
+        for (String json : jsons) {
+            final byte[] bytes = json.getBytes(UTF_8);
+
+            // Do
+            final CallbackRequest request = CallbackRequestReader.read(bytes);
+
+            // Verify
+            assertThat(request).as(json).isEqualTo(objectMapper.readValue(bytes, CallbackRequest.class));
+        }
+    }
+
+    @Test
+    public void invalidTest() {
+        assertThatThrownBy(() -> CallbackRequestReader.read(new byte[0])).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> CallbackRequestReader.read("{\"events\":{}}".getBytes(UTF_8)))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> CallbackRequestReader.read(
+                "{\"events\":[{\"type\":\"beacon\",\"beacon\":{\"dm\":\"xyz\"}}]}".getBytes(UTF_8)))
+                .isInstanceOf(IOException.class);
+    }
+
+    private static Class<?>[] subTypesOf(final Class<?> baseType) {
+        return Arrays.stream(baseType.getAnnotation(JsonSubTypes.class).value())
+                     .map(JsonSubTypes.Type::value)
+                     .toArray(Class<?>[]::new);
+    }
+
+    /**
+     * JSON object which has all properties of the creator of the type with distinct values.
+     */
+    private static String sample(final Class<?> type) {
+        final Constructor<?> creator =
+                Arrays.stream(type.getConstructors())
+                      .filter(constructor -> constructor.getParameterCount() > 0
+                                             && Arrays.stream(constructor.getParameters())
+                                                      .allMatch(p -> p.isAnnotationPresent(JsonProperty.class)))
+                      .findFirst()
+                      .orElseThrow(() -> new AssertionError("No creator of " + type));
+        final StringJoiner properties = new StringJoiner(",", "{", "}");
+        final JsonTypeName typeName = type.getAnnotation(JsonTypeName.class);
+        if (typeName != null) {
+            properties.add("\"type\":\"" + typeName.value() + '"');
+        }
+        for (Parameter parameter : creator.getParameters()) {
+            final String name = parameter.getAnnotation(JsonProperty.class).value();
+            properties.add('"' + name + "\":" + sampleValue(parameter.getType(), name));
+        }
+        return properties.toString();
+    }
+
+    private static String sampleValue(final Class<?> type, final String name) {
+        if (type == String.class) {
+            // Hex, so that it's also valid as beacon device message.
+            final StringBuilder hex = new StringBuilder("\"");
+            for (byte b : name.getBytes(UTF_8)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.append('"').toString();
+        }
+        if (type == Instant.class) {
+            return "1462629479859";
+        }
+        if (type == Double.class || type == double.class) {
+            return String.valueOf(name.length() + 0.5);
+        }
+        if (type == Integer.class || type == int.class) {
+            return String.valueOf(name.length());
+        }
+        if (type == Map.class) {
+            return "{\"" + name + "\":\"value\"}";
+        }
+        if (type == Source.class) {
+            return sample(UserSource.class);
+        }
+        if (type == MessageContent.class) {
+            return sample(TextMessageContent.class);
+        }
+        return sample(type);
+    }
+
+    private byte[] load(final String resourceName) throws IOException {
+        try (InputStream resource = getClass().getClassLoader().getResourceAsStream(resourceName)) {
+            return StreamUtils.copyToByteArray(resource);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.model.message;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.linecorp.bot.model.action.MessageAction;
+import com.linecorp.bot.model.action.PostbackAction;
+import com.linecorp.bot.model.action.URIAction;
+import com.linecorp.bot.model.message.imagemap.ImagemapBaseSize;
+import com.linecorp.bot.model.message.template.ButtonsTemplate;
+import com.linecorp.bot.model.message.template.CarouselColumn;
+import com.linecorp.bot.model.message.template.CarouselTemplate;
+import com.linecorp.bot.model.message.template.ConfirmTemplate;
+
+/**
+ * A message of each type, shared by tests of message serialization.
+ */
+public final class MessageFixtures {
+    public static final TextMessage TEXT = new TextMessage("TEST");
+    public static final StickerMessage STICKER = new StickerMessage("123", "456");
+    public static final AudioMessage AUDIO = new AudioMessage("originalUrl", 20);
+    public static final VideoMessage VIDEO =
+            new VideoMessage("https://example.com/original", "https://example.com/preview");
+    public static final ImagemapMessage IMAGEMAP =
+            new ImagemapMessage("baseUrl", "altText", new ImagemapBaseSize(1040, 1040), emptyList());
+    public static final LocationMessage LOCATION = new LocationMessage("title", "address", 135.0, 0.0);
+    public static final TemplateMessage CAROUSEL_TEMPLATE = new TemplateMessage(
+            "ALT", new CarouselTemplate(singletonList(
+                    new CarouselColumn("thumbnail", "title", "text",
+                                       singletonList(new PostbackAction("postback", "data"))))));
+    public static final TemplateMessage CONFIRM_TEMPLATE = new TemplateMessage(
+            "ALT", new ConfirmTemplate("text",
+                                       new URIAction("label", "http://example.com"),
+                                       new MessageAction("label", "text")));
+    public static final TemplateMessage BUTTONS_TEMPLATE = new TemplateMessage(
+            "ALT", new ButtonsTemplate("https://example.com", "title", "text",
+                                       singletonList(new MessageAction("label", "text"))));
+
+    private static final List<Message> ALL = Collections.unmodifiableList(Arrays.asList(
+            TEXT, STICKER, AUDIO, VIDEO, IMAGEMAP, LOCATION,
+            CAROUSEL_TEMPLATE, CONFIRM_TEMPLATE, BUTTONS_TEMPLATE));
+
+    private MessageFixtures() {
+    }
+
+    /**
+     * All fixtures above.
+     */
+    public static List<Message> all() {
+        return ALL;
+    }
+}
@@ -17,25 +17,39 @@
 package com.linecorp.bot.servlet;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 
+import javax.crypto.Mac;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.google.common.io.ByteStreams;
-
 import com.linecorp.bot.client.LineSignatureValidator;
 import com.linecorp.bot.model.event.CallbackRequest;
+import com.linecorp.bot.model.event.CallbackRequestReader;
+import com.linecorp.bot.model.event.CallbackRequestReader.EventFilter;
 
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class LineBotCallbackRequestParser {
+    public static final int DEFAULT_MAX_BODY_SIZE = 1024 * 1024;
+
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Body buffer per request thread. Buffers grown over {@link #MAX_POOLED_BUFFER_SIZE} are not kept.
+     */
+    private static final ThreadLocal<byte[]> BUFFERS =
+            ThreadLocal.withInitial(() -> new byte[INITIAL_BUFFER_SIZE]);
+
     private final LineSignatureValidator lineSignatureValidator;
-    private final ObjectMapper objectMapper;
+    private final int maxBodySize;
 
     /**
      * Create new instance
@@ -44,8 +58,22 @@ public class LineBotCallbackRequestParser {
      */
     public LineBotCallbackRequestParser(
             @NonNull LineSignatureValidator lineSignatureValidator) {
+        this(lineSignatureValidator, DEFAULT_MAX_BODY_SIZE);
+    }
+
+    /**
+     * Create new instance
+     *
+     * @param lineSignatureValidator LINE messaging API's signature validator
+     * @param maxBodySize Max size of request body in bytes. Larger requests are rejected.
+     */
+    public LineBotCallbackRequestParser(
+            @NonNull LineSignatureValidator lineSignatureValidator, int maxBodySize) {
+        if (maxBodySize < 1) {
+            throw new IllegalArgumentException("maxBodySize should be positive. But " + maxBodySize);
+        }
         this.lineSignatureValidator = lineSignatureValidator;
-        this.objectMapper = buildObjectMapper();
+        this.maxBodySize = maxBodySize;
     }
 
     /**
@@ -56,12 +84,193 @@ public class LineBotCallbackRequestParser {
      * @throws LineBotCallbackException There's an error around signature.
      */
     public CallbackRequest handle(HttpServletRequest req) throws LineBotCallbackException, IOException {
-        // validate signature
-        String signature = req.getHeader("X-Line-Signature");
-        final byte[] json = ByteStreams.toByteArray(req.getInputStream());
-        return handle(signature, new String(json, StandardCharsets.UTF_8));
+        return handle(req, EventFilter.ACCEPT_ALL);
     }
-    
+
+    /**
+     * Parse request, reading only events accepted by the filter.
+     *
+     * <p>The signature is validated against the whole body, including rejected events.
+     *
+     * @param req HTTP servlet request.
+     * @param eventFilter Filter of events to read.
+     * @return Parsed result. If there's an error, this method sends response.
+     * @throws LineBotCallbackException There's an error around signature.
+     */
+    public CallbackRequest handle(HttpServletRequest req, @NonNull EventFilter eventFilter)
+            throws LineBotCallbackException, IOException {
+        final String signature = checkRequest(req);
+
+        final byte[] pooled = BUFFERS.get();
+        final Body body = new Body(pooled, req.getContentLengthLong());
+        final InputStream inputStream = req.getInputStream();
+        while (body.readFrom(inputStream) >= 0) {
+            // Read until the end of the body.
+        }
+        if (body.buffer != pooled && body.buffer.length <= MAX_POOLED_BUFFER_SIZE) {
+            BUFFERS.set(body.buffer);
+        }
+        return body.parse(signature, eventFilter);
+    }
+
+    /**
+     * Parse request without blocking a thread while the body arrives.
+     *
+     * <p>The request must be in asynchronous mode, i.e. {@link HttpServletRequest#startAsync()} has been called.
+     * The body is read by a {@link ReadListener}, and the signature is validated and the body is parsed
+     * when the whole body is read.
+     *
+     * @param req HTTP servlet request in asynchronous mode.
+     * @return Future of the parsed result. Completed with {@link LineBotCallbackException} when there's an error
+     *         around signature.
+     */
+    public CompletableFuture<CallbackRequest> handleAsync(HttpServletRequest req) {
+        return handleAsync(req, EventFilter.ACCEPT_ALL);
+    }
+
+    /**
+     * Parse request without blocking a thread, reading only events accepted by the filter.
+     *
+     * @see #handleAsync(HttpServletRequest)
+     * @see #handle(HttpServletRequest, EventFilter)
+     */
+    public CompletableFuture<CallbackRequest> handleAsync(HttpServletRequest req,
+                                                          @NonNull EventFilter eventFilter) {
+        final CompletableFuture<CallbackRequest> future = new CompletableFuture<>();
+        try {
+            final String signature = checkRequest(req);
+            final ServletInputStream inputStream = req.getInputStream();
+            inputStream.setReadListener(
+                    new BodyReadListener(inputStream, signature, eventFilter,
+                                         new Body(new byte[INITIAL_BUFFER_SIZE], req.getContentLengthLong()),
+                                         future));
+        } catch (LineBotCallbackException | IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Check headers before reading the body.
+     *
+     * @return Value of {@code X-Line-Signature} header.
+     */
+    private String checkRequest(final HttpServletRequest req) throws LineBotCallbackException {
+        final String signature = req.getHeader("X-Line-Signature");
+        if (signature == null || signature.length() == 0) {
+            throw new LineBotCallbackException("Missing 'X-Line-Signature' header");
+        }
+        if (req.getContentLengthLong() > maxBodySize) {
+            throw new LineBotCallbackException("Request body is too large");
+        }
+        return signature;
+    }
+
+    /**
+     * Request body read into a buffer. The signature is computed while the body is read,
+     * and JSON is parsed from the buffer.
+     */
+    private final class Body {
+        private final Mac mac = lineSignatureValidator.createMac();
+        private byte[] buffer;
+        private int length;
+
+        Body(final byte[] buffer, final long contentLength) {
+            this.buffer = contentLength > buffer.length ? new byte[(int) contentLength] : buffer;
+        }
+
+        /**
+         * Read available bytes once.
+         *
+         * @return Number of bytes read, or -1 at the end of the body.
+         */
+        int readFrom(final InputStream inputStream) throws IOException, LineBotCallbackException {
+            if (length >= maxBodySize) {
+                if (inputStream.read() < 0) {
+                    return -1;
+                }
+                throw new LineBotCallbackException("Request body is too large");
+            }
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, (int) Math.min(maxBodySize, length * 2L));
+            }
+            final int read = inputStream.read(buffer, length, Math.min(buffer.length, maxBodySize) - length);
+            if (read > 0) {
+                mac.update(buffer, length, read);
+                length += read;
+            }
+            return read;
+        }
+
+        CallbackRequest parse(final String signature, final EventFilter eventFilter)
+                throws LineBotCallbackException, IOException {
+            if (log.isDebugEnabled()) {
+                log.debug("got: {}", new String(buffer, 0, length, StandardCharsets.UTF_8));
+            }
+
+            if (!lineSignatureValidator.validateSignature(mac, signature)) {
+                throw new LineBotCallbackException("Invalid API signature");
+            }
+
+            final CallbackRequest callbackRequest = CallbackRequestReader.read(buffer, 0, length, eventFilter);
+            if (callbackRequest == null || callbackRequest.getEvents() == null) {
+                throw new LineBotCallbackException("Invalid content");
+            }
+            return callbackRequest;
+        }
+    }
+
+    /**
+     * Reads the body whenever the container has data, and completes the future when the body is read.
+     */
+    private static final class BodyReadListener implements ReadListener {
+        private final ServletInputStream inputStream;
+        private final String signature;
+        private final EventFilter eventFilter;
+        private final Body body;
+        private final CompletableFuture<CallbackRequest> future;
+
+        BodyReadListener(final ServletInputStream inputStream, final String signature,
+                         final EventFilter eventFilter, final Body body,
+                         final CompletableFuture<CallbackRequest> future) {
+            this.inputStream = inputStream;
+            this.signature = signature;
+            this.eventFilter = eventFilter;
+            this.body = body;
+            this.future = future;
+        }
+
+        @Override
+        public void onDataAvailable() {
+            try {
+                while (!future.isDone() && inputStream.isReady() && !inputStream.isFinished()) {
+                    if (body.readFrom(inputStream) < 0) {
+                        break;
+                    }
+                }
+            } catch (LineBotCallbackException | IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public void onAllDataRead() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(body.parse(signature, eventFilter));
+            } catch (LineBotCallbackException | IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+
     /**
      * Parse request.
      *
@@ -84,20 +293,10 @@ public class LineBotCallbackRequestParser {
             throw new LineBotCallbackException("Invalid API signature");
         }
 
-        final CallbackRequest callbackRequest = objectMapper.readValue(json, CallbackRequest.class);
+        final CallbackRequest callbackRequest = CallbackRequestReader.read(json);
         if (callbackRequest == null || callbackRequest.getEvents() == null) {
             throw new LineBotCallbackException("Invalid content");
         }
         return callbackRequest;
     }
-
-    private static ObjectMapper buildObjectMapper() {
-        final ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-
-        // Register JSR-310(java.time.temporal.*) module and read number as millsec.
-        objectMapper.registerModule(new JavaTimeModule())
-                    .configure(DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS, false);
-        return objectMapper;
-    }
 }
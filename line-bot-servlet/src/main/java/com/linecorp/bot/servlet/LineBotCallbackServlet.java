@@ -0,0 +1,191 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.servlet;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.linecorp.bot.model.event.CallbackRequest;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Asynchronous webhook endpoint for deployments without Spring.
+ *
+ * <p>The body is read by {@link LineBotCallbackRequestParser#handleAsync(HttpServletRequest)}, so that
+ * no container thread waits for slow clients. Then the handler is called, and the response is sent when
+ * the {@link CompletionStage} returned by the handler is completed.
+ *
+ * <ul>
+ *     <li>200 when the handler succeeds.</li>
+ *     <li>400 with the message when {@link LineBotCallbackException} is thrown, e.g. invalid signature.</li>
+ *     <li>500 for other failures.</li>
+ *     <li>503 when the handler doesn't complete within the async timeout. A result of the handler after
+ *     that is ignored.</li>
+ * </ul>
+ *
+ * <p>The servlet should be registered with async support.
+ *
+ * <pre>{@code
+ * LineBotCallbackServlet servlet = new LineBotCallbackServlet(
+ *         new LineBotCallbackRequestParser(new LineSignatureValidator(channelSecret)),
+ *         callbackRequest -> handleEvents(callbackRequest.getEvents()));
+ * ServletRegistration.Dynamic registration = servletContext.addServlet("callback", servlet);
+ * registration.setAsyncSupported(true);
+ * registration.addMapping("/callback");
+ * }</pre>
+ */
+@Slf4j
+public class LineBotCallbackServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    public static final long DEFAULT_ASYNC_TIMEOUT = 30_000;
+
+    private final transient LineBotCallbackRequestParser lineBotCallbackRequestParser;
+    private final transient Function<CallbackRequest, ? extends CompletionStage<?>> handler;
+    private final long asyncTimeout;
+
+    /**
+     * Create new instance with {@link #DEFAULT_ASYNC_TIMEOUT}.
+     *
+     * @param lineBotCallbackRequestParser Parser of webhook requests.
+     * @param handler Function handling parsed events. The response is sent when the returned stage is completed.
+     */
+    public LineBotCallbackServlet(
+            @NonNull LineBotCallbackRequestParser lineBotCallbackRequestParser,
+            @NonNull Function<CallbackRequest, ? extends CompletionStage<?>> handler) {
+        this(lineBotCallbackRequestParser, handler, DEFAULT_ASYNC_TIMEOUT);
+    }
+
+    /**
+     * Create new instance.
+     *
+     * @param lineBotCallbackRequestParser Parser of webhook requests.
+     * @param handler Function handling parsed events. The response is sent when the returned stage is completed.
+     * @param asyncTimeout Time in milliseconds to read the body and run the handler. Zero or less means
+     * no timeout.
+     */
+    public LineBotCallbackServlet(
+            @NonNull LineBotCallbackRequestParser lineBotCallbackRequestParser,
+            @NonNull Function<CallbackRequest, ? extends CompletionStage<?>> handler,
+            long asyncTimeout) {
+        this.lineBotCallbackRequestParser = lineBotCallbackRequestParser;
+        this.handler = handler;
+        this.asyncTimeout = asyncTimeout;
+    }
+
+    @Override
+    protected void doPost(final HttpServletRequest req, final HttpServletResponse resp) {
+        final AsyncContext asyncContext = req.startAsync();
+        asyncContext.setTimeout(Math.max(0, asyncTimeout));
+        final Completion completion = new Completion(asyncContext, resp);
+        asyncContext.addListener(completion);
+        lineBotCallbackRequestParser.handleAsync(req)
+                                    .thenCompose(callbackRequest -> handler.apply(callbackRequest)
+                                                                           .thenApply(result -> (Void) null))
+                                    .whenComplete((ignored, throwable) -> completion.complete(throwable));
+    }
+
+    /**
+     * Completes the async context once, by the result of the handler, a timeout or an error of the container.
+     */
+    private static final class Completion implements AsyncListener {
+        private final AsyncContext asyncContext;
+        private final HttpServletResponse resp;
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        Completion(final AsyncContext asyncContext, final HttpServletResponse resp) {
+            this.asyncContext = asyncContext;
+            this.resp = resp;
+        }
+
+        void complete(final Throwable throwable) {
+            if (!completed.compareAndSet(false, true)) {
+                log.debug("Ignored result of LINE Bot callback after timeout or error", throwable);
+                return;
+            }
+            try {
+                sendResponse(resp, throwable);
+            } finally {
+                asyncContext.complete();
+            }
+        }
+
+        @Override
+        public void onTimeout(final AsyncEvent event) {
+            if (completed.compareAndSet(false, true)) {
+                log.warn("LINE Bot callback timed out");
+                try {
+                    resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                } finally {
+                    asyncContext.complete();
+                }
+            }
+        }
+
+        @Override
+        public void onError(final AsyncEvent event) {
+            if (completed.compareAndSet(false, true)) {
+                log.info("LINE Bot callback failed: {}", String.valueOf(event.getThrowable()));
+                asyncContext.complete();
+            }
+        }
+
+        @Override
+        public void onComplete(final AsyncEvent event) {
+            completed.set(true);
+        }
+
+        @Override
+        public void onStartAsync(final AsyncEvent event) {
+        }
+    }
+
+    private static void sendResponse(final HttpServletResponse resp, final Throwable throwable) {
+        if (throwable == null) {
+            resp.setStatus(HttpServletResponse.SC_OK);
+            return;
+        }
+
+        final Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                                ? throwable.getCause() : throwable;
+        if (cause instanceof LineBotCallbackException) {
+            log.info("LINE Bot callback exception: {}", cause.getMessage());
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            try (PrintWriter writer = resp.getWriter()) {
+                writer.println(cause.getMessage());
+            } catch (IOException e) {
+                log.debug("Failed to write response", e);
+            }
+        } else {
+            log.error("Failed to handle LINE Bot callback", cause);
+            resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -29,8 +29,12 @@ import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletResponse;
 
 import org.junit.Before;
@@ -112,11 +116,9 @@ public class LineBotCallbackRequestParserTest {
         final byte[] requestBody = "null".getBytes(StandardCharsets.UTF_8);
 
         MockHttpServletRequest request = new MockHttpServletRequest();
-        request.addHeader("X-Line-Signature", "SSSSIGNATURE");
+        request.addHeader("X-Line-Signature", sign(requestBody));
         request.setContent(requestBody);
 
-        doReturn(true).when(lineSignatureValidator).validateSignature(requestBody, "SSSSIGNATURE");
-
         assertThatThrownBy(() -> lineBotCallbackRequestParser.handle(request))
                 .isInstanceOf(LineBotCallbackException.class)
                 .hasMessage("Invalid content");
@@ -140,11 +142,9 @@ public class LineBotCallbackRequestParserTest {
         byte[] requestBody = ByteStreams.toByteArray(resource);
 
         MockHttpServletRequest request = new MockHttpServletRequest();
-        request.addHeader("X-Line-Signature", "SSSSIGNATURE");
+        request.addHeader("X-Line-Signature", sign(requestBody));
         request.setContent(requestBody);
 
-        doReturn(true).when(lineSignatureValidator).validateSignature(requestBody, "SSSSIGNATURE");
-
         CallbackRequest callbackRequest = lineBotCallbackRequestParser.handle(request);
 
         assertThat(callbackRequest).isNotNull();
@@ -185,4 +185,136 @@ public class LineBotCallbackRequestParserTest {
         assertThat(followedUserId).isEqualTo("u206d25c2ea6bd87c17655609a1c37cb8");
         assertThat(messageEvent.getTimestamp()).isEqualTo(Instant.parse("2016-05-07T13:57:59.859Z"));
     }
+
+    @Test
+    public void testLargeRequest() throws Exception {
+        final StringBuilder json = new StringBuilder("{\"events\":[");
+        for (int i = 0; i < 200; i++) {
+            json.append(i == 0 ? "" : ",")
+                .append("{\"type\":\"message\",\"replyToken\":\"token\",\"timestamp\":1462629479859,")
+                .append("\"source\":{\"type\":\"user\",\"userId\":\"U").append(i).append("\"},")
+                .append("\"message\":{\"type\":\"text\",\"id\":\"").append(i).append("\",\"text\":\"こんにちは\"}}");
+        }
+        final byte[] requestBody = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+
+        MockHttpServletRequest request = new UnknownLengthRequest();
+        request.addHeader("X-Line-Signature", sign(requestBody));
+        request.setContent(requestBody);
+
+        CallbackRequest callbackRequest = lineBotCallbackRequestParser.handle(request);
+
+        assertThat(requestBody.length).isGreaterThan(16 * 1024);
+        assertThat(callbackRequest.getEvents()).hasSize(200);
+        assertThat(callbackRequest.getEvents().get(199).getSource().getUserId()).isEqualTo("U199");
+    }
+
+    @Test
+    public void testTooLargeRequest() throws Exception {
+        final LineBotCallbackRequestParser parser = new LineBotCallbackRequestParser(lineSignatureValidator, 8);
+        final byte[] requestBody = "{\"events\":[]}".getBytes(StandardCharsets.UTF_8);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-Line-Signature", sign(requestBody));
+        request.setContent(requestBody);
+        MockHttpServletRequest unknownLength = new UnknownLengthRequest();
+        unknownLength.addHeader("X-Line-Signature", sign(requestBody));
+        unknownLength.setContent(requestBody);
+
+        assertThatThrownBy(() -> parser.handle(request))
+                .isInstanceOf(LineBotCallbackException.class)
+                .hasMessage("Request body is too large");
+        assertThatThrownBy(() -> parser.handle(unknownLength))
+                .isInstanceOf(LineBotCallbackException.class)
+                .hasMessage("Request body is too large");
+    }
+
+    @Test
+    public void testAsyncRequest() throws Exception {
+        InputStream resource = getClass().getClassLoader().getResourceAsStream("callback-request.json");
+        byte[] requestBody = ByteStreams.toByteArray(resource);
+        ManualServletInputStream inputStream = new ManualServletInputStream();
+        MockHttpServletRequest request = asyncRequest(inputStream);
+        request.addHeader("X-Line-Signature", sign(requestBody));
+
+        // Do
+        CompletableFuture<CallbackRequest> future = lineBotCallbackRequestParser.handleAsync(request);
+        inputStream.deliver(Arrays.copyOfRange(requestBody, 0, 10));
+        assertThat(future).isNotDone();
+        inputStream.deliver(Arrays.copyOfRange(requestBody, 10, requestBody.length));
+        assertThat(future).isNotDone();
+        inputStream.finish();
+
+        // Verify
+        final MessageEvent messageEvent = (MessageEvent) future.get().getEvents().get(0);
+        final TextMessageContent text = (TextMessageContent) messageEvent.getMessage();
+        assertThat(text.getText()).isEqualTo("Hello, world");
+    }
+
+    @Test
+    public void testAsyncInvalidRequest() throws Exception {
+        ManualServletInputStream inputStream = new ManualServletInputStream();
+        MockHttpServletRequest request = asyncRequest(inputStream);
+        request.addHeader("X-Line-Signature", "SSSSIGNATURE");
+
+        // Do
+        CompletableFuture<CallbackRequest> future = lineBotCallbackRequestParser.handleAsync(request);
+        inputStream.deliver("{}".getBytes(StandardCharsets.UTF_8));
+        inputStream.finish();
+
+        // Verify
+        assertThatThrownBy(future::get)
+                .hasCauseInstanceOf(LineBotCallbackException.class)
+                .hasMessageContaining("Invalid API signature");
+        assertThatThrownBy(() -> lineBotCallbackRequestParser.handleAsync(new MockHttpServletRequest()).get())
+                .hasCauseInstanceOf(LineBotCallbackException.class)
+                .hasMessageContaining("Missing 'X-Line-Signature' header");
+    }
+
+    @Test
+    public void testAsyncTooLargeRequest() throws Exception {
+        final LineBotCallbackRequestParser parser = new LineBotCallbackRequestParser(lineSignatureValidator, 8);
+        ManualServletInputStream inputStream = new ManualServletInputStream();
+        MockHttpServletRequest request = asyncRequest(inputStream);
+        request.addHeader("X-Line-Signature", "SSSSIGNATURE");
+
+        // Do
+        CompletableFuture<CallbackRequest> future = parser.handleAsync(request);
+        inputStream.deliver("{\"events\":[]}".getBytes(StandardCharsets.UTF_8));
+
+        // Verify
+        assertThatThrownBy(future::get)
+                .hasCauseInstanceOf(LineBotCallbackException.class)
+                .hasMessageContaining("Request body is too large");
+    }
+
+    private static MockHttpServletRequest asyncRequest(final ManualServletInputStream inputStream) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/callback") {
+            @Override
+            public ServletInputStream getInputStream() {
+                return inputStream;
+            }
+
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        request.setAsyncSupported(true);
+        request.startAsync();
+        return request;
+    }
+
+    private String sign(final byte[] requestBody) {
+        return Base64.getEncoder().encodeToString(lineSignatureValidator.generateSignature(requestBody));
+    }
+
+    /**
+     * Request without Content-Length, e.g. chunked.
+     */
+    private static class UnknownLengthRequest extends MockHttpServletRequest {
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+    }
 }
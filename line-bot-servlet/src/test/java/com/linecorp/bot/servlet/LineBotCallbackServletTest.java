@@ -0,0 +1,193 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.servlet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.linecorp.bot.client.LineSignatureValidator;
+import com.linecorp.bot.model.event.CallbackRequest;
+
+public class LineBotCallbackServletTest {
+    private static final byte[] BODY = "{\"events\":[]}".getBytes(StandardCharsets.UTF_8);
+
+    private final LineSignatureValidator lineSignatureValidator =
+            new LineSignatureValidator("SECRET".getBytes(StandardCharsets.UTF_8));
+    private final AsyncContext asyncContext = mock(AsyncContext.class);
+    private final CompletableFuture<CallbackRequest> handled = new CompletableFuture<>();
+    private final CompletableFuture<Void> handlerResult = new CompletableFuture<>();
+    private final LineBotCallbackServlet target = new LineBotCallbackServlet(
+            new LineBotCallbackRequestParser(lineSignatureValidator),
+            callbackRequest -> {
+                handled.complete(callbackRequest);
+                return handlerResult;
+            });
+
+    @Test
+    public void okTest() throws Exception {
+        final ManualServletInputStream inputStream = new ManualServletInputStream();
+        final MockHttpServletRequest request = asyncRequest(inputStream);
+        request.addHeader("X-Line-Signature",
+                          Base64.getEncoder().encodeToString(lineSignatureValidator.generateSignature(BODY)));
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Do
+        target.doPost(request, response);
+        inputStream.deliver(BODY);
+        inputStream.finish();
+
+        // Verify
+        assertThat(handled).isDone();
+        assertThat(handled.get().getEvents()).isEmpty();
+        verify(asyncContext, never()).complete();
+
+        handlerResult.complete(null);
+        verify(asyncContext).complete();
+        assertThat(response.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    public void invalidSignatureTest() throws Exception {
+        final ManualServletInputStream inputStream = new ManualServletInputStream();
+        final MockHttpServletRequest request = asyncRequest(inputStream);
+        request.addHeader("X-Line-Signature", "SSSSIGNATURE");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Do
+        target.doPost(request, response);
+        inputStream.deliver(BODY);
+        inputStream.finish();
+
+        // Verify
+        assertThat(handled).isNotDone();
+        verify(asyncContext).complete();
+        assertThat(response.getStatus()).isEqualTo(400);
+        assertThat(response.getContentAsString()).contains("Invalid API signature");
+    }
+
+    @Test
+    public void handlerFailureTest() throws Exception {
+        final ManualServletInputStream inputStream = new ManualServletInputStream();
+        final MockHttpServletRequest request = asyncRequest(inputStream);
+        request.addHeader("X-Line-Signature",
+                          Base64.getEncoder().encodeToString(lineSignatureValidator.generateSignature(BODY)));
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Do
+        target.doPost(request, response);
+        inputStream.deliver(BODY);
+        inputStream.finish();
+        handlerResult.completeExceptionally(new RuntimeException("failure"));
+
+        // Verify
+        verify(asyncContext).complete();
+        assertThat(response.getStatus()).isEqualTo(500);
+    }
+
+    @Test
+    public void timeoutTest() throws Exception {
+        final ManualServletInputStream inputStream = new ManualServletInputStream();
+        final MockHttpServletRequest request = asyncRequest(inputStream);
+        request.addHeader("X-Line-Signature",
+                          Base64.getEncoder().encodeToString(lineSignatureValidator.generateSignature(BODY)));
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        final ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+
+        // Do
+        target.doPost(request, response);
+        inputStream.deliver(BODY);
+        inputStream.finish();
+        verify(asyncContext).setTimeout(LineBotCallbackServlet.DEFAULT_ASYNC_TIMEOUT);
+        verify(asyncContext).addListener(listener.capture());
+        listener.getValue().onTimeout(new AsyncEvent(asyncContext));
+
+        // Verify
+        verify(asyncContext).complete();
+        assertThat(response.getStatus()).isEqualTo(503);
+
+        // Do: late result of the handler is ignored.
+        handlerResult.complete(null);
+
+        // Verify
+        verify(asyncContext, times(1)).complete();
+        assertThat(response.getStatus()).isEqualTo(503);
+    }
+
+    @Test
+    public void errorTest() throws Exception {
+        final ManualServletInputStream inputStream = new ManualServletInputStream();
+        final MockHttpServletRequest request = asyncRequest(inputStream);
+        request.addHeader("X-Line-Signature",
+                          Base64.getEncoder().encodeToString(lineSignatureValidator.generateSignature(BODY)));
+        final ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+
+        // Do
+        target.doPost(request, new MockHttpServletResponse());
+        verify(asyncContext).addListener(listener.capture());
+        listener.getValue().onError(new AsyncEvent(asyncContext, new IOException("Broken pipe")));
+        inputStream.deliver(BODY);
+        inputStream.finish();
+        handlerResult.complete(null);
+
+        // Verify
+        verify(asyncContext, times(1)).complete();
+        verify(asyncContext, never()).dispatch(any(String.class));
+    }
+
+    private MockHttpServletRequest asyncRequest(final ManualServletInputStream inputStream) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/callback") {
+            @Override
+            public ServletInputStream getInputStream() {
+                return inputStream;
+            }
+
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+
+            @Override
+            public AsyncContext startAsync(final ServletRequest request, final ServletResponse response) {
+                super.startAsync(request, response);
+                return asyncContext;
+            }
+        };
+        request.setAsyncSupported(true);
+        return request;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.servlet;
+
+import java.io.IOException;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+
+/**
+ * Input stream of asynchronous request whose data is delivered by test code.
+ */
+class ManualServletInputStream extends ServletInputStream {
+    private ReadListener readListener;
+    private byte[] chunk = new byte[0];
+    private int position;
+    private boolean finished;
+
+    /**
+     * Make the chunk available and notify the listener.
+     */
+    void deliver(final byte[] chunk) throws IOException {
+        this.chunk = chunk;
+        position = 0;
+        readListener.onDataAvailable();
+    }
+
+    /**
+     * Finish the body and notify the listener.
+     */
+    void finish() throws IOException {
+        finished = true;
+        readListener.onAllDataRead();
+    }
+
+    boolean hasReadListener() {
+        return readListener != null;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished && position == chunk.length;
+    }
+
+    @Override
+    public boolean isReady() {
+        return position < chunk.length || finished;
+    }
+
+    @Override
+    public void setReadListener(final ReadListener readListener) {
+        this.readListener = readListener;
+    }
+
+    @Override
+    public int read() {
+        if (position == chunk.length) {
+            if (finished) {
+                return -1;
+            }
+            throw new IllegalStateException("Not ready");
+        }
+        return chunk[position++] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) {
+        if (position == chunk.length) {
+            return read();
+        }
+        final int count = Math.min(len, chunk.length - position);
+        System.arraycopy(chunk, position, b, off, count);
+        position += count;
+        return count;
+    }
+}
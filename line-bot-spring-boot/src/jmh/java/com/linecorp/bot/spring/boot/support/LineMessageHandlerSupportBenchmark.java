@@ -0,0 +1,221 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.support.StaticApplicationContext;
+
+import com.linecorp.bot.model.event.BeaconEvent;
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.FollowEvent;
+import com.linecorp.bot.model.event.JoinEvent;
+import com.linecorp.bot.model.event.LeaveEvent;
+import com.linecorp.bot.model.event.MessageEvent;
+import com.linecorp.bot.model.event.PostbackEvent;
+import com.linecorp.bot.model.event.ReplyEvent;
+import com.linecorp.bot.model.event.UnfollowEvent;
+import com.linecorp.bot.model.event.UnknownEvent;
+import com.linecorp.bot.model.event.message.AudioMessageContent;
+import com.linecorp.bot.model.event.message.FileMessageContent;
+import com.linecorp.bot.model.event.message.ImageMessageContent;
+import com.linecorp.bot.model.event.message.LocationMessageContent;
+import com.linecorp.bot.model.event.message.MessageContent;
+import com.linecorp.bot.model.event.message.StickerMessageContent;
+import com.linecorp.bot.model.event.message.TextMessageContent;
+import com.linecorp.bot.model.event.message.UnknownMessageContent;
+import com.linecorp.bot.model.event.message.VideoMessageContent;
+import com.linecorp.bot.model.event.postback.PostbackContent;
+import com.linecorp.bot.model.event.source.GroupSource;
+import com.linecorp.bot.model.event.source.Source;
+import com.linecorp.bot.model.event.source.UserSource;
+import com.linecorp.bot.spring.boot.annotation.EventMapping;
+import com.linecorp.bot.spring.boot.annotation.LineMessageHandler;
+import com.linecorp.bot.spring.boot.support.LineMessageHandlerSupport.HandlerMethod;
+
+/**
+ * Dispatch of events to 22 handler methods by {@link LineMessageHandlerSupport}, compared with the linear scan
+ * of handlers and {@link java.lang.reflect.Method#invoke(Object, Object...)} it replaced.
+ */
+@State(Scope.Benchmark)
+public class LineMessageHandlerSupportBenchmark {
+    private static final Source USER = new UserSource("u206d25c2ea6bd87c17655609a1c37cb8");
+    private static final Source GROUP = new GroupSource("cxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx", null);
+    private static final Instant TIMESTAMP = Instant.parse("2016-05-07T13:57:59.859Z");
+
+    private final List<Event> events = Arrays.asList(
+            new MessageEvent<>("replyToken", USER, new TextMessageContent("1", "Hello, world"), TIMESTAMP),
+            new MessageEvent<>("replyToken", GROUP, new TextMessageContent("2", "Hello, group"), TIMESTAMP),
+            new MessageEvent<>("replyToken", USER, new StickerMessageContent("3", "1", "1"), TIMESTAMP),
+            new MessageEvent<>("replyToken", USER, new ImageMessageContent("4"), TIMESTAMP),
+            new MessageEvent<>("replyToken", USER,
+                               new LocationMessageContent("5", "title", "address", 35.0, 139.0), TIMESTAMP),
+            new PostbackEvent("replyToken", USER, new PostbackContent("action=buy", null), TIMESTAMP),
+            new FollowEvent("replyToken", USER, TIMESTAMP),
+            new UnfollowEvent(USER, TIMESTAMP),
+            new JoinEvent("replyToken", GROUP, TIMESTAMP));
+
+    private StaticApplicationContext applicationContext;
+    private LineMessageHandlerSupport support;
+
+    @Setup
+    public void setUp() {
+        applicationContext = new StaticApplicationContext();
+        applicationContext.getBeanFactory().registerSingleton("message", new MessageHandlers());
+        applicationContext.getBeanFactory().registerSingleton("event", new EventHandlers());
+        applicationContext.getBeanFactory().registerSingleton("fallback", new FallbackHandlers());
+        applicationContext.getBeanFactory().registerSingleton("audit", new AuditHandlers());
+        support = new LineMessageHandlerSupport(null, applicationContext);
+        applicationContext.refresh();
+    }
+
+    @TearDown
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public void dispatch() {
+        for (Event event : events) {
+            support.dispatch(event);
+        }
+    }
+
+    @Benchmark
+    public void dispatchByScan(final Blackhole blackhole) throws Exception {
+        final List<HandlerMethod> handlerMethods = support.eventConsumerList;
+        for (Event event : events) {
+            for (HandlerMethod handlerMethod : handlerMethods) {
+                if (handlerMethod.getSupportType().test(event)) {
+                    blackhole.consume(handlerMethod.getHandler().invoke(handlerMethod.getObject(), event));
+                    break;
+                }
+            }
+        }
+    }
+
+    @LineMessageHandler
+    public static class MessageHandlers {
+        @EventMapping
+        public void text(MessageEvent<TextMessageContent> event) {
+        }
+
+        @EventMapping
+        public void image(MessageEvent<ImageMessageContent> event) {
+        }
+
+        @EventMapping
+        public void sticker(MessageEvent<StickerMessageContent> event) {
+        }
+
+        @EventMapping
+        public void location(MessageEvent<LocationMessageContent> event) {
+        }
+
+        @EventMapping
+        public void audio(MessageEvent<AudioMessageContent> event) {
+        }
+
+        @EventMapping
+        public void video(MessageEvent<VideoMessageContent> event) {
+        }
+
+        @EventMapping
+        public void file(MessageEvent<FileMessageContent> event) {
+        }
+
+        @EventMapping
+        public void unknownMessage(MessageEvent<UnknownMessageContent> event) {
+        }
+    }
+
+    @LineMessageHandler
+    public static class EventHandlers {
+        @EventMapping
+        public void follow(FollowEvent event) {
+        }
+
+        @EventMapping
+        public void unfollow(UnfollowEvent event) {
+        }
+
+        @EventMapping
+        public void join(JoinEvent event) {
+        }
+
+        @EventMapping
+        public void leave(LeaveEvent event) {
+        }
+
+        @EventMapping
+        public void postback(PostbackEvent event) {
+        }
+
+        @EventMapping
+        public void beacon(BeaconEvent event) {
+        }
+
+        @EventMapping
+        public void unknownEvent(UnknownEvent event) {
+        }
+    }
+
+    @LineMessageHandler
+    public static class FallbackHandlers {
+        @EventMapping
+        public void message(MessageEvent<MessageContent> event) {
+        }
+
+        @EventMapping
+        public void reply(ReplyEvent event) {
+        }
+
+        @EventMapping
+        public void event(Event event) {
+        }
+    }
+
+    /**
+     * Handlers of low priority. They are scanned but not selected for the events above.
+     */
+    @LineMessageHandler
+    public static class AuditHandlers {
+        @EventMapping(priority = 1)
+        public void text(MessageEvent<TextMessageContent> event) {
+        }
+
+        @EventMapping(priority = 1)
+        public void postback(PostbackEvent event) {
+        }
+
+        @EventMapping(priority = 1)
+        public void follow(FollowEvent event) {
+        }
+
+        @EventMapping(priority = 1)
+        public void event(Event event) {
+        }
+    }
+}
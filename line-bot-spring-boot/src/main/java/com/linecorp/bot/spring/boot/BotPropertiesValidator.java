@@ -70,6 +70,21 @@ public class BotPropertiesValidator implements ConstraintValidator<ValidBotPrope
                            .addConstraintViolation();
                     return false;
                 }
+            case ISSUE:
+                if (value.getChannelToken() != null) {
+                    context.buildConstraintViolationWithTemplate(
+                            "channelToken should be null if channelTokenSupplyMode = ISSUE")
+                           .addPropertyNode("channelToken")
+                           .addConstraintViolation();
+                    return false;
+                }
+                if (value.getChannelId() == null) {
+                    context.buildConstraintViolationWithTemplate("channelId is null")
+                           .addPropertyNode("channelId")
+                           .addConstraintViolation();
+                    return false;
+                }
+                return true;
         }
         throw new IllegalStateException("Not implemented channelTokenSupplyMode.");
     }
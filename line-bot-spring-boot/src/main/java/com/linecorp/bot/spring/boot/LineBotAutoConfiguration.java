@@ -17,27 +17,51 @@
 package com.linecorp.bot.spring.boot;
 
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.type.AnnotatedTypeMetadata;
 
 import com.linecorp.bot.client.ChannelTokenSupplier;
+import com.linecorp.bot.client.ClientMetrics;
+import com.linecorp.bot.client.ConnectionStats;
+import com.linecorp.bot.client.ConnectionWarmer;
+import com.linecorp.bot.client.ContentDownloadLimiter;
 import com.linecorp.bot.client.FixedChannelTokenSupplier;
 import com.linecorp.bot.client.LineMessagingClient;
 import com.linecorp.bot.client.LineMessagingClientImpl;
 import com.linecorp.bot.client.LineMessagingService;
 import com.linecorp.bot.client.LineMessagingServiceBuilder;
 import com.linecorp.bot.client.LineSignatureValidator;
+import com.linecorp.bot.client.OAuthChannelTokenIssuer;
+import com.linecorp.bot.client.RefreshingChannelTokenSupplier;
+import com.linecorp.bot.client.RetryPolicy;
+import com.linecorp.bot.client.WireLoggingInterceptor;
 import com.linecorp.bot.servlet.LineBotCallbackRequestParser;
+import com.linecorp.bot.spring.boot.LineBotProperties.ChannelTokenSupplyMode;
 import com.linecorp.bot.spring.boot.interceptor.LineBotServerInterceptor;
+import com.linecorp.bot.spring.boot.support.ConnectionWarmUpLifecycle;
 import com.linecorp.bot.spring.boot.support.LineBotServerArgumentProcessor;
 import com.linecorp.bot.spring.boot.support.LineMessageHandlerSupport;
+import com.linecorp.bot.spring.boot.support.ReplyDeadline;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 
 @Configuration
 @AutoConfigureAfter(LineBotWebMvcConfigurer.class)
@@ -47,28 +71,192 @@ public class LineBotAutoConfiguration {
     @Autowired
     private LineBotProperties lineBotProperties;
 
+    /**
+     * Builder of {@link #lineMessagingService}, configured by {@link LineBotProperties}.
+     */
     @Bean
-    public LineMessagingService lineMessagingService(
-            final ChannelTokenSupplier channelTokenSupplier) {
-        return LineMessagingServiceBuilder
+    public LineMessagingServiceBuilder lineMessagingServiceBuilder(
+            final ChannelTokenSupplier channelTokenSupplier,
+            @Qualifier("lineBotDispatcher") final Dispatcher lineBotDispatcher,
+            @Qualifier("lineBotConnectionPool") final ConnectionPool lineBotConnectionPool,
+            @Qualifier("lineBotContentDispatcher") final Dispatcher lineBotContentDispatcher,
+            @Qualifier("lineBotContentConnectionPool") final ConnectionPool lineBotContentConnectionPool,
+            final ObjectProvider<WireLoggingInterceptor> wireLoggingInterceptor,
+            final ObjectProvider<ClientMetrics> clientMetrics) {
+        final LineMessagingServiceBuilder builder = LineMessagingServiceBuilder
                 .create(channelTokenSupplier)
                 .apiEndPoint(lineBotProperties.getApiEndPoint())
                 .connectTimeout(lineBotProperties.getConnectTimeout())
                 .readTimeout(lineBotProperties.getReadTimeout())
                 .writeTimeout(lineBotProperties.getWriteTimeout())
-                .build();
+                .maxRequests(lineBotProperties.getMaxRequests())
+                .maxRequestsPerHost(lineBotProperties.getMaxRequestsPerHost())
+                .keepAliveDuration(lineBotProperties.getKeepAliveDuration())
+                .warmUpConnections(lineBotProperties.getWarmUpConnections())
+                .dispatcher(lineBotDispatcher)
+                .connectionPool(lineBotConnectionPool)
+                .separateContentLane(lineBotProperties.isSeparateContentLane())
+                .contentMaxRequests(lineBotProperties.getContentMaxRequests())
+                .contentReadTimeout(lineBotProperties.getContentReadTimeout())
+                .contentDispatcher(lineBotContentDispatcher)
+                .contentConnectionPool(lineBotContentConnectionPool)
+                .wireLogging(wireLoggingOrDefault(wireLoggingInterceptor.getIfAvailable()));
+        final ClientMetrics metrics = clientMetrics.getIfAvailable();
+        if (metrics != null) {
+            builder.metrics(metrics);
+        }
+        if (!lineBotProperties.getProtocols().isEmpty()) {
+            builder.protocols(lineBotProperties.getProtocols());
+        }
+        return builder;
+    }
+
+    @Bean
+    public LineMessagingService lineMessagingService(
+            final LineMessagingServiceBuilder lineMessagingServiceBuilder) {
+        return lineMessagingServiceBuilder.build();
+    }
+
+    /**
+     * Warmer of connections of {@link #lineMessagingService}, if {@code line.bot.warmUpConnections} is positive.
+     * Re-warming is stopped when the context is closed.
+     */
+    @Bean
+    @Conditional(WarmUpConnectionsCondition.class)
+    public ConnectionWarmer lineBotConnectionWarmer(
+            final LineMessagingServiceBuilder lineMessagingServiceBuilder,
+            final LineMessagingService lineMessagingService) {
+        // Created by build() of lineMessagingService.
+        return lineMessagingServiceBuilder.connectionWarmer();
+    }
+
+    /**
+     * Waits for the warm-up before the application starts serving webhooks.
+     */
+    @Bean
+    @Conditional(WarmUpConnectionsCondition.class)
+    public ConnectionWarmUpLifecycle lineBotConnectionWarmUpLifecycle(
+            final ConnectionWarmer lineBotConnectionWarmer) {
+        return new ConnectionWarmUpLifecycle(lineBotConnectionWarmer,
+                                             Math.max(1, lineBotProperties.getKeepAliveDuration() / 2));
+    }
+
+    private WireLoggingInterceptor wireLoggingOrDefault(final WireLoggingInterceptor wireLoggingInterceptor) {
+        if (wireLoggingInterceptor != null) {
+            return wireLoggingInterceptor;
+        }
+        final LineBotProperties.WireLogging wireLogging = lineBotProperties.getWireLogging();
+        final WireLoggingInterceptor.Builder builder =
+                WireLoggingInterceptor.builder()
+                                      .level(wireLogging.getLevel())
+                                      .maxBodyBytes(wireLogging.getMaxBodyBytes())
+                                      .sampleRate(wireLogging.getSampleRate());
+        wireLogging.getLevels().forEach(builder::level);
+        return builder.build();
+    }
+
+    /**
+     * Dispatcher of {@link #lineMessagingService}. Define an {@link ExecutorService} bean named
+     * {@code lineBotDispatcherExecutor} to run requests on it.
+     */
+    @Bean
+    public Dispatcher lineBotDispatcher(
+            @Qualifier("lineBotDispatcherExecutor") final ObjectProvider<ExecutorService> executor) {
+        return newDispatcher(executor.getIfAvailable());
+    }
+
+    @Bean
+    public ConnectionPool lineBotConnectionPool() {
+        return new ConnectionPool(lineBotProperties.getMaxIdleConnections(),
+                                  lineBotProperties.getKeepAliveDuration(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Dispatcher of content downloads of {@link #lineMessagingService}. Define an {@link ExecutorService} bean
+     * named {@code lineBotContentDispatcherExecutor} to run downloads on it. It should not be
+     * {@code lineBotDispatcherExecutor}, otherwise slow downloads take threads from API calls.
+     */
+    @Bean
+    public Dispatcher lineBotContentDispatcher(
+            @Qualifier("lineBotContentDispatcherExecutor") final ObjectProvider<ExecutorService> executor) {
+        return newDispatcher(executor.getIfAvailable());
+    }
+
+    private static Dispatcher newDispatcher(final ExecutorService executorService) {
+        return executorService != null ? new Dispatcher(executorService) : new Dispatcher();
+    }
+
+    @Bean
+    public ConnectionPool lineBotContentConnectionPool() {
+        return new ConnectionPool(lineBotProperties.getContentMaxIdleConnections(),
+                                  lineBotProperties.getKeepAliveDuration(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Live request and connection counts of {@link #lineMessagingService}.
+     */
+    @Bean
+    public ConnectionStats lineBotConnectionStats(
+            @Qualifier("lineBotDispatcher") final Dispatcher lineBotDispatcher,
+            @Qualifier("lineBotConnectionPool") final ConnectionPool lineBotConnectionPool) {
+        return new ConnectionStats(lineBotDispatcher, lineBotConnectionPool);
+    }
+
+    /**
+     * Live request and connection counts of content downloads of {@link #lineMessagingService}.
+     * Same as {@link #lineBotConnectionStats} if {@code line.bot.separateContentLane} is false.
+     */
+    @Bean
+    public ConnectionStats lineBotContentConnectionStats(
+            @Qualifier("lineBotDispatcher") final Dispatcher lineBotDispatcher,
+            @Qualifier("lineBotConnectionPool") final ConnectionPool lineBotConnectionPool,
+            @Qualifier("lineBotContentDispatcher") final Dispatcher lineBotContentDispatcher,
+            @Qualifier("lineBotContentConnectionPool") final ConnectionPool lineBotContentConnectionPool) {
+        return lineBotProperties.isSeparateContentLane()
+               ? new ConnectionStats(lineBotContentDispatcher, lineBotContentConnectionPool)
+               : new ConnectionStats(lineBotDispatcher, lineBotConnectionPool);
     }
 
     @Bean
     @ConditionalOnMissingBean(ChannelTokenSupplier.class)
     public ChannelTokenSupplier channelTokenSupplier() {
+        if (lineBotProperties.getChannelTokenSupplyMode() == ChannelTokenSupplyMode.ISSUE) {
+            final OAuthChannelTokenIssuer issuer = new OAuthChannelTokenIssuer(
+                    lineBotProperties.getChannelId(),
+                    lineBotProperties.getChannelSecret(),
+                    lineBotProperties.getApiEndPoint());
+            return RefreshingChannelTokenSupplier.builder(issuer).build();
+        }
         final String channelToken = lineBotProperties.getChannelToken();
         return FixedChannelTokenSupplier.of(channelToken);
     }
 
+    /**
+     * Requests are retried if a {@link RetryPolicy} bean is defined.
+     * Content downloads are limited by a {@link ContentDownloadLimiter} bean if defined.
+     */
     @Bean
-    public LineMessagingClient lineMessagingClient(final LineMessagingService lineMessagingService) {
-        return new LineMessagingClientImpl(lineMessagingService);
+    public LineMessagingClient lineMessagingClient(
+            final LineMessagingService lineMessagingService,
+            final ObjectProvider<RetryPolicy> retryPolicy,
+            final ObjectProvider<ContentDownloadLimiter> contentDownloadLimiter) {
+        final ContentDownloadLimiter limiter = contentDownloadLimiter.getIfAvailable();
+        return new LineMessagingClientImpl(lineMessagingService, retryPolicy.getIfAvailable(),
+                                           limiter != null ? limiter : ContentDownloadLimiter.getDefault());
+    }
+
+    /**
+     * Deadline of reply tokens used to send messages returned by handler methods.
+     * Handler methods can inject it to check the remaining time.
+     */
+    @Bean
+    @ConditionalOnMissingBean(ReplyDeadline.class)
+    public ReplyDeadline replyDeadline() {
+        final LineBotProperties.Reply reply = lineBotProperties.getHandler().getReply();
+        return ReplyDeadline.builder()
+                            .replyTimeout(reply.getTimeout())
+                            .pushFallback(reply.isPushFallback())
+                            .build();
     }
 
     @Bean
@@ -96,4 +284,17 @@ public class LineBotAutoConfiguration {
             LineSignatureValidator lineSignatureValidator) {
         return new LineBotCallbackRequestParser(lineSignatureValidator);
     }
+
+    static class WarmUpConnectionsCondition extends SpringBootCondition {
+        @Override
+        public ConditionOutcome getMatchOutcome(final ConditionContext context,
+                                                final AnnotatedTypeMetadata metadata) {
+            final int warmUpConnections =
+                    new RelaxedPropertyResolver(context.getEnvironment(), "line.bot.")
+                            .getProperty("warm-up-connections", Integer.class, 0);
+            return warmUpConnections > 0
+                   ? ConditionOutcome.match("line.bot.warmUpConnections is " + warmUpConnections)
+                   : ConditionOutcome.noMatch("line.bot.warmUpConnections is not positive");
+        }
+    }
 }
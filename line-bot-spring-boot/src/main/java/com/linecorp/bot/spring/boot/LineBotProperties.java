@@ -17,6 +17,11 @@
 package com.linecorp.bot.spring.boot;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
@@ -24,12 +29,18 @@ import javax.validation.constraints.NotNull;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 
+import com.linecorp.bot.client.EndpointFamily;
 import com.linecorp.bot.client.LineMessagingServiceBuilder;
+import com.linecorp.bot.client.WireLoggingInterceptor;
 import com.linecorp.bot.spring.boot.BotPropertiesValidator.ValidBotProperties;
 import com.linecorp.bot.spring.boot.annotation.EventMapping;
 import com.linecorp.bot.spring.boot.annotation.LineMessageHandler;
+import com.linecorp.bot.spring.boot.support.EventQueue;
+import com.linecorp.bot.spring.boot.support.HandlerBulkhead;
+import com.linecorp.bot.spring.boot.support.ReplyDeadline;
 
 import lombok.Data;
+import okhttp3.Protocol;
 
 @Data
 @Validated
@@ -50,6 +61,11 @@ public class LineBotProperties {
     @Valid
     private String channelToken;
 
+    /**
+     * Channel ID. Required if channelTokenSupplyMode = ISSUE.
+     */
+    private String channelId;
+
     /**
      * Channel secret
      */
@@ -82,6 +98,82 @@ public class LineBotProperties {
     @NotNull
     private long writeTimeout = LineMessagingServiceBuilder.DEFAULT_WRITE_TIMEOUT;
 
+    /**
+     * Max number of requests executed concurrently
+     */
+    @Valid
+    @NotNull
+    private int maxRequests = LineMessagingServiceBuilder.DEFAULT_MAX_REQUESTS;
+
+    /**
+     * Max number of requests executed concurrently for each host
+     */
+    @Valid
+    @NotNull
+    private int maxRequestsPerHost = LineMessagingServiceBuilder.DEFAULT_MAX_REQUESTS_PER_HOST;
+
+    /**
+     * Max number of idle connections in the connection pool
+     */
+    @Valid
+    @NotNull
+    private int maxIdleConnections = LineMessagingServiceBuilder.DEFAULT_MAX_IDLE_CONNECTIONS;
+
+    /**
+     * Keep alive duration of idle connections in milliseconds
+     */
+    @Valid
+    @NotNull
+    private long keepAliveDuration = LineMessagingServiceBuilder.DEFAULT_KEEP_ALIVE_DURATION;
+
+    /**
+     * Number of connections opened on startup and kept open. 0 disables warm-up.
+     */
+    @Valid
+    @NotNull
+    private int warmUpConnections;
+
+    /**
+     * Send content downloads through a separate dispatcher and connection pool
+     */
+    @Valid
+    @NotNull
+    private boolean separateContentLane = true;
+
+    /**
+     * Max number of content downloads executed concurrently in the content lane
+     */
+    @Valid
+    @NotNull
+    private int contentMaxRequests = LineMessagingServiceBuilder.DEFAULT_CONTENT_MAX_REQUESTS;
+
+    /**
+     * Read timeout of the content lane in milliseconds
+     */
+    @Valid
+    @NotNull
+    private long contentReadTimeout = LineMessagingServiceBuilder.DEFAULT_CONTENT_READ_TIMEOUT;
+
+    /**
+     * Max number of idle connections in the connection pool of the content lane
+     */
+    @Valid
+    @NotNull
+    private int contentMaxIdleConnections = LineMessagingServiceBuilder.DEFAULT_CONTENT_MAX_IDLE_CONNECTIONS;
+
+    /**
+     * Protocols to negotiate. e.g. {@code HTTP_1_1} to disable HTTP/2. Empty means OkHttp's default.
+     */
+    @NotNull
+    private List<Protocol> protocols = new ArrayList<>();
+
+    /**
+     * Configuration of wire logging. Ignored if a {@link WireLoggingInterceptor} bean is defined.
+     */
+    @Valid
+    @NotNull
+    private WireLogging wireLogging = new WireLogging();
+
     /**
      * Configuration for {@link LineMessageHandler} and {@link EventMapping}.
      */
@@ -103,6 +195,120 @@ public class LineBotProperties {
          */
         @NotNull
         URI path = URI.create("/callback");
+
+        /**
+         * Acknowledge webhook requests before handlers run.
+         */
+        @Valid
+        @NotNull
+        Async async = new Async();
+
+        /**
+         * Thread pools isolating handlers, by name referred from {@link EventMapping#bulkhead()}.
+         */
+        @Valid
+        @NotNull
+        Map<String, Bulkhead> bulkheads = new HashMap<>();
+
+        /**
+         * Deadline of replies by return values of handler methods.
+         */
+        @Valid
+        @NotNull
+        Reply reply = new Reply();
+    }
+
+    @Data
+    public static class Reply {
+        /**
+         * Time to reply in milliseconds from event timestamp. Reply tokens are likely expired after this.
+         * Also the default of {@code line.bot.handler.async.max-event-age}.
+         */
+        long timeout = ReplyDeadline.DEFAULT_REPLY_TIMEOUT;
+
+        /**
+         * Flag to send messages by push message to the source, instead of reply after the timeout.
+         * If {@code false}, such messages are dropped.
+         *
+         * Default: {@code true}
+         */
+        boolean pushFallback = true;
+    }
+
+    @Data
+    public static class Bulkhead {
+        /**
+         * Max number of handlers running at once. Each of them runs handlers of a stripe of sources in order.
+         */
+        int maxConcurrency = HandlerBulkhead.DEFAULT_MAX_CONCURRENCY;
+
+        /**
+         * Max number of handlers waiting for a thread in total. Handlers beyond this are rejected.
+         */
+        int queueSize = HandlerBulkhead.DEFAULT_QUEUE_SIZE;
+    }
+
+    @Data
+    public static class Async {
+        /**
+         * Flag to return the response as soon as events are queued, and to run handlers on worker threads.
+         *
+         * Default: {@code false}
+         */
+        boolean enabled;
+
+        /**
+         * Max number of queued events of each lane. The oldest event is dropped when the lane is full.
+         */
+        int queueCapacity = EventQueue.DEFAULT_CAPACITY;
+
+        /**
+         * Number of lanes. Events from the same source are handled in order by the thread of a lane.
+         * Handlers in bulkheads are handed off by the lane, and keep the order only within the bulkhead.
+         */
+        int lanes = EventQueue.DEFAULT_LANES;
+
+        /**
+         * Max age of events in milliseconds. Older events are dropped instead of being handled.
+         *
+         * Default: {@code line.bot.handler.reply.timeout}, so that events are dropped when their reply
+         * tokens expire. Set it larger to handle late events and send their messages by push fallback.
+         */
+        Long maxEventAge;
+
+        /**
+         * Flag to record queue and dispatch time of each lane.
+         *
+         * Default: {@code true}
+         */
+        boolean recordLatency = true;
+    }
+
+    @Data
+    public static class WireLogging {
+        /**
+         * Log level of all endpoints.
+         *
+         * Default: {@code BASIC}
+         */
+        @NotNull
+        WireLoggingInterceptor.Level level = WireLoggingInterceptor.Level.BASIC;
+
+        /**
+         * Log levels by endpoint family, which override {@link #level}.
+         * e.g. {@code line.bot.wire-logging.levels.push=BODY}
+         */
+        Map<EndpointFamily, WireLoggingInterceptor.Level> levels = new EnumMap<>(EndpointFamily.class);
+
+        /**
+         * Max number of logged bytes of each body.
+         */
+        int maxBodyBytes = WireLoggingInterceptor.DEFAULT_MAX_BODY_BYTES;
+
+        /**
+         * Log only 1 in N exchanges.
+         */
+        int sampleRate = 1;
     }
 
     enum ChannelTokenSupplyMode {
@@ -118,5 +324,12 @@ public class LineBotProperties {
          * >//devdocs.line.me/#issue-channel-access-token</a>
          */
         SUPPLIER,
+
+        /**
+         * Issue short-lived channel tokens by channel ID and channel secret, and refresh them automatically.
+         *
+         * @see com.linecorp.bot.client.RefreshingChannelTokenSupplier
+         */
+        ISSUE,
     }
 }
@@ -43,4 +43,16 @@ public @interface EventMapping {
      * Priority of this mapping. Bigger mapping is preferentially searched and matched.
      */
     int priority() default DEFAULT_PRIORITY_VALUE;
+
+    /**
+     * Name of the bulkhead running this handler, defined by {@code line.bot.handler.bulkheads.<name>}.
+     *
+     * <p>Handlers in a bulkhead run in its own threads, so that slow handlers, e.g. ones downloading
+     * message contents, don't delay others. Events from the same source are handled in order within
+     * the bulkhead, but not against handlers outside it.
+     * Empty means the handler runs in the thread dispatching events.
+     *
+     * @see com.linecorp.bot.spring.boot.support.HandlerBulkhead
+     */
+    String bulkhead() default "";
 }
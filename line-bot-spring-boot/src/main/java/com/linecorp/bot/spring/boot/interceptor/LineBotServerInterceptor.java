@@ -30,10 +30,12 @@ import org.springframework.web.servlet.HandlerInterceptor;
 import org.springframework.web.servlet.ModelAndView;
 
 import com.linecorp.bot.model.event.CallbackRequest;
+import com.linecorp.bot.model.event.CallbackRequestReader.EventFilter;
 import com.linecorp.bot.servlet.LineBotCallbackException;
 import com.linecorp.bot.servlet.LineBotCallbackRequestParser;
 import com.linecorp.bot.spring.boot.annotation.LineBotMessages;
 import com.linecorp.bot.spring.boot.support.LineBotServerArgumentProcessor;
+import com.linecorp.bot.spring.boot.support.LineMessageHandlerSupport;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -51,7 +53,8 @@ public class LineBotServerInterceptor implements HandlerInterceptor {
         for (MethodParameter methodParameter : methodParameters) {
             if (methodParameter.getParameterAnnotation(LineBotMessages.class) != null) {
                 try {
-                    CallbackRequest callbackRequest = lineBotCallbackRequestParser.handle(request);
+                    CallbackRequest callbackRequest =
+                            lineBotCallbackRequestParser.handle(request, eventFilterOf(hm));
                     LineBotServerArgumentProcessor.setValue(request, callbackRequest);
                     return true;
                 } catch (LineBotCallbackException e) {
@@ -67,6 +70,16 @@ public class LineBotServerInterceptor implements HandlerInterceptor {
         return true;
     }
 
+    /**
+     * {@link LineMessageHandlerSupport} reads only events which have a handler method.
+     */
+    private static EventFilter eventFilterOf(final HandlerMethod handlerMethod) {
+        final Object bean = handlerMethod.getBean();
+        return bean instanceof LineMessageHandlerSupport
+               ? ((LineMessageHandlerSupport) bean).getEventFilter()
+               : EventFilter.ACCEPT_ALL;
+    }
+
     @Override
     public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
                            ModelAndView modelAndView) throws Exception {
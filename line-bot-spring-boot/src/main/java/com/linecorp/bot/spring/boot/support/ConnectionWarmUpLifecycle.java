@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import org.springframework.context.SmartLifecycle;
+
+import com.linecorp.bot.client.ConnectionWarmer;
+
+import lombok.NonNull;
+
+/**
+ * Opens connections by {@link ConnectionWarmer} on startup, and stops re-warming on shutdown.
+ *
+ * <p>{@link #start()} blocks until the warm-up completes or times out. Lifecycle beans are started before
+ * the embedded servlet container, so that webhooks are not accepted before connections are open.
+ */
+public class ConnectionWarmUpLifecycle implements SmartLifecycle {
+    private final ConnectionWarmer connectionWarmer;
+    private final long rewarmingInterval;
+    private volatile boolean running;
+
+    /**
+     * Create new instance.
+     *
+     * @param rewarmingInterval Interval of re-warming in milliseconds.
+     */
+    public ConnectionWarmUpLifecycle(@NonNull final ConnectionWarmer connectionWarmer,
+                                     final long rewarmingInterval) {
+        this.connectionWarmer = connectionWarmer;
+        this.rewarmingInterval = rewarmingInterval;
+    }
+
+    @Override
+    public void start() {
+        connectionWarmer.warmUp();
+        connectionWarmer.startRewarming(rewarmingInterval);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        connectionWarmer.close();
+        running = false;
+    }
+
+    @Override
+    public void stop(final Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+}
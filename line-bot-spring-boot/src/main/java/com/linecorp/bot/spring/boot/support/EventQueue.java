@@ -0,0 +1,372 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hashing;
+
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.source.Source;
+
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded queue of webhook events drained by worker threads.
+ *
+ * <p>Used to acknowledge webhook requests before handlers run. {@link #enqueue(Event)} never blocks;
+ * events are kept in lock-free queues whose sizes are bounded by counters.
+ *
+ * <p>Events are partitioned into lanes by {@link Source#getSenderId()} with consistent hashing.
+ * Each lane is drained by a single thread, so events from the same user, group or room are dispatched
+ * in order, while events from different sources are dispatched in parallel. The order of handling is kept
+ * only if the dispatcher runs handlers on the calling thread; handlers in a {@link HandlerBulkhead} are handed
+ * off, and are ordered only against other handlers of the same bulkhead.
+ * Events without sender are put into a random lane.
+ *
+ * <p>Events are shed by age.
+ * <ul>
+ *     <li>When a lane is full, the oldest event in the lane is dropped to make room for the new one.</li>
+ *     <li>Events older than {@code maxEventAge} by {@link Event#getTimestamp()} are dropped
+ *     instead of being dispatched, because their reply tokens are likely expired.</li>
+ * </ul>
+ * Every dropped event is counted, see {@link #getShedCount()} and {@link #getExpiredCount()}.
+ */
+@Slf4j
+public final class EventQueue implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_LANES = 4;
+    public static final long DEFAULT_MAX_EVENT_AGE = 30_000;
+
+    private final int capacity;
+    private final long maxEventAge;
+    private final boolean recordLatency;
+    private final Clock clock;
+    private final Consumer<Event> dispatcher;
+
+    private final List<Lane> lanes;
+    private volatile boolean closed;
+
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    private EventQueue(final Builder builder, final Consumer<Event> dispatcher) {
+        if (builder.capacity < 1) {
+            throw new IllegalArgumentException("capacity should be positive. But " + builder.capacity);
+        }
+        if (builder.lanes < 1) {
+            throw new IllegalArgumentException("lanes should be positive. But " + builder.lanes);
+        }
+        if (builder.maxEventAge < 1) {
+            throw new IllegalArgumentException("maxEventAge should be positive. But " + builder.maxEventAge);
+        }
+        this.capacity = builder.capacity;
+        this.maxEventAge = builder.maxEventAge;
+        this.recordLatency = builder.recordLatency;
+        this.clock = builder.clock;
+        this.dispatcher = dispatcher;
+
+        final List<Lane> created = new ArrayList<>(builder.lanes);
+        for (int i = 0; i < builder.lanes; i++) {
+            created.add(new Lane(i));
+        }
+        lanes = Collections.unmodifiableList(created);
+        lanes.forEach(lane -> lane.thread.start());
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Add an event to the lane of its sender. The oldest event in the lane is dropped if the lane is full.
+     */
+    public void enqueue(@NonNull final Event event) {
+        if (isExpired(event)) {
+            expired.increment();
+            log.debug("Dropped expired event: {}", event);
+            return;
+        }
+        laneOf(event).enqueue(event);
+    }
+
+    /**
+     * Number of queued events in all lanes.
+     */
+    public int getQueueDepth() {
+        return lanes.stream().mapToInt(lane -> lane.size.get()).sum();
+    }
+
+    /**
+     * Number of events passed to the dispatcher.
+     */
+    public long getDispatchedCount() {
+        return lanes.stream().mapToLong(lane -> lane.dispatched.sum()).sum();
+    }
+
+    /**
+     * Number of events dropped because a lane was full.
+     */
+    public long getShedCount() {
+        return shed.sum();
+    }
+
+    /**
+     * Number of events dropped because they were older than {@code maxEventAge}.
+     */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    /**
+     * Snapshot of metrics of each lane.
+     */
+    public List<LaneMetrics> getLaneMetrics() {
+        return lanes.stream().map(Lane::metrics).collect(Collectors.toList());
+    }
+
+    /**
+     * Stop workers. Queued events are discarded.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        lanes.forEach(lane -> lane.thread.interrupt());
+    }
+
+    @VisibleForTesting
+    int laneIndexOf(final Event event) {
+        final Source source = event.getSource();
+        final String senderId = source != null ? source.getSenderId() : null;
+        if (senderId == null) {
+            return ThreadLocalRandom.current().nextInt(lanes.size());
+        }
+        return Hashing.consistentHash(senderId.hashCode(), lanes.size());
+    }
+
+    private Lane laneOf(final Event event) {
+        return lanes.get(laneIndexOf(event));
+    }
+
+    private boolean isExpired(final Event event) {
+        final Instant timestamp = event.getTimestamp();
+        return timestamp != null && timestamp.toEpochMilli() < clock.millis() - maxEventAge;
+    }
+
+    /**
+     * Metrics of a lane. Times are in nanoseconds, and are 0 if latency recording is disabled.
+     */
+    @Value
+    public static class LaneMetrics {
+        int lane;
+        /** Number of queued events. */
+        int queueDepth;
+        /** Number of events passed to the dispatcher. */
+        long dispatchedCount;
+        /** Total time events waited in the lane. */
+        long totalQueueTime;
+        /** Total time the dispatcher took. */
+        long totalDispatchTime;
+        /** Max time an event waited in the lane. */
+        long maxQueueTime;
+    }
+
+    private static final class Entry {
+        final Event event;
+        final long enqueuedAt;
+
+        Entry(final Event event, final long enqueuedAt) {
+            this.event = event;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private final class Lane {
+        final int index;
+        final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
+        // Wakes up the idle worker. Permits may exceed queued events; the worker re-checks the queue.
+        final Semaphore signal = new Semaphore(0);
+        final Thread thread;
+
+        final LongAdder dispatched = new LongAdder();
+        final LongAdder queueTime = new LongAdder();
+        final LongAdder dispatchTime = new LongAdder();
+        volatile long maxQueueTime;
+
+        Lane(final int index) {
+            this.index = index;
+            thread = new Thread(this::work, "line-bot-event-lane-" + index);
+            thread.setDaemon(true);
+        }
+
+        void enqueue(final Event event) {
+            while (!reserve()) {
+                final Entry oldest = poll();
+                if (oldest != null) {
+                    shed.increment();
+                    log.debug("Dropped oldest event because the lane is full: {}", oldest.event);
+                }
+                // Otherwise a slot has been reserved but the event is not added yet, or the worker has taken it.
+            }
+            queue.offer(new Entry(event, recordLatency ? System.nanoTime() : 0));
+            signal.release();
+        }
+
+        LaneMetrics metrics() {
+            return new LaneMetrics(index, size.get(), dispatched.sum(),
+                                   queueTime.sum(), dispatchTime.sum(), maxQueueTime);
+        }
+
+        private boolean reserve() {
+            int current;
+            do {
+                current = size.get();
+                if (current >= capacity) {
+                    return false;
+                }
+            } while (!size.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        private Entry poll() {
+            final Entry entry = queue.poll();
+            if (entry != null) {
+                size.decrementAndGet();
+            }
+            return entry;
+        }
+
+        private void work() {
+            while (!closed) {
+                final Entry entry = poll();
+                if (entry == null) {
+                    signal.drainPermits();
+                    if (queue.isEmpty()) {
+                        try {
+                            signal.acquire();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    continue;
+                }
+
+                if (isExpired(entry.event)) {
+                    expired.increment();
+                    log.debug("Dropped expired event: {}", entry.event);
+                    continue;
+                }
+                dispatch(entry);
+            }
+        }
+
+        private void dispatch(final Entry entry) {
+            final long startedAt = recordLatency ? System.nanoTime() : 0;
+            if (recordLatency) {
+                final long waited = startedAt - entry.enqueuedAt;
+                queueTime.add(waited);
+                if (waited > maxQueueTime) {
+                    // Only this lane's thread writes.
+                    maxQueueTime = waited;
+                }
+            }
+            dispatched.increment();
+            try {
+                dispatcher.accept(entry.event);
+            } catch (RuntimeException e) {
+                log.error("Failed to dispatch event: {}", entry.event, e);
+            }
+            if (recordLatency) {
+                dispatchTime.add(System.nanoTime() - startedAt);
+            }
+        }
+    }
+
+    public static final class Builder {
+        private int capacity = DEFAULT_CAPACITY;
+        private int lanes = DEFAULT_LANES;
+        private long maxEventAge = DEFAULT_MAX_EVENT_AGE;
+        private boolean recordLatency = true;
+        private Clock clock = Clock.systemUTC();
+
+        private Builder() {
+        }
+
+        /**
+         * Set max number of queued events of each lane.
+         */
+        public Builder capacity(final int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Set number of lanes. Each lane has a worker thread.
+         */
+        public Builder lanes(final int lanes) {
+            this.lanes = lanes;
+            return this;
+        }
+
+        /**
+         * Set max age of events in milliseconds. Older events are dropped.
+         */
+        public Builder maxEventAge(final long maxEventAge) {
+            this.maxEventAge = maxEventAge;
+            return this;
+        }
+
+        /**
+         * Set whether to record queue and dispatch time of each lane. Default: {@code true}
+         */
+        public Builder recordLatency(final boolean recordLatency) {
+            this.recordLatency = recordLatency;
+            return this;
+        }
+
+        @VisibleForTesting
+        Builder clock(@NonNull final Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * Create the queue and start workers.
+         *
+         * @param dispatcher Called by workers with each event.
+         */
+        public EventQueue build(@NonNull final Consumer<Event> dispatcher) {
+            return new EventQueue(this, dispatcher);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hashing;
+
+import com.linecorp.bot.spring.boot.annotation.EventMapping;
+
+import lombok.NonNull;
+
+/**
+ * Named thread pool isolating handler methods, specified by {@link EventMapping#bulkhead()}.
+ *
+ * <p>At most {@code maxConcurrency} handlers run at once, and at most {@code queueSize} handlers wait.
+ * Handlers submitted beyond them are rejected, so that a slow handler can't take threads of others.
+ *
+ * <p>The bulkhead has a single thread for each of {@code maxConcurrency} stripes. At most {@code queueSize}
+ * handlers wait in total, and a stripe holds at most its share of them rounded up. Handlers are assigned to a stripe by the key given to {@link #execute(String, Runnable)},
+ * e.g. the sender of the event, with consistent hashing. So handlers of the same key run in submission order,
+ * while a slow key only delays keys sharing its stripe. Handlers without key are put into a random stripe.
+ */
+public final class HandlerBulkhead implements AutoCloseable {
+    public static final int DEFAULT_MAX_CONCURRENCY = 4;
+    public static final int DEFAULT_QUEUE_SIZE = 100;
+
+    private final String name;
+    private final int maxConcurrency;
+    private final int queueSize;
+    private final List<Stripe> stripes;
+
+    private final AtomicInteger active = new AtomicInteger();
+    // Handlers waiting for a thread in any stripe, bounded by queueSize.
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder saturated = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private HandlerBulkhead(final Builder builder, final String name) {
+        if (builder.maxConcurrency < 1) {
+            throw new IllegalArgumentException(
+                    "maxConcurrency should be positive. But " + builder.maxConcurrency);
+        }
+        if (builder.queueSize < 0) {
+            throw new IllegalArgumentException("queueSize should not be negative. But " + builder.queueSize);
+        }
+        this.name = name;
+        this.maxConcurrency = builder.maxConcurrency;
+        this.queueSize = builder.queueSize;
+
+        final int stripeQueueSize = (queueSize + maxConcurrency - 1) / maxConcurrency;
+        final List<Stripe> created = new ArrayList<>(maxConcurrency);
+        for (int i = 0; i < maxConcurrency; i++) {
+            created.add(new Stripe(i, stripeQueueSize));
+        }
+        stripes = Collections.unmodifiableList(created);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Run the task in a random stripe of this bulkhead.
+     *
+     * @throws RejectedExecutionException if the stripe is busy and the queue is full.
+     */
+    public void execute(@NonNull final Runnable task) {
+        execute(null, task);
+    }
+
+    /**
+     * Run the task in this bulkhead, after tasks of the same key submitted before.
+     *
+     * @param key Nullable. Tasks without key are put into a random stripe.
+     * @throws RejectedExecutionException if the stripe of the key is busy and the queue is full.
+     */
+    public void execute(final String key, @NonNull final Runnable task) {
+        stripes.get(stripeIndexOf(key)).execute(task);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Number of running handlers.
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * Number of handlers waiting for a thread.
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * Number of finished handlers.
+     */
+    public long getExecutedCount() {
+        return executed.sum();
+    }
+
+    /**
+     * Number of handlers submitted while the thread of the stripe was busy. They are queued or rejected.
+     */
+    public long getSaturatedCount() {
+        return saturated.sum();
+    }
+
+    /**
+     * Number of handlers rejected because the queue was full.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Stop threads after running queued handlers.
+     */
+    @Override
+    public void close() {
+        stripes.forEach(stripe -> stripe.executor.shutdown());
+    }
+
+    @VisibleForTesting
+    int stripeIndexOf(final String key) {
+        if (key == null) {
+            return ThreadLocalRandom.current().nextInt(stripes.size());
+        }
+        return Hashing.consistentHash(key.hashCode(), stripes.size());
+    }
+
+    private final class Stripe {
+        final ThreadPoolExecutor executor;
+        // Handlers submitted and not finished, including queued ones.
+        final AtomicInteger inFlight = new AtomicInteger();
+
+        Stripe(final int index, final int queueSize) {
+            final BlockingQueue<Runnable> queue =
+                    queueSize == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queueSize);
+            executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, queue, runnable -> {
+                final Thread thread = new Thread(runnable, "line-bot-bulkhead-" + name + '-' + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+        }
+
+        void execute(final Runnable task) {
+            final boolean waiting = inFlight.getAndIncrement() >= 1;
+            if (waiting) {
+                saturated.increment();
+                if (queued.incrementAndGet() > queueSize) {
+                    queued.decrementAndGet();
+                    inFlight.decrementAndGet();
+                    rejected.increment();
+                    throw new RejectedExecutionException(
+                            "Queue of bulkhead " + name + " is full. queueSize: " + queueSize);
+                }
+            }
+            try {
+                executor.execute(() -> {
+                    if (waiting) {
+                        queued.decrementAndGet();
+                    }
+                    active.incrementAndGet();
+                    try {
+                        task.run();
+                    } finally {
+                        active.decrementAndGet();
+                        inFlight.decrementAndGet();
+                        executed.increment();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                if (waiting) {
+                    queued.decrementAndGet();
+                }
+                inFlight.decrementAndGet();
+                rejected.increment();
+                throw e;
+            }
+        }
+    }
+
+    public static final class Builder {
+        private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+        private int queueSize = DEFAULT_QUEUE_SIZE;
+
+        private Builder() {
+        }
+
+        /**
+         * Set max number of handlers running at once, which is the number of stripes.
+         */
+        public Builder maxConcurrency(final int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * Set max number of handlers waiting for a thread in total. A stripe holds at most its share of them
+         * rounded up. 0 means handlers are rejected when the thread of the stripe is busy.
+         */
+        public Builder queueSize(final int queueSize) {
+            this.queueSize = queueSize;
+            return this;
+        }
+
+        public HandlerBulkhead build(@NonNull final String name) {
+            return new HandlerBulkhead(this, name);
+        }
+    }
+}
@@ -16,18 +16,28 @@
 
 package com.linecorp.bot.spring.boot.support;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import javax.annotation.PreDestroy;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.ConfigurableApplicationContext;
@@ -42,10 +52,16 @@ import com.google.common.annotations.Beta;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 
+import com.linecorp.bot.client.CachingLineMessagingClient;
+import com.linecorp.bot.model.event.CallbackRequestReader.EventFilter;
 import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.LeaveEvent;
 import com.linecorp.bot.model.event.MessageEvent;
 import com.linecorp.bot.model.event.ReplyEvent;
+import com.linecorp.bot.model.event.UnfollowEvent;
 import com.linecorp.bot.model.event.message.MessageContent;
+import com.linecorp.bot.model.event.source.Source;
+import com.linecorp.bot.spring.boot.LineBotProperties;
 import com.linecorp.bot.spring.boot.annotation.EventMapping;
 import com.linecorp.bot.spring.boot.annotation.LineBotMessages;
 import com.linecorp.bot.spring.boot.annotation.LineMessageHandler;
@@ -68,6 +84,26 @@ import lombok.extern.slf4j.Slf4j;
  *     <li>Class annotated with {@link LineMessageHandler}</li>
  *     <li>Method annotated with {@link EventMapping}.</li>
  * </ul>
+ *
+ * <h2>Asynchronous dispatch</h2>
+ *
+ * If {@code line.bot.handler.async.enabled} is {@code true}, events are put into {@link EventQueue}
+ * and the response is returned without waiting for handlers. Handler methods are called by worker threads,
+ * in parallel for different sources and in order for each source, except for handler methods in bulkheads.
+ *
+ * <h2>Bulkheads</h2>
+ *
+ * Handler methods with {@link EventMapping#bulkhead()} run in the {@link HandlerBulkhead} of the name,
+ * defined by {@code line.bot.handler.bulkheads.<name>.*}. The caller hands the event off and doesn't wait for
+ * the handler. The bulkhead keeps the order of events from the same source among its own handlers, but
+ * a later event of the source may be handled outside the bulkhead, or by another bulkhead, before an earlier
+ * one finishes.
+ *
+ * <h2>Profile cache</h2>
+ *
+ * If {@link CachingLineMessagingClient} beans exist, {@link UnfollowEvent}s and {@link LeaveEvent}s are passed
+ * to {@link CachingLineMessagingClient#invalidate(Event)} before handlers, even if no handler method
+ * accepts them.
  */
 @Slf4j
 @Beta
@@ -77,18 +113,68 @@ import lombok.extern.slf4j.Slf4j;
 public class LineMessageHandlerSupport {
     private static final Comparator<HandlerMethod> HANDLER_METHOD_PRIORITY_COMPARATOR =
             Comparator.comparing(HandlerMethod::getPriority).reversed();
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Event.class);
     private final ReplyByReturnValueConsumer.Factory returnValueConsumerFactory;
     private final ConfigurableApplicationContext applicationContext;
 
+    private final EventQueue eventQueue;
+    private final Map<String, HandlerBulkhead> bulkheads;
+
     volatile List<HandlerMethod> eventConsumerList;
+    // Handler resolved by concrete types of event and message content. Replaced after eventConsumerList.
+    private volatile Map<DispatchKey, Optional<HandlerMethod>> dispatchTable = new ConcurrentHashMap<>();
+    private volatile EventFilter handlerEventFilter = EventFilter.ACCEPT_ALL;
+    private volatile EventFilter eventFilter = EventFilter.ACCEPT_ALL;
+    private volatile List<CachingLineMessagingClient> cachingClients = Collections.emptyList();
 
-    @Autowired
     public LineMessageHandlerSupport(
             final ReplyByReturnValueConsumer.Factory returnValueConsumerFactory,
             final ConfigurableApplicationContext applicationContext) {
+        this(returnValueConsumerFactory, applicationContext, null);
+    }
+
+    /**
+     * Create new instance.
+     *
+     * @param lineBotProperties Configuration of the handler. If {@code line.bot.handler.async.enabled} is
+     *         {@code true}, events are dispatched by worker threads after the response is returned.
+     */
+    @Autowired
+    public LineMessageHandlerSupport(
+            final ReplyByReturnValueConsumer.Factory returnValueConsumerFactory,
+            final ConfigurableApplicationContext applicationContext,
+            final LineBotProperties lineBotProperties) {
         this.returnValueConsumerFactory = returnValueConsumerFactory;
         this.applicationContext = applicationContext;
 
+        final LineBotProperties.Async async =
+                lineBotProperties != null ? lineBotProperties.getHandler().getAsync() : null;
+        if (async != null && async.isEnabled()) {
+            // Events are useless for reply after the reply timeout, unless the age is set explicitly.
+            final long maxEventAge = async.getMaxEventAge() != null
+                                     ? async.getMaxEventAge()
+                                     : lineBotProperties.getHandler().getReply().getTimeout();
+            eventQueue = EventQueue.builder()
+                                   .capacity(async.getQueueCapacity())
+                                   .lanes(async.getLanes())
+                                   .maxEventAge(maxEventAge)
+                                   .recordLatency(async.isRecordLatency())
+                                   .build(this::dispatch);
+        } else {
+            eventQueue = null;
+        }
+
+        final Map<String, HandlerBulkhead> bulkheadMap = new HashMap<>();
+        if (lineBotProperties != null) {
+            lineBotProperties.getHandler().getBulkheads().forEach((name, bulkhead) -> {
+                bulkheadMap.put(name, HandlerBulkhead.builder()
+                                                     .maxConcurrency(bulkhead.getMaxConcurrency())
+                                                     .queueSize(bulkhead.getQueueSize())
+                                                     .build(name));
+            });
+        }
+        bulkheads = Collections.unmodifiableMap(bulkheadMap);
+
         applicationContext.addApplicationListener(event -> {
             if (event instanceof ContextRefreshedEvent) {
                 refresh();
@@ -118,7 +204,24 @@ public class LineMessageHandlerSupport {
         collect.forEach(item -> log.info("Mapped \"{}\" onto {}",
                                          item.getSupportType(), item.getHandler().toGenericString()));
 
+        final List<CachingLineMessagingClient> caches =
+                new ArrayList<>(applicationContext.getBeansOfType(CachingLineMessagingClient.class).values());
+        final HandlerEventFilter handlerFilter = new HandlerEventFilter(collect);
+
         eventConsumerList = collect;
+        dispatchTable = new ConcurrentHashMap<>();
+        cachingClients = caches;
+        handlerEventFilter = handlerFilter;
+        eventFilter = caches.isEmpty() ? handlerFilter : new InvalidationEventFilter(handlerFilter);
+    }
+
+    /**
+     * Filter which accepts events having a handler method.
+     *
+     * <p>Used to parse webhook requests, so that events nobody handles are skipped without being materialized.
+     */
+    public EventFilter getEventFilter() {
+        return eventFilter;
     }
 
     private HandlerMethod getMethodHandlerMethodFunction(Object consumer, Method method) {
@@ -134,11 +237,35 @@ public class LineMessageHandlerSupport {
 
         final Type type = method.getGenericParameterTypes()[0];
 
-        final Predicate<Event> predicate = new EventPredicate(type);
-        return new HandlerMethod(predicate, consumer, method,
+        final EventPredicate predicate = new EventPredicate(type);
+        final HandlerBulkhead bulkhead;
+        if (mapping.bulkhead().isEmpty()) {
+            bulkhead = null;
+        } else {
+            bulkhead = bulkheads.get(mapping.bulkhead());
+            Preconditions.checkState(bulkhead != null,
+                                     "Bulkhead '%s' of %s is not defined by line.bot.handler.bulkheads",
+                                     mapping.bulkhead(), method);
+        }
+        return new HandlerMethod(predicate, consumer, method, bind(consumer, method), bulkhead,
                                  getPriority(mapping, type));
     }
 
+    /**
+     * Bind handler method to the bean, as {@code (Event) -> Object}. Void methods return {@code null}.
+     */
+    private static MethodHandle bind(final Object consumer, final Method method) {
+        ReflectionUtils.makeAccessible(method);
+        try {
+            return MethodHandles.lookup()
+                                .unreflect(method)
+                                .bindTo(consumer)
+                                .asType(INVOKER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Can't access handler method. " + method, e);
+        }
+    }
+
     private int getPriority(final EventMapping mapping, final Type type) {
         if (mapping.priority() != EventMapping.DEFAULT_PRIORITY_VALUE) {
             return mapping.priority();
@@ -163,40 +290,119 @@ public class LineMessageHandlerSupport {
 
     @Value
     static class HandlerMethod {
-        Predicate<Event> supportType;
+        EventPredicate supportType;
         Object object;
         Method handler;
+        MethodHandle invoker;
+        HandlerBulkhead bulkhead;
         int priority;
     }
 
+    @Value
+    private static class DispatchKey {
+        Class<?> eventType;
+        Class<?> messageContentType;
+    }
+
+    /**
+     * Queue of events dispatched after the response, or {@code null} if events are dispatched
+     * in the request thread.
+     */
+    public EventQueue getEventQueue() {
+        return eventQueue;
+    }
+
+    /**
+     * Bulkheads defined by {@code line.bot.handler.bulkheads}, by name.
+     */
+    public Map<String, HandlerBulkhead> getBulkheads() {
+        return bulkheads;
+    }
+
     @PostMapping("${line.bot.handler.path:/callback}")
     public void callback(@LineBotMessages List<Event> events) {
-        events.forEach(this::dispatch);
+        final List<CachingLineMessagingClient> caches = cachingClients;
+        final EventFilter handlerFilter = handlerEventFilter;
+        for (Event event : events) {
+            caches.forEach(cache -> cache.invalidate(event));
+            if (!handlerFilter.acceptsEvent(event.getClass())) {
+                // Read only to invalidate the profile cache.
+                continue;
+            }
+            if (eventQueue != null) {
+                eventQueue.enqueue(event);
+            } else {
+                dispatch(event);
+            }
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        if (eventQueue != null) {
+            eventQueue.close();
+        }
+        bulkheads.values().forEach(HandlerBulkhead::close);
     }
 
     @VisibleForTesting
     void dispatch(Event event) {
         try {
             dispatchInternal(event);
-        } catch (InvocationTargetException e) {
-            log.trace("InvocationTargetException occurred.", e);
-            log.error(e.getCause().getMessage(), e.getCause());
-        } catch (Error | Exception e) {
+        } catch (Throwable e) {
             log.error(e.getMessage(), e);
         }
     }
 
-    private void dispatchInternal(final Event event) throws Exception {
-        final HandlerMethod handlerMethod = eventConsumerList
-                .stream()
-                .filter(consumer -> consumer.getSupportType().test(event))
-                .findFirst()
+    private void dispatchInternal(final Event event) throws Throwable {
+        final HandlerMethod handlerMethod = resolve(event)
                 .orElseThrow(() -> new UnsupportedOperationException("Unsupported event type. " + event));
-        final Object returnValue = handlerMethod.getHandler().invoke(handlerMethod.getObject(), event);
+        final HandlerBulkhead bulkhead = handlerMethod.getBulkhead();
+        if (bulkhead == null) {
+            invoke(handlerMethod, event);
+            return;
+        }
+
+        final Source source = event.getSource();
+        try {
+            bulkhead.execute(source != null ? source.getSenderId() : null, () -> {
+                try {
+                    invoke(handlerMethod, event);
+                } catch (Throwable e) {
+                    log.error(e.getMessage(), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Bulkhead '{}' is full. Rejected event: {}", bulkhead.getName(), event);
+        }
+    }
+
+    private void invoke(final HandlerMethod handlerMethod, final Event event) throws Throwable {
+        final Object returnValue = handlerMethod.getInvoker().invokeExact(event);
 
         handleReturnValue(event, returnValue);
     }
 
+    @VisibleForTesting
+    Optional<HandlerMethod> resolve(final Event event) {
+        final Class<?> messageContentType =
+                event instanceof MessageEvent && ((MessageEvent<?>) event).getMessage() != null
+                ? ((MessageEvent<?>) event).getMessage().getClass() : null;
+        final DispatchKey key = new DispatchKey(event.getClass(), messageContentType);
+
+        // Read the table before the list, so that the list is not older than the table.
+        final Map<DispatchKey, Optional<HandlerMethod>> table = dispatchTable;
+        final Optional<HandlerMethod> cached = table.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        final List<HandlerMethod> handlerMethods = eventConsumerList;
+        return table.computeIfAbsent(key, ignored -> handlerMethods
+                .stream()
+                .filter(consumer -> consumer.getSupportType().test(event))
+                .findFirst());
+    }
+
     private void handleReturnValue(final Event event, final Object returnValue) {
         if (returnValue != null) {
             returnValueConsumerFactory.createForEvent(event)
@@ -204,7 +410,7 @@ public class LineMessageHandlerSupport {
         }
     }
 
-    private static class EventPredicate implements Predicate<Event> {
+    static class EventPredicate implements Predicate<Event> {
         private final Class<?> supportEvent;
         private final Class<? extends MessageContent> messageContentType;
 
@@ -236,6 +442,21 @@ public class LineMessageHandlerSupport {
                        filterByType(messageContentType, ((MessageEvent<?>) event).getMessage()));
         }
 
+        /**
+         * Whether this predicate may accept events of given class.
+         */
+        boolean acceptsEventType(final Class<? extends Event> eventType) {
+            return supportEvent.isAssignableFrom(eventType);
+        }
+
+        /**
+         * Whether this predicate may accept {@link MessageEvent}s of given content class.
+         */
+        boolean acceptsMessageContentType(final Class<? extends MessageContent> contentType) {
+            return supportEvent.isAssignableFrom(MessageEvent.class)
+                   && (messageContentType == null || messageContentType.isAssignableFrom(contentType));
+        }
+
         private static boolean filterByType(final Class<?> clazz, final Object content) {
 
             return clazz.isAssignableFrom(content.getClass());
@@ -259,4 +480,47 @@ public class LineMessageHandlerSupport {
             return sb.toString();
         }
     }
+
+    private static class HandlerEventFilter implements EventFilter {
+        private final List<EventPredicate> predicates;
+
+        HandlerEventFilter(final List<HandlerMethod> handlerMethods) {
+            predicates = handlerMethods.stream()
+                                       .map(HandlerMethod::getSupportType)
+                                       .collect(Collectors.toList());
+        }
+
+        @Override
+        public boolean acceptsEvent(final Class<? extends Event> eventType) {
+            return predicates.stream().anyMatch(predicate -> predicate.acceptsEventType(eventType));
+        }
+
+        @Override
+        public boolean acceptsMessageContent(final Class<? extends MessageContent> messageContentType) {
+            return predicates.stream()
+                             .anyMatch(predicate -> predicate.acceptsMessageContentType(messageContentType));
+        }
+    }
+
+    /**
+     * Accepts events which invalidate {@link CachingLineMessagingClient}, in addition to handled ones.
+     */
+    private static class InvalidationEventFilter implements EventFilter {
+        private final EventFilter handlerFilter;
+
+        InvalidationEventFilter(final EventFilter handlerFilter) {
+            this.handlerFilter = handlerFilter;
+        }
+
+        @Override
+        public boolean acceptsEvent(final Class<? extends Event> eventType) {
+            return eventType == UnfollowEvent.class || eventType == LeaveEvent.class
+                   || handlerFilter.acceptsEvent(eventType);
+        }
+
+        @Override
+        public boolean acceptsMessageContent(final Class<? extends MessageContent> messageContentType) {
+            return handlerFilter.acceptsMessageContent(messageContentType);
+        }
+    }
 }
@@ -13,9 +13,11 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 
 import com.linecorp.bot.client.LineMessagingClient;
+import com.linecorp.bot.model.PushMessage;
 import com.linecorp.bot.model.ReplyMessage;
 import com.linecorp.bot.model.event.Event;
 import com.linecorp.bot.model.event.ReplyEvent;
+import com.linecorp.bot.model.event.source.Source;
 import com.linecorp.bot.model.message.Message;
 import com.linecorp.bot.model.response.BotApiResponse;
 
@@ -27,6 +29,8 @@ import lombok.extern.slf4j.Slf4j;
  *
  * Basically, message contents are from return value of handler method.
  *
+ * Messages are sent by push message if the reply token is expired, see {@link ReplyDeadline}.
+ *
  * @see LineMessageHandlerSupport#handleReturnValue(Event, Object)
  */
 @Slf4j
@@ -34,20 +38,29 @@ import lombok.extern.slf4j.Slf4j;
 class ReplyByReturnValueConsumer implements Consumer<Object> {
     private final LineMessagingClient lineMessagingClient;
     private final Event originalEvent;
+    // null means no deadline.
+    private final ReplyDeadline replyDeadline;
 
     @Component
     public static class Factory {
         private final LineMessagingClient lineMessagingClient;
+        private final ReplyDeadline replyDeadline;
 
-        @Autowired
         public Factory(final LineMessagingClient lineMessagingClient) {
+            this(lineMessagingClient, null);
+        }
+
+        @Autowired
+        public Factory(final LineMessagingClient lineMessagingClient, final ReplyDeadline replyDeadline) {
             this.lineMessagingClient = lineMessagingClient;
+            this.replyDeadline = replyDeadline;
         }
 
         ReplyByReturnValueConsumer createForEvent(final Event event) {
             return builder()
                     .lineMessagingClient(lineMessagingClient)
                     .originalEvent(event)
+                    .replyDeadline(replyDeadline)
                     .build();
         }
     }
@@ -88,12 +101,35 @@ class ReplyByReturnValueConsumer implements Consumer<Object> {
     }
 
     private void reply(final List<Message> messages) {
+        if (replyDeadline != null && replyDeadline.isExpired(originalEvent)) {
+            push(messages);
+            return;
+        }
+
         final ReplyEvent replyEvent = (ReplyEvent) originalEvent;
+        if (replyDeadline != null) {
+            replyDeadline.recordReply(originalEvent);
+        }
         lineMessagingClient.replyMessage(new ReplyMessage(replyEvent.getReplyToken(), messages))
                            .whenComplete(this::logging);
         // DO NOT BLOCK HERE, otherwise, next message processing will be BLOCKED.
     }
 
+    private void push(final List<Message> messages) {
+        final Source source = originalEvent.getSource();
+        final String to = source != null ? source.getSenderId() : null;
+        if (!replyDeadline.isPushFallback() || to == null) {
+            replyDeadline.recordDrop(originalEvent);
+            log.warn("Reply token expired. Messages are dropped: {}", messages);
+            return;
+        }
+
+        replyDeadline.recordPush(originalEvent);
+        log.info("Reply token expired. Messages are sent by push message to {}", to);
+        lineMessagingClient.pushMessage(new PushMessage(to, messages))
+                           .whenComplete(this::pushLogging);
+    }
+
     private void logging(final BotApiResponse botApiResponse, final Throwable throwable) {
         if (throwable == null) {
             log.debug("Reply message success. response = {}", botApiResponse);
@@ -102,6 +138,14 @@ class ReplyByReturnValueConsumer implements Consumer<Object> {
         }
     }
 
+    private void pushLogging(final BotApiResponse botApiResponse, final Throwable throwable) {
+        if (throwable == null) {
+            log.debug("Push message success. response = {}", botApiResponse);
+        } else {
+            log.warn("Push message failed: {}", throwable.getMessage(), throwable);
+        }
+    }
+
     @VisibleForTesting
     static List<Message> checkListContents(final List<?> list) {
         for (int i = 0; i < list.size(); ++i) {
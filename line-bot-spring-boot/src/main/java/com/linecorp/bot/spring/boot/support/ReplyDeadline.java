@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import com.linecorp.bot.client.LatencyHistogram;
+import com.linecorp.bot.model.event.Event;
+
+import lombok.NonNull;
+
+/**
+ * Deadline of reply tokens, counted from {@link Event#getTimestamp()}.
+ *
+ * <p>Handlers can check the remaining budget by {@link #remaining(Event)}, e.g. to give up slow work.
+ * Messages returned by handlers after the deadline are sent by push message to the source instead of
+ * reply, because the reply token is likely expired. If push fallback is disabled, they are dropped.
+ *
+ * <p>Time from event timestamp to reply is recorded in a histogram, see {@link #getTimeToReplyHistogram()}.
+ * Time to all results, including late ones sent by push message or dropped, is recorded in
+ * {@link #getTimeToResultHistogram()}.
+ */
+public final class ReplyDeadline {
+    public static final long DEFAULT_REPLY_TIMEOUT = 30_000;
+
+    private final long replyTimeout;
+    private final boolean pushFallback;
+    private final Clock clock;
+
+    private final LatencyHistogram timeToReply = new LatencyHistogram();
+    private final LatencyHistogram timeToResult = new LatencyHistogram();
+    private final LongAdder replied = new LongAdder();
+    private final LongAdder pushed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private ReplyDeadline(final Builder builder) {
+        if (builder.replyTimeout < 1) {
+            throw new IllegalArgumentException("replyTimeout should be positive. But " + builder.replyTimeout);
+        }
+        this.replyTimeout = builder.replyTimeout;
+        this.pushFallback = builder.pushFallback;
+        this.clock = builder.clock;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Time left to reply to the event. {@link Duration#ZERO} if the deadline has passed.
+     * Events without timestamp have the whole budget.
+     */
+    public Duration remaining(@NonNull final Event event) {
+        final Instant timestamp = event.getTimestamp();
+        if (timestamp == null) {
+            return Duration.ofMillis(replyTimeout);
+        }
+        final long remaining = timestamp.toEpochMilli() + replyTimeout - clock.millis();
+        return remaining > 0 ? Duration.ofMillis(remaining) : Duration.ZERO;
+    }
+
+    /**
+     * Whether the reply token of the event is likely expired.
+     */
+    public boolean isExpired(@NonNull final Event event) {
+        return remaining(event).isZero();
+    }
+
+    public boolean isPushFallback() {
+        return pushFallback;
+    }
+
+    /**
+     * Number of replies sent.
+     */
+    public long getRepliedCount() {
+        return replied.sum();
+    }
+
+    /**
+     * Number of late messages sent by push message.
+     */
+    public long getPushedCount() {
+        return pushed.sum();
+    }
+
+    /**
+     * Number of late messages dropped because push fallback is disabled or the source is unknown.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Histogram of time from event timestamp to reply. Replies to events without timestamp are not recorded.
+     */
+    public LatencyHistogram getTimeToReplyHistogram() {
+        return timeToReply;
+    }
+
+    /**
+     * Histogram of time from event timestamp to handler result, whether it's replied, pushed or dropped.
+     * Unlike {@link #getTimeToReplyHistogram()}, it's not cut off at the reply timeout.
+     * Results of events without timestamp are not recorded.
+     */
+    public LatencyHistogram getTimeToResultHistogram() {
+        return timeToResult;
+    }
+
+    /**
+     * Record a reply sent now.
+     */
+    void recordReply(final Event event) {
+        replied.increment();
+        recordElapsed(event, timeToReply, timeToResult);
+    }
+
+    /**
+     * Record a late result sent by push message now.
+     */
+    void recordPush(final Event event) {
+        pushed.increment();
+        recordElapsed(event, timeToResult);
+    }
+
+    /**
+     * Record a late result dropped now.
+     */
+    void recordDrop(final Event event) {
+        dropped.increment();
+        recordElapsed(event, timeToResult);
+    }
+
+    private void recordElapsed(final Event event, final LatencyHistogram... histograms) {
+        final Instant timestamp = event.getTimestamp();
+        if (timestamp == null) {
+            return;
+        }
+        final long elapsed = TimeUnit.MILLISECONDS.toNanos(Math.max(0, clock.millis() - timestamp.toEpochMilli()));
+        for (LatencyHistogram histogram : histograms) {
+            histogram.record(elapsed);
+        }
+    }
+
+    public static final class Builder {
+        private long replyTimeout = DEFAULT_REPLY_TIMEOUT;
+        private boolean pushFallback = true;
+        private Clock clock = Clock.systemUTC();
+
+        private Builder() {
+        }
+
+        /**
+         * Set time to reply in milliseconds from event timestamp.
+         */
+        public Builder replyTimeout(final long replyTimeout) {
+            this.replyTimeout = replyTimeout;
+            return this;
+        }
+
+        /**
+         * Set whether to send late messages by push message. Default: {@code true}
+         */
+        public Builder pushFallback(final boolean pushFallback) {
+            this.pushFallback = pushFallback;
+            return this;
+        }
+
+        @VisibleForTesting
+        Builder clock(@NonNull final Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public ReplyDeadline build() {
+            return new ReplyDeadline(this);
+        }
+    }
+}
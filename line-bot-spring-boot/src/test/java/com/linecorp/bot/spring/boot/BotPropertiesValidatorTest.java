@@ -16,6 +16,7 @@
 
 package com.linecorp.bot.spring.boot;
 
+import static com.linecorp.bot.spring.boot.LineBotProperties.ChannelTokenSupplyMode.ISSUE;
 import static com.linecorp.bot.spring.boot.LineBotProperties.ChannelTokenSupplyMode.SUPPLIER;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hibernate.validator.internal.engine.path.PathImpl.createPathFromString;
@@ -101,4 +102,21 @@ public class BotPropertiesValidatorTest {
                             .isEqualTo("channelToken should be null if channelTokenSupplyMode = SUPPLIER");
                 });
     }
+
+    @Test
+    public void ngForIssueWithoutChannelIdTest() {
+        // Do
+        Set<ConstraintViolation<LineBotProperties>> constraintViolations =
+                VALIDATOR.validate(new LineBotProperties() {{
+                    setChannelTokenSupplyMode(ISSUE);
+                    setChannelSecret("SECRET");
+                }});
+
+        //Verify
+        assertThat(constraintViolations)
+                .filteredOn("propertyPath", createPathFromString("channelId"))
+                .hasOnlyOneElementSatisfying(violation -> {
+                    assertThat(violation.getMessage()).isEqualTo("channelId is null");
+                });
+    }
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.test.util.EnvironmentTestUtils;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import com.linecorp.bot.client.ConnectionWarmer;
+import com.linecorp.bot.client.EndpointFamily;
+import com.linecorp.bot.client.WireLoggingInterceptor;
+
+import okhttp3.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+public class LineBotAutoConfigurationTest {
+    private final MockWebServer server = new MockWebServer();
+    private final AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+
+    @Before
+    public void setUp() throws Exception {
+        server.start();
+        EnvironmentTestUtils.addEnvironment(context,
+                                            "line.bot.channelToken=TOKEN",
+                                            "line.bot.channelSecret=SECRET",
+                                            "line.bot.handler.enabled=false",
+                                            "line.bot.apiEndPoint=" + server.url("/"));
+        context.register(LineBotAutoConfiguration.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        context.close();
+        server.shutdown();
+    }
+
+    @Test
+    public void warmUpBeforeStartedTest() throws Exception {
+        EnvironmentTestUtils.addEnvironment(context, "line.bot.warm-up-connections=1");
+        server.enqueue(new MockResponse());
+
+        // Do
+        context.refresh();
+
+        // Verify
+        final ConnectionWarmer connectionWarmer = context.getBean(ConnectionWarmer.class);
+        assertThat(connectionWarmer.getLastResult().getSucceeded()).isEqualTo(1);
+        assertThat(server.takeRequest().getMethod()).isEqualTo("HEAD");
+    }
+
+    @Test
+    public void noWarmUpTest() throws Exception {
+        // Do
+        context.refresh();
+
+        // Verify
+        assertThat(context.getBeansOfType(ConnectionWarmer.class)).isEmpty();
+        assertThat(server.getRequestCount()).isZero();
+    }
+
+    @Test
+    public void wireLoggingLevelsTest() throws Exception {
+        EnvironmentTestUtils.addEnvironment(context, "line.bot.wire-logging.levels.push=BODY");
+
+        // Do
+        context.refresh();
+
+        // Verify
+        assertThat(context.getBean(LineBotProperties.class).getWireLogging().getLevels())
+                .containsOnly(entry(EndpointFamily.PUSH, WireLoggingInterceptor.Level.BODY));
+    }
+
+    @Test
+    public void userPrimaryDispatcherTest() throws Exception {
+        context.register(UserDispatcherConfiguration.class);
+
+        // Do
+        context.refresh();
+
+        // Verify
+        assertThat(context.getBean(Dispatcher.class)).isSameAs(context.getBean("userDispatcher"));
+        assertThat(context.getBean("lineBotDispatcher")).isNotSameAs(context.getBean("userDispatcher"));
+    }
+
+    @Configuration
+    public static class UserDispatcherConfiguration {
+        @Bean
+        @Primary
+        public Dispatcher userDispatcher() {
+            return new Dispatcher();
+        }
+    }
+}
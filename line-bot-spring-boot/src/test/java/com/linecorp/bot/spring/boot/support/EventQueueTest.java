@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.FollowEvent;
+import com.linecorp.bot.model.event.source.UserSource;
+import com.linecorp.bot.spring.boot.support.EventQueue.LaneMetrics;
+
+public class EventQueueTest {
+    private static final Instant NOW = Instant.parse("2016-11-19T00:00:00.000Z");
+    private static final Clock CLOCK = Clock.fixed(NOW, ZoneOffset.UTC);
+
+    private final BlockingQueue<Event> dispatched = new LinkedBlockingQueue<>();
+    private final CountDownLatch dispatching = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private EventQueue target;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (target != null) {
+            target.close();
+        }
+    }
+
+    @Test
+    public void dispatchTest() throws Exception {
+        target = EventQueue.builder()
+                           .lanes(2)
+                           .clock(CLOCK)
+                           .build(dispatched::add);
+        final Event event1 = event("1", NOW);
+        final Event event2 = event("2", NOW);
+
+        // Do
+        target.enqueue(event1);
+        target.enqueue(event2);
+
+        // Verify
+        assertThat(dispatched.poll(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(dispatched.poll(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(target.getDispatchedCount()).isEqualTo(2);
+        assertThat(target.getQueueDepth()).isZero();
+    }
+
+    @Test
+    public void shedOldestTest() throws Exception {
+        target = EventQueue.builder()
+                           .capacity(2)
+                           .lanes(1)
+                           .clock(CLOCK)
+                           .build(this::blockingDispatch);
+        final Event event1 = event("1", NOW);
+        final Event event2 = event("2", NOW);
+        final Event event3 = event("3", NOW);
+        final Event event4 = event("4", NOW);
+
+        // Do
+        target.enqueue(event1);
+        assertThat(dispatching.await(5, TimeUnit.SECONDS)).isTrue();
+        target.enqueue(event2);
+        target.enqueue(event3);
+        target.enqueue(event4);
+
+        // Verify
+        assertThat(target.getQueueDepth()).isEqualTo(2);
+        assertThat(target.getShedCount()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(dispatched.poll(5, TimeUnit.SECONDS)).isSameAs(event1);
+        assertThat(dispatched.poll(5, TimeUnit.SECONDS)).isSameAs(event3);
+        assertThat(dispatched.poll(5, TimeUnit.SECONDS)).isSameAs(event4);
+        assertThat(target.getDispatchedCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void expiredTest() throws Exception {
+        target = EventQueue.builder()
+                           .lanes(1)
+                           .maxEventAge(10_000)
+                           .clock(CLOCK)
+                           .build(dispatched::add);
+        final Event expired = event("expired", NOW.minusSeconds(11));
+        final Event fresh = event("fresh", NOW.minusSeconds(9));
+
+        // Do
+        target.enqueue(expired);
+        target.enqueue(fresh);
+
+        // Verify
+        assertThat(dispatched.poll(5, TimeUnit.SECONDS)).isSameAs(fresh);
+        assertThat(target.getExpiredCount()).isEqualTo(1);
+        assertThat(target.getDispatchedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void orderPerSourceTest() throws Exception {
+        target = EventQueue.builder()
+                           .lanes(4)
+                           .clock(CLOCK)
+                           .build(dispatched::add);
+
+        // Do
+        for (int i = 0; i < 100; i++) {
+            target.enqueue(event(String.valueOf(i), "user" + i % 7, NOW));
+        }
+
+        // Verify
+        final Map<String, List<Integer>> received = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            final Event event = dispatched.poll(5, TimeUnit.SECONDS);
+            assertThat(event).isNotNull();
+            received.computeIfAbsent(event.getSource().getSenderId(), key -> new ArrayList<>())
+                    .add(Integer.valueOf(((FollowEvent) event).getReplyToken()));
+        }
+        assertThat(received).hasSize(7);
+        received.values().forEach(sequence -> assertThat(sequence).isSorted());
+
+        final List<LaneMetrics> laneMetrics = target.getLaneMetrics();
+        assertThat(laneMetrics).hasSize(4);
+        assertThat(laneMetrics.stream().mapToLong(LaneMetrics::getDispatchedCount).sum()).isEqualTo(100);
+    }
+
+    @Test
+    public void parallelLanesTest() throws Exception {
+        target = EventQueue.builder()
+                           .lanes(2)
+                           .clock(CLOCK)
+                           .build(event -> {
+                               if ("slow".equals(event.getSource().getSenderId())) {
+                                   blockingDispatch(event);
+                               } else {
+                                   dispatched.add(event);
+                               }
+                           });
+        final Event slow = event("1", "slow", NOW);
+        String otherSender = null;
+        for (int i = 0; otherSender == null; i++) {
+            if (target.laneIndexOf(event("0", "user" + i, NOW)) != target.laneIndexOf(slow)) {
+                otherSender = "user" + i;
+            }
+        }
+        final Event other = event("2", otherSender, NOW);
+
+        // Do
+        target.enqueue(slow);
+        assertThat(dispatching.await(5, TimeUnit.SECONDS)).isTrue();
+        target.enqueue(other);
+
+        // Verify
+        assertThat(dispatched.poll(5, TimeUnit.SECONDS)).isSameAs(other);
+        release.countDown();
+        assertThat(dispatched.poll(5, TimeUnit.SECONDS)).isSameAs(slow);
+        assertThat(target.getLaneMetrics().get(target.laneIndexOf(slow)).getTotalDispatchTime())
+                .isPositive();
+    }
+
+    private void blockingDispatch(final Event event) {
+        dispatching.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dispatched.add(event);
+    }
+
+    private static Event event(final String replyToken, final Instant timestamp) {
+        return event(replyToken, "userId", timestamp);
+    }
+
+    private static Event event(final String replyToken, final String userId, final Instant timestamp) {
+        return new FollowEvent(replyToken, new UserSource(userId), timestamp);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class HandlerBulkheadTest {
+    private final CountDownLatch running = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final HandlerBulkhead target = HandlerBulkhead.builder()
+                                                          .maxConcurrency(1)
+                                                          .queueSize(1)
+                                                          .build("heavy");
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        target.close();
+    }
+
+    @Test
+    public void executeTest() throws Exception {
+        final CompletableFuture<String> threadName = new CompletableFuture<>();
+
+        // Do
+        target.execute(() -> threadName.complete(Thread.currentThread().getName()));
+
+        // Verify
+        assertThat(threadName.get(5, TimeUnit.SECONDS)).startsWith("line-bot-bulkhead-heavy-");
+        assertThat(target.getSaturatedCount()).isZero();
+        assertThat(target.getRejectedCount()).isZero();
+    }
+
+    @Test
+    public void rejectTest() throws Exception {
+        target.execute(this::block);
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Do
+        target.execute(() -> {});
+        assertThatThrownBy(() -> target.execute(() -> {}))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        // Verify
+        assertThat(target.getActiveCount()).isEqualTo(1);
+        assertThat(target.getQueueDepth()).isEqualTo(1);
+        assertThat(target.getSaturatedCount()).isEqualTo(2);
+        assertThat(target.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void totalQueueSizeTest() throws Exception {
+        final HandlerBulkhead striped = HandlerBulkhead.builder()
+                                                       .maxConcurrency(4)
+                                                       .queueSize(1)
+                                                       .build("striped");
+        final CountDownLatch blocked = new CountDownLatch(2);
+        try {
+            final String first = "USER_ID";
+            String second = "USER_ID";
+            for (int i = 0; striped.stripeIndexOf(second) == striped.stripeIndexOf(first); ++i) {
+                second = "USER_ID_" + i;
+            }
+            for (String key : new String[] { first, second }) {
+                striped.execute(key, () -> {
+                    blocked.countDown();
+                    block();
+                });
+            }
+            assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Do
+            striped.execute(first, () -> {});
+            final String otherStripe = second;
+            assertThatThrownBy(() -> striped.execute(otherStripe, () -> {}))
+                    .isInstanceOf(RejectedExecutionException.class);
+
+            // Verify: the queue is shared by the stripes.
+            assertThat(striped.getQueueDepth()).isEqualTo(1);
+            assertThat(striped.getRejectedCount()).isEqualTo(1);
+        } finally {
+            release.countDown();
+            striped.close();
+        }
+    }
+
+    @Test
+    public void orderPerKeyTest() throws Exception {
+        final HandlerBulkhead striped = HandlerBulkhead.builder()
+                                                       .maxConcurrency(4)
+                                                       .queueSize(400)
+                                                       .build("striped");
+        final List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch done = new CountDownLatch(100);
+        try {
+            // Do
+            for (int i = 0; i < 100; ++i) {
+                final int number = i;
+                striped.execute("USER_ID", () -> {
+                    handled.add(number);
+                    done.countDown();
+                });
+            }
+
+            // Verify
+            assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(handled).isSorted().hasSize(100);
+            assertThat(striped.stripeIndexOf("USER_ID")).isEqualTo(striped.stripeIndexOf("USER_ID"));
+        } finally {
+            striped.close();
+        }
+    }
+
+    private void block() {
+        running.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
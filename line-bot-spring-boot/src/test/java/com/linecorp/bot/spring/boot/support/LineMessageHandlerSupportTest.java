@@ -16,14 +16,21 @@
 
 package com.linecorp.bot.spring.boot.support;
 
+import static java.util.Collections.singletonList;
 import static java.util.Collections.singletonMap;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.lang.reflect.Method;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 
 import org.junit.Before;
@@ -37,11 +44,22 @@ import org.springframework.context.ConfigurableApplicationContext;
 
 import com.google.common.collect.ImmutableMap;
 
+import com.linecorp.bot.client.CachingLineMessagingClient;
+import com.linecorp.bot.client.LineMessagingClient;
+import com.linecorp.bot.model.event.BeaconEvent;
+import com.linecorp.bot.model.event.CallbackRequestReader.EventFilter;
 import com.linecorp.bot.model.event.Event;
+import com.linecorp.bot.model.event.FollowEvent;
 import com.linecorp.bot.model.event.MessageEvent;
 import com.linecorp.bot.model.event.ReplyEvent;
+import com.linecorp.bot.model.event.UnfollowEvent;
+import com.linecorp.bot.model.event.UnknownEvent;
+import com.linecorp.bot.model.event.message.ImageMessageContent;
 import com.linecorp.bot.model.event.message.TextMessageContent;
+import com.linecorp.bot.model.event.source.Source;
 import com.linecorp.bot.model.message.TextMessage;
+import com.linecorp.bot.model.profile.UserProfileResponse;
+import com.linecorp.bot.spring.boot.LineBotProperties;
 import com.linecorp.bot.spring.boot.annotation.EventMapping;
 import com.linecorp.bot.spring.boot.annotation.LineMessageHandler;
 import com.linecorp.bot.spring.boot.support.LineMessageHandlerSupport.HandlerMethod;
@@ -62,6 +80,9 @@ public class LineMessageHandlerSupportTest {
     @Mock
     private ReplyByReturnValueConsumer replyByReturnValueConsumer;
 
+    @Mock
+    private LineMessagingClient lineMessagingClient;
+
     @InjectMocks
     private LineMessageHandlerSupport target;
 
@@ -114,6 +135,65 @@ public class LineMessageHandlerSupportTest {
                 .isEqualTo("defaultEventHandler");
     }
 
+    @Test
+    public void eventFilterTest() throws Exception {
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(ImmutableMap.of("text", new TextMessageHandler(),
+                                            "reply", new ReplyHandler("reply")));
+
+        // Do
+        target.refresh();
+        final EventFilter eventFilter = target.getEventFilter();
+
+        // Verify
+        assertThat(eventFilter.acceptsEvent(MessageEvent.class)).isTrue();
+        assertThat(eventFilter.acceptsEvent(FollowEvent.class)).isTrue();
+        assertThat(eventFilter.acceptsEvent(BeaconEvent.class)).isTrue();
+        assertThat(eventFilter.acceptsEvent(UnfollowEvent.class)).isFalse();
+        assertThat(eventFilter.acceptsEvent(UnknownEvent.class)).isFalse();
+        assertThat(eventFilter.acceptsMessageContent(TextMessageContent.class)).isTrue();
+        assertThat(eventFilter.acceptsMessageContent(ImageMessageContent.class)).isTrue();
+    }
+
+    @Test
+    public void eventFilterForMessageContentTest() throws Exception {
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("text", new TextMessageHandler()));
+
+        // Do
+        target.refresh();
+        final EventFilter eventFilter = target.getEventFilter();
+
+        // Verify
+        assertThat(eventFilter.acceptsEvent(MessageEvent.class)).isTrue();
+        assertThat(eventFilter.acceptsEvent(BeaconEvent.class)).isFalse();
+        assertThat(eventFilter.acceptsMessageContent(TextMessageContent.class)).isTrue();
+        assertThat(eventFilter.acceptsMessageContent(ImageMessageContent.class)).isFalse();
+    }
+
+    @Test
+    public void invalidateProfileCacheTest() throws Exception {
+        when(lineMessagingClient.getProfile("userId"))
+                .thenReturn(CompletableFuture.completedFuture(
+                        new UserProfileResponse("name", "userId", null, null)));
+        final CachingLineMessagingClient cache = CachingLineMessagingClient.builder(lineMessagingClient).build();
+        cache.getProfile("userId").join();
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("text", new TextMessageHandler()));
+        when(applicationContext.getBeansOfType(CachingLineMessagingClient.class))
+                .thenReturn(singletonMap("cache", cache));
+        target.refresh();
+        final Source source = EventTestUtil.createTextMessage("text").getSource();
+
+        // Do
+        target.callback(singletonList(new UnfollowEvent(source, Instant.now())));
+
+        // Verify
+        assertThat(target.getEventFilter().acceptsEvent(UnfollowEvent.class)).isTrue();
+        assertThat(cache.size()).isZero();
+        verify(replyByReturnValueConsumerFactory, never()).createForEvent(any());
+    }
+
     @Test
     public void dispatchAndReplyMessageTest() {
         final MessageEvent event = EventTestUtil.createTextMessage("text");
@@ -131,6 +211,90 @@ public class LineMessageHandlerSupportTest {
         verify(replyByReturnValueConsumer, times(1)).accept(new TextMessage("Message from Handler method"));
     }
 
+    @Test
+    public void resolveTest() throws Exception {
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(ImmutableMap.of("bean", new MessageHandler(),
+                                            "anothrer", new AnotherMessageHandler()));
+        target.refresh();
+        final MessageEvent<TextMessageContent> textEvent = EventTestUtil.createTextMessage("text");
+        final FollowEvent followEvent =
+                new FollowEvent("replyToken", textEvent.getSource(), textEvent.getTimestamp());
+
+        // Do
+        final Optional<HandlerMethod> text = target.resolve(textEvent);
+        final Optional<HandlerMethod> follow = target.resolve(followEvent);
+
+        // Verify
+        assertThat(text.get().getHandler().getName()).isEqualTo("textMessageEventHandler");
+        assertThat(follow.get().getHandler().getName()).isEqualTo("defaultEventHandler");
+        assertThat(target.resolve(EventTestUtil.createTextMessage("another"))).isSameAs(text);
+    }
+
+    @Test
+    public void resolveUnsupportedTest() throws Exception {
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("text", new TextMessageHandler()));
+        target.refresh();
+        final MessageEvent<TextMessageContent> textEvent = EventTestUtil.createTextMessage("text");
+
+        // Do
+        final Optional<HandlerMethod> follow = target.resolve(
+                new FollowEvent("replyToken", textEvent.getSource(), textEvent.getTimestamp()));
+
+        // Verify
+        assertThat(follow).isEmpty();
+    }
+
+    @Test
+    public void bulkheadTest() throws Exception {
+        final LineBotProperties lineBotProperties = new LineBotProperties();
+        lineBotProperties.getHandler().getBulkheads().put("heavy", new LineBotProperties.Bulkhead());
+        final LineMessageHandlerSupport support = new LineMessageHandlerSupport(
+                replyByReturnValueConsumerFactory, applicationContext, lineBotProperties);
+        final BulkheadHandler handler = new BulkheadHandler();
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("bulkhead", handler));
+        support.refresh();
+
+        // Do
+        support.dispatch(EventTestUtil.createTextMessage("text"));
+
+        // Verify
+        assertThat(handler.threadName.get(5, TimeUnit.SECONDS)).startsWith("line-bot-bulkhead-heavy-");
+        assertThat(support.getBulkheads().get("heavy").getMaxConcurrency())
+                .isEqualTo(HandlerBulkhead.DEFAULT_MAX_CONCURRENCY);
+        support.close();
+    }
+
+    @Test
+    public void maxEventAgeDefaultsToReplyTimeoutTest() throws Exception {
+        final LineBotProperties lineBotProperties = new LineBotProperties();
+        lineBotProperties.getHandler().getAsync().setEnabled(true);
+        lineBotProperties.getHandler().getReply().setTimeout(1_000);
+        final LineMessageHandlerSupport support = new LineMessageHandlerSupport(
+                replyByReturnValueConsumerFactory, applicationContext, lineBotProperties);
+        final Source source = EventTestUtil.createTextMessage("text").getSource();
+
+        // Do
+        support.callback(singletonList(new FollowEvent("replyToken", source, Instant.now().minusSeconds(5))));
+
+        // Verify
+        assertThat(support.getEventQueue().getExpiredCount()).isEqualTo(1);
+        support.close();
+    }
+
+    @Test
+    public void undefinedBulkheadTest() throws Exception {
+        when(applicationContext.getBeansWithAnnotation(LineMessageHandler.class))
+                .thenReturn(singletonMap("bulkhead", new BulkheadHandler()));
+
+        // Do
+        assertThatThrownBy(() -> target.refresh())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("heavy");
+    }
+
     @LineMessageHandler
     public static class MessageHandler {
         @EventMapping
@@ -149,6 +313,13 @@ public class LineMessageHandlerSupportTest {
         }
     }
 
+    @LineMessageHandler
+    public static class TextMessageHandler {
+        @EventMapping
+        public void textMessageEventHandler(MessageEvent<TextMessageContent> event) {
+        }
+    }
+
     @LineMessageHandler
     @AllArgsConstructor
     public static class ReplyHandler {
@@ -159,4 +330,14 @@ public class LineMessageHandlerSupportTest {
             return new TextMessage(replyMessage);
         }
     }
+
+    @LineMessageHandler
+    public static class BulkheadHandler {
+        private final CompletableFuture<String> threadName = new CompletableFuture<>();
+
+        @EventMapping(bulkhead = "heavy")
+        public void handle(final MessageEvent<TextMessageContent> event) {
+            threadName.complete(Thread.currentThread().getName());
+        }
+    }
 }
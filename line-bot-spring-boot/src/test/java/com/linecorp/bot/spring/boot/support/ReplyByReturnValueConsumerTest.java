@@ -6,8 +6,12 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.only;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
@@ -23,6 +27,7 @@ import org.mockito.junit.MockitoRule;
 
 import com.linecorp.bot.client.LineMessagingClient;
 import com.linecorp.bot.client.exception.GeneralLineMessagingException;
+import com.linecorp.bot.model.PushMessage;
 import com.linecorp.bot.model.ReplyMessage;
 import com.linecorp.bot.model.event.MessageEvent;
 import com.linecorp.bot.model.message.TextMessage;
@@ -137,6 +142,64 @@ public class ReplyByReturnValueConsumerTest {
                 .contains("EXCEPTION HAPPEN!");
     }
 
+    @Test
+    public void replyBeforeDeadlineTest() throws Exception {
+        final ReplyDeadline replyDeadline = replyDeadline(EVENT.getTimestamp().plusSeconds(1), true);
+        target = new ReplyByReturnValueConsumer.Factory(lineMessagingClient, replyDeadline).createForEvent(EVENT);
+
+        // Do
+        target.accept(new TextMessage("Reply Text"));
+
+        // Verify
+        verify(lineMessagingClient, only())
+                .replyMessage(new ReplyMessage(EVENT.getReplyToken(),
+                                               singletonList(new TextMessage("Reply Text"))));
+        assertThat(replyDeadline.getRepliedCount()).isEqualTo(1);
+        assertThat(replyDeadline.getTimeToReplyHistogram().getPercentile(1)).isEqualTo(1_000);
+        assertThat(replyDeadline.getTimeToResultHistogram().getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void pushAfterDeadlineTest() throws Exception {
+        when(lineMessagingClient.pushMessage(any(PushMessage.class)))
+                .thenReturn(CompletableFuture.completedFuture(new BotApiResponse("success", null)));
+        final ReplyDeadline replyDeadline = replyDeadline(EVENT.getTimestamp().plusSeconds(31), true);
+        target = new ReplyByReturnValueConsumer.Factory(lineMessagingClient, replyDeadline).createForEvent(EVENT);
+
+        // Do
+        target.accept(new TextMessage("Reply Text"));
+
+        // Verify
+        verify(lineMessagingClient, only())
+                .pushMessage(new PushMessage(EVENT.getSource().getSenderId(),
+                                             singletonList(new TextMessage("Reply Text"))));
+        assertThat(replyDeadline.getPushedCount()).isEqualTo(1);
+        assertThat(replyDeadline.getRepliedCount()).isZero();
+        assertThat(replyDeadline.getTimeToReplyHistogram().getCount()).isZero();
+        assertThat(replyDeadline.getTimeToResultHistogram().getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void dropAfterDeadlineTest() throws Exception {
+        final ReplyDeadline replyDeadline = replyDeadline(EVENT.getTimestamp().plusSeconds(31), false);
+        target = new ReplyByReturnValueConsumer.Factory(lineMessagingClient, replyDeadline).createForEvent(EVENT);
+
+        // Do
+        target.accept(new TextMessage("Reply Text"));
+
+        // Verify
+        verifyZeroInteractions(lineMessagingClient);
+        assertThat(replyDeadline.getDroppedCount()).isEqualTo(1);
+        assertThat(replyDeadline.getTimeToResultHistogram().getCount()).isEqualTo(1);
+    }
+
+    private static ReplyDeadline replyDeadline(final Instant now, final boolean pushFallback) {
+        return ReplyDeadline.builder()
+                            .pushFallback(pushFallback)
+                            .clock(Clock.fixed(now, ZoneOffset.UTC))
+                            .build();
+    }
+
     // Internal method test.
     @Test
     public void checkListContentsNullTest() throws Exception {
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.bot.spring.boot.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+
+import com.linecorp.bot.model.event.FollowEvent;
+import com.linecorp.bot.model.event.source.UserSource;
+
+public class ReplyDeadlineTest {
+    private static final Instant NOW = Instant.parse("2016-11-19T00:00:00.000Z");
+
+    private final ReplyDeadline target = ReplyDeadline.builder()
+                                                      .replyTimeout(10_000)
+                                                      .clock(Clock.fixed(NOW, ZoneOffset.UTC))
+                                                      .build();
+
+    @Test
+    public void remainingTest() {
+        final FollowEvent fresh = event(NOW.minusSeconds(3));
+        final FollowEvent late = event(NOW.minusSeconds(11));
+        final FollowEvent noTimestamp = event(null);
+
+        // Verify
+        assertThat(target.remaining(fresh)).isEqualTo(Duration.ofSeconds(7));
+        assertThat(target.isExpired(fresh)).isFalse();
+        assertThat(target.remaining(late)).isEqualTo(Duration.ZERO);
+        assertThat(target.isExpired(late)).isTrue();
+        assertThat(target.remaining(noTimestamp)).isEqualTo(Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void timeToReplyHistogramTest() {
+        // Do
+        target.recordReply(event(NOW.minusMillis(50)));
+        target.recordReply(event(NOW.minusMillis(400)));
+        target.recordReply(event(NOW.minusMillis(500)));
+        target.recordReply(event(NOW.minusSeconds(120)));
+
+        // Verify
+        // Buckets: 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000, unbounded
+        assertThat(target.getTimeToReplyHistogram().getBucketCounts())
+                .containsExactly(0, 0, 0, 0, 0, 1, 0, 0, 2, 0, 0, 0, 0, 0, 1);
+        assertThat(target.getTimeToReplyHistogram().getCount()).isEqualTo(4);
+        assertThat(target.getRepliedCount()).isEqualTo(4);
+    }
+
+    private static FollowEvent event(final Instant timestamp) {
+        return new FollowEvent("replyToken", new UserSource("userId"), timestamp);
+    }
+}
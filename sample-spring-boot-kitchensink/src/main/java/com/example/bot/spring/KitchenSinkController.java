@@ -17,9 +17,7 @@
 package com.example.bot.spring;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.UncheckedIOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -36,10 +34,8 @@ import com.linecorp.bot.model.message.template.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import com.google.common.io.ByteStreams;
-
+import com.linecorp.bot.client.ContentDownloadResponse;
 import com.linecorp.bot.client.LineMessagingClient;
-import com.linecorp.bot.client.MessageContentResponse;
 import com.linecorp.bot.model.ReplyMessage;
 import com.linecorp.bot.model.PushMessage;
 import com.linecorp.bot.model.action.MessageAction;
@@ -110,14 +106,14 @@ public class KitchenSinkController {
         ));
     }
 
-    @EventMapping
+    @EventMapping(bulkhead = "content")
     public void handleImageMessageEvent(MessageEvent<ImageMessageContent> event) throws IOException {
         // You need to install ImageMagick
         handleHeavyContent(
                 event.getReplyToken(),
                 event.getMessage().getId(),
-                responseBody -> {
-                    DownloadedContent jpg = saveContent("jpg", responseBody);
+                "jpg",
+                jpg -> {
                     DownloadedContent previewImg = createTempFile("jpg");
                     system(
                             "convert",
@@ -129,25 +125,25 @@ public class KitchenSinkController {
                 });
     }
 
-    @EventMapping
+    @EventMapping(bulkhead = "content")
     public void handleAudioMessageEvent(MessageEvent<AudioMessageContent> event) throws IOException {
         handleHeavyContent(
                 event.getReplyToken(),
                 event.getMessage().getId(),
-                responseBody -> {
-                    DownloadedContent mp4 = saveContent("mp4", responseBody);
+                "mp4",
+                mp4 -> {
                     reply(event.getReplyToken(), new AudioMessage(mp4.getUri(), 100));
                 });
     }
 
-    @EventMapping
+    @EventMapping(bulkhead = "content")
     public void handleVideoMessageEvent(MessageEvent<VideoMessageContent> event) throws IOException {
         // You need to install ffmpeg and ImageMagick.
         handleHeavyContent(
                 event.getReplyToken(),
                 event.getMessage().getId(),
-                responseBody -> {
-                    DownloadedContent mp4 = saveContent("mp4", responseBody);
+                "mp4",
+                mp4 -> {
                     DownloadedContent previewImg = createTempFile("jpg");
                     system("convert",
                            mp4.path + "[0]",
@@ -248,17 +244,19 @@ public class KitchenSinkController {
         this.reply(replyToken, new TextMessage(message));
     }
 
-    private void handleHeavyContent(String replyToken, String messageId,
-                                    Consumer<MessageContentResponse> messageConsumer) {
-        final MessageContentResponse response;
+    private void handleHeavyContent(String replyToken, String messageId, String ext,
+                                    Consumer<DownloadedContent> messageConsumer) {
+        final DownloadedContent content = createTempFile(ext);
         try {
-            response = lineMessagingClient.getMessageContent(messageId)
-                                          .get();
+            final ContentDownloadResponse response =
+                    lineMessagingClient.getMessageContentTo(messageId, content.path)
+                                       .get();
+            log.info("Saved {}: {} {}", ext, content, response);
         } catch (InterruptedException | ExecutionException e) {
             reply(replyToken, new TextMessage("Cannot get image: " + e.getMessage()));
             throw new RuntimeException(e);
         }
-        messageConsumer.accept(response);
+        messageConsumer.accept(content);
     }
 
     private void handleSticker(String replyToken, StickerMessageContent content) {
@@ -1016,19 +1014,6 @@ public class KitchenSinkController {
         }
     }
 
-    private static DownloadedContent saveContent(String ext, MessageContentResponse responseBody) {
-        log.info("Got content-type: {}", responseBody);
-
-        DownloadedContent tempFile = createTempFile(ext);
-        try (OutputStream outputStream = Files.newOutputStream(tempFile.path)) {
-            ByteStreams.copy(responseBody.getStream(), outputStream);
-            log.info("Saved {}: {}", ext, tempFile);
-            return tempFile;
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-    }
-
     private static DownloadedContent createTempFile(String ext) {
         String fileName = LocalDateTime.now().toString() + '-' + UUID.randomUUID().toString() + '.' + ext;
         Path tempFile = KitchenSinkApplication.downloadedContentDir.resolve(fileName);